@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+# Reports how long the app takes from being launched to answering its
+# first request: the time a redeploy keeps users waiting.
+#
+#   docker/measure-startup.sh [-n runs] [-u url] -- command [args...]
+#
+# Runs the command (which must start the app in the foreground) the given
+# number of times, polls the url until it answers with any HTTP status
+# other than 5xx, stops the app, and prints each time and the median.
+# For example, to compare the image against a plain java -jar:
+#
+#   docker/measure-startup.sh -n 5 -- docker run --rm -p 8080:8080 --env-file .env team02
+#   docker/measure-startup.sh -n 5 -- java -jar target/team02-1.0.0.jar
+
+set -euo pipefail
+
+runs=3
+url=http://localhost:8080/api/systemInfo
+while getopts "n:u:" opt; do
+  case $opt in
+    n) runs=$OPTARG ;;
+    u) url=$OPTARG ;;
+    *) sed -n '2,15p' "$0" >&2; exit 2 ;;
+  esac
+done
+shift $((OPTIND - 1))
+[ "${1:-}" = "--" ] && shift
+if [ $# -eq 0 ]; then
+  sed -n '2,15p' "$0" >&2
+  exit 2
+fi
+
+now_ms() {
+  date +%s%3N
+}
+
+times=()
+for run in $(seq 1 "$runs"); do
+  start=$(now_ms)
+  "$@" > /tmp/measure-startup.log 2>&1 &
+  pid=$!
+  while true; do
+    status=$(curl -s -o /dev/null -w '%{http_code}' "$url" || true)
+    if [ "$status" != "000" ] && [ "${status:0:1}" != "5" ]; then
+      break
+    fi
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "run $run: the app exited before answering; see /tmp/measure-startup.log" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  elapsed=$(( $(now_ms) - start ))
+  times+=("$elapsed")
+  echo "run $run: first response after ${elapsed} ms"
+  kill -TERM "$pid"
+  wait "$pid" 2>/dev/null || true
+  # let the port go before the next run
+  while curl -s -o /dev/null "$url"; do sleep 0.1; done
+done
+
+sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+echo "time to first request over $runs runs: median ${sorted[$(( runs / 2 ))]} ms, min ${sorted[0]} ms, max ${sorted[$(( runs - 1 ))]} ms"
@@ -0,0 +1,19 @@
+#!/bin/sh
+# Starts the app from the layout the Dockerfile builds under $APP_HOME:
+# app.jar (the application classes), lib/ (the dependencies) and, once
+# train-cds.sh has run, app.jsa (the class-data sharing archive).
+#
+# Arguments are passed to the JVM; JAVA_TOOL_OPTIONS works too.  The class
+# path must be exactly the one the archive was trained with, so always
+# start the app through this script.  Set MAIN_CLASS to run another entry
+# point on the same class path, e.g. edu.ucsb.cs156.example.MigrateDatabase.
+
+APP_HOME=${APP_HOME:-/app}
+JAVA=${JAVA:-/jre/bin/java}
+MAIN_CLASS=${MAIN_CLASS:-edu.ucsb.cs156.example.ExampleApplication}
+
+if [ -f "$APP_HOME/app.jsa" ]; then
+  set -- -XX:SharedArchiveFile="$APP_HOME/app.jsa" "$@"
+fi
+
+exec "$JAVA" "$@" -cp "$APP_HOME/app.jar:$APP_HOME/lib/*" "$MAIN_CLASS"
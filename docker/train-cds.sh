@@ -0,0 +1,61 @@
+#!/bin/sh
+# Writes $APP_HOME/app.jsa, an application class-data sharing (AppCDS)
+# archive of every class the app loads while it starts and serves its
+# first requests.  Later JVMs map those classes from the archive instead
+# of finding, parsing and verifying them again, which takes a good part of
+# the startup time.
+#
+# Runs the production profile against an in-memory H2 database, so the
+# training run goes through Liquibase, Hibernate and Spring Security the
+# way a real start does.  Run at image build time;
+# see the Dockerfile.
+
+set -eu
+
+APP_HOME=${APP_HOME:-/app}
+TRAINING_PORT=${TRAINING_PORT:-8080}
+HERE=$(dirname "$0")
+
+rm -f "$APP_HOME/app.jsa"
+
+SPRING_PROFILES_ACTIVE=${SPRING_PROFILES_ACTIVE:-production} \
+JDBC_DATABASE_URL="jdbc:h2:mem:training;DB_CLOSE_DELAY=-1" \
+SPRING_JPA_PROPERTIES_HIBERNATE_DIALECT=org.hibernate.dialect.H2Dialect \
+JDBC_DATABASE_USERNAME=sa \
+JDBC_DATABASE_PASSWORD= \
+PORT=$TRAINING_PORT \
+  "$HERE/start.sh" -XX:ArchiveClassesAtExit="$APP_HOME/app.jsa" -Xlog:cds=off &
+pid=$!
+
+base=http://localhost:$TRAINING_PORT
+started=
+for _ in $(seq 1 240); do
+  if wget -q -O /dev/null "$base/api/systemInfo"; then
+    started=yes
+    break
+  fi
+  if ! kill -0 "$pid" 2>/dev/null; then
+    break
+  fi
+  sleep 0.5
+done
+if [ -z "$started" ]; then
+  echo "train-cds: the app did not start" >&2
+  kill "$pid" 2>/dev/null || true
+  exit 1
+fi
+
+# the first request on each of these paths loads classes a real first visit needs
+for path in / /api/currentUser /api/csrf /api/ucsbdates/all /swagger-ui/index.html /openapi/openapi.json; do
+  wget -q -O /dev/null "$base$path" || true
+done
+
+# the archive is written as the JVM exits
+kill -TERM "$pid"
+wait "$pid" || true
+
+if [ ! -s "$APP_HOME/app.jsa" ]; then
+  echo "train-cds: no archive was written" >&2
+  exit 1
+fi
+echo "train-cds: wrote $APP_HOME/app.jsa ($(du -k "$APP_HOME/app.jsa" | cut -f1) KB)"
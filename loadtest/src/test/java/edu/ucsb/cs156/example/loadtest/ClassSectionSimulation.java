@@ -0,0 +1,139 @@
+package edu.ucsb.cs156.example.loadtest;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+/**
+ * Models the traffic of a class section working with the app at the same
+ * time:
+ *
+ * - a burst of students logging in and posting help requests,
+ * - TAs polling the help request list while the section runs,
+ * - a couple of admins bulk-editing the quarter's dates.
+ *
+ * Run the backend with the "loadtest" profile (see loadtest/README.md) so
+ * that virtual users can sign in with the X-Loadtest-User header instead of
+ * going through Google.
+ *
+ * Sizes can be changed with system properties, e.g.
+ * mvn gatling:test -Dstudents=500 -DdurationSeconds=300
+ */
+public class ClassSectionSimulation extends Simulation {
+
+  static final String BASE_URL = System.getProperty("baseUrl", "http://localhost:8080");
+  static final int STUDENTS = Integer.getInteger("students", 200);
+  static final int STUDENT_RAMP_SECONDS = Integer.getInteger("studentRampSeconds", 30);
+  static final int TAS = Integer.getInteger("tas", 10);
+  static final int ADMINS = Integer.getInteger("admins", 2);
+  static final int DURATION_SECONDS = Integer.getInteger("durationSeconds", 120);
+  static final int P95_MILLIS = Integer.getInteger("p95Millis", 500);
+
+  static final String USER_HEADER = "X-Loadtest-User";
+  static final String ROLES_HEADER = "X-Loadtest-Roles";
+
+  HttpProtocolBuilder httpProtocol = http
+      .baseUrl(BASE_URL)
+      .acceptHeader("application/json")
+      .header(USER_HEADER, "#{username}")
+      .header(ROLES_HEADER, "#{roles}");
+
+  static Iterator<Map<String, Object>> users(String prefix, String roles) {
+    AtomicInteger counter = new AtomicInteger();
+    return Stream.generate(() -> Map.<String, Object>of(
+        "username", prefix + "-" + counter.incrementAndGet(),
+        "roles", roles))
+        .iterator();
+  }
+
+  // The first request after login sets the XSRF-TOKEN cookie; every write
+  // has to echo it back in the X-XSRF-TOKEN header.
+  static final ChainBuilder login = exec(
+      http("GET /api/currentUser")
+          .get("/api/currentUser")
+          .check(status().is(200)))
+      .exec(getCookieValue(CookieKey("XSRF-TOKEN").saveAs("xsrf")));
+
+  static String isoNow() {
+    return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString();
+  }
+
+  // POST /api/helprequest/post currently requires ROLE_ADMIN, so students
+  // are given that role; otherwise every post would be a 403.
+  ScenarioBuilder students = scenario("Students post help requests")
+      .feed(users("student", "ADMIN"))
+      .exec(login)
+      .pause(Duration.ofSeconds(1), Duration.ofSeconds(5))
+      .exec(http("POST /api/helprequest/post")
+          .post("/api/helprequest/post")
+          .header("X-XSRF-TOKEN", "#{xsrf}")
+          .queryParam("requesterEmail", "#{username}@loadtest.example.org")
+          .queryParam("teamId", session -> "team" + (session.userId() % 20))
+          .queryParam("tableOrBreakoutRoom", session -> "table" + (session.userId() % 20))
+          .queryParam("explanation", "Our tests fail on the CI server but pass locally")
+          .queryParam("solved", "false")
+          .queryParam("requestTime", session -> isoNow())
+          .check(status().is(200)))
+      .pause(Duration.ofSeconds(5), Duration.ofSeconds(15))
+      .exec(http("GET /api/helprequest/all (student)")
+          .get("/api/helprequest/all")
+          .check(status().is(200)));
+
+  ScenarioBuilder tas = scenario("TAs poll the help request queue")
+      .feed(users("ta", ""))
+      .exec(login)
+      .during(Duration.ofSeconds(DURATION_SECONDS)).on(
+          exec(http("GET /api/helprequest/all (TA poll)")
+              .get("/api/helprequest/all")
+              .check(status().is(200)))
+          .pause(Duration.ofSeconds(2)));
+
+  ScenarioBuilder admins = scenario("Admins bulk-edit UCSBDates")
+      .feed(users("admin", "ADMIN"))
+      .exec(login)
+      .repeat(20, "i").on(
+          exec(http("POST /api/ucsbdates/post")
+              .post("/api/ucsbdates/post")
+              .header("X-XSRF-TOKEN", "#{xsrf}")
+              .queryParam("quarterYYYYQ", "20243")
+              .queryParam("name", "#{username} date #{i}")
+              .queryParam("localDateTime", session -> isoNow())
+              .check(status().is(200))
+              .check(jsonPath("$.id").saveAs("dateId")))
+          .exec(http("PUT /api/ucsbdates")
+              .put("/api/ucsbdates")
+              .queryParam("id", "#{dateId}")
+              .header("X-XSRF-TOKEN", "#{xsrf}")
+              .body(StringBody(session -> """
+                  {"quarterYYYYQ":"20243","name":"%s edited","localDateTime":"%s"}"""
+                  .formatted(session.getString("username"), isoNow())))
+              .asJson()
+              .check(status().is(200)))
+          .pause(Duration.ofMillis(500)))
+      .exec(http("GET /api/ucsbdates/all")
+          .get("/api/ucsbdates/all")
+          .check(status().is(200)));
+
+  {
+    setUp(
+        students.injectOpen(rampUsers(STUDENTS).during(Duration.ofSeconds(STUDENT_RAMP_SECONDS))),
+        tas.injectOpen(atOnceUsers(TAS)),
+        admins.injectOpen(atOnceUsers(ADMINS)))
+        .protocols(httpProtocol)
+        .assertions(
+            global().failedRequests().percent().lt(1.0),
+            global().responseTime().percentile(95.0).lt(P95_MILLIS));
+  }
+}
@@ -0,0 +1,105 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.config.JacksonConfig;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+
+/**
+ * Time to serialize a 100,000 row /all response with the ObjectMapper
+ * Spring Boot would build on its own ("stock") and with JacksonConfig
+ * applied ("tuned").  Output goes to a stream that counts bytes, so only
+ * serialization is measured.
+ *
+ *   mvn -P jmh test-compile exec:exec -Djmh.args="JacksonSerialization"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JacksonSerializationBenchmark {
+
+  @Param({ "stock", "tuned" })
+  String mapper;
+
+  @Param({ "helprequest", "articles", "menuitemreview" })
+  String entity;
+
+  @Param({ "100000" })
+  int rows;
+
+  private ObjectMapper objectMapper;
+  private List<?> list;
+
+  @Setup
+  public void setup() {
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    if (mapper.equals("tuned")) {
+      JacksonConfig config = new JacksonConfig();
+      builder.modulesToInstall(config.blackbirdModule());
+      config.jacksonTuning().customize(builder);
+    }
+    objectMapper = builder.build();
+
+    LocalDateTime start = LocalDateTime.parse("2022-01-03T09:00:00");
+    list = LongStream.range(0, rows).mapToObj(id -> switch (entity) {
+      case "helprequest" -> HelpRequest.builder().id(id).requesterEmail("cgaucho" + id + "@ucsb.edu")
+          .teamId("s22-5pm-" + id % 10).tableOrBreakoutRoom(Long.toString(id % 12)).requestTime(start.plusSeconds(id))
+          .explanation("Need help with the merge conflict in row " + id).solved(id % 2 == 0).version(id % 5).build();
+      case "articles" -> Articles.builder().id(id).title("Article " + id).url("https://example.com/articles/" + id)
+          .explanation("What article " + id + " is about").email("cgaucho@ucsb.edu").dateAdded(start.plusMinutes(id))
+          .version(0L).build();
+      default -> MenuItemReview.builder().id(id).itemId(id % 500).reviewerEmail("cgaucho@ucsb.edu")
+          .stars((int) (id % 5) + 1).dateReviewed(start.plusNanos(id * 1_000_000L)).comments("Review " + id)
+          .version(1L).build();
+    }).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public long serialize() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    objectMapper.writeValue(out, list);
+    return out.count;
+  }
+
+  static final class CountingOutputStream extends OutputStream {
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
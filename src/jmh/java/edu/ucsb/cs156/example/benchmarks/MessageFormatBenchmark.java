@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import edu.ucsb.cs156.example.config.JacksonConfig;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+/**
+ * Encode and decode time of a 10,000 row /api/helprequests/all response in
+ * each encoding the API offers, with the mappers configured as the
+ * application configures them.  The payload size of each is printed when
+ * the benchmark starts.
+ *
+ *   mvn -P jmh test-compile exec:exec -Djmh.args="MessageFormat"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageFormatBenchmark {
+
+  @Param({ "json", "cbor", "smile" })
+  String format;
+
+  @Param({ "10000" })
+  int rows;
+
+  private ObjectMapper mapper;
+  private List<HelpRequest> list;
+  private byte[] encoded;
+
+  @Setup
+  public void setup() throws IOException {
+    JsonFactory factory = switch (format) {
+      case "cbor" -> new CBORFactory();
+      case "smile" -> new SmileFactory();
+      default -> new JsonFactory();
+    };
+    JacksonConfig config = new JacksonConfig();
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .modulesToInstall(config.blackbirdModule())
+        .factory(factory);
+    config.jacksonTuning().customize(builder);
+    mapper = builder.build();
+
+    LocalDateTime start = LocalDateTime.parse("2022-01-03T09:00:00");
+    list = LongStream.range(0, rows).mapToObj(id -> HelpRequest.builder().id(id)
+        .requesterEmail("cgaucho" + id + "@ucsb.edu").teamId("s22-5pm-" + id % 10)
+        .tableOrBreakoutRoom(Long.toString(id % 12)).requestTime(start.plusSeconds(id))
+        .explanation("Need help with the merge conflict in row " + id).solved(id % 2 == 0).version(id % 5).build())
+        .collect(Collectors.toList());
+    encoded = mapper.writeValueAsBytes(list);
+    System.out.printf("%s: %d rows in %d bytes%n", format, rows, encoded.length);
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return mapper.writeValueAsBytes(list);
+  }
+
+  @Benchmark
+  public HelpRequest[] decode() throws IOException {
+    return mapper.readValue(encoded, HelpRequest[].class);
+  }
+}
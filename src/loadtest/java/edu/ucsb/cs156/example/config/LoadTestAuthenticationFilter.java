@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Signs in a fake Google user named by the X-Loadtest-User header, so that
+ * the load tests under loadtest/ can drive the API without a real OAuth
+ * login.  Extra roles (e.g. ADMIN) can be requested with X-Loadtest-Roles.
+ *
+ * Only on the classpath when the app is run with the loadtest Maven
+ * profile, and only installed when the "loadtest" Spring profile is active;
+ * see LoadTestHttpConfigurer.
+ */
+public class LoadTestAuthenticationFilter extends OncePerRequestFilter {
+
+  public static final String USER_HEADER = "X-Loadtest-User";
+  public static final String ROLES_HEADER = "X-Loadtest-Roles";
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String username = request.getHeader(USER_HEADER);
+    if (username != null && !username.isBlank()) {
+      SecurityContextHolder.getContext().setAuthentication(authenticationFor(username, request.getHeader(ROLES_HEADER)));
+    }
+    chain.doFilter(request, response);
+  }
+
+  private OAuth2AuthenticationToken authenticationFor(String username, String roles) {
+    Map<String, Object> attributes = Map.of(
+        "sub", "loadtest_" + username,
+        "email", username + "@loadtest.example.org",
+        "picture", "https://loadtest.example.org/" + username + ".jpg",
+        "name", "Loadtest " + username,
+        "given_name", "Loadtest",
+        "family_name", username,
+        "email_verified", true,
+        "locale", "en",
+        "hd", "loadtest.example.org");
+
+    List<GrantedAuthority> authorities = new ArrayList<>();
+    authorities.add(new OAuth2UserAuthority(attributes));
+    if (roles != null) {
+      for (String role : roles.split(",")) {
+        if (!role.isBlank()) {
+          authorities.add(new SimpleGrantedAuthority("ROLE_" + role.trim()));
+        }
+      }
+    }
+
+    DefaultOAuth2User user = new DefaultOAuth2User(authorities, attributes, "email");
+    return new OAuth2AuthenticationToken(user, authorities, "google");
+  }
+}
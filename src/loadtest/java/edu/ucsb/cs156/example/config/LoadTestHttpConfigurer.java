@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Installs the LoadTestAuthenticationFilter when the "loadtest" Spring
+ * profile is active.  Spring Security applies every configurer listed in
+ * META-INF/spring.factories, so SecurityConfig needs no reference to it.
+ * The loadtest Maven profile compiles this to a directory of its own, so it
+ * is never in the jar.
+ */
+@Slf4j
+public class LoadTestHttpConfigurer extends AbstractHttpConfigurer<LoadTestHttpConfigurer, HttpSecurity> {
+
+  @Override
+  public void configure(HttpSecurity http) {
+    Environment environment = http.getSharedObject(ApplicationContext.class).getEnvironment();
+    if (!environment.acceptsProfiles(Profiles.of("loadtest"))) {
+      return;
+    }
+    if (environment.acceptsProfiles(Profiles.of("production"))) {
+      throw new IllegalStateException("The loadtest profile must never be combined with production");
+    }
+    log.warn("********** loadtest profile active: requests may sign in with the {} header",
+        LoadTestAuthenticationFilter.USER_HEADER);
+    http.addFilterBefore(new LoadTestAuthenticationFilter(), AnonymousAuthenticationFilter.class);
+  }
+}
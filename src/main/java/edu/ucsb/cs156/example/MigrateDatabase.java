@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+
+import edu.ucsb.cs156.example.config.LiquibaseConfig;
+
+/**
+ * Brings the database up to date with the changelog and exits, without
+ * starting the app.  Meant for a deploy pipeline, before the new version
+ * starts; the app then finds the schema current and skips Liquibase.  It
+ * reads the same configuration as the app (application.properties, the
+ * active profile, environment variables).  See docs/liquibase.md.
+ *
+ * Deliberately not a @Configuration, so that the app's component scan
+ * doesn't pick it up.
+ */
+@ImportAutoConfiguration({ PropertyPlaceholderAutoConfiguration.class, DataSourceAutoConfiguration.class,
+    LiquibaseAutoConfiguration.class })
+@Import(LiquibaseConfig.class)
+public class MigrateDatabase {
+
+  public static void main(String[] args) {
+    // devtools, when present, would run this a second time in a restart class loader
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    new SpringApplicationBuilder(MigrateDatabase.class)
+        .web(WebApplicationType.NONE)
+        .properties("app.liquibase.startup=full")
+        .run(args)
+        .close();
+  }
+}
@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Configuration;
+
+import edu.ucsb.cs156.example.grpc.DiningCommonsGrpcService;
+import edu.ucsb.cs156.example.grpc.MenuItemGrpcService;
+import edu.ucsb.cs156.example.grpc.SessionAuthenticationInterceptor;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommonsServiceGrpc;
+import edu.ucsb.cs156.example.grpc.proto.MenuItemServiceGrpc;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the gRPC server (see src/main/proto and docs/grpc.md) on its own
+ * port, next to the web server, for the life of the application.  Every
+ * service goes through SessionAuthenticationInterceptor.
+ *
+ * It is off unless app.grpc.port is set.  Calls carry the caller's session
+ * cookie, so without TLS the server only listens on a loopback address;
+ * app.grpc.tls.* must be set for it to listen anywhere else.
+ */
+@Slf4j
+@Configuration
+public class GrpcServerConfig implements SmartLifecycle {
+
+  @Value("${app.grpc.port:-1}")
+  int port;
+
+  @Value("${app.grpc.address:127.0.0.1}")
+  String address;
+
+  @Value("${app.grpc.tls.certificate-chain:}")
+  String certificateChain;
+
+  @Value("${app.grpc.tls.private-key:}")
+  String privateKey;
+
+  @Autowired
+  DiningCommonsGrpcService diningCommonsGrpcService;
+
+  @Autowired
+  MenuItemGrpcService menuItemGrpcService;
+
+  @Autowired
+  SessionAuthenticationInterceptor sessionAuthenticationInterceptor;
+
+  private Server server;
+
+  @Override
+  public synchronized void start() {
+    if (port < 0) {
+      log.info("gRPC server disabled");
+      return;
+    }
+    boolean tls = !certificateChain.isEmpty();
+    if (tls == privateKey.isEmpty()) {
+      throw new IllegalStateException("set both app.grpc.tls.certificate-chain and app.grpc.tls.private-key, or neither");
+    }
+    InetSocketAddress bindAddress = new InetSocketAddress(address, port);
+    if (bindAddress.isUnresolved()) {
+      throw new IllegalStateException("app.grpc.address " + address + " is not a known address");
+    }
+    if (!tls && !bindAddress.getAddress().isLoopbackAddress()) {
+      throw new IllegalStateException("gRPC calls carry session cookies; set app.grpc.tls.* to listen on " + address);
+    }
+    NettyServerBuilder builder = NettyServerBuilder.forAddress(bindAddress);
+    if (tls) {
+      builder.useTransportSecurity(new File(certificateChain), new File(privateKey));
+    }
+    server = builder
+        .addService(ServerInterceptors.intercept(
+            DiningCommonsServiceGrpc.bindService(diningCommonsGrpcService), sessionAuthenticationInterceptor))
+        .addService(ServerInterceptors.intercept(
+            MenuItemServiceGrpc.bindService(menuItemGrpcService), sessionAuthenticationInterceptor))
+        .build();
+    try {
+      server.start();
+    } catch (IOException e) {
+      throw new UncheckedIOException("could not start the gRPC server on " + address + ":" + port, e);
+    }
+    log.info("gRPC server listening on {}:{} {}", address, server.getPort(), tls ? "with TLS" : "without TLS");
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (server == null) {
+      return;
+    }
+    server.shutdown();
+    try {
+      if (!server.awaitTermination(10, TimeUnit.SECONDS)) {
+        server.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      server.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    server = null;
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return server != null;
+  }
+}
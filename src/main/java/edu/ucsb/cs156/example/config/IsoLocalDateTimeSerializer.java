@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a LocalDateTime exactly as DateTimeFormatter.ISO_LOCAL_DATE_TIME
+ * would (2022-01-03T09:05:00, with a fraction only when there are nanos
+ * and without its trailing zeros), but straight into a char array rather
+ * than through the formatter's general-purpose printer.  Years outside
+ * 0000-9999 need a sign and go through the formatter, and with
+ * WRITE_DATES_AS_TIMESTAMPS on (Spring Boot turns it off) the JSR-310
+ * module's array form is written as before.
+ */
+public class IsoLocalDateTimeSerializer extends StdSerializer<LocalDateTime> {
+
+  public IsoLocalDateTimeSerializer() {
+    super(LocalDateTime.class);
+  }
+
+  @Override
+  public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+    if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+      LocalDateTimeSerializer.INSTANCE.serialize(value, gen, provider);
+      return;
+    }
+    int year = value.getYear();
+    if (year < 0 || year > 9999) {
+      gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+      return;
+    }
+    char[] text = new char[29];
+    digits(text, 0, year, 4);
+    text[4] = '-';
+    digits(text, 5, value.getMonthValue(), 2);
+    text[7] = '-';
+    digits(text, 8, value.getDayOfMonth(), 2);
+    text[10] = 'T';
+    digits(text, 11, value.getHour(), 2);
+    text[13] = ':';
+    digits(text, 14, value.getMinute(), 2);
+    text[16] = ':';
+    digits(text, 17, value.getSecond(), 2);
+    int length = 19;
+    int nano = value.getNano();
+    if (nano != 0) {
+      text[19] = '.';
+      digits(text, 20, nano, 9);
+      length = 29;
+      while (text[length - 1] == '0') {
+        length--;
+      }
+    }
+    gen.writeString(text, 0, length);
+  }
+
+  // writes value as exactly width digits, zero padded, starting at from
+  private static void digits(char[] text, int from, int value, int width) {
+    for (int i = from + width - 1; i >= from; i--) {
+      text[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.config;
+
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDateTime;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NativeDetector;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Tunes the ObjectMapper that Spring Boot builds for every controller,
+ * without changing a byte of what it writes.
+ *
+ * Boot installs every Module bean, so Blackbird replaces the reflective
+ * getter and setter calls in the entity bean serializers with generated
+ * lambdas.  LocalDateTime, which every entity has, is written by
+ * IsoLocalDateTimeSerializer instead of the JSR-310 module's formatter.
+ * Two features that cost time and buy nothing here are turned off: a flush
+ * after every value (the message converter flushes once at the end) and
+ * interning of field names read from request bodies.
+ *
+ * src/jmh/java/.../JacksonSerializationBenchmark compares this mapper with
+ * the stock one.
+ */
+@Configuration
+public class JacksonConfig {
+
+  // Blackbird needs a lookup with full access to the bean class's module.
+  // Its own lookup lacks that when devtools has loaded our classes in a
+  // restart class loader, so hand it ours for classes from our loader, and
+  // leave every other class to plain reflection.  A native image can't
+  // define classes at run time, so there it is plain reflection throughout.
+  @Bean
+  public Module blackbirdModule() {
+    if (NativeDetector.inNativeImage()) {
+      return new SimpleModule("blackbird-disabled");
+    }
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    ClassLoader ours = JacksonConfig.class.getClassLoader();
+    return new BlackbirdModule(type -> type.getClassLoader() == ours ? lookup : null);
+  }
+
+  @Bean
+  public Jackson2ObjectMapperBuilderCustomizer jacksonTuning() {
+    return builder -> builder
+        .serializerByType(LocalDateTime.class, new IsoLocalDateTimeSerializer())
+        .featuresToDisable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .factory(JsonFactory.builder().disable(JsonFactory.Feature.INTERN_FIELD_NAMES).build());
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Lets startup skip Liquibase when the schema is already up to date; see
+ * LiquibaseFastPath.  Set app.liquibase.startup=full to have Liquibase check
+ * every changeset on every start, as it did before.  MigrateDatabase runs
+ * the update on its own, for deploy pipelines.
+ */
+@Configuration
+public class LiquibaseConfig {
+
+  // static: a BeanPostProcessor has to exist before the other beans, so
+  // it can't depend on this class's instance
+  @Bean
+  public static LiquibaseFastPath liquibaseFastPath(
+      @Value("${app.liquibase.startup:fast}") String startup, Environment environment) {
+    Map<String, String> parameters = Binder.get(environment)
+        .bind("spring.liquibase.parameters", Bindable.mapOf(String.class, String.class))
+        .orElse(Map.of());
+    return new LiquibaseFastPath(!startup.equals("full"), parameters);
+  }
+}
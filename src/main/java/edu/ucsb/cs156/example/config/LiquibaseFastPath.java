@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Skips Liquibase at startup when the database is already up to date with
+ * the changelog in the jar.
+ *
+ * Every file under the changelog's directory is hashed, together with the
+ * contexts and labels, which is much cheaper than Liquibase parsing the
+ * changelog and checking each changeset and its preconditions.  The last
+ * changeset, db/migration/changelog-hash.json, runs on every full update
+ * and stores that hash in CHANGELOG_HASH.  If the stored hash matches the
+ * one computed now, nothing has changed since the last full update and
+ * Liquibase is told not to run.  Otherwise, including when the table
+ * doesn't exist yet, Liquibase runs as usual.  Because the hash is written
+ * after every other changeset, a failed update never stores it.
+ *
+ * A changeset whose precondition fails with onFail CONTINUE (such as the
+ * foreign keys that wait for orphan rows to be cleaned up) is skipped
+ * without being recorded.  The changeset that stores the hash has a
+ * precondition that each of those has run, and the one before it removes
+ * the old hash, so until they have run no hash is kept and every start
+ * runs Liquibase.
+ *
+ * With fast set to false (app.liquibase.startup=full), Liquibase always
+ * runs, but still stores the hash for later starts.
+ */
+@Slf4j
+public class LiquibaseFastPath implements BeanPostProcessor {
+
+  static final String HASH_PARAMETER = "changelogHash";
+
+  private final boolean fast;
+  private final Map<String, String> parameters;
+  private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+  /**
+   * @param fast       whether to skip Liquibase when the stored hash matches
+   * @param parameters spring.liquibase.parameters, which this replaces on
+   *                   the SpringLiquibase bean with a copy that also holds
+   *                   the hash
+   */
+  public LiquibaseFastPath(boolean fast, Map<String, String> parameters) {
+    this.fast = fast;
+    this.parameters = parameters;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+    if (bean instanceof SpringLiquibase liquibase) {
+      String hash = hash(liquibase.getChangeLog(), liquibase.getContexts(), liquibase.getLabels());
+      if (fast && hash.equals(storedHash(liquibase.getDataSource()))) {
+        log.info("Changelog unchanged since the last update (hash {}); skipping Liquibase", hash);
+        liquibase.setShouldRun(false);
+      } else {
+        Map<String, String> withHash = new HashMap<>(parameters);
+        withHash.put(HASH_PARAMETER, hash);
+        liquibase.setChangeLogParameters(withHash);
+      }
+    }
+    return bean;
+  }
+
+  String hash(String changeLog, String contexts, String labels) {
+    String location = changeLog.replaceFirst("^classpath\\*?:", "");
+    String directory = location.substring(0, location.lastIndexOf('/') + 1);
+    try {
+      Map<String, Resource> files = new TreeMap<>();
+      for (Resource resource : resolver.getResources("classpath*:" + directory + "**/*")) {
+        String url = resource.getURL().toString();
+        if (!url.endsWith("/")) {
+          files.put(url.substring(url.lastIndexOf(directory) + directory.length()), resource);
+        }
+      }
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      update(digest, Objects.toString(contexts, ""));
+      update(digest, Objects.toString(labels, ""));
+      for (Map.Entry<String, Resource> file : files.entrySet()) {
+        update(digest, file.getKey());
+        try (var in = file.getValue().getInputStream()) {
+          digest.update(in.readAllBytes());
+        }
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("could not hash the changelog " + changeLog, e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static String storedHash(DataSource dataSource) {
+    try {
+      List<String> hashes = new JdbcTemplate(dataSource)
+          .queryForList("SELECT HASH FROM CHANGELOG_HASH WHERE ID = 1", String.class);
+      return hashes.isEmpty() ? null : hashes.get(0);
+    } catch (DataAccessException e) {
+      // no CHANGELOG_HASH table yet
+      return null;
+    }
+  }
+}
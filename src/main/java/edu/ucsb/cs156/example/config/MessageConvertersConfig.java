@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Lets clients ask for CBOR (Accept: application/cbor) or Smile
+ * (Accept: application/x-jackson-smile) instead of JSON, and send request
+ * bodies in either with the matching Content-Type.  JSON stays the default.
+ *
+ * Spring MVC would add both converters on its own, but with a bare mapper.
+ * These are built from the same Jackson2ObjectMapperBuilder as the JSON
+ * mapper, so they get Spring Boot's settings and JacksonConfig's, and write
+ * the same fields and dates as JSON does.  Spring Boot puts each in place
+ * of the default converter of the same class.
+ */
+@Configuration
+public class MessageConvertersConfig {
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+  }
+}
@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+/**
+ * Serves the OpenAPI document that the Maven build writes at package time
+ * (see the springdoc-openapi-maven-plugin in pom.xml) from
+ * /openapi/openapi.json.
+ *
+ * Production sets springdoc.api-docs.enabled=false, so springdoc never
+ * scans the controllers there.  That turns off springdoc's Swagger UI as
+ * well, so in that case this class serves Swagger UI from its webjar, with
+ * src/main/resources/swagger-ui/swagger-initializer.js pointing it at the
+ * document above.  Elsewhere springdoc serves both, from the controllers as
+ * they are now.
+ *
+ * The build also writes openapi.json.gz, and the webjar has a .gz of each
+ * file; these are sent as is to clients that accept gzip.  None of it
+ * changes between deploys, so browsers may keep it for an hour and
+ * revalidate it with If-Modified-Since after that.
+ */
+@Configuration
+public class OpenAPIResourceConfig implements WebMvcConfigurer {
+
+  private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+  @Value("${springdoc.api-docs.enabled:true}")
+  private boolean springdocEnabled;
+
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    precompressed(registry.addResourceHandler("/openapi/**")
+        .addResourceLocations("classpath:/openapi/"));
+    if (!springdocEnabled) {
+      precompressed(registry.addResourceHandler("/swagger-ui/**")
+          .addResourceLocations("classpath:/swagger-ui/", swaggerUiWebjar()));
+    }
+  }
+
+  @Override
+  public void addViewControllers(ViewControllerRegistry registry) {
+    if (!springdocEnabled) {
+      registry.addRedirectViewController("/swagger-ui.html", "/swagger-ui/index.html");
+    }
+  }
+
+  private static void precompressed(ResourceHandlerRegistration registration) {
+    registration.setCacheControl(CACHE_CONTROL)
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver())
+        .addResolver(new PathResourceResolver());
+  }
+
+  private static String swaggerUiWebjar() {
+    try {
+      String version = PropertiesLoaderUtils
+          .loadProperties(new ClassPathResource("META-INF/maven/org.webjars/swagger-ui/pom.properties"))
+          .getProperty("version");
+      return "classpath:/META-INF/resources/webjars/swagger-ui/" + version + "/";
+    } catch (IOException e) {
+      throw new IllegalStateException("swagger-ui webjar not found", e);
+    }
+  }
+}
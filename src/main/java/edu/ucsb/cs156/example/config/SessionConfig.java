@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+
+import edu.ucsb.cs156.example.repositories.NearCacheSessionRepository;
+
+/**
+ * Stores sessions in the SPRING_SESSION tables (created by Liquibase, see
+ * db/migration/changes/SpringSession.json) so that any instance can serve
+ * any request, and puts the near-cache in front of that store.  Spring
+ * Session's filter picks the primary SessionRepository bean, so requests go
+ * through the cache and only fall through to the database on a miss.
+ */
+@Configuration
+@EnableJdbcHttpSession
+public class SessionConfig {
+
+  @Bean
+  @Primary
+  public NearCacheSessionRepository<?> nearCacheSessionRepository(
+      JdbcIndexedSessionRepository jdbcSessionRepository,
+      @Value("${app.session.near-cache.time-to-live:5s}") Duration timeToLive,
+      @Value("${app.session.near-cache.maximum-size:10000}") int maximumSize,
+      @Value("${app.session.near-cache.access-time-flush-interval:60s}") Duration accessTimeFlushInterval) {
+    return new NearCacheSessionRepository<>(jdbcSessionRepository, timeToLive, maximumSize, accessTimeFlushInterval);
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts SingleFlightFilter in front of the paths in app.single-flight.paths,
+ * just after Spring Security's filters so that it knows the user's roles.
+ * Only list endpoints whose response depends on nothing but the user's
+ * roles; the plain /all listings qualify, anything that looks at the
+ * current user does not.
+ */
+@Configuration
+public class SingleFlightConfig {
+
+  @Bean
+  public FilterRegistrationBean<SingleFlightFilter> singleFlightFilter(
+      @Value("${app.single-flight.paths:}") List<String> paths) {
+    FilterRegistrationBean<SingleFlightFilter> registration = new FilterRegistrationBean<>(new SingleFlightFilter());
+    registration.setUrlPatterns(paths);
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+    // with no url patterns a filter applies to every request
+    registration.setEnabled(!paths.isEmpty());
+    return registration;
+  }
+}
@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import edu.ucsb.cs156.example.services.SingleFlight;
+
+/**
+ * Serves concurrent identical GETs with one run of the request: the first
+ * goes through to the controller, and those that arrive while it runs wait
+ * for it and are sent the same status, content headers and bytes.  When a
+ * whole class loads a page at once, that is one query and one serialization
+ * instead of one per student.
+ *
+ * Requests are identical when they have the same path, query string,
+ * Accept and Accept-Encoding headers, and their user has the same roles.  The filter runs after
+ * Spring Security, so the roles are known; it is only registered for
+ * endpoints that check nothing but roles and return the same data to every
+ * user (see SingleFlightConfig), so a waiter gets what it would have got on
+ * its own.  If the first request throws, its waiters throw the same
+ * exception; if it answers with anything but a 2xx, each waiter runs its
+ * own request, so that it gets its own error page.
+ */
+public class SingleFlightFilter extends OncePerRequestFilter {
+
+  // the headers that describe the body, as opposed to e.g. the first
+  // request's cookies
+  private static final List<String> CONTENT_HEADERS = List.of(HttpHeaders.CONTENT_ENCODING, HttpHeaders.VARY);
+
+  private record Key(String uri, String query, String accept, String acceptEncoding, Set<String> roles) {
+  }
+
+  // what the first request got; source is its response, which it sends itself
+  private record Outcome(ContentCachingResponseWrapper source, int status, String contentType,
+      HttpHeaders headers, byte[] body, Exception failure) {
+  }
+
+  private final SingleFlight<Key, Outcome> flights = new SingleFlight<>();
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !HttpMethod.GET.matches(request.getMethod());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+    Outcome outcome = flights.run(keyFor(request), () -> {
+      try {
+        chain.doFilter(request, buffered);
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : CONTENT_HEADERS) {
+          headers.put(name, new ArrayList<>(buffered.getHeaders(name)));
+        }
+        return new Outcome(buffered, buffered.getStatus(), buffered.getContentType(), headers,
+            buffered.getContentAsByteArray(), null);
+      } catch (IOException | ServletException | RuntimeException e) {
+        return new Outcome(buffered, 0, null, null, null, e);
+      }
+    });
+
+    if (outcome.failure() != null) {
+      rethrow(outcome.failure());
+    } else if (outcome.source() == buffered) {
+      buffered.copyBodyToResponse();
+    } else if (outcome.status() / 100 == 2) {
+      response.setStatus(outcome.status());
+      response.setContentType(outcome.contentType());
+      outcome.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+      response.setContentLength(outcome.body().length);
+      response.getOutputStream().write(outcome.body());
+    } else {
+      chain.doFilter(request, response);
+    }
+  }
+
+  private static Key keyFor(HttpServletRequest request) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    Set<String> roles = authentication == null ? Set.of()
+        : authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    return new Key(request.getRequestURI(), request.getQueryString(), request.getHeader(HttpHeaders.ACCEPT),
+        request.getHeader(HttpHeaders.ACCEPT_ENCODING), roles);
+  }
+
+  private static void rethrow(Exception e) throws IOException, ServletException {
+    if (e instanceof IOException io) {
+      throw io;
+    }
+    if (e instanceof ServletException servlet) {
+      throw servlet;
+    }
+    throw (RuntimeException) e;
+  }
+}
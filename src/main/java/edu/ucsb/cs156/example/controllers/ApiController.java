@@ -1,22 +1,44 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.IntegrityViolation;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 public abstract class ApiController {
+  /**
+   * Media type of an RFC 7386 JSON merge patch.
+   */
+  public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private ObjectMapper mapper;
+
   protected CurrentUser getCurrentUser() {
     return currentUserService.getCurrentUser();
   }
@@ -25,6 +47,95 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * Sends a listing kept by ReferenceListCache as it was encoded, gzipped if
+   * the client takes gzip.
+   */
+  protected ResponseEntity<byte[]> encodedResponse(ReferenceListCache.Encoded encoded, String acceptEncoding) {
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(encoded.contentType())
+        .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    if (acceptsGzip(acceptEncoding)) {
+      return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzipped());
+    }
+    return response.body(encoded.body());
+  }
+
+  private static final Pattern GZIP_REFUSED = Pattern.compile(";\\s*q=0(\\.0*)?\\s*$");
+
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      if (coding.split(";")[0].trim().equalsIgnoreCase("gzip") && !GZIP_REFUSED.matcher(coding).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final Pattern VERSION_TAG = Pattern.compile("(?:W/)?\"?(\\d{1,18})\"?");
+
+  /**
+   * Returns the entity version named by an If-Match header, or null if the
+   * header is absent or "*".  Accepts 3, "3" and W/"3".
+   */
+  protected Long versionFromIfMatch(String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) {
+      return null;
+    }
+    Matcher matcher = VERSION_TAG.matcher(ifMatch.trim());
+    if (!matcher.matches()) {
+      throw new PreconditionFailedException("If-Match %s is not an entity version".formatted(ifMatch));
+    }
+    return Long.parseLong(matcher.group(1));
+  }
+
+  /**
+   * Builds the exception for a conditional update that changed no rows:
+   * either the row is gone, or somebody else has updated it since.
+   */
+  protected RuntimeException versionMismatch(Class<?> entityType, Object id, long version, boolean exists) {
+    return exists
+        ? new PreconditionFailedException(entityType, id, version)
+        : new EntityNotFoundException(entityType, id);
+  }
+
+  /**
+   * Reads back the row a conditional update just changed, so that the
+   * response is what was stored rather than what the client sent.  A row
+   * deleted in the meantime is reported as not found.
+   */
+  protected <T, ID> T storedAfterUpdate(CrudRepository<T, ID> repository, Class<?> entityType, ID id) {
+    return repository.findById(id).orElseThrow(() -> new EntityNotFoundException(entityType, id));
+  }
+
+  /**
+   * Throws PreconditionFailedException if an If-Match header names a version
+   * other than the one the entity is at.
+   */
+  protected void checkIfMatch(Class<?> entityType, Object id, Long currentVersion, String ifMatch) {
+    Long version = versionFromIfMatch(ifMatch);
+    if (version != null && !version.equals(currentVersion)) {
+      throw new PreconditionFailedException(entityType, id, version);
+    }
+  }
+
+  /**
+   * Applies a JSON merge patch (RFC 7386) to entity in place: fields present
+   * in the patch are overwritten, null clears a field, and everything else is
+   * left alone.  The version and the given key fields are never patched.
+   */
+  protected <T> T mergePatch(T entity, ObjectNode patch, String... keyFields) throws JsonProcessingException {
+    ObjectNode changes = patch.deepCopy();
+    changes.remove("version");
+    for (String key : keyFields) {
+      changes.remove(key);
+    }
+    return mapper.updateValue(entity, changes);
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
@@ -33,4 +144,41 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  @ExceptionHandler({ PreconditionFailedException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handlePreconditionFailed(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ JsonProcessingException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadJson(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ DataIntegrityViolationException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleIntegrityViolation(DataIntegrityViolationException e) {
+    log.info("write refused by a database constraint: {}", e.getMostSpecificCause().getMessage());
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", IntegrityViolation.of(e).getMessage()
+    );
+  }
+
+  @ExceptionHandler({ OptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflict(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
@@ -2,15 +2,16 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,13 +20,18 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.PatchMapping;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
@@ -36,6 +42,9 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    ArticleSearchService articleSearchService;
+
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -44,6 +53,20 @@ public class ArticlesController extends ApiController {
         return articles;
     }
 
+    @Operation(summary= "Search articles",
+            description = "Full-text search over title, url and explanation, best matches first. "
+                    + "q may use Lucene query syntax, e.g. \"spring boot\", title:react or test*; fuzzy, regex, wildcard and range queries are searched as plain words. "
+                    + "In the highlights, matching words are wrapped in <b>.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public ArticleSearchResults searchArticles(
+            @Parameter(name="q") @RequestParam String q,
+            @Parameter(name="page", description = "zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description = "hits per page, at most " + ArticleSearchService.MAX_PAGE_SIZE) @RequestParam(defaultValue = "10") int size)
+            throws IOException, InvalidTokenOffsetsException {
+        return articleSearchService.search(q, page, size);
+    }
+
     @Operation(summary= "Create a new article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -53,7 +76,7 @@ public class ArticlesController extends ApiController {
             @Parameter(name="url") @RequestParam String url,
             @Parameter(name="title") @RequestParam String title,
             @Parameter(name="dateAdded") @RequestParam("dateAdded") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateAdded)
-            throws JsonProcessingException {
+            throws IOException {
 
         // For an explanation of @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
         // See: https://www.baeldung.com/spring-date-parameters
@@ -68,6 +91,7 @@ public class ArticlesController extends ApiController {
         article.setDateAdded(dateAdded);
 
         Articles savedArticle = articlesRepository.save(article);
+        articleSearchService.index(savedArticle);
 
         return savedArticle;
     }
@@ -88,7 +112,18 @@ public class ArticlesController extends ApiController {
     @PutMapping("")
     public Articles updateArticles(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid Articles incoming) {
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody @Valid Articles incoming) throws IOException {
+
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            if (articlesRepository.updateIfVersionMatches(id, version, incoming) == 0) {
+                throw versionMismatch(Articles.class, id, version, articlesRepository.existsById(id));
+            }
+            Articles saved = storedAfterUpdate(articlesRepository, Articles.class, id);
+            articleSearchService.index(saved);
+            return saved;
+        }
 
         Articles articles = articlesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
@@ -99,20 +134,40 @@ public class ArticlesController extends ApiController {
         articles.setExplanation(incoming.getExplanation());
         articles.setDateAdded(incoming.getDateAdded());
 
-        articlesRepository.save(articles);
+        Articles saved = articlesRepository.save(articles);
+        articleSearchService.index(saved);
+        return saved;
+    }
 
-        return articles;
+    @Operation(summary= "Update some fields of a single article",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public Articles patchArticles(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws IOException {
+
+        Articles articles = articlesRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        checkIfMatch(Articles.class, id, articles.getVersion(), ifMatch);
+
+        mergePatch(articles, patch, "id");
+
+        Articles saved = articlesRepository.save(articles);
+        articleSearchService.index(saved);
+        return saved;
     }
 
     @Operation(summary= "Delete an article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteArticles(
-            @Parameter(name="id") @RequestParam Long id) {
-        Articles articles = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        articlesRepository.delete(articles);
+            @Parameter(name="id") @RequestParam Long id) throws IOException {
+        if (articlesRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Articles.class, id);
+        }
+        articleSearchService.remove(id);
         return genericMessage("Articles with id %s deleted".formatted(id));
     }
 }
@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.GraphQLRequest;
+import edu.ucsb.cs156.example.services.GraphQLService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@Tag(name = "GraphQL")
+@RequestMapping("/api/graphql")
+@RestController
+public class GraphQLController extends ApiController {
+
+    @Autowired
+    GraphQLService graphQLService;
+
+    @Operation(summary = "Run a read-only GraphQL query",
+            description = "The schema is in graphql/schema.graphqls.  Nested fields are loaded in one batched query per level. "
+                    + "Queries that are too deep or select too many fields are rejected before they run. "
+                    + "Send extensions.persistedQuery.sha256Hash (with or without the query) to use persisted queries. "
+                    + "The response is always 200; problems are listed in errors.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("")
+    public Map<String, Object> query(@RequestBody GraphQLRequest request) {
+        CurrentUser currentUser = getCurrentUser();
+        boolean admin = currentUser.getRoles().stream()
+                .anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN"));
+        return graphQLService.execute(request, currentUser.getUser(), admin);
+    }
+}
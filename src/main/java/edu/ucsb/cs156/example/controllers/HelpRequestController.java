@@ -2,7 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestEventService;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,21 +13,27 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "HelpRequest")
 @RequestMapping("/api/helprequest")
@@ -34,6 +43,12 @@ public class HelpRequestController extends ApiController{
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    HelpRequestEventService helpRequestEventService;
+
+    @Autowired
+    HelpRequestQueueService helpRequestQueueService;
+
     @Operation(summary= "Get all records in the table and return as a JSON array")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -42,6 +57,25 @@ public class HelpRequestController extends ApiController{
         return requests; 
     }
 
+    @Operation(summary= "List unsolved help requests, oldest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/queue")
+    public List<HelpRequest> helpRequestQueue(
+            @Parameter(name="limit", description = "maximum number of requests to return") @RequestParam(defaultValue = "100") int limit) {
+        return helpRequestQueueService.top(limit);
+    }
+
+    @Operation(summary= "Stream help request changes as server-sent events",
+            description = "Sends created, updated, solved and deleted events as they happen. "
+                    + "Reconnect with a Last-Event-ID header to receive the events missed in between; "
+                    + "a reset event means too many were missed and /all should be reloaded.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter helpRequestEvents(
+            @Parameter(name="Last-Event-ID") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return helpRequestEventService.subscribe(lastEventId);
+    }
+
     @Operation(summary= "Create a new row in the table and return the data as JSON")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -64,6 +98,7 @@ public class HelpRequestController extends ApiController{
                 helpRequest.setTableOrBreakoutRoom(tableOrBreakoutRoom);
 
                 HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+                helpRequestEventService.publish(HelpRequestEvent.Type.CREATED, savedHelpRequest);
 
                 return savedHelpRequest;
             }   
@@ -84,10 +119,10 @@ public class HelpRequestController extends ApiController{
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest request = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(request);
+        if (helpRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+        }
+        helpRequestEventService.publishDeleted(id);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
@@ -96,10 +131,27 @@ public class HelpRequestController extends ApiController{
     @PutMapping("")
     public HelpRequest updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid HelpRequest incoming) {
 
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            // only one PUT can match the version, and whether it found the
+            // request unsolved is decided by the same UPDATE
+            boolean solvedIt = incoming.getSolved()
+                    && helpRequestRepository.updateIfVersionAndSolvedMatch(id, version, false, incoming) == 1;
+            if (!solvedIt && helpRequestRepository.updateIfVersionMatches(id, version, incoming) == 0) {
+                throw versionMismatch(HelpRequest.class, id, version, helpRequestRepository.existsById(id));
+            }
+            HelpRequest saved = storedAfterUpdate(helpRequestRepository, HelpRequest.class, id);
+            helpRequestEventService.publish(
+                    solvedIt ? HelpRequestEvent.Type.SOLVED : HelpRequestEvent.Type.UPDATED, saved);
+            return saved;
+        }
+
         HelpRequest request = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        boolean wasSolved = request.getSolved();
 
         request.setExplanation(incoming.getExplanation());
         request.setRequestTime(incoming.getRequestTime());
@@ -108,8 +160,36 @@ public class HelpRequestController extends ApiController{
         request.setTeamId(incoming.getTeamId());
         request.setSolved(incoming.getSolved());
 
-        helpRequestRepository.save(request);
+        HelpRequest saved = helpRequestRepository.save(request);
+        helpRequestEventService.publish(
+                !wasSolved && saved.getSolved() ? HelpRequestEvent.Type.SOLVED : HelpRequestEvent.Type.UPDATED,
+                saved);
 
-        return request;
+        return saved;
+    }
+
+    @Operation(summary= "Update some fields of a single help request",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone. "
+                    + "Marking a request solved is {\"solved\": true}.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public HelpRequest patchHelpRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws JsonProcessingException {
+
+        HelpRequest request = helpRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        checkIfMatch(HelpRequest.class, id, request.getVersion(), ifMatch);
+        boolean wasSolved = request.getSolved();
+
+        mergePatch(request, patch, "id");
+
+        HelpRequest saved = helpRequestRepository.save(request);
+        helpRequestEventService.publish(
+                !wasSolved && saved.getSolved() ? HelpRequestEvent.Type.SOLVED : HelpRequestEvent.Type.UPDATED,
+                saved);
+
+        return saved;
     }
 }
@@ -20,13 +20,17 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.PatchMapping;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Tag(name = "MenuItemReview")
 @RequestMapping("/api/menuitemreview")
@@ -87,10 +91,9 @@ public class MenuItemReviewController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview review = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-        menuItemReviewRepository.delete(review);
+        if (menuItemReviewRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(MenuItemReview.class, id);
+        }
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
@@ -99,8 +102,18 @@ public class MenuItemReviewController extends ApiController {
     @PutMapping("")
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid MenuItemReview incoming) {
 
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            if (menuItemReviewRepository.updateIfVersionMatches(id, version, incoming) == 0) {
+                throw versionMismatch(MenuItemReview.class, id, version, menuItemReviewRepository.existsById(id));
+            }
+            MenuItemReview saved = storedAfterUpdate(menuItemReviewRepository, MenuItemReview.class, id);
+            return saved;
+        }
+
         MenuItemReview review = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
@@ -110,8 +123,24 @@ public class MenuItemReviewController extends ApiController {
         review.setDateReviewed(incoming.getDateReviewed());
         review.setComments(incoming.getComments());
 
-        menuItemReviewRepository.save(review);
+        return menuItemReviewRepository.save(review);
+    }
 
-        return review;
+    @Operation(summary= "Update some fields of a single review",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public MenuItemReview patchMenuItemReview(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws JsonProcessingException {
+
+        MenuItemReview review = menuItemReviewRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        checkIfMatch(MenuItemReview.class, id, review.getVersion(), ifMatch);
+
+        mergePatch(review, patch, "id");
+
+        return menuItemReviewRepository.save(review);
     }
 }
\ No newline at end of file
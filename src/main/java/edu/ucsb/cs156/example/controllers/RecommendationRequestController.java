@@ -19,13 +19,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.PatchMapping;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Tag(name="RecommendationRequest")
 @RequestMapping("/api/RecommendationRequest")
@@ -90,10 +94,9 @@ public class RecommendationRequestController extends ApiController {
     @DeleteMapping("")
     public Object deleteRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id) {
-                RecommendationRequest request = RecommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-                RecommendationRequestRepository.delete(request);
+        if (RecommendationRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
         return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
     }
 
@@ -102,7 +105,18 @@ public class RecommendationRequestController extends ApiController {
     @PutMapping("")
     public RecommendationRequest updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid RecommendationRequest incoming) {
+
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            if (RecommendationRequestRepository.updateIfVersionMatches(id, version, incoming) == 0) {
+                throw versionMismatch(RecommendationRequest.class, id, version, RecommendationRequestRepository.existsById(id));
+            }
+            RecommendationRequest saved = storedAfterUpdate(RecommendationRequestRepository, RecommendationRequest.class, id);
+            return saved;
+        }
+
         RecommendationRequest recommendation = RecommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
@@ -112,7 +126,24 @@ public class RecommendationRequestController extends ApiController {
         recommendation.setDateRequested(incoming.getDateRequested());
         recommendation.setDateNeeded(incoming.getDateNeeded());
         recommendation.setDone(incoming.getDone());
-        RecommendationRequestRepository.save(recommendation);
-        return recommendation;
+        return RecommendationRequestRepository.save(recommendation);
+    }
+
+    @Operation(summary= "Update some fields of a single recommendation request",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public RecommendationRequest patchRecommendationRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws JsonProcessingException {
+
+        RecommendationRequest recommendation = RecommendationRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        checkIfMatch(RecommendationRequest.class, id, recommendation.getVersion(), ifMatch);
+
+        mergePatch(recommendation, patch, "id");
+
+        return RecommendationRequestRepository.save(recommendation);
     }
 }
\ No newline at end of file
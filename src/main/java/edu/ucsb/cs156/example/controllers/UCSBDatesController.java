@@ -3,6 +3,8 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.UCSBDateCalendarService;
+import edu.ucsb.cs156.example.services.UCSBDateFeedService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,19 +15,30 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Tag(name = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
@@ -33,9 +46,17 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    public static final MediaType TEXT_CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    UCSBDateCalendarService ucsbDateCalendarService;
+
+    @Autowired
+    UCSBDateFeedService ucsbDateFeedService;
+
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
@@ -44,6 +65,55 @@ public class UCSBDatesController extends ApiController {
         return dates;
     }
 
+    @Operation(summary= "List the dates in a time range",
+            description = "Dates at or after start and before end, earliest first.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/between")
+    public List<UCSBDate> ucsbDatesBetween(
+            @Parameter(name="start", description = "in iso format, e.g. 2022-01-03T00:00:00") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @Parameter(name="end", description = "in iso format, e.g. 2022-03-19T00:00:00") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return ucsbDateCalendarService.between(start, end);
+    }
+
+    @Operation(summary= "List the next dates from now on")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/upcoming")
+    public List<UCSBDate> upcomingUCSBDates(
+            @Parameter(name="limit", description = "at most " + UCSBDateCalendarService.MAX_UPCOMING) @RequestParam(defaultValue = "10") int limit) {
+        return ucsbDateCalendarService.upcoming(limit);
+    }
+
+    @Operation(summary= "List the dates in a quarter",
+            description = "Earliest first; dates without a time come last.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter")
+    public List<UCSBDate> ucsbDatesInQuarter(
+            @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ) {
+        return ucsbDateCalendarService.inQuarter(quarterYYYYQ);
+    }
+
+    @Operation(summary= "iCalendar feed of the dates in a quarter",
+            description = "For calendar apps to subscribe to, so no login is needed. 404 if the quarter has no dates. "
+                    + "Send If-None-Match with the last ETag to get 304 Not Modified if no date in the quarter has changed.")
+    @GetMapping(value = "/quarter.ics", produces = "text/calendar")
+    public ResponseEntity<byte[]> ucsbDatesCalendar(
+            @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ,
+            WebRequest request) {
+        UCSBDateFeedService.Feed feed = ucsbDateFeedService.feed(quarterYYYYQ).orElse(null);
+        if (feed == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(feed.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(TEXT_CALENDAR)
+                .eTag(feed.etag())
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().filename("ucsb-dates-" + quarterYYYYQ + ".ics").build().toString())
+                .body(feed.body());
+    }
+
     @Operation(summary= "Create a new date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -64,6 +134,7 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        ucsbDateCalendarService.put(savedUcsbDate);
 
         return savedUcsbDate;
     }
@@ -84,20 +155,41 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        if (ucsbDateRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
+        ucsbDateCalendarService.remove(id);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete every UCSBDate in a quarter")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/quarter")
+    public Object deleteUCSBDatesInQuarter(
+            @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ) {
+        int deleted = ucsbDateRepository.deleteAllByQuarter(quarterYYYYQ);
+        ucsbDateCalendarService.removeQuarter(quarterYYYYQ);
+        return genericMessage("%d UCSBDates in quarter %s deleted".formatted(deleted, quarterYYYYQ));
+    }
+
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
     public UCSBDate updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDate incoming) {
 
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            if (ucsbDateRepository.updateIfVersionMatches(id, version, incoming) == 0) {
+                throw versionMismatch(UCSBDate.class, id, version, ucsbDateRepository.existsById(id));
+            }
+            UCSBDate saved = storedAfterUpdate(ucsbDateRepository, UCSBDate.class, id);
+            ucsbDateCalendarService.put(saved);
+            return saved;
+        }
+
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
@@ -105,8 +197,28 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setName(incoming.getName());
         ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
 
-        ucsbDateRepository.save(ucsbDate);
+        UCSBDate saved = ucsbDateRepository.save(ucsbDate);
+        ucsbDateCalendarService.put(saved);
+        return saved;
+    }
+
+    @Operation(summary= "Update some fields of a single date",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public UCSBDate patchUCSBDate(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws JsonProcessingException {
 
-        return ucsbDate;
+        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        checkIfMatch(UCSBDate.class, id, ucsbDate.getVersion(), ifMatch);
+
+        mergePatch(ucsbDate, patch, "id");
+
+        UCSBDate saved = ucsbDateRepository.save(ucsbDate);
+        ucsbDateCalendarService.put(saved);
+        return saved;
     }
 }
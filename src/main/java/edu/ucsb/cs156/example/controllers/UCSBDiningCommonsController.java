@@ -1,26 +1,54 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsMenu;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.models.RatedMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import edu.ucsb.cs156.example.services.ReferenceTableService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.validation.Valid;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
@@ -31,12 +59,68 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
-    @Operation(summary= "List all ucsb dining commons")
+    @Autowired
+    MenuItemReviewRepository menuItemReviewRepository;
+
+    @Autowired
+    DiningCommonsLocationService diningCommonsLocationService;
+
+    @Autowired
+    ReferenceListCache referenceListCache;
+
+    @Autowired
+    ReferenceTableService referenceTables;
+
+    @Operation(summary= "List all ucsb dining commons",
+            description = "JSON, CBOR or Smile, as the Accept header asks; gzipped if Accept-Encoding allows.")
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = UCSBDiningCommons.class))))
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<byte[]> allCommonss(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws HttpMediaTypeNotAcceptableException {
+        return encodedResponse(referenceListCache.get(Listing.DINING_COMMONS, accept), acceptEncoding);
+    }
+
+    @Operation(summary= "Get a dining commons with its menu and ratings",
+            description = "The commons, and each of its menu items with the number of reviews and the average stars (null if unreviewed). "
+                    + "Takes two queries however many items there are.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/menu")
+    public DiningCommonsMenu getMenu(
+            @Parameter(name="code") @RequestParam String code) {
+        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findWithMenuItemsByCode(code)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        Map<Long, MenuItemRating> ratings = menuItemReviewRepository.findRatingsByDiningCommonsCode(code).stream()
+                .collect(Collectors.toMap(MenuItemRating::getItemId, Function.identity()));
+
+        List<RatedMenuItem> items = commons.getMenuItems().stream()
+                .sorted(Comparator.comparingLong(UCSBDiningCommonsMenuItems::getId))
+                .map(item -> {
+                    MenuItemRating rating = ratings.get(item.getId());
+                    return RatedMenuItem.builder()
+                            .item(item)
+                            .reviewCount(rating == null ? 0 : rating.getReviewCount())
+                            .averageStars(rating == null ? null : rating.getAverageStars())
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        return DiningCommonsMenu.builder().commons(commons).items(items).build();
+    }
+
+    @Operation(summary= "Find the dining commons nearest a point",
+            description = "Nearest first, with great-circle distances in meters. Commons without a location are left out.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<NearbyDiningCommons> nearestCommons(
+            @Parameter(name="lat") @RequestParam double lat,
+            @Parameter(name="lon") @RequestParam double lon,
+            @Parameter(name="k", description = "how many commons to return, at most " + DiningCommonsLocationService.MAX_RESULTS) @RequestParam(defaultValue = "1") int k,
+            @Parameter(name="hasSackMeal", description = "if given, only commons with this value") @RequestParam(required = false) Boolean hasSackMeal,
+            @Parameter(name="hasTakeOutMeal", description = "if given, only commons with this value") @RequestParam(required = false) Boolean hasTakeOutMeal) {
+        return diningCommonsLocationService.nearest(lat, lon, k, hasSackMeal, hasTakeOutMeal);
     }
 
     @Operation(summary= "Create a new commons")
@@ -63,6 +147,9 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        diningCommonsLocationService.reload();
+        referenceTables.reloadDiningCommons();
+        referenceListCache.invalidate(Listing.DINING_COMMONS);
 
         return savedCommons;
     }
@@ -72,7 +159,7 @@ public class UCSBDiningCommonsController extends ApiController {
     @GetMapping("")
     public UCSBDiningCommons getById(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+        UCSBDiningCommons commons = referenceTables.diningCommons(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
         return commons;
@@ -83,10 +170,12 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        if (ucsbDiningCommonsRepository.deleteRowById(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        diningCommonsLocationService.reload();
+        referenceTables.reloadDiningCommons();
+        referenceListCache.invalidate(Listing.DINING_COMMONS);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
@@ -95,8 +184,21 @@ public class UCSBDiningCommonsController extends ApiController {
     @PutMapping("")
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommons incoming) {
 
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            if (ucsbDiningCommonsRepository.updateIfVersionMatches(code, version, incoming) == 0) {
+                throw versionMismatch(UCSBDiningCommons.class, code, version, ucsbDiningCommonsRepository.existsById(code));
+            }
+            UCSBDiningCommons saved = storedAfterUpdate(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code);
+            diningCommonsLocationService.reload();
+            referenceTables.reloadDiningCommons();
+            referenceListCache.invalidate(Listing.DINING_COMMONS);
+            return saved;
+        }
+
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
@@ -108,8 +210,32 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLatitude(incoming.getLatitude());
         commons.setLongitude(incoming.getLongitude());
 
-        ucsbDiningCommonsRepository.save(commons);
+        UCSBDiningCommons saved = ucsbDiningCommonsRepository.save(commons);
+        diningCommonsLocationService.reload();
+        referenceTables.reloadDiningCommons();
+        referenceListCache.invalidate(Listing.DINING_COMMONS);
+        return saved;
+    }
+
+    @Operation(summary= "Update some fields of a single dining commons",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public UCSBDiningCommons patchCommons(
+            @Parameter(name="code") @RequestParam String code,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws JsonProcessingException {
 
-        return commons;
+        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        checkIfMatch(UCSBDiningCommons.class, code, commons.getVersion(), ifMatch);
+
+        mergePatch(commons, patch, "code");
+
+        UCSBDiningCommons saved = ucsbDiningCommonsRepository.save(commons);
+        diningCommonsLocationService.reload();
+        referenceTables.reloadDiningCommons();
+        referenceListCache.invalidate(Listing.DINING_COMMONS);
+        return saved;
     }
 }
@@ -3,23 +3,40 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.MenuItemSuggestService;
+import edu.ucsb.cs156.example.services.PrefixIndex;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import java.util.List;
 
 import javax.validation.Valid;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 
 @Tag(name="UCSBDiningCommonsMenuItem")
@@ -31,12 +48,32 @@ public class UCSBDiningCommonsMenuItemsController extends ApiController
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
-    @Operation(summary= "List all ucsb dining commons menu items")
+    @Autowired
+    MenuItemSuggestService menuItemSuggestService;
+
+    @Autowired
+    ReferenceListCache referenceListCache;
+
+    @Operation(summary= "List all ucsb dining commons menu items",
+            description = "JSON, CBOR or Smile, as the Accept header asks; gzipped if Accept-Encoding allows.")
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = UCSBDiningCommonsMenuItems.class))))
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItems> allmenuitems() {
-        Iterable<UCSBDiningCommonsMenuItems> menuItems = ucsbDiningCommonsMenuItemRepository.findAll();
-        return menuItems;
+    public ResponseEntity<byte[]> allmenuitems(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws HttpMediaTypeNotAcceptableException {
+        return encodedResponse(referenceListCache.get(Listing.MENU_ITEMS, accept), acceptEncoding);
+    }
+
+    @Operation(summary= "Suggest menu items as the user types",
+            description = "Menu items whose name starts with prefix, ignoring case.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/suggest")
+    public List<UCSBDiningCommonsMenuItems> suggestMenuItems(
+            @Parameter(name="prefix") @RequestParam String prefix,
+            @Parameter(name="limit", description = "at most " + PrefixIndex.MAX_LIMIT) @RequestParam(defaultValue = "10") int limit) {
+        return menuItemSuggestService.suggest(prefix, limit);
     }
 
     @Operation(summary= "Create a new dining commons menu item")
@@ -56,6 +93,8 @@ public class UCSBDiningCommonsMenuItemsController extends ApiController
         menuitem.setStation(station);
 
         UCSBDiningCommonsMenuItems savedUcsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.save(menuitem);
+        menuItemSuggestService.put(savedUcsbDiningCommonsMenuItem);
+        referenceListCache.invalidate(Listing.MENU_ITEMS);
 
         return savedUcsbDiningCommonsMenuItem;
     }
@@ -76,10 +115,11 @@ public class UCSBDiningCommonsMenuItemsController extends ApiController
     @DeleteMapping("")
     public Object deletemenuitem(
             @Parameter(name="id") @RequestParam Long id) {
-                UCSBDiningCommonsMenuItems menuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, id));
-
-                ucsbDiningCommonsMenuItemRepository.delete(menuItem);
+        if (ucsbDiningCommonsMenuItemRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, id);
+        }
+        menuItemSuggestService.remove(id);
+        referenceListCache.invalidate(Listing.MENU_ITEMS);
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
@@ -88,8 +128,20 @@ public class UCSBDiningCommonsMenuItemsController extends ApiController
     @PutMapping("")
     public UCSBDiningCommonsMenuItems updatemenuitem(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommonsMenuItems incoming) {
 
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            if (ucsbDiningCommonsMenuItemRepository.updateIfVersionMatches(id, version, incoming) == 0) {
+                throw versionMismatch(UCSBDiningCommonsMenuItems.class, id, version, ucsbDiningCommonsMenuItemRepository.existsById(id));
+            }
+            UCSBDiningCommonsMenuItems saved = storedAfterUpdate(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItems.class, id);
+            menuItemSuggestService.put(saved);
+            referenceListCache.invalidate(Listing.MENU_ITEMS);
+            return saved;
+        }
+
         UCSBDiningCommonsMenuItems menuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, id));
 
@@ -97,9 +149,31 @@ public class UCSBDiningCommonsMenuItemsController extends ApiController
         menuitem.setName(incoming.getName());
         menuitem.setStation(incoming.getStation());
 
-        ucsbDiningCommonsMenuItemRepository.save(menuitem);
+        UCSBDiningCommonsMenuItems saved = ucsbDiningCommonsMenuItemRepository.save(menuitem);
+        menuItemSuggestService.put(saved);
+        referenceListCache.invalidate(Listing.MENU_ITEMS);
+        return saved;
+    }
 
-        return menuitem;
+    @Operation(summary= "Update some fields of a single menu item",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public UCSBDiningCommonsMenuItems patchMenuItem(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws JsonProcessingException {
+
+        UCSBDiningCommonsMenuItems menuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, id));
+        checkIfMatch(UCSBDiningCommonsMenuItems.class, id, menuitem.getVersion(), ifMatch);
+
+        mergePatch(menuitem, patch, "id");
+
+        UCSBDiningCommonsMenuItems saved = ucsbDiningCommonsMenuItemRepository.save(menuitem);
+        menuItemSuggestService.put(saved);
+        referenceListCache.invalidate(Listing.MENU_ITEMS);
+        return saved;
     }
 
 }
\ No newline at end of file
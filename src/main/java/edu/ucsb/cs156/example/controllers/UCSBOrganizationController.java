@@ -3,23 +3,42 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.OrganizationSuggestService;
+import edu.ucsb.cs156.example.services.PrefixIndex;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import edu.ucsb.cs156.example.services.ReferenceTableService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Parameter;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.data.repository.query.Param;
+import java.util.List;
+
 import javax.validation.Valid;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/ucsborganizations")
 @RestController
@@ -29,12 +48,37 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    OrganizationSuggestService organizationSuggestService;
+
+    @Autowired
+    ReferenceListCache referenceListCache;
+
+    @Autowired
+    ReferenceTableService referenceTables;
+
+    @Operation(summary= "List all organizations",
+            description = "JSON, CBOR or Smile, as the Accept header asks; gzipped if Accept-Encoding allows.")
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = UCSBOrganization.class))))
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-        return organizations;
+    public ResponseEntity<byte[]> allOrganizations(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws HttpMediaTypeNotAcceptableException {
+        return encodedResponse(referenceListCache.get(Listing.ORGANIZATIONS, accept), acceptEncoding);
+    }
+
+    @Operation(summary= "Suggest organizations as the user types",
+            description = "Organizations whose code, short name or full name starts with prefix, ignoring case.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/suggest")
+    public List<UCSBOrganization> suggestOrganizations(
+            @Parameter(name="prefix") @RequestParam String prefix,
+            @Parameter(name="limit", description = "at most " + PrefixIndex.MAX_LIMIT) @RequestParam(defaultValue = "10") int limit) {
+        return organizationSuggestService.suggest(prefix, limit);
     }
+
     @Operation(summary= "Create a new organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -50,6 +94,9 @@ public class UCSBOrganizationController extends ApiController {
         organization.setInactive(inactive);
 
         UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
+        organizationSuggestService.put(savedOrganization);
+        referenceTables.reloadOrganizations();
+        referenceListCache.invalidate(Listing.ORGANIZATIONS);
 
         return savedOrganization;
     }
@@ -57,7 +104,7 @@ public class UCSBOrganizationController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBOrganization getById(@Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
+        UCSBOrganization org = referenceTables.organization(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
         return org;
     }
@@ -67,7 +114,21 @@ public class UCSBOrganizationController extends ApiController {
     @PutMapping("")
     public UCSBOrganization updateOrganization(
         @Parameter(name="orgCode") @RequestParam String orgCode,
+        @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
         @RequestBody @Valid UCSBOrganization incoming) {
+
+        Long version = versionFromIfMatch(ifMatch);
+        if (version != null) {
+            if (ucsbOrganizationRepository.updateIfVersionMatches(orgCode, version, incoming) == 0) {
+                throw versionMismatch(UCSBOrganization.class, orgCode, version, ucsbOrganizationRepository.existsById(orgCode));
+            }
+            UCSBOrganization saved = storedAfterUpdate(ucsbOrganizationRepository, UCSBOrganization.class, orgCode);
+            organizationSuggestService.put(saved);
+            referenceTables.reloadOrganizations();
+            referenceListCache.invalidate(Listing.ORGANIZATIONS);
+            return saved;
+        }
+
         UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
@@ -75,9 +136,33 @@ public class UCSBOrganizationController extends ApiController {
         organization.setOrgTranslation(incoming.getOrgTranslation());
         organization.setInactive(incoming.getInactive());
 
-        ucsbOrganizationRepository.save(organization);
+        UCSBOrganization saved = ucsbOrganizationRepository.save(organization);
+        organizationSuggestService.put(saved);
+        referenceTables.reloadOrganizations();
+        referenceListCache.invalidate(Listing.ORGANIZATIONS);
+        return saved;
+    }
+
+    @Operation(summary= "Update some fields of a single organization",
+            description = "Takes a JSON merge patch (RFC 7386): fields in the patch are changed, null clears a field, and other fields are left alone.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public UCSBOrganization patchOrganization(
+            @Parameter(name="orgCode") @RequestParam String orgCode,
+            @Parameter(name="If-Match", description = "version being updated; the update is refused if the row has changed since") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody ObjectNode patch) throws JsonProcessingException {
 
-        return organization;
+        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        checkIfMatch(UCSBOrganization.class, orgCode, organization.getVersion(), ifMatch);
+
+        mergePatch(organization, patch, "orgCode");
+
+        UCSBOrganization saved = ucsbOrganizationRepository.save(organization);
+        organizationSuggestService.put(saved);
+        referenceTables.reloadOrganizations();
+        referenceListCache.invalidate(Listing.ORGANIZATIONS);
+        return saved;
     }
 
     @Operation(summary= "Delete an organization")
@@ -85,10 +170,12 @@ public class UCSBOrganizationController extends ApiController {
     @DeleteMapping("")
     public Object deleteOrganization(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        ucsbOrganizationRepository.delete(organization);
+        if (ucsbOrganizationRepository.deleteRowById(orgCode) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+        }
+        organizationSuggestService.remove(orgCode);
+        referenceTables.reloadOrganizations();
+        referenceListCache.invalidate(Listing.ORGANIZATIONS);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 }
@@ -1,38 +1,72 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.UserSummary;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.util.List;
+
 
 @Tag(name="User information (admin only)")
 @RequestMapping("/api/admin/users")
 @RestController
 public class UsersController extends ApiController {
+    // users read from the database per query while streaming
+    static final int PAGE_SIZE = 500;
+
     @Autowired
     UserRepository userRepository;
 
     @Autowired
     ObjectMapper mapper;
 
-    @Operation(summary= "Get a list of all users")
+    @Operation(summary= "Get a list of all users",
+            description = "Users in id order, as id, email, givenName, familyName and admin. "
+                    + "The list is written as it is read, a page at a time, so it is never held in memory whole. "
+                    + "To page, pass the last id you have as after, and how many more you want as limit.")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
-        Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+    public ResponseEntity<StreamingResponseBody> users(
+            @Parameter(name="after", description="only users with a greater id") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="most users to return; all if left out") @RequestParam(required = false) Integer limit) {
+        int wanted = limit == null ? Integer.MAX_VALUE : Math.max(0, limit);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = mapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                long last = after;
+                int remaining = wanted;
+                while (remaining > 0) {
+                    int size = Math.min(PAGE_SIZE, remaining);
+                    List<UserSummary> page = userRepository.findSummariesAfter(last, PageRequest.of(0, size));
+                    for (UserSummary user : page) {
+                        json.writeObject(user);
+                    }
+                    json.flush();
+                    if (page.size() < size) {
+                        break;
+                    }
+                    last = page.get(page.size() - 1).getId();
+                    remaining -= size;
+                }
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
-}
\ No newline at end of file
+}
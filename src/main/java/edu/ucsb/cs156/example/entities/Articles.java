@@ -5,6 +5,9 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -16,6 +19,7 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity(name = "articles")
 public class Articles {
   @Id
@@ -27,4 +31,7 @@ public class Articles {
   private String explanation;
   private String email;
   private LocalDateTime dateAdded;
+
+  @Version
+  private Long version;
 }
\ No newline at end of file
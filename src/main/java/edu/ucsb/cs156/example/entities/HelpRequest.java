@@ -5,6 +5,9 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -15,7 +18,8 @@ import lombok.Builder;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
+@DynamicUpdate
 @Entity(name = "helprequest")
 public class HelpRequest {
     @Id
@@ -27,5 +31,8 @@ public class HelpRequest {
     private String tableOrBreakoutRoom;
     private LocalDateTime requestTime; 
     private String explanation;
-    private boolean solved; 
+    private boolean solved;
+
+    @Version
+    private Long version;
 }
\ No newline at end of file
@@ -3,11 +3,21 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 import javax.persistence.GeneratedValue;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,6 +26,7 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity(name = "menuitemreview")
 public class MenuItemReview {
   @Id
@@ -26,5 +37,16 @@ public class MenuItemReview {
   private String reviewerEmail;
   private int stars;
   private LocalDateTime dateReviewed;
-  private String comments;  
+  private String comments;
+
+  @Version
+  private Long version;
+
+  // itemId is what gets written; this is the same column, read-only
+  @JsonIgnore
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "itemId", insertable = false, updatable = false)
+  private UCSBDiningCommonsMenuItems item;
 }
\ No newline at end of file
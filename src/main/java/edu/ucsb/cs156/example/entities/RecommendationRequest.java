@@ -5,6 +5,9 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -15,6 +18,7 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity(name = "ucsbrecommendationrequest")
 public class RecommendationRequest {
     @Id
@@ -27,4 +31,7 @@ public class RecommendationRequest {
     private LocalDateTime dateRequested;
     private LocalDateTime dateNeeded;
     private boolean done;
+
+    @Version
+    private Long version;
 }
\ No newline at end of file
@@ -5,6 +5,9 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -16,6 +19,7 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity(name = "ucsbdates")
 public class UCSBDate {
   @Id
@@ -25,4 +29,7 @@ public class UCSBDate {
   private String quarterYYYYQ;
   private String name;  
   private LocalDateTime localDateTime;
+
+  @Version
+  private Long version;
 }
\ No newline at end of file
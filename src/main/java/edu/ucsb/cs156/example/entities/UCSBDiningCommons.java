@@ -1,9 +1,20 @@
 package edu.ucsb.cs156.example.entities;
 
+import java.util.List;
+
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -12,6 +23,7 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity(name = "ucsbdiningcommons")
 public class UCSBDiningCommons {
   @Id
@@ -22,4 +34,15 @@ public class UCSBDiningCommons {
   private boolean hasDiningCam;
   private Double latitude;
   private Double longitude;
+
+  @Version
+  private Long version;
+
+  // read-only side of UCSBDiningCommonsMenuItems.diningCommons; not part of the JSON
+  @JsonIgnore
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  @OneToMany(mappedBy = "diningCommons")
+  @BatchSize(size = 25)
+  private List<UCSBDiningCommonsMenuItems> menuItems;
 }
\ No newline at end of file
@@ -1,11 +1,25 @@
 package edu.ucsb.cs156.example.entities;
 
+import java.util.List;
+
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,6 +28,8 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
+@BatchSize(size = 50)
 @Entity(name = "ucsbdiningcommonsmenuitems")
 public class UCSBDiningCommonsMenuItems {
   @Id
@@ -22,4 +38,22 @@ public class UCSBDiningCommonsMenuItems {
   private String diningCommonsCode;
   private String name;
   private String station;
+
+  @Version
+  private Long version;
+
+  // diningCommonsCode is what gets written; this is the same column, read-only
+  @JsonIgnore
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "diningCommonsCode", insertable = false, updatable = false)
+  private UCSBDiningCommons diningCommons;
+
+  @JsonIgnore
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  @OneToMany(mappedBy = "item")
+  @BatchSize(size = 50)
+  private List<MenuItemReview> reviews;
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package edu.ucsb.cs156.example.entities;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +15,7 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity(name = "ucsborganizations")
 public class UCSBOrganization {
     @Id
@@ -19,4 +23,7 @@ public class UCSBOrganization {
     private String orgTranslationShort;
     private String orgTranslation;
     private boolean inactive;
+
+    @Version
+    private Long version;
 }
\ No newline at end of file
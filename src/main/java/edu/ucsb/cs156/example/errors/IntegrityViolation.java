@@ -0,0 +1,45 @@
+package edu.ucsb.cs156.example.errors;
+
+import java.sql.SQLException;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+/**
+ * The kind of database constraint a write broke, told apart by the SQL
+ * state of the underlying SQLException (the same codes in H2 and
+ * PostgreSQL).
+ */
+public enum IntegrityViolation {
+  DUPLICATE_KEY("A row with this key already exists"),
+  MISSING_REFERENCE("This change would leave a reference to a row that does not exist"),
+  OTHER("This change would break a database constraint");
+
+  private final String message;
+
+  IntegrityViolation(String message) {
+    this.message = message;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public static IntegrityViolation of(DataIntegrityViolationException e) {
+    if (e instanceof DuplicateKeyException) {
+      return DUPLICATE_KEY;
+    }
+    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException) {
+        String sqlState = ((SQLException) cause).getSQLState();
+        if ("23505".equals(sqlState)) {
+          return DUPLICATE_KEY;
+        }
+        if ("23503".equals(sqlState) || "23506".equals(sqlState)) {
+          return MISSING_REFERENCE;
+        }
+      }
+    }
+    return OTHER;
+  }
+}
@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.errors;
+
+public class PreconditionFailedException extends RuntimeException {
+  public PreconditionFailedException(Class<?> entityType, Object id, long version) {
+    super("%s with id %s is not at version %d"
+      .formatted(entityType.getSimpleName(), id.toString(), version));
+  }
+
+  public PreconditionFailedException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,172 @@
+package edu.ucsb.cs156.example.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommons;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommonsServiceGrpc;
+import edu.ucsb.cs156.example.grpc.proto.GetDiningCommonsRequest;
+import edu.ucsb.cs156.example.grpc.proto.ListDiningCommonsRequest;
+import edu.ucsb.cs156.example.grpc.proto.UpsertResult;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import edu.ucsb.cs156.example.services.ReferenceTableService;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * gRPC counterpart of UCSBDiningCommonsController, for services that sync
+ * the commons in bulk.
+ */
+@Service
+public class DiningCommonsGrpcService implements DiningCommonsServiceGrpc.AsyncService {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  DiningCommonsLocationService diningCommonsLocationService;
+
+  @Autowired
+  ReferenceListCache referenceListCache;
+
+  @Autowired
+  ReferenceTableService referenceTables;
+
+  @Autowired
+  TransactionTemplate transactionTemplate;
+
+  @Value("${app.grpc.max-batch-size:1000}")
+  int maxBatchSize = 1000;
+
+  @Override
+  @PreAuthorize("hasRole('ROLE_USER')")
+  public void list(ListDiningCommonsRequest request, StreamObserver<DiningCommons> responseObserver) {
+    for (UCSBDiningCommons commons : referenceTables.diningCommons()) {
+      responseObserver.onNext(toMessage(commons));
+    }
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  @PreAuthorize("hasRole('ROLE_USER')")
+  public void get(GetDiningCommonsRequest request, StreamObserver<DiningCommons> responseObserver) {
+    UCSBDiningCommons commons = referenceTables.diningCommons(request.getCode())
+        .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, request.getCode()));
+    responseObserver.onNext(toMessage(commons));
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  public StreamObserver<DiningCommons> batchUpsert(StreamObserver<UpsertResult> responseObserver) {
+    return new StreamObserver<DiningCommons>() {
+      private final List<DiningCommons> batch = new ArrayList<>();
+
+      @Override
+      public void onNext(DiningCommons message) {
+        if (batch.size() == maxBatchSize) {
+          throw Status.RESOURCE_EXHAUSTED
+              .withDescription("at most %d commons per batch".formatted(maxBatchSize))
+              .asRuntimeException();
+        }
+        batch.add(message);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        batch.clear();
+      }
+
+      @Override
+      public void onCompleted() {
+        UpsertResult result = transactionTemplate.execute(status -> upsert(batch));
+        diningCommonsLocationService.reload();
+        referenceTables.reloadDiningCommons();
+        referenceListCache.invalidate(Listing.DINING_COMMONS);
+        responseObserver.onNext(result);
+        responseObserver.onCompleted();
+      }
+    };
+  }
+
+  private UpsertResult upsert(List<DiningCommons> batch) {
+    int created = 0;
+    int updated = 0;
+    for (DiningCommons message : batch) {
+      UCSBDiningCommons incoming = toEntity(message);
+      String code = incoming.getCode();
+      if (message.hasVersion()) {
+        long version = message.getVersion();
+        if (ucsbDiningCommonsRepository.updateIfVersionMatches(code, version, incoming) == 0) {
+          throw ucsbDiningCommonsRepository.existsById(code)
+              ? new PreconditionFailedException(UCSBDiningCommons.class, code, version)
+              : new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        updated++;
+      } else {
+        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code).orElse(null);
+        if (commons == null) {
+          ucsbDiningCommonsRepository.save(incoming);
+          created++;
+        } else {
+          commons.setName(incoming.getName());
+          commons.setHasSackMeal(incoming.getHasSackMeal());
+          commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
+          commons.setHasDiningCam(incoming.getHasDiningCam());
+          commons.setLatitude(incoming.getLatitude());
+          commons.setLongitude(incoming.getLongitude());
+          ucsbDiningCommonsRepository.save(commons);
+          updated++;
+        }
+      }
+    }
+    return UpsertResult.newBuilder().setCreated(created).setUpdated(updated).build();
+  }
+
+  static DiningCommons toMessage(UCSBDiningCommons commons) {
+    DiningCommons.Builder message = DiningCommons.newBuilder()
+        .setCode(commons.getCode())
+        .setName(nullToEmpty(commons.getName()))
+        .setHasSackMeal(commons.getHasSackMeal())
+        .setHasTakeOutMeal(commons.getHasTakeOutMeal())
+        .setHasDiningCam(commons.getHasDiningCam());
+    if (commons.getLatitude() != null) {
+      message.setLatitude(commons.getLatitude());
+    }
+    if (commons.getLongitude() != null) {
+      message.setLongitude(commons.getLongitude());
+    }
+    if (commons.getVersion() != null) {
+      message.setVersion(commons.getVersion());
+    }
+    return message.build();
+  }
+
+  static UCSBDiningCommons toEntity(DiningCommons message) {
+    return UCSBDiningCommons.builder()
+        .code(message.getCode())
+        .name(message.getName())
+        .hasSackMeal(message.getHasSackMeal())
+        .hasTakeOutMeal(message.getHasTakeOutMeal())
+        .hasDiningCam(message.getHasDiningCam())
+        .latitude(message.hasLatitude() ? message.getLatitude() : null)
+        .longitude(message.hasLongitude() ? message.getLongitude() : null)
+        .build();
+  }
+
+  static String nullToEmpty(String value) {
+    return value == null ? "" : value;
+  }
+}
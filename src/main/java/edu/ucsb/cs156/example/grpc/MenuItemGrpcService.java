@@ -0,0 +1,204 @@
+package edu.ucsb.cs156.example.grpc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+import edu.ucsb.cs156.example.grpc.proto.GetMenuItemRequest;
+import edu.ucsb.cs156.example.grpc.proto.ListMenuItemsRequest;
+import edu.ucsb.cs156.example.grpc.proto.MenuItem;
+import edu.ucsb.cs156.example.grpc.proto.MenuItemServiceGrpc;
+import edu.ucsb.cs156.example.grpc.proto.UpsertResult;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.MenuItemSuggestService;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * gRPC counterpart of UCSBDiningCommonsMenuItemsController, for services
+ * that sync menu items in bulk.
+ *
+ * List reads a page of items at a time, in id order, and only reads the
+ * next page once the client has taken the last one, so a slow client
+ * doesn't make the server hold the whole table.
+ */
+@Service
+public class MenuItemGrpcService implements MenuItemServiceGrpc.AsyncService {
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  MenuItemSuggestService menuItemSuggestService;
+
+  @Autowired
+  ReferenceListCache referenceListCache;
+
+  @Autowired
+  TransactionTemplate transactionTemplate;
+
+  @Value("${app.grpc.max-batch-size:1000}")
+  int maxBatchSize = 1000;
+
+  int pageSize = 500;
+
+  @Override
+  @PreAuthorize("hasRole('ROLE_USER')")
+  public void list(ListMenuItemsRequest request, StreamObserver<MenuItem> responseObserver) {
+    ServerCallStreamObserver<MenuItem> call = (ServerCallStreamObserver<MenuItem>) responseObserver;
+    call.setOnReadyHandler(new PageSender(request.getDiningCommonsCode(), call));
+  }
+
+  /**
+   * Sends items for as long as the client is ready for them; gRPC runs it
+   * again when the client is ready for more.
+   */
+  class PageSender implements Runnable {
+    private final String diningCommonsCode;
+    private final ServerCallStreamObserver<MenuItem> call;
+    private final Deque<UCSBDiningCommonsMenuItems> page = new ArrayDeque<>();
+    private long after = 0;
+    private boolean done;
+
+    PageSender(String diningCommonsCode, ServerCallStreamObserver<MenuItem> call) {
+      this.diningCommonsCode = diningCommonsCode;
+      this.call = call;
+    }
+
+    @Override
+    public void run() {
+      while (!done && call.isReady()) {
+        if (page.isEmpty()) {
+          List<UCSBDiningCommonsMenuItems> next = nextPage();
+          if (next.isEmpty()) {
+            done = true;
+            call.onCompleted();
+            return;
+          }
+          page.addAll(next);
+          after = next.get(next.size() - 1).getId();
+        }
+        call.onNext(toMessage(page.poll()));
+      }
+    }
+
+    private List<UCSBDiningCommonsMenuItems> nextPage() {
+      PageRequest request = PageRequest.of(0, pageSize);
+      return diningCommonsCode.isEmpty()
+          ? ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(after, request)
+          : ucsbDiningCommonsMenuItemRepository.findByDiningCommonsCodeAndIdGreaterThanOrderByIdAsc(diningCommonsCode, after, request);
+    }
+  }
+
+  @Override
+  @PreAuthorize("hasRole('ROLE_USER')")
+  public void get(GetMenuItemRequest request, StreamObserver<MenuItem> responseObserver) {
+    UCSBDiningCommonsMenuItems menuitem = ucsbDiningCommonsMenuItemRepository.findById(request.getId())
+        .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, request.getId()));
+    responseObserver.onNext(toMessage(menuitem));
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  public StreamObserver<MenuItem> batchUpsert(StreamObserver<UpsertResult> responseObserver) {
+    return new StreamObserver<MenuItem>() {
+      private final List<MenuItem> batch = new ArrayList<>();
+
+      @Override
+      public void onNext(MenuItem message) {
+        if (batch.size() == maxBatchSize) {
+          throw Status.RESOURCE_EXHAUSTED
+              .withDescription("at most %d menu items per batch".formatted(maxBatchSize))
+              .asRuntimeException();
+        }
+        batch.add(message);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        batch.clear();
+      }
+
+      @Override
+      public void onCompleted() {
+        List<UCSBDiningCommonsMenuItems> written = new ArrayList<>();
+        int created = transactionTemplate.execute(status -> upsert(batch, written));
+        written.forEach(menuItemSuggestService::put);
+        referenceListCache.invalidate(Listing.MENU_ITEMS);
+        responseObserver.onNext(UpsertResult.newBuilder()
+            .setCreated(created)
+            .setUpdated(written.size() - created)
+            .build());
+        responseObserver.onCompleted();
+      }
+    };
+  }
+
+  /**
+   * Writes the batch, adding each item as written to written, and returns
+   * how many of them were created.
+   */
+  private int upsert(List<MenuItem> batch, List<UCSBDiningCommonsMenuItems> written) {
+    int created = 0;
+    for (MenuItem message : batch) {
+      UCSBDiningCommonsMenuItems incoming = toEntity(message);
+      long id = message.getId();
+      if (id == 0) {
+        written.add(ucsbDiningCommonsMenuItemRepository.save(incoming));
+        created++;
+      } else if (message.hasVersion()) {
+        long version = message.getVersion();
+        if (ucsbDiningCommonsMenuItemRepository.updateIfVersionMatches(id, version, incoming) == 0) {
+          throw ucsbDiningCommonsMenuItemRepository.existsById(id)
+              ? new PreconditionFailedException(UCSBDiningCommonsMenuItems.class, id, version)
+              : new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, id);
+        }
+        written.add(ucsbDiningCommonsMenuItemRepository.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, id)));
+      } else {
+        UCSBDiningCommonsMenuItems menuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItems.class, id));
+        menuitem.setDiningCommonsCode(incoming.getDiningCommonsCode());
+        menuitem.setName(incoming.getName());
+        menuitem.setStation(incoming.getStation());
+        written.add(ucsbDiningCommonsMenuItemRepository.save(menuitem));
+      }
+    }
+    return created;
+  }
+
+  static MenuItem toMessage(UCSBDiningCommonsMenuItems menuitem) {
+    MenuItem.Builder message = MenuItem.newBuilder()
+        .setId(menuitem.getId())
+        .setDiningCommonsCode(DiningCommonsGrpcService.nullToEmpty(menuitem.getDiningCommonsCode()))
+        .setName(DiningCommonsGrpcService.nullToEmpty(menuitem.getName()))
+        .setStation(DiningCommonsGrpcService.nullToEmpty(menuitem.getStation()));
+    if (menuitem.getVersion() != null) {
+      message.setVersion(menuitem.getVersion());
+    }
+    return message.build();
+  }
+
+  static UCSBDiningCommonsMenuItems toEntity(MenuItem message) {
+    return UCSBDiningCommonsMenuItems.builder()
+        .diningCommonsCode(message.getDiningCommonsCode())
+        .name(message.getName())
+        .station(message.getStation())
+        .build();
+  }
+}
@@ -0,0 +1,196 @@
+package edu.ucsb.cs156.example.grpc;
+
+import java.util.Base64;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.stereotype.Component;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.IntegrityViolation;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Authenticates gRPC calls with the same session a browser has after logging
+ * in, so that the @PreAuthorize roles on the gRPC services mean what they
+ * mean on the controllers.
+ *
+ * The client sends the SESSION cookie as "cookie" metadata.  The session is
+ * looked up in the shared session store and its SecurityContext is set on
+ * the thread around every callback of the call.  Calls without a live
+ * session are refused with UNAUTHENTICATED before they reach a service.
+ * Only reads the session, so gRPC calls do not extend it.
+ *
+ * Exceptions thrown by the services are turned into statuses here, the way
+ * ApiController turns them into HTTP statuses for the controllers.
+ */
+@Slf4j
+@Component
+public class SessionAuthenticationInterceptor implements ServerInterceptor {
+
+  static final Metadata.Key<String> COOKIE = Metadata.Key.of("cookie", Metadata.ASCII_STRING_MARSHALLER);
+  static final String SESSION_COOKIE = "SESSION";
+
+  @Autowired
+  SessionRepository<? extends Session> sessionRepository;
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+      ServerCallHandler<ReqT, RespT> next) {
+    SecurityContext context = securityContext(headers);
+    if (context == null) {
+      call.close(Status.UNAUTHENTICATED.withDescription("log in and send the SESSION cookie"), new Metadata());
+      return new ServerCall.Listener<ReqT>() {
+      };
+    }
+    AuthenticatedListener<ReqT, RespT> listener = new AuthenticatedListener<>(call, context);
+    listener.run(() -> listener.setDelegate(next.startCall(call, headers)));
+    return listener;
+  }
+
+  /**
+   * The SecurityContext of the session named by the SESSION cookie, or null
+   * if there is no cookie or no such session.
+   */
+  SecurityContext securityContext(Metadata headers) {
+    Iterable<String> cookies = headers.getAll(COOKIE);
+    if (cookies == null) {
+      return null;
+    }
+    for (String header : cookies) {
+      for (String pair : header.split(";")) {
+        int equals = pair.indexOf('=');
+        if (equals > 0 && pair.substring(0, equals).trim().equals(SESSION_COOKIE)) {
+          return load(pair.substring(equals + 1).trim());
+        }
+      }
+    }
+    return null;
+  }
+
+  private SecurityContext load(String cookieValue) {
+    String id;
+    try {
+      // Spring Session base64-encodes the id in the cookie
+      id = new String(Base64.getDecoder().decode(cookieValue));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    Session session = sessionRepository.findById(id);
+    if (session == null) {
+      return null;
+    }
+    return session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+  }
+
+  /**
+   * The status a call ends with when a service throws.
+   */
+  static Status toStatus(RuntimeException e) {
+    if (e instanceof StatusRuntimeException) {
+      return ((StatusRuntimeException) e).getStatus();
+    }
+    if (e instanceof EntityNotFoundException) {
+      return Status.NOT_FOUND.withDescription(e.getMessage());
+    }
+    if (e instanceof PreconditionFailedException) {
+      return Status.FAILED_PRECONDITION.withDescription(e.getMessage());
+    }
+    if (e instanceof DataIntegrityViolationException) {
+      IntegrityViolation violation = IntegrityViolation.of((DataIntegrityViolationException) e);
+      Status status = violation == IntegrityViolation.DUPLICATE_KEY ? Status.ALREADY_EXISTS : Status.FAILED_PRECONDITION;
+      return status.withDescription(violation.getMessage());
+    }
+    if (e instanceof OptimisticLockingFailureException) {
+      return Status.ABORTED.withDescription(e.getMessage());
+    }
+    if (e instanceof AccessDeniedException) {
+      return Status.PERMISSION_DENIED.withDescription(e.getMessage());
+    }
+    log.error("gRPC call failed", e);
+    return Status.INTERNAL.withDescription(e.getClass().getSimpleName());
+  }
+
+  /**
+   * Runs each callback with the caller's SecurityContext, and ends the call
+   * with a status if the callback throws.  Once it has, later callbacks are
+   * dropped.
+   */
+  static class AuthenticatedListener<ReqT, RespT> extends ForwardingServerCallListener<ReqT> {
+
+    private final ServerCall<ReqT, RespT> call;
+    private final SecurityContext context;
+    private ServerCall.Listener<ReqT> delegate = new ServerCall.Listener<ReqT>() {
+    };
+    private boolean failed;
+
+    AuthenticatedListener(ServerCall<ReqT, RespT> call, SecurityContext context) {
+      this.call = call;
+      this.context = context;
+    }
+
+    void setDelegate(ServerCall.Listener<ReqT> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    protected ServerCall.Listener<ReqT> delegate() {
+      return delegate;
+    }
+
+    void run(Runnable callback) {
+      if (failed) {
+        return;
+      }
+      SecurityContextHolder.setContext(context);
+      try {
+        callback.run();
+      } catch (RuntimeException e) {
+        failed = true;
+        call.close(toStatus(e), new Metadata());
+      } finally {
+        SecurityContextHolder.clearContext();
+      }
+    }
+
+    @Override
+    public void onMessage(ReqT message) {
+      run(() -> super.onMessage(message));
+    }
+
+    @Override
+    public void onHalfClose() {
+      run(super::onHalfClose);
+    }
+
+    @Override
+    public void onCancel() {
+      run(super::onCancel);
+    }
+
+    @Override
+    public void onComplete() {
+      run(super::onComplete);
+    }
+
+    @Override
+    public void onReady() {
+      run(super::onReady);
+    }
+  }
+}
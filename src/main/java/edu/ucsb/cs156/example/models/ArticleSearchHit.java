@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+
+/**
+ * One article matching a search.  The highlights are HTML-escaped text
+ * with the matching terms wrapped in &lt;b&gt;; they are null when the
+ * field didn't match.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ArticleSearchHit {
+  private long id;
+  private float score;
+  private String title;
+  private String url;
+  private String titleHighlight;
+  private String explanationHighlight;
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ArticleSearchResults {
+  private String query;
+  private int page;
+  private int size;
+  private long totalHits;
+  private List<ArticleSearchHit> hits;
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+
+/**
+ * A dining commons with its menu items, each with a summary of its reviews.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class DiningCommonsMenu {
+  private UCSBDiningCommons commons;
+  private List<RatedMenuItem> items;
+}
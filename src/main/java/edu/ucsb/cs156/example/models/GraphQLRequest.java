@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The body of a POST to /api/graphql.  query may be left out when
+ * extensions.persistedQuery names a query the server has already seen.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class GraphQLRequest {
+  private String query;
+  private String operationName;
+  private Map<String, Object> variables;
+  private Map<String, Object> extensions;
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+/**
+ * A change to the help request table, as pushed to TA dashboards over
+ * /api/helprequest/events.  For DELETED events only helpRequestId is set.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestEvent {
+  public enum Type { CREATED, UPDATED, SOLVED, DELETED }
+
+  private long eventId;
+  private Type type;
+  private long helpRequestId;
+  private HelpRequest helpRequest;
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+
+/**
+ * How many reviews a menu item has and their average number of stars
+ * (null when there are none).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class MenuItemRating {
+  private Long itemId;
+  private Long reviewCount;
+  private Double averageStars;
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The columns of a user that the admin users page shows.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class UserSummary {
+  private long id;
+  private String email;
+  private String givenName;
+  private String familyName;
+  private boolean admin;
+}
@@ -2,10 +2,37 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Articles;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface ArticlesRepository extends CrudRepository<Articles, Long> {
-}
\ No newline at end of file
+public interface ArticlesRepository extends PagingAndSortingRepository<Articles, Long> {
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE articles a SET "
+      + "a.title = :#{#incoming.title}, "
+      + "a.url = :#{#incoming.url}, "
+      + "a.explanation = :#{#incoming.explanation}, "
+      + "a.email = :#{#incoming.email}, "
+      + "a.dateAdded = :#{#incoming.dateAdded}, "
+      + "a.version = a.version + 1 "
+      + "WHERE a.id = :id AND a.version = :version")
+  int updateIfVersionMatches(@Param("id") long id, @Param("version") long version, @Param("incoming") Articles incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM articles a WHERE a.id = :id")
+  int deleteRowById(@Param("id") long id);
+}
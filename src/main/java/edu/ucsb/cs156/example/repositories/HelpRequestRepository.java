@@ -1,9 +1,58 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
+  Iterable<HelpRequest> findAllBySolvedFalseOrderByRequestTimeAsc();
+
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE helprequest h SET "
+      + "h.requesterEmail = :#{#incoming.requesterEmail}, "
+      + "h.teamId = :#{#incoming.teamId}, "
+      + "h.tableOrBreakoutRoom = :#{#incoming.tableOrBreakoutRoom}, "
+      + "h.requestTime = :#{#incoming.requestTime}, "
+      + "h.explanation = :#{#incoming.explanation}, "
+      + "h.solved = :#{#incoming.solved}, "
+      + "h.version = h.version + 1 "
+      + "WHERE h.id = :id AND h.version = :version")
+  int updateIfVersionMatches(@Param("id") long id, @Param("version") long version, @Param("incoming") HelpRequest incoming);
+
+  /**
+   * Like updateIfVersionMatches, but only if the row's solved flag is also
+   * still wasSolved, so the caller learns what it was without reading the
+   * row first.
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE helprequest h SET "
+      + "h.requesterEmail = :#{#incoming.requesterEmail}, "
+      + "h.teamId = :#{#incoming.teamId}, "
+      + "h.tableOrBreakoutRoom = :#{#incoming.tableOrBreakoutRoom}, "
+      + "h.requestTime = :#{#incoming.requestTime}, "
+      + "h.explanation = :#{#incoming.explanation}, "
+      + "h.solved = :#{#incoming.solved}, "
+      + "h.version = h.version + 1 "
+      + "WHERE h.id = :id AND h.version = :version AND h.solved = :wasSolved")
+  int updateIfVersionAndSolvedMatch(@Param("id") long id, @Param("version") long version,
+      @Param("wasSolved") boolean wasSolved, @Param("incoming") HelpRequest incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM helprequest h WHERE h.id = :id")
+  int deleteRowById(@Param("id") long id);
 }
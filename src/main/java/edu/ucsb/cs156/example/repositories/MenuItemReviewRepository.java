@@ -1,12 +1,60 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.MenuItemRating;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
 public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
- 
-}
\ No newline at end of file
+  /**
+   * Review count and average stars for each reviewed menu item of a dining
+   * commons, computed by the database in one grouped query.
+   */
+  @Query("SELECT new edu.ucsb.cs156.example.models.MenuItemRating(r.itemId, COUNT(r), AVG(r.stars)) "
+      + "FROM menuitemreview r WHERE r.item.diningCommonsCode = :code GROUP BY r.itemId")
+  List<MenuItemRating> findRatingsByDiningCommonsCode(@Param("code") String code);
+
+  /**
+   * Review count and average stars for each of the given menu items that has
+   * been reviewed, in one grouped query.
+   */
+  @Query("SELECT new edu.ucsb.cs156.example.models.MenuItemRating(r.itemId, COUNT(r), AVG(r.stars)) "
+      + "FROM menuitemreview r WHERE r.itemId IN :itemIds GROUP BY r.itemId")
+  List<MenuItemRating> findRatingsByItemIdIn(@Param("itemIds") Collection<Long> itemIds);
+
+  List<MenuItemReview> findAllByItemIdInOrderByIdAsc(Collection<Long> itemIds);
+
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE menuitemreview r SET "
+      + "r.itemId = :#{#incoming.itemId}, "
+      + "r.reviewerEmail = :#{#incoming.reviewerEmail}, "
+      + "r.stars = :#{#incoming.stars}, "
+      + "r.dateReviewed = :#{#incoming.dateReviewed}, "
+      + "r.comments = :#{#incoming.comments}, "
+      + "r.version = r.version + 1 "
+      + "WHERE r.id = :id AND r.version = :version")
+  int updateIfVersionMatches(@Param("id") long id, @Param("version") long version, @Param("incoming") MenuItemReview incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM menuitemreview r WHERE r.id = :id")
+  int deleteRowById(@Param("id") long id);
+}
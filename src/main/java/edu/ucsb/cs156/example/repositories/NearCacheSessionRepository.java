@@ -0,0 +1,259 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A small in-process cache in front of the shared session store.
+ *
+ * Sessions live in a table shared by every instance of the app, so any
+ * instance can serve any request without sticky sessions.  Loading the
+ * session (and the SecurityContext inside it) on every request would cost
+ * a database round trip, so sessions this instance has recently loaded or
+ * saved are kept here for a short time-to-live.
+ *
+ * The cache holds a snapshot of each session that is never handed out:
+ * every findById gets its own copy, so concurrent requests on one session
+ * (two tabs) never share a mutable object.  A request that changes the
+ * session loads the store's session on its first change and applies its
+ * changes to that, so two requests that change different attributes don't
+ * lose each other's writes.
+ *
+ * A request that changes nothing but the last-accessed time is only
+ * written through once that time has moved on by the flush interval since
+ * it was last stored, instead of on every request.  The stored expiry may
+ * then lag by up to the flush interval, so keep it well under the session
+ * timeout.
+ *
+ * A logout or role change made on another instance becomes visible here
+ * after at most one time-to-live, so keep it short (a few seconds).
+ */
+@Slf4j
+public class NearCacheSessionRepository<S extends Session>
+    implements SessionRepository<NearCacheSessionRepository.NearCacheSession<S>> {
+
+  private final SessionRepository<S> delegate;
+  private final Duration timeToLive;
+  private final int maximumSize;
+  private final Duration accessTimeFlushInterval;
+  private final Clock clock;
+  private final Map<String, CachedSession> cache = new ConcurrentHashMap<>();
+
+  public NearCacheSessionRepository(SessionRepository<S> delegate, Duration timeToLive, int maximumSize,
+      Duration accessTimeFlushInterval) {
+    this(delegate, timeToLive, maximumSize, accessTimeFlushInterval, Clock.systemUTC());
+  }
+
+  public NearCacheSessionRepository(SessionRepository<S> delegate, Duration timeToLive, int maximumSize,
+      Duration accessTimeFlushInterval, Clock clock) {
+    this.delegate = delegate;
+    this.timeToLive = timeToLive;
+    this.maximumSize = maximumSize;
+    this.accessTimeFlushInterval = accessTimeFlushInterval;
+    this.clock = clock;
+  }
+
+  @Override
+  public NearCacheSession<S> createSession() {
+    S created = delegate.createSession();
+    return new NearCacheSession<>(new MapSession(created), created.getLastAccessedTime(), created, null, true);
+  }
+
+  @Override
+  public void save(NearCacheSession<S> session) {
+    if (!session.changed && Duration.between(session.storedLastAccessedTime, session.getLastAccessedTime())
+        .compareTo(accessTimeFlushInterval) < 0) {
+      return;
+    }
+    S stored = session.stored();
+    if (stored == null) {
+      // deleted by another request or instance since this one loaded it
+      cache.remove(session.getOriginalId());
+      return;
+    }
+    stored.setLastAccessedTime(session.getLastAccessedTime());
+    delegate.save(stored);
+    if (!stored.getId().equals(session.getOriginalId())) {
+      cache.remove(session.getOriginalId());
+    }
+    remember(new MapSession(stored));
+  }
+
+  @Override
+  public NearCacheSession<S> findById(String id) {
+    CachedSession cached = cache.get(id);
+    if (cached != null) {
+      if (cached.expiresAt().isAfter(clock.instant()) && !cached.snapshot().isExpired()) {
+        MapSession snapshot = cached.snapshot();
+        return new NearCacheSession<>(new MapSession(snapshot), snapshot.getLastAccessedTime(), null,
+            () -> delegate.findById(id), false);
+      }
+      cache.remove(id, cached);
+    }
+
+    S stored = delegate.findById(id);
+    if (stored == null) {
+      return null;
+    }
+    MapSession snapshot = new MapSession(stored);
+    remember(snapshot);
+    return new NearCacheSession<>(new MapSession(snapshot), stored.getLastAccessedTime(), stored, null, false);
+  }
+
+  @Override
+  public void deleteById(String id) {
+    cache.remove(id);
+    delegate.deleteById(id);
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  private void remember(MapSession snapshot) {
+    if (timeToLive.isZero() || timeToLive.isNegative()) {
+      return;
+    }
+    if (cache.size() >= maximumSize) {
+      evictStale();
+      if (cache.size() >= maximumSize) {
+        log.debug("session near-cache full ({} entries); not caching {}", cache.size(), snapshot.getId());
+        return;
+      }
+    }
+    cache.put(snapshot.getId(), new CachedSession(snapshot, clock.instant().plus(timeToLive)));
+  }
+
+  private void evictStale() {
+    Instant now = clock.instant();
+    cache.values().removeIf(c -> !c.expiresAt().isAfter(now));
+  }
+
+  // snapshot is never handed out or changed; it is replaced on save
+  private record CachedSession(MapSession snapshot, Instant expiresAt) {
+  }
+
+  /**
+   * One request's copy of a session.  Reads come from the copy; changes go
+   * to the copy and to the store's session, which is loaded on the first
+   * change if this request doesn't have it already.
+   */
+  public static final class NearCacheSession<S extends Session> implements Session {
+    private final MapSession copy;
+    private final Instant storedLastAccessedTime;
+    private S stored;
+    private Supplier<S> load;
+    private boolean changed;
+
+    NearCacheSession(MapSession copy, Instant storedLastAccessedTime, S stored, Supplier<S> load,
+        boolean changed) {
+      this.copy = copy;
+      this.storedLastAccessedTime = storedLastAccessedTime;
+      this.stored = stored;
+      this.load = load;
+      this.changed = changed;
+    }
+
+    private S stored() {
+      if (load != null) {
+        stored = load.get();
+        load = null;
+      }
+      return stored;
+    }
+
+    @Override
+    public String getId() {
+      return copy.getId();
+    }
+
+    String getOriginalId() {
+      return copy.getOriginalId();
+    }
+
+    @Override
+    public String changeSessionId() {
+      S session = stored();
+      String id = session == null ? copy.changeSessionId() : session.changeSessionId();
+      copy.setId(id);
+      changed = true;
+      return id;
+    }
+
+    @Override
+    public <T> T getAttribute(String attributeName) {
+      return copy.getAttribute(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+      return copy.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+      copy.setAttribute(attributeName, attributeValue);
+      S session = stored();
+      if (session != null) {
+        session.setAttribute(attributeName, attributeValue);
+      }
+      changed = true;
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+      copy.removeAttribute(attributeName);
+      S session = stored();
+      if (session != null) {
+        session.removeAttribute(attributeName);
+      }
+      changed = true;
+    }
+
+    @Override
+    public Instant getCreationTime() {
+      return copy.getCreationTime();
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+      copy.setLastAccessedTime(lastAccessedTime);
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+      return copy.getLastAccessedTime();
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+      copy.setMaxInactiveInterval(interval);
+      S session = stored();
+      if (session != null) {
+        session.setMaxInactiveInterval(interval);
+      }
+      changed = true;
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+      return copy.getMaxInactiveInterval();
+    }
+
+    @Override
+    public boolean isExpired() {
+      return copy.isExpired();
+    }
+  }
+}
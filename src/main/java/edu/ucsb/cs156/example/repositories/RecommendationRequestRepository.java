@@ -2,11 +2,38 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
 public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
-    
-}
\ No newline at end of file
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsbrecommendationrequest r SET "
+      + "r.requesterEmail = :#{#incoming.requesterEmail}, "
+      + "r.professorEmail = :#{#incoming.professorEmail}, "
+      + "r.explanation = :#{#incoming.explanation}, "
+      + "r.dateRequested = :#{#incoming.dateRequested}, "
+      + "r.dateNeeded = :#{#incoming.dateNeeded}, "
+      + "r.done = :#{#incoming.done}, "
+      + "r.version = r.version + 1 "
+      + "WHERE r.id = :id AND r.version = :version")
+  int updateIfVersionMatches(@Param("id") long id, @Param("version") long version, @Param("incoming") RecommendationRequest incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbrecommendationrequest r WHERE r.id = :id")
+  int deleteRowById(@Param("id") long id);
+}
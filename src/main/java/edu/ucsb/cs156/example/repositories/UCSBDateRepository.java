@@ -2,11 +2,47 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
 public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+
+  /**
+   * Every date, earliest first; the order comes from UCSBDATES_TIME_IX.
+   */
+  Iterable<UCSBDate> findAllByOrderByLocalDateTimeAsc();
+
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsbdates d SET "
+      + "d.quarterYYYYQ = :#{#incoming.quarterYYYYQ}, "
+      + "d.name = :#{#incoming.name}, "
+      + "d.localDateTime = :#{#incoming.localDateTime}, "
+      + "d.version = d.version + 1 "
+      + "WHERE d.id = :id AND d.version = :version")
+  int updateIfVersionMatches(@Param("id") long id, @Param("version") long version, @Param("incoming") UCSBDate incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbdates d WHERE d.id = :id")
+  int deleteRowById(@Param("id") long id);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbdates d WHERE d.quarterYYYYQ = :quarterYYYYQ")
+  int deleteAllByQuarter(@Param("quarterYYYYQ") String quarterYYYYQ);
+}
@@ -5,12 +5,52 @@ import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
 
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 
 
 @Repository
 public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItems, Long> {
-  
-}
\ No newline at end of file
+  List<UCSBDiningCommonsMenuItems> findAllByDiningCommonsCodeInOrderByIdAsc(Collection<String> diningCommonsCodes);
+
+  /**
+   * The next page of items after the given id, in id order.
+   */
+  List<UCSBDiningCommonsMenuItems> findByIdGreaterThanOrderByIdAsc(long after, Pageable pageable);
+
+  List<UCSBDiningCommonsMenuItems> findByDiningCommonsCodeAndIdGreaterThanOrderByIdAsc(String diningCommonsCode, long after, Pageable pageable);
+
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   * Pending changes are flushed first and the persistence context cleared
+   * after, so a gRPC batch that reads the row back in the same transaction
+   * sees the update.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Transactional
+  @Query("UPDATE ucsbdiningcommonsmenuitems m SET "
+      + "m.diningCommonsCode = :#{#incoming.diningCommonsCode}, "
+      + "m.name = :#{#incoming.name}, "
+      + "m.station = :#{#incoming.station}, "
+      + "m.version = m.version + 1 "
+      + "WHERE m.id = :id AND m.version = :version")
+  int updateIfVersionMatches(@Param("id") long id, @Param("version") long version, @Param("incoming") UCSBDiningCommonsMenuItems incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbdiningcommonsmenuitems m WHERE m.id = :id")
+  int deleteRowById(@Param("id") long id);
+}
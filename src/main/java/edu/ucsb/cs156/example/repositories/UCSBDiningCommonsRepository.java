@@ -4,12 +4,48 @@ import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
 
 
+import java.util.Optional;
+
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
 public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+  /**
+   * The commons with its menu items, joined in a single query.
+   */
+  @EntityGraph(attributePaths = "menuItems")
+  Optional<UCSBDiningCommons> findWithMenuItemsByCode(String code);
+
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsbdiningcommons c SET "
+      + "c.name = :#{#incoming.name}, "
+      + "c.hasSackMeal = :#{#incoming.hasSackMeal}, "
+      + "c.hasTakeOutMeal = :#{#incoming.hasTakeOutMeal}, "
+      + "c.hasDiningCam = :#{#incoming.hasDiningCam}, "
+      + "c.latitude = :#{#incoming.latitude}, "
+      + "c.longitude = :#{#incoming.longitude}, "
+      + "c.version = c.version + 1 "
+      + "WHERE c.code = :code AND c.version = :version")
+  int updateIfVersionMatches(@Param("code") String code, @Param("version") long version, @Param("incoming") UCSBDiningCommons incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbdiningcommons c WHERE c.code = :code")
+  int deleteRowById(@Param("code") String code);
+}
@@ -2,10 +2,34 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
- 
-}
\ No newline at end of file
+  /**
+   * Copies incoming onto the row in a single UPDATE, but only if the row is
+   * still at the given version.  Returns the number of rows changed (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsborganizations o SET "
+      + "o.orgTranslationShort = :#{#incoming.orgTranslationShort}, "
+      + "o.orgTranslation = :#{#incoming.orgTranslation}, "
+      + "o.inactive = :#{#incoming.inactive}, "
+      + "o.version = o.version + 1 "
+      + "WHERE o.orgCode = :orgCode AND o.version = :version")
+  int updateIfVersionMatches(@Param("orgCode") String orgCode, @Param("version") long version, @Param("incoming") UCSBOrganization incoming);
+
+  /**
+   * Deletes the row in a single statement.  Returns 1, or 0 if there was no such row.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsborganizations o WHERE o.orgCode = :orgCode")
+  int deleteRowById(@Param("orgCode") String orgCode);
+}
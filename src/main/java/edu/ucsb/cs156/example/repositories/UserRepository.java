@@ -1,12 +1,29 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.UserSummary;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
   Optional<User> findByEmail(String email);
+  List<User> findAllByEmailIn(Collection<String> emails);
+
+  /**
+   * The next page of users with an id above after, in id order, reading
+   * only the columns in UserSummary.  Pass the last id of one page to get
+   * the next; only the page size of the Pageable is used.
+   */
+  @Query("SELECT new edu.ucsb.cs156.example.models.UserSummary(u.id, u.email, u.givenName, u.familyName, u.admin) "
+      + "FROM users u WHERE u.id > :after ORDER BY u.id")
+  List<UserSummary> findSummariesAfter(@Param("after") long after, Pageable page);
 }
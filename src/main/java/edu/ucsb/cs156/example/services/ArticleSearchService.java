@@ -0,0 +1,275 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.NullFragmenter;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory Lucene index over the title, url and explanation of every
+ * article.
+ *
+ * The index is built from the database while the application starts,
+ * before it takes requests, reading pages of articles on several threads.
+ * ArticlesController keeps it up to date on every create, update and delete
+ * after that.  Searches see a write as soon as the call that made it
+ * returns.
+ *
+ * Queries may use fields, phrases, boolean operators and trailing-*
+ * prefixes.  Fuzzy, regular expression, wildcard and range queries can
+ * each walk a large part of the term dictionary, so they are not taken as
+ * syntax; a query using them is searched for as plain words.
+ */
+@Slf4j
+@Service("articleSearch")
+public class ArticleSearchService {
+
+  static final String ID = "id";
+  static final String TITLE = "title";
+  static final String URL = "url";
+  static final String EXPLANATION = "explanation";
+
+  public static final int MAX_PAGE_SIZE = 100;
+
+  // deepest result we will page to; past this, refine the query
+  static final int MAX_RESULTS = 10_000;
+
+  private static final Map<String, Float> BOOSTS = Map.of(TITLE, 3.0f, URL, 1.5f, EXPLANATION, 1.0f);
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Value("${app.articles.search.rebuild-page-size:500}")
+  int rebuildPageSize = 500;
+
+  @Value("${app.articles.search.rebuild-threads:4}")
+  int rebuildThreads = 4;
+
+  private final Analyzer analyzer = new StandardAnalyzer();
+  private final IndexWriter writer;
+  private final SearcherManager searcherManager;
+
+  public ArticleSearchService() throws IOException {
+    writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+    searcherManager = new SearcherManager(writer, null);
+  }
+
+  @PreDestroy
+  void close() throws IOException {
+    searcherManager.close();
+    writer.close();
+  }
+
+  /**
+   * Replaces the whole index with what is in the database.
+   */
+  @PostConstruct
+  public void rebuild() throws Exception {
+    long started = System.currentTimeMillis();
+    long count = articlesRepository.count();
+    int pages = (int) ((count + rebuildPageSize - 1) / rebuildPageSize);
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(rebuildThreads, pages)));
+    try {
+      writer.deleteAll();
+      List<Future<Integer>> batches = new ArrayList<>();
+      for (int page = 0; page < pages; page++) {
+        PageRequest request = PageRequest.of(page, rebuildPageSize, Sort.by(ID));
+        batches.add(pool.submit(() -> indexPage(request)));
+      }
+      int indexed = 0;
+      for (Future<Integer> batch : batches) {
+        indexed += batch.get();
+      }
+      searcherManager.maybeRefreshBlocking();
+      log.info("article search index rebuilt with {} articles in {} ms", indexed, System.currentTimeMillis() - started);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private int indexPage(PageRequest request) throws IOException {
+    Page<Articles> page = articlesRepository.findAll(request);
+    for (Articles article : page) {
+      writer.updateDocument(idTerm(article.getId()), toDocument(article));
+    }
+    return page.getNumberOfElements();
+  }
+
+  /**
+   * Adds the article to the index, or replaces it if it is already there.
+   */
+  public void index(Articles article) throws IOException {
+    writer.updateDocument(idTerm(article.getId()), toDocument(article));
+    searcherManager.maybeRefreshBlocking();
+  }
+
+  public void remove(long id) throws IOException {
+    writer.deleteDocuments(idTerm(id));
+    searcherManager.maybeRefreshBlocking();
+  }
+
+  /**
+   * Runs a query and returns one page of hits, best first.  The query may
+   * use Lucene syntax ("exact phrase", title:word, word*); if it doesn't
+   * parse, or uses syntax that isn't allowed, it is searched for as plain
+   * words instead.
+   */
+  public ArticleSearchResults search(String text, int page, int size)
+      throws IOException, InvalidTokenOffsetsException {
+    int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    int first = (int) Math.min((long) Math.max(0, page) * pageSize, MAX_RESULTS);
+    Query query = parse(text);
+
+    IndexSearcher searcher = searcherManager.acquire();
+    try {
+      TopDocs top = searcher.search(query, Math.min(first + pageSize, MAX_RESULTS));
+      Highlighter titleHighlighter = highlighter(query);
+      titleHighlighter.setTextFragmenter(new NullFragmenter());
+      Highlighter explanationHighlighter = highlighter(query);
+
+      List<ArticleSearchHit> hits = new ArrayList<>();
+      for (int i = first; i < top.scoreDocs.length; i++) {
+        ScoreDoc scoreDoc = top.scoreDocs[i];
+        Document doc = searcher.doc(scoreDoc.doc);
+        hits.add(ArticleSearchHit.builder()
+            .id(Long.parseLong(doc.get(ID)))
+            .score(scoreDoc.score)
+            .title(doc.get(TITLE))
+            .url(doc.get(URL))
+            .titleHighlight(highlight(titleHighlighter, TITLE, doc.get(TITLE)))
+            .explanationHighlight(highlight(explanationHighlighter, EXPLANATION, doc.get(EXPLANATION)))
+            .build());
+      }
+      return ArticleSearchResults.builder()
+          .query(text)
+          .page(Math.max(0, page))
+          .size(pageSize)
+          .totalHits(top.totalHits.value)
+          .hits(hits)
+          .build();
+    } finally {
+      searcherManager.release(searcher);
+    }
+  }
+
+  Query parse(String text) {
+    MultiFieldQueryParser parser = new RestrictedQueryParser(analyzer);
+    try {
+      return parser.parse(text);
+    } catch (ParseException e) {
+      log.debug("searching for '{}' as plain words: {}", text, e.getMessage());
+    }
+    try {
+      return parser.parse(QueryParser.escape(text));
+    } catch (ParseException e) {
+      return new MatchNoDocsQuery();
+    }
+  }
+
+  int size() {
+    return writer.getDocStats().numDocs;
+  }
+
+  private Highlighter highlighter(Query query) {
+    return new Highlighter(new SimpleHTMLFormatter("<b>", "</b>"), new SimpleHTMLEncoder(), new QueryScorer(query));
+  }
+
+  private String highlight(Highlighter highlighter, String field, String value)
+      throws IOException, InvalidTokenOffsetsException {
+    return value == null ? null : highlighter.getBestFragment(analyzer, field, value);
+  }
+
+  /**
+   * The classic parser, minus the query types that expand to many terms.
+   */
+  private static class RestrictedQueryParser extends MultiFieldQueryParser {
+
+    RestrictedQueryParser(Analyzer analyzer) {
+      super(new String[] { TITLE, URL, EXPLANATION }, analyzer, BOOSTS);
+    }
+
+    @Override
+    protected Query getFuzzyQuery(String field, String termStr, float minSimilarity) throws ParseException {
+      throw new ParseException("fuzzy queries are not allowed");
+    }
+
+    @Override
+    protected Query getRegexpQuery(String field, String termStr) throws ParseException {
+      throw new ParseException("regular expression queries are not allowed");
+    }
+
+    @Override
+    protected Query getWildcardQuery(String field, String termStr) throws ParseException {
+      throw new ParseException("wildcards are only allowed at the end of a word");
+    }
+
+    @Override
+    protected Query getRangeQuery(String field, String part1, String part2, boolean startInclusive,
+        boolean endInclusive) throws ParseException {
+      throw new ParseException("range queries are not allowed");
+    }
+  }
+
+  private static Term idTerm(long id) {
+    return new Term(ID, Long.toString(id));
+  }
+
+  private static Document toDocument(Articles article) {
+    Document doc = new Document();
+    doc.add(new StringField(ID, Long.toString(article.getId()), Field.Store.YES));
+    addText(doc, TITLE, article.getTitle());
+    addText(doc, URL, article.getUrl());
+    addText(doc, EXPLANATION, article.getExplanation());
+    return doc;
+  }
+
+  private static void addText(Document doc, String field, String value) {
+    if (value != null) {
+      doc.add(new TextField(field, value, Field.Store.YES));
+    }
+  }
+}
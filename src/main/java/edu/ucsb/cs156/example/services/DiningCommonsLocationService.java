@@ -0,0 +1,189 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory k-d tree over the dining commons that have a location.
+ *
+ * Each commons is placed on the unit sphere as an (x, y, z) point, so the
+ * straight-line distance between two points orders them exactly as the
+ * great-circle distance does, with no special cases at the poles or the
+ * date line.  The tree is built from the database at startup and rebuilt
+ * by UCSBDiningCommonsController after every write, and when
+ * TableChangeService sees a write made through another instance.  Rebuilds
+ * are serialized and each swaps in a new tree, so queries never lock and
+ * never touch the database.
+ */
+@Slf4j
+@Service("diningCommonsLocation")
+public class DiningCommonsLocationService {
+
+  static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  public static final int MAX_RESULTS = 50;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  TableChangeService tableChanges;
+
+  private volatile KdTree tree = new KdTree(List.of());
+
+  @PostConstruct
+  void load() {
+    tableChanges.addListener(Table.DINING_COMMONS, this::reload);
+    reload();
+  }
+
+  /**
+   * Rebuilds the tree from the database.
+   */
+  public synchronized void reload() {
+    List<Located> located = new ArrayList<>();
+    for (UCSBDiningCommons commons : ucsbDiningCommonsRepository.findAll()) {
+      if (commons.getLatitude() != null && commons.getLongitude() != null) {
+        located.add(new Located(commons, toPoint(commons.getLatitude(), commons.getLongitude())));
+      }
+    }
+    tree = new KdTree(located);
+    log.info("dining commons location index built with {} commons", located.size());
+  }
+
+  /**
+   * Returns up to k commons nearest to (latitude, longitude), nearest first.
+   * A non-null hasSackMeal or hasTakeOutMeal keeps only commons with that
+   * value.
+   */
+  public List<NearbyDiningCommons> nearest(double latitude, double longitude, int k,
+      Boolean hasSackMeal, Boolean hasTakeOutMeal) {
+    Predicate<UCSBDiningCommons> filter = commons -> (hasSackMeal == null || hasSackMeal == commons.getHasSackMeal())
+        && (hasTakeOutMeal == null || hasTakeOutMeal == commons.getHasTakeOutMeal());
+    double[] target = toPoint(latitude, longitude);
+    List<Candidate> found = tree.nearest(target, Math.max(1, Math.min(k, MAX_RESULTS)), filter);
+
+    List<NearbyDiningCommons> result = new ArrayList<>(found.size());
+    for (Candidate candidate : found) {
+      result.add(NearbyDiningCommons.builder()
+          .commons(candidate.located.commons)
+          .distanceMeters(toMeters(candidate.squaredChord))
+          .build());
+    }
+    return result;
+  }
+
+  static double[] toPoint(double latitude, double longitude) {
+    double lat = Math.toRadians(latitude);
+    double lon = Math.toRadians(longitude);
+    return new double[] { Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat) };
+  }
+
+  static double toMeters(double squaredChord) {
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(squaredChord) / 2));
+  }
+
+  private static double squaredDistance(double[] a, double[] b) {
+    double dx = a[0] - b[0];
+    double dy = a[1] - b[1];
+    double dz = a[2] - b[2];
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  private static final class Located {
+    final UCSBDiningCommons commons;
+    final double[] point;
+
+    Located(UCSBDiningCommons commons, double[] point) {
+      this.commons = commons;
+      this.point = point;
+    }
+  }
+
+  private static final class Candidate {
+    final Located located;
+    final double squaredChord;
+
+    Candidate(Located located, double squaredChord) {
+      this.located = located;
+      this.squaredChord = squaredChord;
+    }
+  }
+
+  private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(c -> c.squaredChord);
+
+  /**
+   * Balanced, implicit k-d tree: the node for a range of the array is its
+   * middle element, split on axis depth % 3, with the smaller half of the
+   * range on its left and the larger half on its right.
+   */
+  static final class KdTree {
+    private final Located[] nodes;
+
+    KdTree(List<Located> located) {
+      nodes = located.toArray(new Located[0]);
+      build(0, nodes.length, 0);
+    }
+
+    private void build(int lo, int hi, int depth) {
+      if (hi - lo <= 1) {
+        return;
+      }
+      int axis = depth % 3;
+      Arrays.sort(nodes, lo, hi, Comparator.comparingDouble(l -> l.point[axis]));
+      int mid = (lo + hi) >>> 1;
+      build(lo, mid, depth + 1);
+      build(mid + 1, hi, depth + 1);
+    }
+
+    List<Candidate> nearest(double[] target, int k, Predicate<UCSBDiningCommons> filter) {
+      // farthest candidate on top, so it is the one to drop
+      PriorityQueue<Candidate> best = new PriorityQueue<>(k, NEAREST_FIRST.reversed());
+      search(0, nodes.length, 0, target, k, filter, best);
+      List<Candidate> sorted = new ArrayList<>(best);
+      sorted.sort(NEAREST_FIRST);
+      return sorted;
+    }
+
+    private void search(int lo, int hi, int depth, double[] target, int k,
+        Predicate<UCSBDiningCommons> filter, PriorityQueue<Candidate> best) {
+      if (lo >= hi) {
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      Located node = nodes[mid];
+      if (filter.test(node.commons)) {
+        double d = squaredDistance(node.point, target);
+        if (best.size() < k) {
+          best.add(new Candidate(node, d));
+        } else if (d < best.peek().squaredChord) {
+          best.poll();
+          best.add(new Candidate(node, d));
+        }
+      }
+
+      int axis = depth % 3;
+      double diff = target[axis] - node.point[axis];
+      boolean goLeft = diff < 0;
+      search(goLeft ? lo : mid + 1, goLeft ? mid : hi, depth + 1, target, k, filter, best);
+      if (best.size() < k || diff * diff < best.peek().squaredChord) {
+        search(goLeft ? mid + 1 : lo, goLeft ? hi : mid, depth + 1, target, k, filter, best);
+      }
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.dataloader.MappedBatchLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.GraphQLRequest;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import graphql.ExecutionInput;
+import graphql.GraphQL;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.language.StringValue;
+import graphql.schema.Coercing;
+import graphql.schema.CoercingParseLiteralException;
+import graphql.schema.CoercingParseValueException;
+import graphql.schema.CoercingSerializeException;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLScalarType;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+
+/**
+ * Runs queries against the read-only schema in graphql/schema.graphqls.
+ *
+ * Every request gets its own set of DataLoaders, so a field reached through
+ * many parents (say the reviews of every menu item of every commons) costs
+ * one IN query for the whole level rather than one query per parent, and
+ * each key is loaded at most once per request.  Nothing is cached between
+ * requests except parsed persisted queries.
+ */
+@Service
+public class GraphQLService {
+
+  static final String CURRENT_USER = "currentUser";
+  static final String ADMIN = "admin";
+
+  static final String COMMONS_BY_CODE = "commonsByCode";
+  static final String MENU_ITEMS_BY_COMMONS = "menuItemsByCommons";
+  static final String MENU_ITEM_BY_ID = "menuItemById";
+  static final String REVIEWS_BY_ITEM = "reviewsByItem";
+  static final String RATING_BY_ITEM = "ratingByItem";
+  static final String USER_BY_EMAIL = "userByEmail";
+
+  // most keys put in one IN clause; more than this and the loader splits them
+  static final int MAX_BATCH_SIZE = 1000;
+
+  static final GraphQLScalarType DATE_TIME = GraphQLScalarType.newScalar()
+      .name("DateTime")
+      .description("A local date and time in ISO-8601, as the REST API writes it")
+      .coercing(new Coercing<LocalDateTime, String>() {
+        @Override
+        public String serialize(Object value) {
+          if (value instanceof LocalDateTime time) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time);
+          }
+          throw new CoercingSerializeException("Expected a LocalDateTime but got " + value);
+        }
+
+        @Override
+        public LocalDateTime parseValue(Object input) {
+          try {
+            return LocalDateTime.parse(input.toString());
+          } catch (DateTimeParseException e) {
+            throw new CoercingParseValueException("Expected an ISO-8601 date and time but got " + input);
+          }
+        }
+
+        @Override
+        public LocalDateTime parseLiteral(Object input) {
+          if (input instanceof StringValue value) {
+            try {
+              return LocalDateTime.parse(value.getValue());
+            } catch (DateTimeParseException e) {
+              // fall through
+            }
+          }
+          throw new CoercingParseLiteralException("Expected an ISO-8601 date and time but got " + input);
+        }
+      })
+      .build();
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Value("${app.graphql.max-depth:8}")
+  int maxDepth = 8;
+
+  @Value("${app.graphql.max-complexity:500}")
+  int maxComplexity = 500;
+
+  @Value("${app.graphql.persisted-queries:1000}")
+  int maxPersistedQueries = 1000;
+
+  private GraphQL graphQL;
+
+  @PostConstruct
+  void init() throws IOException {
+    SchemaParser parser = new SchemaParser();
+    try (Reader schema = new InputStreamReader(
+        new ClassPathResource("graphql/schema.graphqls").getInputStream(), StandardCharsets.UTF_8)) {
+      graphQL = GraphQL.newGraphQL(new SchemaGenerator().makeExecutableSchema(parser.parse(schema), wiring()))
+          .instrumentation(new ChainedInstrumentation(List.of(
+              new MaxQueryDepthInstrumentation(maxDepth),
+              new MaxQueryComplexityInstrumentation(maxComplexity))))
+          .preparsedDocumentProvider(new ApolloPersistedQuerySupport(new LruPersistedQueryCache(maxPersistedQueries)))
+          .build();
+    }
+  }
+
+  /**
+   * Runs one query and returns the response in the shape the GraphQL spec
+   * gives it: data, and errors if there were any.  user may be null; fields
+   * that need admin resolve to null unless admin is true.
+   */
+  public Map<String, Object> execute(GraphQLRequest request, User user, boolean admin) {
+    ExecutionInput input = ExecutionInput.newExecutionInput()
+        .query(request.getQuery() == null ? PersistedQuerySupport.PERSISTED_QUERY_MARKER : request.getQuery())
+        .operationName(request.getOperationName())
+        .variables(request.getVariables() == null ? Map.of() : request.getVariables())
+        .extensions(request.getExtensions() == null ? Map.of() : request.getExtensions())
+        .graphQLContext(context -> {
+          context.of(ADMIN, admin);
+          if (user != null) {
+            context.of(CURRENT_USER, user);
+          }
+        })
+        .dataLoaderRegistry(dataLoaders())
+        .build();
+    return graphQL.execute(input).toSpecification();
+  }
+
+  private RuntimeWiring wiring() {
+    return RuntimeWiring.newRuntimeWiring()
+        .scalar(DATE_TIME)
+        .type("Query", type -> type
+            .dataFetcher("currentUser", env -> env.getGraphQlContext().get(CURRENT_USER))
+            .dataFetcher("diningCommons", env -> load(env, COMMONS_BY_CODE, env.getArgument("code")))
+            .dataFetcher("allDiningCommons", env -> ucsbDiningCommonsRepository.findAll())
+            .dataFetcher("menuItem", env -> load(env, MENU_ITEM_BY_ID, Long.valueOf(env.<String>getArgument("id"))))
+            .dataFetcher("allMenuItemReviews", env -> menuItemReviewRepository.findAll())
+            .dataFetcher("allHelpRequests", env -> helpRequestRepository.findAll())
+            .dataFetcher("allRecommendationRequests", env -> recommendationRequestRepository.findAll())
+            .dataFetcher("allOrganizations", env -> ucsbOrganizationRepository.findAll())
+            .dataFetcher("allUcsbDates", env -> ucsbDateRepository.findAll())
+            .dataFetcher("allArticles", env -> articlesRepository.findAll()))
+        .type("DiningCommons", type -> type
+            .dataFetcher("menuItems", env -> load(env, MENU_ITEMS_BY_COMMONS, env.<UCSBDiningCommons>getSource().getCode())))
+        .type("MenuItem", type -> type
+            .dataFetcher("diningCommons", env -> load(env, COMMONS_BY_CODE,
+                env.<UCSBDiningCommonsMenuItems>getSource().getDiningCommonsCode()))
+            .dataFetcher("reviews", env -> load(env, REVIEWS_BY_ITEM, env.<UCSBDiningCommonsMenuItems>getSource().getId()))
+            .dataFetcher("reviewCount", env -> rating(env)
+                .thenApply(rating -> rating == null ? 0 : rating.getReviewCount()))
+            .dataFetcher("averageStars", env -> rating(env)
+                .thenApply(rating -> rating == null ? null : rating.getAverageStars())))
+        .type("MenuItemReview", type -> type
+            .dataFetcher("item", env -> load(env, MENU_ITEM_BY_ID, env.<MenuItemReview>getSource().getItemId())))
+        .type("HelpRequest", type -> type
+            .dataFetcher("requester", requester(HelpRequest::getRequesterEmail)))
+        .type("RecommendationRequest", type -> type
+            .dataFetcher("requester", requester(RecommendationRequest::getRequesterEmail)))
+        .build();
+  }
+
+  private static <K, V> CompletableFuture<V> load(DataFetchingEnvironment env, String loader, K key) {
+    return key == null ? CompletableFuture.completedFuture(null) : env.<K, V>getDataLoader(loader).load(key);
+  }
+
+  private static CompletableFuture<MenuItemRating> rating(DataFetchingEnvironment env) {
+    return load(env, RATING_BY_ITEM, env.<UCSBDiningCommonsMenuItems>getSource().getId());
+  }
+
+  // users are only visible to admins, as in the REST API
+  private static <T> DataFetcher<CompletableFuture<User>> requester(Function<T, String> emailOf) {
+    return env -> Boolean.TRUE.equals(env.getGraphQlContext().get(ADMIN))
+        ? load(env, USER_BY_EMAIL, emailOf.apply(env.getSource()))
+        : CompletableFuture.completedFuture(null);
+  }
+
+  DataLoaderRegistry dataLoaders() {
+    DataLoaderRegistry registry = new DataLoaderRegistry();
+    register(registry, COMMONS_BY_CODE, (Set<String> codes) -> byKey(
+        ucsbDiningCommonsRepository.findAllById(codes), UCSBDiningCommons::getCode));
+    register(registry, MENU_ITEMS_BY_COMMONS, (Set<String> codes) -> grouped(codes,
+        ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCodeInOrderByIdAsc(codes),
+        UCSBDiningCommonsMenuItems::getDiningCommonsCode));
+    register(registry, MENU_ITEM_BY_ID, (Set<Long> ids) -> byKey(
+        ucsbDiningCommonsMenuItemRepository.findAllById(ids), UCSBDiningCommonsMenuItems::getId));
+    register(registry, REVIEWS_BY_ITEM, (Set<Long> ids) -> grouped(ids,
+        menuItemReviewRepository.findAllByItemIdInOrderByIdAsc(ids), MenuItemReview::getItemId));
+    register(registry, RATING_BY_ITEM, (Set<Long> ids) -> byKey(
+        menuItemReviewRepository.findRatingsByItemIdIn(ids), MenuItemRating::getItemId));
+    register(registry, USER_BY_EMAIL, (Set<String> emails) -> byKey(
+        userRepository.findAllByEmailIn(emails), User::getEmail));
+    return registry;
+  }
+
+  private static <K, V> void register(DataLoaderRegistry registry, String name, Function<Set<K>, Map<K, V>> load) {
+    MappedBatchLoader<K, V> loader = keys -> CompletableFuture.completedFuture(load.apply(keys));
+    registry.register(name, DataLoaderFactory.newMappedDataLoader(loader,
+        DataLoaderOptions.newOptions().setMaxBatchSize(MAX_BATCH_SIZE)));
+  }
+
+  // keys with no row are left out, and load as null
+  private static <K, V> Map<K, V> byKey(Iterable<V> values, Function<V, K> keyOf) {
+    Map<K, V> map = new HashMap<>();
+    values.forEach(value -> map.putIfAbsent(keyOf.apply(value), value));
+    return map;
+  }
+
+  // every key gets a list, empty if nothing matched
+  private static <K, V> Map<K, List<V>> grouped(Set<K> keys, Iterable<V> values, Function<V, K> keyOf) {
+    Map<K, List<V>> map = new HashMap<>();
+    keys.forEach(key -> map.put(key, new ArrayList<>()));
+    values.forEach(value -> map.get(keyOf.apply(value)).add(value));
+    return map;
+  }
+}
@@ -0,0 +1,258 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process event bus for help request changes.
+ *
+ * HelpRequestController publishes an event after each write.  Events get
+ * increasing ids and the most recent ones are kept in a ring buffer, so a
+ * client that reconnects with a Last-Event-ID header is sent exactly the
+ * events it missed.  A client that has fallen further behind than the
+ * buffer gets a single "reset" event and should reload /all.
+ *
+ * The ids restart from 1 when the app restarts, so the id sent to clients
+ * is prefixed with the time this instance started ("<boot>-<id>").  A
+ * Last-Event-ID from another boot, or one that can't be read, is treated
+ * like one that has fallen out of the buffer and gets a reset.
+ *
+ * Events are sent to SSE clients from one background thread, so a slow
+ * client never holds up the request that made the change, and every client
+ * sees events in order.  Other components can also listen in-process with
+ * addListener(); listeners are called in event order on the publishing
+ * thread, so they must be quick.
+ */
+@Slf4j
+@Service("helpRequestEvents")
+public class HelpRequestEventService {
+
+  @Value("${app.helprequest.events.buffer-size:1000}")
+  private int bufferSize = 1000;
+
+  @Value("${app.helprequest.events.timeout-ms:1800000}")
+  private long timeoutMillis = 1800000;
+
+  @Value("${app.helprequest.events.heartbeat-seconds:15}")
+  private long heartbeatSeconds = 15;
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "helprequest-events");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private final String boot = Long.toString(System.currentTimeMillis(), 36);
+
+  // guarded by this
+  private final Deque<HelpRequestEvent> recentEvents = new ArrayDeque<>();
+  private long lastEventId = 0;
+
+  // only touched from the executor thread
+  private final List<Subscriber> subscribers = new ArrayList<>();
+
+  private final List<Consumer<HelpRequestEvent>> listeners = new CopyOnWriteArrayList<>();
+
+  @PostConstruct
+  void startHeartbeat() {
+    executor.scheduleAtFixedRate(this::sendHeartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+    subscribers.forEach(s -> s.emitter.complete());
+  }
+
+  public void addListener(Consumer<HelpRequestEvent> listener) {
+    listeners.add(listener);
+  }
+
+  public HelpRequestEvent publish(HelpRequestEvent.Type type, HelpRequest helpRequest) {
+    return publish(type, helpRequest.getId(), helpRequest);
+  }
+
+  public HelpRequestEvent publishDeleted(long helpRequestId) {
+    return publish(HelpRequestEvent.Type.DELETED, helpRequestId, null);
+  }
+
+  private HelpRequestEvent publish(HelpRequestEvent.Type type, long helpRequestId, HelpRequest helpRequest) {
+    HelpRequestEvent event;
+    synchronized (this) {
+      event = HelpRequestEvent.builder()
+          .eventId(++lastEventId)
+          .type(type)
+          .helpRequestId(helpRequestId)
+          .helpRequest(helpRequest)
+          .build();
+      recentEvents.addLast(event);
+      while (recentEvents.size() > bufferSize) {
+        recentEvents.removeFirst();
+      }
+      listeners.forEach(listener -> listener.accept(event));
+    }
+    executor.execute(() -> subscribers.removeIf(s -> !s.send(event)));
+    return event;
+  }
+
+  /**
+   * Opens a stream of events.  If lastEventId is given, the events after it
+   * are sent first.
+   */
+  public SseEmitter subscribe(String lastEventId) {
+    SseEmitter emitter = newEmitter();
+    Long resumeAfter = lastEventId == null ? Long.valueOf(currentEventId()) : sequenceOf(lastEventId);
+    Subscriber subscriber = new Subscriber(emitter, resumeAfter == null ? currentEventId() : resumeAfter);
+    emitter.onCompletion(() -> unsubscribe(emitter));
+    emitter.onTimeout(emitter::complete);
+    executor.execute(() -> {
+      List<HelpRequestEvent> missed = resumeAfter == null ? null : eventsAfter(resumeAfter);
+      boolean connected;
+      if (missed == null) {
+        subscriber.lastSentId = currentEventId();
+        connected = subscriber.reset();
+      } else {
+        connected = subscriber.replay(missed);
+      }
+      if (connected) {
+        subscribers.add(subscriber);
+      }
+    });
+    return emitter;
+  }
+
+  void unsubscribe(SseEmitter emitter) {
+    if (!executor.isShutdown()) {
+      executor.execute(() -> subscribers.removeIf(s -> s.emitter == emitter));
+    }
+  }
+
+  synchronized long currentEventId() {
+    return lastEventId;
+  }
+
+  /** The id sent to SSE clients for an event. */
+  String sseId(long eventId) {
+    return boot + "-" + eventId;
+  }
+
+  /**
+   * Returns the event id in an SSE id sent by this boot, or null if it was
+   * sent by another boot or can't be read.
+   */
+  Long sequenceOf(String sseId) {
+    String prefix = boot + "-";
+    if (!sseId.startsWith(prefix)) {
+      return null;
+    }
+    try {
+      return Long.valueOf(sseId.substring(prefix.length()));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the buffered events after the given id, or null if some of them
+   * have already dropped out of the buffer or the id hasn't been issued.
+   */
+  synchronized List<HelpRequestEvent> eventsAfter(long eventId) {
+    if (eventId < lastEventId - recentEvents.size() || eventId > lastEventId) {
+      return null;
+    }
+    List<HelpRequestEvent> events = new ArrayList<>();
+    for (HelpRequestEvent e : recentEvents) {
+      if (e.getEventId() > eventId) {
+        events.add(e);
+      }
+    }
+    return events;
+  }
+
+  int subscriberCount() throws Exception {
+    return executor.submit(subscribers::size).get();
+  }
+
+  void drain() throws Exception {
+    executor.submit(() -> { }).get();
+  }
+
+  SseEmitter newEmitter() {
+    return new SseEmitter(timeoutMillis);
+  }
+
+  void sendHeartbeat() {
+    subscribers.removeIf(s -> !s.heartbeat());
+  }
+
+  private class Subscriber {
+    final SseEmitter emitter;
+    long lastSentId;
+
+    Subscriber(SseEmitter emitter, long lastSentId) {
+      this.emitter = emitter;
+      this.lastSentId = lastSentId;
+    }
+
+    boolean reset() {
+      return attempt(SseEmitter.event()
+          .name("reset")
+          .data(Map.of("message", "Missed events are no longer available; reload /api/helprequest/all")));
+    }
+
+    boolean replay(List<HelpRequestEvent> missed) {
+      for (HelpRequestEvent event : missed) {
+        if (!send(event)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean send(HelpRequestEvent event) {
+      if (event.getEventId() <= lastSentId) {
+        return true;
+      }
+      lastSentId = event.getEventId();
+      return attempt(SseEmitter.event()
+          .id(sseId(event.getEventId()))
+          .name(event.getType().name().toLowerCase())
+          .data(event));
+    }
+
+    boolean heartbeat() {
+      return attempt(SseEmitter.event().comment("keepalive"));
+    }
+
+    private boolean attempt(SseEmitter.SseEventBuilder builder) {
+      try {
+        emitter.send(builder);
+        return true;
+      } catch (IOException | IllegalStateException e) {
+        log.debug("dropping help request event subscriber: {}", e.toString());
+        emitter.completeWithError(e);
+        return false;
+      }
+    }
+  }
+}
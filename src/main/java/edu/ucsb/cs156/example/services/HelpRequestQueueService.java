@@ -0,0 +1,129 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory mirror of the unsolved help requests, oldest first.
+ *
+ * Loaded from the database at startup (using the unsolved-requests index)
+ * and then kept up to date from HelpRequestEventService, so it reflects
+ * every write made through this instance.  When TableChangeService sees
+ * the table changed through another instance, it is loaded again.  Adding
+ * or removing a request is O(log n) and listing the first k is
+ * O(log n + k); reads never lock.
+ */
+@Slf4j
+@Service("helpRequestQueue")
+public class HelpRequestQueueService {
+
+  private static final Comparator<QueueEntry> OLDEST_FIRST = Comparator
+      .comparing(QueueEntry::requestTime, Comparator.nullsLast(Comparator.naturalOrder()))
+      .thenComparingLong(QueueEntry::id);
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  HelpRequestEventService helpRequestEventService;
+
+  @Autowired
+  TableChangeService tableChanges;
+
+  private final NavigableSet<QueueEntry> queue = new ConcurrentSkipListSet<>(OLDEST_FIRST);
+  private final Map<Long, QueueEntry> entriesById = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void load() {
+    helpRequestEventService.addListener(this::apply);
+    tableChanges.addListener(Table.HELP_REQUESTS, this::reload);
+    reload();
+    log.info("help request queue loaded with {} unsolved requests", queue.size());
+  }
+
+  // read while holding the lock, so the event for a write that commits
+  // after the read is applied after it
+  synchronized void reload() {
+    Set<Long> unsolved = new HashSet<>();
+    for (HelpRequest request : helpRequestRepository.findAllBySolvedFalseOrderByRequestTimeAsc()) {
+      unsolved.add(request.getId());
+      put(request);
+    }
+    for (Long id : List.copyOf(entriesById.keySet())) {
+      if (!unsolved.contains(id)) {
+        remove(id);
+      }
+    }
+  }
+
+  /**
+   * Returns up to limit unsolved requests, oldest first.
+   */
+  public List<HelpRequest> top(int limit) {
+    List<HelpRequest> result = new ArrayList<>(Math.max(0, Math.min(limit, queue.size())));
+    Iterator<QueueEntry> it = queue.iterator();
+    while (result.size() < limit && it.hasNext()) {
+      result.add(it.next().helpRequest());
+    }
+    return result;
+  }
+
+  public int size() {
+    return entriesById.size();
+  }
+
+  // Events arrive one at a time, in order (see HelpRequestEventService); the
+  // lock keeps them from interleaving with a reload.
+  synchronized void apply(HelpRequestEvent event) {
+    if (event.getType() == HelpRequestEvent.Type.DELETED) {
+      remove(event.getHelpRequestId());
+    } else {
+      put(event.getHelpRequest());
+    }
+  }
+
+  private void put(HelpRequest request) {
+    remove(request.getId());
+    if (!request.getSolved()) {
+      QueueEntry entry = new QueueEntry(request.getRequestTime(), request.getId(), copyOf(request));
+      entriesById.put(entry.id(), entry);
+      queue.add(entry);
+    }
+  }
+
+  private void remove(long id) {
+    QueueEntry old = entriesById.remove(id);
+    if (old != null) {
+      queue.remove(old);
+    }
+  }
+
+  // the controller keeps using its HelpRequest after publishing, so the
+  // queue keeps its own copy
+  private static HelpRequest copyOf(HelpRequest request) {
+    return request.toBuilder().build();
+  }
+
+  private record QueueEntry(LocalDateTime requestTime, long id, HelpRequest helpRequest) {
+  }
+}
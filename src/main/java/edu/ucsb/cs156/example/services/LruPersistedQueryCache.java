@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.InMemoryPersistedQueryCache;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+
+/**
+ * Parsed and validated persisted queries, keyed by the sha256 hash the
+ * client sends, keeping only the most recently used.  A client that sends
+ * only the hash of a query that isn't here gets PERSISTED_QUERY_NOT_FOUND
+ * and sends the hash again with the query text.
+ *
+ * Queries that fail to parse or validate are not kept.  This is graphql-java's
+ * InMemoryPersistedQueryCache with no known queries and a bounded map in
+ * place of its unbounded one.
+ */
+final class LruPersistedQueryCache extends InMemoryPersistedQueryCache {
+
+  private final Map<Object, PreparsedDocumentEntry> entries;
+
+  LruPersistedQueryCache(int maxEntries) {
+    super(Map.of());
+    entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, PreparsedDocumentEntry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  @Override
+  public PreparsedDocumentEntry getPersistedQueryDocument(Object persistedQueryId, ExecutionInput executionInput,
+      PersistedQueryCacheMiss onCacheMiss) throws PersistedQueryNotFound {
+    synchronized (entries) {
+      PreparsedDocumentEntry entry = entries.get(persistedQueryId);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    String query = executionInput.getQuery();
+    if (query.isBlank() || query.equals(PersistedQuerySupport.PERSISTED_QUERY_MARKER)) {
+      throw new PersistedQueryNotFound(persistedQueryId);
+    }
+    // parsed outside the lock; two requests racing on a new query both parse it
+    PreparsedDocumentEntry entry = onCacheMiss.apply(query);
+    if (!entry.hasErrors()) {
+      synchronized (entries) {
+        entries.put(persistedQueryId, entry);
+      }
+    }
+    return entry;
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Typeahead over dining commons menu items by name.
+ *
+ * Loaded from the database at startup; UCSBDiningCommonsMenuItemsController
+ * then calls put and remove after each write.  Writers are serialized and
+ * each swaps in a new PrefixIndex, so suggestions never wait on a write.
+ * When TableChangeService sees the table changed through another
+ * instance, the index is built again from the database.
+ */
+@Slf4j
+@Service("menuItemSuggest")
+public class MenuItemSuggestService {
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  TableChangeService tableChanges;
+
+  private volatile PrefixIndex<UCSBDiningCommonsMenuItems> index;
+
+  @PostConstruct
+  void load() {
+    tableChanges.addListener(Table.MENU_ITEMS, this::reload);
+    reload();
+    log.info("menu item suggestions loaded with {} entries", index.size());
+  }
+
+  // read while holding the lock, so a put for a write that committed
+  // after the read is applied to the new index, not lost with the old one
+  synchronized void reload() {
+    index = PrefixIndex.of(ucsbDiningCommonsMenuItemRepository.findAll(), UCSBDiningCommonsMenuItems::getId,
+        List.of(UCSBDiningCommonsMenuItems::getName));
+  }
+
+  public List<UCSBDiningCommonsMenuItems> suggest(String prefix, int limit) {
+    return index.find(prefix, limit);
+  }
+
+  public synchronized void put(UCSBDiningCommonsMenuItems menuItem) {
+    index = index.put(menuItem);
+  }
+
+  public synchronized void remove(long id) {
+    index = index.remove(id);
+  }
+}
@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Typeahead over organizations by code, short name and full name.
+ *
+ * Loaded from the database at startup; UCSBOrganizationController then
+ * calls put and remove after each write.  Writers are serialized and each
+ * swaps in a new PrefixIndex, so suggestions never wait on a write.
+ * When TableChangeService sees the table changed through another
+ * instance, the index is built again from the database.
+ */
+@Slf4j
+@Service("organizationSuggest")
+public class OrganizationSuggestService {
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  TableChangeService tableChanges;
+
+  private volatile PrefixIndex<UCSBOrganization> index;
+
+  @PostConstruct
+  void load() {
+    tableChanges.addListener(Table.ORGANIZATIONS, this::reload);
+    reload();
+    log.info("organization suggestions loaded with {} entries", index.size());
+  }
+
+  // read while holding the lock, so a put for a write that committed
+  // after the read is applied to the new index, not lost with the old one
+  synchronized void reload() {
+    index = PrefixIndex.of(ucsbOrganizationRepository.findAll(), UCSBOrganization::getOrgCode,
+        List.of(UCSBOrganization::getOrgCode, UCSBOrganization::getOrgTranslationShort,
+            UCSBOrganization::getOrgTranslation));
+  }
+
+  public List<UCSBOrganization> suggest(String prefix, int limit) {
+    return index.find(prefix, limit);
+  }
+
+  public synchronized void put(UCSBOrganization organization) {
+    index = index.put(organization);
+  }
+
+  public synchronized void remove(String orgCode) {
+    index = index.remove(orgCode);
+  }
+}
@@ -0,0 +1,151 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable, case-insensitive prefix index over one or more text fields of
+ * a set of items.
+ *
+ * Every non-null field value becomes one entry in a single array sorted by
+ * its lower-cased text, so a lookup is a binary search for the first entry
+ * at or after the prefix followed by a scan of the entries that start with
+ * it.  Changes return a new index and leave this one untouched, so a reader
+ * holding a reference never sees a half-applied write.  Memory is one entry
+ * per indexed field value; the items themselves are shared, not copied.
+ *
+ * @param <T> the type of item indexed
+ */
+public final class PrefixIndex<T> {
+
+  public static final int MAX_LIMIT = 50;
+
+  private static final Comparator<Entry<?>> BY_KEY = Comparator.comparing(e -> e.key);
+
+  private final Function<T, Object> idOf;
+  private final List<Function<T, String>> fields;
+  private final Entry<T>[] entries;
+
+  private PrefixIndex(Function<T, Object> idOf, List<Function<T, String>> fields, Entry<T>[] entries) {
+    this.idOf = idOf;
+    this.fields = fields;
+    this.entries = entries;
+  }
+
+  /**
+   * Indexes items under each of the given fields.  idOf identifies an item
+   * across versions, so that {@link #put} can replace it.
+   */
+  public static <T> PrefixIndex<T> of(Iterable<T> items, Function<T, Object> idOf, List<Function<T, String>> fields) {
+    List<Entry<T>> entries = new ArrayList<>();
+    for (T item : items) {
+      addEntries(entries, item, idOf, fields);
+    }
+    return new PrefixIndex<>(idOf, fields, sorted(entries));
+  }
+
+  /**
+   * Returns a copy of this index with item added, replacing any item with
+   * the same id.
+   */
+  public PrefixIndex<T> put(T item) {
+    Object id = idOf.apply(item);
+    List<Entry<T>> copy = without(id);
+    addEntries(copy, item, idOf, fields);
+    return new PrefixIndex<>(idOf, fields, sorted(copy));
+  }
+
+  /**
+   * Returns a copy of this index without the item with this id.
+   */
+  public PrefixIndex<T> remove(Object id) {
+    return new PrefixIndex<>(idOf, fields, sorted(without(id)));
+  }
+
+  /**
+   * Returns up to limit distinct items with a field starting with prefix,
+   * ignoring case, ordered by the matching field.
+   */
+  public List<T> find(String prefix, int limit) {
+    String key = normalize(prefix);
+    int max = Math.max(1, Math.min(limit, MAX_LIMIT));
+    List<T> found = new ArrayList<>(Math.min(max, entries.length));
+    Set<Object> seen = new HashSet<>();
+    for (int i = lowerBound(key); i < entries.length && found.size() < max && entries[i].key.startsWith(key); i++) {
+      if (seen.add(entries[i].id)) {
+        found.add(entries[i].item);
+      }
+    }
+    return found;
+  }
+
+  public int size() {
+    return entries.length;
+  }
+
+  private int lowerBound(String key) {
+    int lo = 0;
+    int hi = entries.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (entries[mid].key.compareTo(key) < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private List<Entry<T>> without(Object id) {
+    List<Entry<T>> kept = new ArrayList<>(entries.length);
+    for (Entry<T> entry : entries) {
+      if (!Objects.equals(entry.id, id)) {
+        kept.add(entry);
+      }
+    }
+    return kept;
+  }
+
+  private static <T> void addEntries(List<Entry<T>> entries, T item, Function<T, Object> idOf,
+      List<Function<T, String>> fields) {
+    Object id = idOf.apply(item);
+    for (Function<T, String> field : fields) {
+      String value = field.apply(item);
+      if (value != null) {
+        entries.add(new Entry<>(normalize(value), id, item));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Entry<T>[] sorted(List<Entry<T>> entries) {
+    Entry<T>[] array = entries.toArray(new Entry[0]);
+    // the copy is nearly sorted after a put or remove, which TimSort handles in about linear time
+    Arrays.sort(array, BY_KEY);
+    return array;
+  }
+
+  private static String normalize(String text) {
+    return text.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Entry<T> {
+    final String key;
+    final Object id;
+    final T item;
+
+    Entry(String key, Object id, T item) {
+      this.key = key;
+      this.id = id;
+      this.item = item;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+/**
+ * The /all listings of the reference tables, kept encoded.
+ *
+ * A listing is read and encoded, in the format the client asked for (JSON,
+ * CBOR or Smile), the first time it is asked for, and kept both as is and
+ * gzipped until a write to its table calls invalidate.  Until then every
+ * request is answered with the same bytes, with no query and no encoding.
+ *
+ * invalidate drops all the formats of a listing at once.  A read that
+ * started before the write ends up in the dropped entries, so it can't put
+ * the old listing back.  Writes made through another instance invalidate
+ * the listing when TableChangeService sees them.
+ *
+ * Organizations and dining commons are read from ReferenceTableService, so
+ * only menu items go to the database.
+ */
+@Service("referenceListCache")
+public class ReferenceListCache {
+
+  public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+  // in order of preference, for a client that takes any of them
+  static final List<MediaType> PRODUCIBLE = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+      APPLICATION_SMILE);
+
+  public enum Listing {
+    ORGANIZATIONS, DINING_COMMONS, MENU_ITEMS
+  }
+
+  public record Encoded(MediaType contentType, byte[] body, byte[] gzipped) {
+  }
+
+  @Autowired
+  ReferenceTableService referenceTables;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  HttpMessageConverters httpMessageConverters;
+
+  @Autowired
+  TableChangeService tableChanges;
+
+  private final ConcurrentMap<Listing, ConcurrentMap<MediaType, Encoded>> listings = new ConcurrentHashMap<>();
+
+  // ReferenceTableService is injected here, so it has added its listeners
+  // already, and reloads its snapshots before these drop the listings
+  @PostConstruct
+  void listenForChanges() {
+    tableChanges.addListener(Table.ORGANIZATIONS, () -> invalidate(Listing.ORGANIZATIONS));
+    tableChanges.addListener(Table.DINING_COMMONS, () -> invalidate(Listing.DINING_COMMONS));
+    tableChanges.addListener(Table.MENU_ITEMS, () -> invalidate(Listing.MENU_ITEMS));
+  }
+
+  /** The listing, in the format that best suits the Accept header. */
+  public Encoded get(Listing listing, String accept) throws HttpMediaTypeNotAcceptableException {
+    MediaType mediaType = negotiate(accept);
+    return listings.computeIfAbsent(listing, l -> new ConcurrentHashMap<>())
+        .computeIfAbsent(mediaType, m -> encode(read(listing), m));
+  }
+
+  public void invalidate(Listing listing) {
+    listings.remove(listing);
+  }
+
+  static MediaType negotiate(String accept) throws HttpMediaTypeNotAcceptableException {
+    List<MediaType> accepted;
+    try {
+      accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+    } catch (InvalidMediaTypeException e) {
+      throw new HttpMediaTypeNotAcceptableException(e.getMessage());
+    }
+    if (accepted.isEmpty()) {
+      return MediaType.APPLICATION_JSON;
+    }
+    MediaType.sortBySpecificityAndQuality(accepted);
+    for (MediaType type : accepted) {
+      for (MediaType producible : PRODUCIBLE) {
+        if (type.isCompatibleWith(producible)) {
+          return producible;
+        }
+      }
+    }
+    throw new HttpMediaTypeNotAcceptableException(PRODUCIBLE);
+  }
+
+  private Iterable<?> read(Listing listing) {
+    if (listing == Listing.ORGANIZATIONS) {
+      return referenceTables.organizations();
+    }
+    if (listing == Listing.DINING_COMMONS) {
+      return referenceTables.diningCommons();
+    }
+    return ucsbDiningCommonsMenuItemRepository.findAll();
+  }
+
+  // with the converter Spring MVC would have used, so the bytes are the same
+  @SuppressWarnings("unchecked")
+  private Encoded encode(Iterable<?> rows, MediaType mediaType) {
+    HttpMessageConverter<Object> converter = (HttpMessageConverter<Object>) httpMessageConverters.getConverters()
+        .stream()
+        .filter(c -> c.canWrite(rows.getClass(), mediaType))
+        .findFirst()
+        .orElseThrow();
+    BufferedOutputMessage message = new BufferedOutputMessage();
+    try {
+      converter.write(rows, mediaType, message);
+      byte[] body = message.body.toByteArray();
+      return new Encoded(message.headers.getContentType(), body, gzip(body));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static byte[] gzip(byte[] body) throws IOException {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    // done once per write, so worth compressing as hard as we can
+    try (GZIPOutputStream out = new GZIPOutputStream(gzipped) {
+      {
+        def.setLevel(Deflater.BEST_COMPRESSION);
+      }
+    }) {
+      out.write(body);
+    }
+    return gzipped.toByteArray();
+  }
+
+  private static class BufferedOutputMessage implements HttpOutputMessage {
+    private final HttpHeaders headers = new HttpHeaders();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+}
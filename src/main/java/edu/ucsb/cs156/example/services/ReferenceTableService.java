@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory copy of the organizations and dining commons, the small
+ * reference tables that every page reads.
+ *
+ * Each table is held as an immutable snapshot, ordered by its natural key.
+ * Both are loaded at startup.  After a write commits, the code that wrote
+ * calls reload for that table, which reads the table again and swaps in a
+ * new snapshot.  Readers never lock and never see a half-applied write.
+ * Reloads of a table are serialized, and each one starts after its own
+ * write committed, so the last one always leaves the table's snapshot
+ * matching the database, whatever order concurrent writers finish in.
+ *
+ * Writes made through another instance are picked up by TableChangeService,
+ * which calls the same reloads when it sees the table has changed.
+ */
+@Slf4j
+@Service("referenceTables")
+public class ReferenceTableService {
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  TableChangeService tableChanges;
+
+  private final Object organizationsLock = new Object();
+  private final Object diningCommonsLock = new Object();
+
+  private volatile Snapshot<UCSBOrganization> organizations;
+  private volatile Snapshot<UCSBDiningCommons> diningCommons;
+
+  @PostConstruct
+  void load() {
+    tableChanges.addListener(Table.ORGANIZATIONS, this::reloadOrganizations);
+    tableChanges.addListener(Table.DINING_COMMONS, this::reloadDiningCommons);
+    reloadOrganizations();
+    reloadDiningCommons();
+    log.info("reference tables loaded with {} organizations and {} dining commons",
+        organizations.all().size(), diningCommons.all().size());
+  }
+
+  /** Every organization, in orgCode order. */
+  public List<UCSBOrganization> organizations() {
+    return organizations.all();
+  }
+
+  public Optional<UCSBOrganization> organization(String orgCode) {
+    return organizations.get(orgCode);
+  }
+
+  /** Every dining commons, in code order. */
+  public List<UCSBDiningCommons> diningCommons() {
+    return diningCommons.all();
+  }
+
+  public Optional<UCSBDiningCommons> diningCommons(String code) {
+    return diningCommons.get(code);
+  }
+
+  public void reloadOrganizations() {
+    synchronized (organizationsLock) {
+      organizations = Snapshot.of(ucsbOrganizationRepository.findAll(), UCSBOrganization::getOrgCode);
+    }
+  }
+
+  public void reloadDiningCommons() {
+    synchronized (diningCommonsLock) {
+      diningCommons = Snapshot.of(ucsbDiningCommonsRepository.findAll(), UCSBDiningCommons::getCode);
+    }
+  }
+
+  private record Snapshot<T>(Map<String, T> byKey, List<T> all) {
+
+    static <T> Snapshot<T> of(Iterable<T> rows, Function<T, String> keyOf) {
+      TreeMap<String, T> sorted = new TreeMap<>();
+      for (T row : rows) {
+        sorted.put(keyOf.apply(row), row);
+      }
+      return new Snapshot<>(Map.copyOf(sorted), List.copyOf(sorted.values()));
+    }
+
+    Optional<T> get(String key) {
+      return Optional.ofNullable(byKey().get(key));
+    }
+  }
+}
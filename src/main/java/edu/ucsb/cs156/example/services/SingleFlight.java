@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller for
+ * a key runs the load, and callers that arrive while it is running wait for
+ * it and get the same result, or the same exception.  Nothing is kept once
+ * the load finishes, so a caller that arrives after that loads again; this
+ * is not a cache.
+ */
+public final class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  public V run(K key, Supplier<V> load) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+    if (running != null) {
+      return join(running);
+    }
+    try {
+      V value = load.get();
+      flight.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /** The number of loads running now. */
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  // throws the first caller's exception itself, not wrapped
+  private static <V> V join(CompletableFuture<V> running) {
+    try {
+      return running.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw (RuntimeException) e.getCause();
+    }
+  }
+}
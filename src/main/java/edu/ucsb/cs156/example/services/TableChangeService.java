@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tells the in-memory copies of tables when the table has changed in the
+ * database, including through another instance of the app.
+ *
+ * The code that writes a table still reloads this instance's copies right
+ * away.  Writes made by other instances sharing the database are picked up
+ * here: every check-interval, each table with listeners has its stamp read,
+ * the result of a query much cheaper than what the listeners do to reload.
+ * If it differs from the last one the table's listeners are called, on this
+ * service's thread, to reload.  So a write shows up on
+ * every instance within one interval.
+ *
+ * A table's stamp is read when its first listener is added, before that
+ * listener loads the table, so a write in between is caught by the first
+ * check.  If a listener throws, the stamp is kept as it was and the
+ * listeners are called again at the next check.
+ */
+@Slf4j
+@Service("tableChanges")
+public class TableChangeService {
+
+  public enum Table {
+    // small tables whose keys can be reused, so the stamp is the rows
+    // themselves: a count and versions can't tell a row that was deleted
+    // and created again with the same key
+    ORGANIZATIONS("SELECT o FROM ucsborganizations o ORDER BY o.orgCode"),
+    DINING_COMMONS("SELECT c FROM ucsbdiningcommons c ORDER BY c.code"),
+    // generated ids are never reused and versions only go up, so an insert
+    // raises the largest id, an update the sum of versions, and a delete
+    // lowers the count or, with an insert, raises the largest id
+    MENU_ITEMS("SELECT COUNT(m), MAX(m.id), SUM(m.version) FROM ucsbdiningcommonsmenuitems m"),
+    HELP_REQUESTS("SELECT COUNT(h), MAX(h.id), SUM(h.version) FROM helprequest h");
+
+    private final String stampQuery;
+
+    Table(String stampQuery) {
+      this.stampQuery = stampQuery;
+    }
+  }
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  // zero turns the checks off
+  @Value("${app.table-changes.check-interval:30s}")
+  Duration checkInterval = Duration.ofSeconds(30);
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "table-changes");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private final Map<Table, Watched> watched = new ConcurrentHashMap<>();
+
+  private static class Watched {
+    final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    volatile List<?> stamp;
+  }
+
+  @PostConstruct
+  void start() {
+    long millis = checkInterval.toMillis();
+    if (millis > 0) {
+      executor.scheduleWithFixedDelay(this::check, millis, millis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /** Calls listener, from another thread, each time table has changed. */
+  public void addListener(Table table, Runnable listener) {
+    watched.computeIfAbsent(table, t -> {
+      Watched w = new Watched();
+      w.stamp = stamp(t);
+      return w;
+    }).listeners.add(listener);
+  }
+
+  void check() {
+    watched.forEach((table, w) -> {
+      try {
+        List<?> stamp = stamp(table);
+        if (!stamp.equals(w.stamp)) {
+          log.info("{} changed in the database; reloading", table);
+          w.listeners.forEach(Runnable::run);
+          w.stamp = stamp;
+        }
+      } catch (RuntimeException e) {
+        log.warn("could not check {} for changes; trying again at the next check", table, e);
+      }
+    });
+  }
+
+  // a row of several values comes back as an array, which equals can't compare
+  private List<?> stamp(Table table) {
+    List<?> rows = entityManager.createQuery(table.stampQuery).getResultList();
+    return rows.stream()
+        .map(row -> row instanceof Object[] values ? Arrays.asList(values) : row)
+        .collect(Collectors.toList());
+  }
+}
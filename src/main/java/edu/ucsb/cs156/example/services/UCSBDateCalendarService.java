@@ -0,0 +1,159 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory calendar of UCSB dates, ordered by time, for range lookups.
+ *
+ * Loaded from the database at startup and kept up to date by
+ * UCSBDatesController after each write.  Dates are held in one set ordered
+ * by time (dates without a time are left out of it) and one set per
+ * quarter, so a window of n dates costs O(log N + n) and reads never lock.
+ * Listeners are told which quarter changed after every write.
+ */
+@Slf4j
+@Service("ucsbDateCalendar")
+public class UCSBDateCalendarService {
+
+  public static final int MAX_UPCOMING = 100;
+
+  private static final Comparator<Entry> EARLIEST_FIRST = Comparator
+      .comparing(Entry::time, Comparator.nullsLast(Comparator.naturalOrder()))
+      .thenComparingLong(Entry::id);
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  Clock clock = Clock.systemUTC();
+
+  private final NavigableSet<Entry> byTime = new ConcurrentSkipListSet<>(EARLIEST_FIRST);
+  private final Map<String, NavigableSet<Entry>> byQuarter = new ConcurrentHashMap<>();
+  private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+  private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+  @PostConstruct
+  void load() {
+    for (UCSBDate date : ucsbDateRepository.findAllByOrderByLocalDateTimeAsc()) {
+      put(date);
+    }
+    log.info("ucsb date calendar loaded with {} dates", byId.size());
+  }
+
+  /**
+   * Dates at or after start and before end, earliest first.
+   */
+  public List<UCSBDate> between(LocalDateTime start, LocalDateTime end) {
+    if (!end.isAfter(start)) {
+      return List.of();
+    }
+    return dates(byTime.subSet(new Entry(start, Long.MIN_VALUE, null), new Entry(end, Long.MIN_VALUE, null)),
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * The next limit dates from now on, earliest first.  Stored times are
+   * Santa Barbara time, so now is too, whatever the server's time zone.
+   */
+  public List<UCSBDate> upcoming(int limit) {
+    Entry now = new Entry(LocalDateTime.ofInstant(clock.instant(), UCSBDateFeedService.ZONE), Long.MIN_VALUE, null);
+    return dates(byTime.tailSet(now), Math.max(1, Math.min(limit, MAX_UPCOMING)));
+  }
+
+  /**
+   * Every date in the quarter, earliest first; dates without a time come last.
+   */
+  public List<UCSBDate> inQuarter(String quarterYYYYQ) {
+    return dates(quarter(quarterYYYYQ), Integer.MAX_VALUE);
+  }
+
+  public int size() {
+    return byId.size();
+  }
+
+  /**
+   * Calls listener with the quarterYYYYQ of every date added, changed or
+   * removed, after the change is visible.  A date moved from one quarter
+   * to another reports both.
+   */
+  public void addListener(Consumer<String> listener) {
+    listeners.add(listener);
+  }
+
+  public synchronized void put(UCSBDate date) {
+    remove(date.getId());
+    Entry entry = new Entry(date.getLocalDateTime(), date.getId(), date);
+    byId.put(entry.id(), entry);
+    if (entry.time() != null) {
+      byTime.add(entry);
+    }
+    byQuarter.computeIfAbsent(quarterOf(date), q -> new ConcurrentSkipListSet<>(EARLIEST_FIRST)).add(entry);
+    changed(quarterOf(date));
+  }
+
+  public synchronized void remove(long id) {
+    Entry old = byId.remove(id);
+    if (old != null) {
+      byTime.remove(old);
+      NavigableSet<Entry> quarter = byQuarter.get(quarterOf(old.date()));
+      quarter.remove(old);
+      if (quarter.isEmpty()) {
+        byQuarter.remove(quarterOf(old.date()));
+      }
+      changed(quarterOf(old.date()));
+    }
+  }
+
+  public synchronized void removeQuarter(String quarterYYYYQ) {
+    for (Entry entry : new ArrayList<>(quarter(quarterYYYYQ))) {
+      remove(entry.id());
+    }
+  }
+
+  private NavigableSet<Entry> quarter(String quarterYYYYQ) {
+    return byQuarter.getOrDefault(quarterYYYYQ, Collections.emptyNavigableSet());
+  }
+
+  private void changed(String quarterYYYYQ) {
+    for (Consumer<String> listener : listeners) {
+      listener.accept(quarterYYYYQ);
+    }
+  }
+
+  // ConcurrentHashMap does not allow null keys
+  private static String quarterOf(UCSBDate date) {
+    return date.getQuarterYYYYQ() == null ? "" : date.getQuarterYYYYQ();
+  }
+
+  private static List<UCSBDate> dates(Iterable<Entry> entries, int limit) {
+    List<UCSBDate> result = new ArrayList<>();
+    Iterator<Entry> it = entries.iterator();
+    while (result.size() < limit && it.hasNext()) {
+      result.add(it.next().date());
+    }
+    return result;
+  }
+
+  private record Entry(LocalDateTime time, long id, UCSBDate date) {
+  }
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+/**
+ * iCalendar (RFC 5545) feeds of the dates in each quarter.
+ *
+ * A quarter's feed is rendered from UCSBDateCalendarService the first time
+ * it is asked for and kept as UTF-8 bytes with an ETag, until the calendar
+ * reports a change to a date in that quarter.  The endpoint needs no login,
+ * so only well-formed quarters that have dates get a feed; anything else
+ * gets none and is never cached, which keeps the cache to one entry per
+ * quarter in the calendar.
+ *
+ * Dates are stored as local times in Santa Barbara and written out in UTC.
+ * DTSTAMP is the time the feed was rendered, so it is the only thing that
+ * differs between instances; the ETag is computed without it, and is weak
+ * for that reason, so every instance serves the same ETag.
+ */
+@Service("ucsbDateFeed")
+public class UCSBDateFeedService {
+
+  static final String PRODID = "-//UCSB CS156//UCSB Dates//EN";
+
+  static final ZoneId ZONE = ZoneId.of("America/Los_Angeles");
+
+  // year and quarter, e.g. 20222 for winter 2022
+  private static final Pattern QUARTER = Pattern.compile("\\d{4}[1-4]");
+
+  private static final DateTimeFormatter UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+      .withZone(ZoneOffset.UTC);
+
+  // lines longer than this many octets are folded (RFC 5545 3.1)
+  private static final int MAX_LINE_OCTETS = 75;
+
+  @Autowired
+  UCSBDateCalendarService ucsbDateCalendarService;
+
+  Clock clock = Clock.systemUTC();
+
+  private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+
+  public record Feed(byte[] body, String etag) {
+  }
+
+  @PostConstruct
+  void listen() {
+    ucsbDateCalendarService.addListener(feeds::remove);
+  }
+
+  /**
+   * The quarter's feed, or empty if quarterYYYYQ isn't a quarter or has no
+   * dates.
+   */
+  public Optional<Feed> feed(String quarterYYYYQ) {
+    Feed cached = feeds.get(quarterYYYYQ);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    if (!QUARTER.matcher(quarterYYYYQ).matches() || ucsbDateCalendarService.inQuarter(quarterYYYYQ).isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(feeds.computeIfAbsent(quarterYYYYQ, this::render));
+  }
+
+  int size() {
+    return feeds.size();
+  }
+
+  private Feed render(String quarterYYYYQ) {
+    String stamp = "DTSTAMP:" + UTC.format(clock.instant());
+    StringBuilder out = new StringBuilder();
+    line(out, "BEGIN:VCALENDAR");
+    line(out, "VERSION:2.0");
+    line(out, "PRODID:" + PRODID);
+    line(out, "CALSCALE:GREGORIAN");
+    line(out, "X-WR-CALNAME:" + escape("UCSB dates " + quarterYYYYQ));
+    for (UCSBDate date : ucsbDateCalendarService.inQuarter(quarterYYYYQ)) {
+      if (date.getLocalDateTime() == null) {
+        continue;
+      }
+      line(out, "BEGIN:VEVENT");
+      line(out, "UID:ucsbdate-" + date.getId() + "@ucsb-cs156");
+      line(out, stamp);
+      line(out, "DTSTART:" + UTC.format(date.getLocalDateTime().atZone(ZONE)));
+      line(out, "SUMMARY:" + escape(date.getName()));
+      line(out, "END:VEVENT");
+    }
+    line(out, "END:VCALENDAR");
+
+    String text = out.toString();
+    byte[] withoutStamp = text.replace(stamp + "\r\n", "").getBytes(StandardCharsets.UTF_8);
+    return new Feed(text.getBytes(StandardCharsets.UTF_8), "W/\"" + DigestUtils.md5DigestAsHex(withoutStamp) + "\"");
+  }
+
+  static String escape(String text) {
+    if (text == null) {
+      return "";
+    }
+    return text.replace("\\", "\\\\")
+        .replace(";", "\\;")
+        .replace(",", "\\,")
+        .replace("\r\n", "\\n")
+        .replace("\n", "\\n")
+        .replace("\r", "\\n");
+  }
+
+  // appends content as one CRLF-terminated line, folding it (CRLF and a
+  // space) so that no physical line is longer than 75 octets, without
+  // splitting a UTF-8 character
+  static void line(StringBuilder out, String content) {
+    int octets = 0;
+    for (int i = 0; i < content.length(); ) {
+      int codePoint = content.codePointAt(i);
+      int length = utf8Length(codePoint);
+      if (octets + length > MAX_LINE_OCTETS) {
+        out.append("\r\n ");
+        octets = 1;
+      }
+      out.appendCodePoint(codePoint);
+      octets += length;
+      i += Character.charCount(codePoint);
+    }
+    out.append("\r\n");
+  }
+
+  private static int utf8Length(int codePoint) {
+    if (codePoint < 0x80) {
+      return 1;
+    } else if (codePoint < 0x800) {
+      return 2;
+    } else if (codePoint < 0x10000) {
+      return 3;
+    }
+    return 4;
+  }
+}
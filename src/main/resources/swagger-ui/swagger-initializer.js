@@ -0,0 +1,25 @@
+// Used in place of the webjar's own swagger-initializer.js when springdoc is
+// off (production); see OpenAPIResourceConfig.  Mirrors the settings under
+// springdoc.swagger-ui in application.properties.
+window.onload = function () {
+  window.ui = SwaggerUIBundle({
+    url: "/openapi/openapi.json",
+    dom_id: "#swagger-ui",
+    deepLinking: true,
+    tryItOutEnabled: true,
+    presets: [SwaggerUIBundle.presets.apis, SwaggerUIStandalonePreset],
+    plugins: [SwaggerUIBundle.plugins.DownloadUrl],
+    layout: "StandaloneLayout",
+    // sends the CSRF token from the XSRF-TOKEN cookie, as springdoc's
+    // springdoc.swagger-ui.csrf.enabled does
+    requestInterceptor: (request) => {
+      const token = document.cookie
+        .split("; ")
+        .find((cookie) => cookie.startsWith("XSRF-TOKEN="));
+      if (token) {
+        request.headers["X-XSRF-TOKEN"] = decodeURIComponent(token.substring("XSRF-TOKEN=".length));
+      }
+      return request;
+    },
+  });
+};
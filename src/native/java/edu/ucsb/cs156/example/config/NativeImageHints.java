@@ -0,0 +1,169 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.nativex.hint.AotProxyHint;
+import org.springframework.nativex.hint.NativeHint;
+import org.springframework.nativex.hint.ProxyBits;
+import org.springframework.nativex.hint.ResourceHint;
+import org.springframework.nativex.hint.SerializationHint;
+import org.springframework.nativex.hint.TypeAccess;
+import org.springframework.nativex.hint.TypeHint;
+
+import edu.ucsb.cs156.example.controllers.ArticlesController;
+import edu.ucsb.cs156.example.controllers.CSRFController;
+import edu.ucsb.cs156.example.controllers.FrontendController;
+import edu.ucsb.cs156.example.controllers.GraphQLController;
+import edu.ucsb.cs156.example.controllers.HelpRequestController;
+import edu.ucsb.cs156.example.controllers.MenuItemReviewController;
+import edu.ucsb.cs156.example.controllers.RecommendationRequestController;
+import edu.ucsb.cs156.example.controllers.SystemInfoController;
+import edu.ucsb.cs156.example.controllers.UCSBDatesController;
+import edu.ucsb.cs156.example.controllers.UCSBDiningCommonsController;
+import edu.ucsb.cs156.example.controllers.UCSBDiningCommonsMenuItemsController;
+import edu.ucsb.cs156.example.controllers.UCSBOrganizationController;
+import edu.ucsb.cs156.example.controllers.UserInfoController;
+import edu.ucsb.cs156.example.controllers.UsersController;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.grpc.DiningCommonsGrpcService;
+import edu.ucsb.cs156.example.grpc.MenuItemGrpcService;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommons;
+import edu.ucsb.cs156.example.grpc.proto.GetDiningCommonsRequest;
+import edu.ucsb.cs156.example.grpc.proto.GetMenuItemRequest;
+import edu.ucsb.cs156.example.grpc.proto.ListDiningCommonsRequest;
+import edu.ucsb.cs156.example.grpc.proto.ListMenuItemsRequest;
+import edu.ucsb.cs156.example.grpc.proto.MenuItem;
+import edu.ucsb.cs156.example.grpc.proto.UpsertResult;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.DiningCommonsMenu;
+import edu.ucsb.cs156.example.models.GraphQLRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.models.RatedMenuItem;
+import edu.ucsb.cs156.example.models.SystemInfo;
+import edu.ucsb.cs156.example.models.UserSummary;
+
+/**
+ * What native-image can't find out on its own about this app.  Only built
+ * with the native profile (src/native/java), where Spring AOT reads these
+ * hints; see docs/native.md.
+ *
+ * Spring AOT already covers the Spring Data repository proxies, the
+ * Hibernate entity metadata and the OAuth2 client's own classes.  What is
+ * left:
+ *
+ * <ul>
+ * <li>the entities and models, whose Lombok getters, setters and protected
+ * constructors Jackson, graphql-java and the SpEL in the repositories'
+ * queries call reflectively,</li>
+ * <li>class proxies, generated at build time, for every bean that method
+ * security (@PreAuthorize) or LoggingAspect wraps,</li>
+ * <li>everything Spring Session JDBC serializes into a session: the
+ * security context, the OAuth2 login and the saved request,</li>
+ * <li>the Lucene attribute classes, which Lucene finds by name, and the
+ * protobuf messages, whose accessors protobuf looks up by name,</li>
+ * <li>the GraphQL schema, the Liquibase changelogs, the frontend, and the
+ * OpenAPI document and Swagger UI that OpenAPIResourceConfig serves.</li>
+ * </ul>
+ */
+@NativeHint(
+    types = {
+        @TypeHint(types = {
+            Articles.class, HelpRequest.class, MenuItemReview.class, RecommendationRequest.class,
+            UCSBDate.class, UCSBDiningCommons.class, UCSBDiningCommonsMenuItems.class,
+            UCSBOrganization.class, User.class,
+            ArticleSearchHit.class, ArticleSearchResults.class, CurrentUser.class, DiningCommonsMenu.class,
+            GraphQLRequest.class, HelpRequestEvent.class, MenuItemRating.class, NearbyDiningCommons.class,
+            RatedMenuItem.class, SystemInfo.class, UserSummary.class
+        }, access = {
+            TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_METHODS
+        }),
+        @TypeHint(types = {
+            DiningCommons.class, DiningCommons.Builder.class, MenuItem.class, MenuItem.Builder.class,
+            ListDiningCommonsRequest.class, ListDiningCommonsRequest.Builder.class,
+            GetDiningCommonsRequest.class, GetDiningCommonsRequest.Builder.class,
+            ListMenuItemsRequest.class, ListMenuItemsRequest.Builder.class,
+            GetMenuItemRequest.class, GetMenuItemRequest.Builder.class,
+            UpsertResult.class, UpsertResult.Builder.class
+        }, access = { TypeAccess.PUBLIC_METHODS }),
+        @TypeHint(typeNames = {
+            "org.apache.lucene.analysis.tokenattributes.BytesTermAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.CharTermAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.FlagsAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.KeywordAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.OffsetAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.PackedTokenAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.PayloadAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.PositionIncrementAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.PositionLengthAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.TermFrequencyAttributeImpl",
+            "org.apache.lucene.analysis.tokenattributes.TypeAttributeImpl"
+        }, access = { TypeAccess.PUBLIC_CONSTRUCTORS })
+    },
+    aotProxies = {
+        @AotProxyHint(targetClass = ArticlesController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = CSRFController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = FrontendController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = GraphQLController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = HelpRequestController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = MenuItemReviewController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = RecommendationRequestController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = SystemInfoController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = UCSBDatesController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = UCSBDiningCommonsController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = UCSBDiningCommonsMenuItemsController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = UCSBOrganizationController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = UserInfoController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = UsersController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = DiningCommonsGrpcService.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = MenuItemGrpcService.class, proxyFeatures = ProxyBits.IS_STATIC)
+    },
+    serializables = {
+        @SerializationHint(typeNames = {
+            "org.springframework.security.core.context.SecurityContextImpl",
+            "org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken",
+            "org.springframework.security.oauth2.core.user.DefaultOAuth2User",
+            "org.springframework.security.oauth2.core.user.OAuth2UserAuthority",
+            "org.springframework.security.core.authority.SimpleGrantedAuthority",
+            "org.springframework.security.web.authentication.WebAuthenticationDetails",
+            "org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest",
+            "org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponseType",
+            "org.springframework.security.oauth2.core.AuthorizationGrantType",
+            "org.springframework.security.web.savedrequest.DefaultSavedRequest",
+            "org.springframework.security.web.savedrequest.SavedCookie",
+            "org.springframework.security.web.csrf.DefaultCsrfToken",
+            "java.util.ArrayList",
+            "java.util.HashMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashMap",
+            "java.util.LinkedHashSet",
+            "java.util.TreeMap",
+            "java.util.TreeSet",
+            "java.util.Locale",
+            "java.lang.String$CaseInsensitiveComparator",
+            "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableList",
+            "java.util.Collections$UnmodifiableMap",
+            "java.util.Collections$UnmodifiableRandomAccessList",
+            "java.util.Collections$UnmodifiableSet"
+        })
+    },
+    resources = {
+        @ResourceHint(patterns = {
+            "graphql/.*", "db/migration/.*", "public/.*", "openapi/.*", "swagger-ui/.*",
+            "META-INF/resources/webjars/swagger-ui/.*", "META-INF/maven/org.webjars/swagger-ui/pom.properties"
+        })
+    })
+@Configuration(proxyBeanMethods = false)
+public class NativeImageHints {
+}
@@ -0,0 +1,205 @@
+package edu.ucsb.cs156.example;
+
+import static org.mockito.Mockito.when;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.grpc.DiningCommonsGrpcService;
+import edu.ucsb.cs156.example.grpc.MenuItemGrpcService;
+import edu.ucsb.cs156.example.grpc.SessionAuthenticationInterceptor;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommonsServiceGrpc;
+import edu.ucsb.cs156.example.grpc.proto.MenuItemServiceGrpc;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.MenuItemSuggestService;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceTableService;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Runs the gRPC services, with method security and the session interceptor,
+ * on an in-process server.  Calls made on user() and admin() carry the
+ * SESSION cookie of a logged in user or admin; calls on anonymous() carry
+ * none.
+ */
+@SpringJUnitConfig(GrpcServiceTestCase.Config.class)
+public abstract class GrpcServiceTestCase {
+
+  // proxyTargetClass as in the application, where Spring Boot turns it on
+  @Configuration
+  @EnableGlobalMethodSecurity(prePostEnabled = true, proxyTargetClass = true)
+  @Import({ DiningCommonsGrpcService.class, MenuItemGrpcService.class, SessionAuthenticationInterceptor.class })
+  static class Config {
+    @Bean
+    public TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+      return new TransactionTemplate(transactionManager);
+    }
+  }
+
+  @MockBean
+  public UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean
+  public UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @MockBean
+  public DiningCommonsLocationService diningCommonsLocationService;
+
+  @MockBean
+  public MenuItemSuggestService menuItemSuggestService;
+
+  @MockBean
+  public ReferenceListCache referenceListCache;
+
+  @MockBean
+  public ReferenceTableService referenceTables;
+
+  @MockBean
+  public PlatformTransactionManager transactionManager;
+
+  @MockBean
+  public SessionRepository<MapSession> sessionRepository;
+
+  @Autowired
+  public DiningCommonsGrpcService diningCommonsGrpcService;
+
+  @Autowired
+  public MenuItemGrpcService menuItemGrpcService;
+
+  @Autowired
+  public SessionAuthenticationInterceptor sessionAuthenticationInterceptor;
+
+  private Server server;
+  private ManagedChannel channel;
+
+  @BeforeEach
+  public void startServer() throws Exception {
+    String name = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(name)
+        .addService(ServerInterceptors.intercept(
+            DiningCommonsServiceGrpc.bindService(diningCommonsGrpcService), sessionAuthenticationInterceptor))
+        .addService(ServerInterceptors.intercept(
+            MenuItemServiceGrpc.bindService(menuItemGrpcService), sessionAuthenticationInterceptor))
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).build();
+
+    when(sessionRepository.findById("user-session")).thenReturn(session("user-session", "ROLE_USER"));
+    when(sessionRepository.findById("admin-session")).thenReturn(session("admin-session", "ROLE_USER", "ROLE_ADMIN"));
+  }
+
+  @AfterEach
+  public void stopServer() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  public static MapSession session(String id, String... roles) {
+    List<SimpleGrantedAuthority> authorities = List.of(roles).stream()
+        .map(SimpleGrantedAuthority::new)
+        .collect(Collectors.toList());
+    MapSession session = new MapSession(id);
+    session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+        new SecurityContextImpl(new UsernamePasswordAuthenticationToken("cgaucho@ucsb.edu", null, authorities)));
+    return session;
+  }
+
+  /**
+   * Metadata carrying a cookie header, as a client copying a browser's
+   * cookies would send it.
+   */
+  public static Metadata cookie(String value) {
+    Metadata headers = new Metadata();
+    headers.put(Metadata.Key.of("cookie", Metadata.ASCII_STRING_MARSHALLER), value);
+    return headers;
+  }
+
+  public static String sessionCookie(String sessionId) {
+    return "SESSION=" + Base64.getEncoder().encodeToString(sessionId.getBytes());
+  }
+
+  public Channel withHeaders(Metadata headers) {
+    return ClientInterceptors.intercept(channel, MetadataUtils.newAttachHeadersInterceptor(headers));
+  }
+
+  public Channel anonymous() {
+    return channel;
+  }
+
+  public Channel user() {
+    return withHeaders(cookie(sessionCookie("user-session")));
+  }
+
+  public Channel admin() {
+    return withHeaders(cookie(sessionCookie("admin-session")));
+  }
+
+  /**
+   * Makes a client-streaming call: sends every message, then waits for the
+   * one response.  A call that fails throws its StatusRuntimeException.
+   */
+  public static <ReqT, RespT> RespT sendAll(Function<StreamObserver<RespT>, StreamObserver<ReqT>> call,
+      List<ReqT> messages) throws Exception {
+    CompletableFuture<RespT> result = new CompletableFuture<>();
+    StreamObserver<ReqT> requests = call.apply(new StreamObserver<RespT>() {
+      private RespT response;
+
+      @Override
+      public void onNext(RespT value) {
+        response = value;
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        result.completeExceptionally(t);
+      }
+
+      @Override
+      public void onCompleted() {
+        result.complete(response);
+      }
+    });
+    messages.forEach(requests::onNext);
+    requests.onCompleted();
+    try {
+      return result.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      throw (StatusRuntimeException) e.getCause();
+    }
+  }
+}
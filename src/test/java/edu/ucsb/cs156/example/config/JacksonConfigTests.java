@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+
+public class JacksonConfigTests {
+
+  // as Spring Boot configures it before JacksonConfig
+  private static Jackson2ObjectMapperBuilder boot() {
+    return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  private final ObjectMapper stock = boot().build();
+  private final ObjectMapper tuned = tuned(boot());
+
+  private static ObjectMapper tuned(Jackson2ObjectMapperBuilder builder) {
+    JacksonConfig config = new JacksonConfig();
+    builder.modulesToInstall(config.blackbirdModule());
+    config.jacksonTuning().customize(builder);
+    return builder.build();
+  }
+
+  private String isoJson(LocalDateTime time) {
+    return "\"" + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time) + "\"";
+  }
+
+  @Test
+  public void date_times_are_written_as_iso_local_date_time() throws Exception {
+    List<LocalDateTime> times = new ArrayList<>(List.of(
+        LocalDateTime.parse("2022-01-03T00:00"),
+        LocalDateTime.parse("2022-12-31T23:59:59"),
+        LocalDateTime.parse("2022-01-03T09:05:07.5"),
+        LocalDateTime.parse("2022-01-03T09:05:07.000000001"),
+        LocalDateTime.parse("2022-01-03T09:05:07.123456789"),
+        LocalDateTime.parse("0000-01-01T00:00"),
+        LocalDateTime.parse("9999-12-31T23:59:59.999999999"),
+        LocalDateTime.parse("+10000-01-01T00:00"),
+        LocalDateTime.parse("-0001-01-01T00:00")));
+    Random random = new Random(156);
+    for (int i = 0; i < 1000; i++) {
+      times.add(LocalDateTime.of(random.nextInt(10000), 1 + random.nextInt(12), 1 + random.nextInt(28),
+          random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextBoolean() ? 0 : random.nextInt(1_000_000_000)));
+    }
+
+    for (LocalDateTime time : times) {
+      assertEquals(isoJson(time), tuned.writeValueAsString(time));
+    }
+  }
+
+  @Test
+  public void tuned_mapper_writes_what_the_stock_mapper_writes() throws Exception {
+    LocalDateTime noon = LocalDateTime.parse("2022-01-03T12:00:00.25");
+    List<Object> rows = List.of(
+        Articles.builder().id(1).title("Title").url("https://example.com").explanation("Text \"quoted\"")
+            .email("cgaucho@ucsb.edu").dateAdded(noon).version(2L).build(),
+        HelpRequest.builder().id(2).requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3").tableOrBreakoutRoom("7")
+            .requestTime(noon).explanation("help").solved(true).build(),
+        MenuItemReview.builder().id(3).itemId(4).reviewerEmail("cgaucho@ucsb.edu").stars(5).comments(null).build());
+
+    assertEquals(stock.writeValueAsString(rows), tuned.writeValueAsString(rows));
+    assertEquals(stock.readValue(stock.writeValueAsString(rows.get(1)), HelpRequest.class),
+        tuned.readValue(tuned.writeValueAsString(rows.get(1)), HelpRequest.class));
+  }
+
+  @Test
+  public void date_times_are_still_arrays_when_timestamps_are_on() throws Exception {
+    LocalDateTime time = LocalDateTime.parse("2022-01-03T09:05:07.5");
+
+    assertEquals(Jackson2ObjectMapperBuilder.json().build().writeValueAsString(time),
+        tuned(Jackson2ObjectMapperBuilder.json()).writeValueAsString(time));
+  }
+
+  @Test
+  public void costly_features_are_off() {
+    assertFalse(tuned.isEnabled(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+    assertFalse(tuned.getFactory().isEnabled(JsonFactory.Feature.INTERN_FIELD_NAMES));
+  }
+}
@@ -0,0 +1,141 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import liquibase.integration.spring.SpringLiquibase;
+
+public class LiquibaseFastPathTests {
+
+  private static final String CHANGELOG = "db/migration/changelog-master.json";
+
+  private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+      "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+  private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+  private final LiquibaseFastPath fast = new LiquibaseFastPath(true, Map.of());
+  private final LiquibaseFastPath full = new LiquibaseFastPath(false, Map.of());
+
+  // what Spring does with the SpringLiquibase bean at startup
+  private void start(LiquibaseFastPath fastPath) throws Exception {
+    SpringLiquibase liquibase = new SpringLiquibase();
+    liquibase.setDataSource(dataSource);
+    liquibase.setChangeLog(CHANGELOG);
+    liquibase.setResourceLoader(new DefaultResourceLoader());
+    fastPath.postProcessBeforeInitialization(liquibase, "liquibase");
+    liquibase.afterPropertiesSet();
+    fastPath.postProcessAfterInitialization(liquibase, "liquibase");
+  }
+
+  private int storedHashes() {
+    return jdbc.queryForObject("SELECT COUNT(*) FROM CHANGELOG_HASH", Integer.class);
+  }
+
+  private int menuItemForeignKeys() {
+    return jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS"
+        + " WHERE CONSTRAINT_NAME = 'UCSBDININGCOMMONSMENUITEMS_COMMONS_FK'", Integer.class);
+  }
+
+  private String storedHash() {
+    return jdbc.queryForObject("SELECT HASH FROM CHANGELOG_HASH WHERE ID = 1", String.class);
+  }
+
+  // EXECUTED the first time the hash changeset runs, RERAN after that
+  private String lastHashRun() {
+    return jdbc.queryForObject("SELECT EXECTYPE FROM DATABASECHANGELOG WHERE ID = 'ChangelogHash-3'", String.class);
+  }
+
+  @Test
+  public void the_first_start_runs_liquibase_and_stores_the_hash() throws Exception {
+    start(fast);
+
+    assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM USERS", Integer.class));
+    assertEquals(fast.hash(CHANGELOG, null, null), storedHash());
+    assertEquals("EXECUTED", lastHashRun());
+  }
+
+  @Test
+  public void later_starts_skip_liquibase_while_the_changelog_is_unchanged() throws Exception {
+    start(fast);
+    start(fast);
+
+    assertEquals("EXECUTED", lastHashRun());
+  }
+
+  @Test
+  public void a_different_stored_hash_runs_liquibase_and_replaces_it() throws Exception {
+    start(fast);
+    jdbc.update("UPDATE CHANGELOG_HASH SET HASH = 'from an older changelog'");
+
+    start(fast);
+
+    assertEquals("RERAN", lastHashRun());
+    assertEquals(fast.hash(CHANGELOG, null, null), storedHash());
+  }
+
+  @Test
+  public void full_startup_always_runs_liquibase() throws Exception {
+    start(full);
+    start(full);
+
+    assertEquals("RERAN", lastHashRun());
+    assertEquals(full.hash(CHANGELOG, null, null), storedHash());
+  }
+
+  @Test
+  public void no_hash_is_stored_until_a_skipped_changeset_has_run() throws Exception {
+    // a database from before the foreign key, with a menu item whose dining commons is gone
+    start(fast);
+    jdbc.execute("ALTER TABLE UCSBDININGCOMMONSMENUITEMS DROP CONSTRAINT UCSBDININGCOMMONSMENUITEMS_COMMONS_FK");
+    jdbc.update("DELETE FROM DATABASECHANGELOG WHERE ID = 'UCSBDiningCommonsMenuItems-4'");
+    jdbc.update("DELETE FROM CHANGELOG_HASH");
+    jdbc.update("INSERT INTO UCSBDININGCOMMONSMENUITEMS (ID, DINING_COMMONS_CODE, NAME, STATION, VERSION)"
+        + " VALUES (1, 'munger-hall', 'Tofu', 'Grill', 0)");
+
+    start(fast);
+
+    assertEquals(0, menuItemForeignKeys());
+    assertEquals(0, storedHashes());
+
+    start(fast);
+
+    assertEquals("RERAN", lastHashRun());
+    assertEquals(0, storedHashes());
+
+    jdbc.update("DELETE FROM UCSBDININGCOMMONSMENUITEMS");
+    start(fast);
+
+    assertEquals(1, menuItemForeignKeys());
+    assertEquals(fast.hash(CHANGELOG, null, null), storedHash());
+
+    jdbc.update("UPDATE DATABASECHANGELOG SET EXECTYPE = 'EXECUTED' WHERE ID = 'ChangelogHash-3'");
+    start(fast);
+
+    assertEquals("EXECUTED", lastHashRun());
+  }
+
+  @Test
+  public void beans_other_than_liquibase_are_left_alone() {
+    Object bean = new Object();
+
+    assertEquals(bean, fast.postProcessBeforeInitialization(bean, "other"));
+    assertEquals(bean, fast.postProcessAfterInitialization(bean, "other"));
+  }
+
+  @Test
+  public void the_hash_covers_the_contexts_and_labels_but_not_the_classpath_prefix() {
+    String hash = fast.hash(CHANGELOG, null, null);
+
+    assertEquals(hash, fast.hash("classpath:" + CHANGELOG, "", ""));
+    assertNotEquals(hash, fast.hash(CHANGELOG, "test", null));
+    assertNotEquals(hash, fast.hash(CHANGELOG, null, "test"));
+  }
+}
@@ -0,0 +1,48 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.CSRFController;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+// as in production, where springdoc is off
+@WebMvcTest(controllers = CSRFController.class, properties = "springdoc.api-docs.enabled=false")
+public class OpenAPIResourceConfigTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Test
+  public void swagger_ui_reads_the_document_from_the_build() throws Exception {
+    mockMvc.perform(get("/swagger-ui/swagger-initializer.js"))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("url: \"/openapi/openapi.json\"")));
+  }
+
+  @Test
+  public void swagger_ui_is_sent_precompressed_and_cacheable() throws Exception {
+    mockMvc.perform(get("/swagger-ui/swagger-ui-bundle.js").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andExpect(header().string(HttpHeaders.VARY, "Accept-Encoding"))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"));
+  }
+
+  @Test
+  public void the_old_swagger_ui_address_redirects() throws Exception {
+    mockMvc.perform(get("/swagger-ui.html"))
+        .andExpect(status().isFound())
+        .andExpect(redirectedUrl("/swagger-ui/index.html"));
+  }
+}
@@ -0,0 +1,210 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+public class SingleFlightFilterTests {
+
+  private final SingleFlightFilter filter = new SingleFlightFilter();
+
+  private final AtomicInteger runs = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final List<Thread> threads = new ArrayList<>();
+  private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r);
+    threads.add(thread);
+    return thread;
+  });
+
+  // what the controller does: counts the run, waits for release, then sends
+  // the status and body
+  private FilterChain controller(int status, String body) {
+    return (request, response) -> {
+      runs.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new ServletException(e);
+      }
+      ((HttpServletResponse) response).setStatus(status);
+      ((HttpServletResponse) response).addHeader(HttpHeaders.VARY, "Accept");
+      ((HttpServletResponse) response).addHeader(HttpHeaders.VARY, "Accept-Encoding");
+      ((HttpServletResponse) response).addHeader(HttpHeaders.SET_COOKIE, "XSRF-TOKEN=first");
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      response.getOutputStream().write(body.getBytes());
+    };
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+    SecurityContextHolder.clearContext();
+  }
+
+  private static MockHttpServletRequest get(String accept) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ucsbdates/all");
+    request.addHeader(HttpHeaders.ACCEPT, accept);
+    return request;
+  }
+
+  private static MockHttpServletRequest gzip(MockHttpServletRequest request) {
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    return request;
+  }
+
+  // sends a request on its own thread, signed in with the given roles
+  private Future<MockHttpServletResponse> send(MockHttpServletRequest request, FilterChain chain, String... roles) {
+    return executor.submit(() -> {
+      if (roles.length > 0) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "", roles));
+      }
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      filter.doFilter(request, response, chain);
+      return response;
+    });
+  }
+
+  // waits until every request sent so far is blocked in the controller or
+  // waiting for one that is
+  private void awaitParked() {
+    for (Thread thread : new ArrayList<>(threads)) {
+      while (thread.getState() != Thread.State.WAITING) {
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  @Test
+  public void concurrent_identical_requests_run_once_and_get_the_same_response() throws Exception {
+    FilterChain chain = controller(200, "[{\"id\":1}]");
+
+    List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      responses.add(send(get("application/json"), chain, "ROLE_USER"));
+    }
+    awaitParked();
+    release.countDown();
+
+    int withCookie = 0;
+    for (Future<MockHttpServletResponse> response : responses) {
+      assertEquals(200, response.get().getStatus());
+      assertEquals(MediaType.APPLICATION_JSON_VALUE, response.get().getContentType());
+      assertEquals(10, response.get().getContentLength());
+      assertEquals("[{\"id\":1}]", response.get().getContentAsString());
+      assertEquals(List.of("Accept", "Accept-Encoding"), response.get().getHeaders(HttpHeaders.VARY));
+      if (response.get().containsHeader(HttpHeaders.SET_COOKIE)) {
+        withCookie++;
+      }
+    }
+    assertEquals(1, runs.get());
+    // the first request's cookies are its own
+    assertEquals(1, withCookie);
+  }
+
+  @Test
+  public void requests_with_different_roles_or_accept_headers_run_separately() throws Exception {
+    FilterChain chain = controller(200, "[]");
+
+    List<Future<MockHttpServletResponse>> responses = List.of(
+        send(get("application/json"), chain, "ROLE_USER"),
+        send(get("application/json"), chain, "ROLE_USER", "ROLE_ADMIN"),
+        send(get("application/cbor"), chain, "ROLE_USER"),
+        send(gzip(get("application/json")), chain, "ROLE_USER"),
+        send(get("application/json"), chain));
+    awaitParked();
+    release.countDown();
+
+    for (Future<MockHttpServletResponse> response : responses) {
+      assertEquals("[]", response.get().getContentAsString());
+    }
+    assertEquals(5, runs.get());
+  }
+
+  @Test
+  public void waiters_on_an_error_response_run_their_own_request() throws Exception {
+    FilterChain chain = controller(404, "");
+
+    List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      responses.add(send(get("application/json"), chain, "ROLE_USER"));
+    }
+    awaitParked();
+    release.countDown();
+
+    for (Future<MockHttpServletResponse> response : responses) {
+      assertEquals(404, response.get().getStatus());
+    }
+    assertEquals(3, runs.get());
+  }
+
+  @Test
+  public void waiters_get_the_exception_the_request_threw() throws Exception {
+    IllegalStateException failure = new IllegalStateException("database down");
+    FilterChain chain = (request, response) -> {
+      controller(200, "").doFilter(request, response);
+      throw failure;
+    };
+
+    List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      responses.add(send(get("application/json"), chain, "ROLE_USER"));
+    }
+    awaitParked();
+    release.countDown();
+
+    for (Future<MockHttpServletResponse> response : responses) {
+      Exception thrown = assertThrows(Exception.class, response::get);
+      assertSame(failure, thrown.getCause());
+    }
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void checked_exceptions_are_thrown_as_they_are() {
+    IOException io = new IOException("connection reset");
+    ServletException servlet = new ServletException("no handler");
+
+    assertSame(io, assertThrows(IOException.class, () -> filter.doFilter(get("*/*"), new MockHttpServletResponse(),
+        (request, response) -> {
+          throw io;
+        })));
+    assertSame(servlet, assertThrows(ServletException.class,
+        () -> filter.doFilter(get("*/*"), new MockHttpServletResponse(), (request, response) -> {
+          throw servlet;
+        })));
+  }
+
+  @Test
+  public void other_methods_go_straight_through() throws Exception {
+    MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/ucsbdates/all");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    List<Object> seen = new ArrayList<>();
+
+    filter.doFilter(post, response, (request, sent) -> seen.add(sent));
+
+    assertEquals(List.of(response), seen);
+  }
+}
@@ -5,6 +5,9 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -14,6 +17,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -27,7 +31,9 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +48,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ArticleSearchService articleSearchService;
+
         // Tests for GET /api/articles/all
         
         @Test
@@ -99,6 +108,47 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/articles/search
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/articles/search?q=java"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search_articles() throws Exception {
+                // arrange
+
+                ArticleSearchResults results = ArticleSearchResults.builder()
+                                .query("java")
+                                .page(0)
+                                .size(10)
+                                .totalHits(1)
+                                .hits(Arrays.asList(ArticleSearchHit.builder()
+                                                .id(7L)
+                                                .score(1.5f)
+                                                .title("Learning Java")
+                                                .url("https://java.example.com")
+                                                .titleHighlight("Learning <b>Java</b>")
+                                                .explanationHighlight(null)
+                                                .build()))
+                                .build();
+
+                when(articleSearchService.search("java", 0, 10)).thenReturn(results);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/search?q=java"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleSearchService, times(1)).search("java", 0, 10);
+                String expectedJson = mapper.writeValueAsString(results);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         // Tests for POST /api/ucsbdates/post...
 
         @Test
@@ -139,6 +189,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(articlesRepository, times(1)).save(articles1);
+                verify(articleSearchService, times(1)).index(articles1);
                 String expectedJson = mapper.writeValueAsString(articles1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -230,6 +281,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(articleEdited);
 
                 when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articlesRepository.save(eq(articleEdited))).thenReturn(articleEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -243,11 +295,221 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 // assert
                 verify(articlesRepository, times(1)).findById(67L);
                 verify(articlesRepository, times(1)).save(articleEdited); // should be saved with correct user
+                verify(articleSearchService, times(1)).index(articleEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
 
         
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_article_at_the_expected_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+
+                Articles articleEdited = Articles.builder()
+                                .title("article title2!")
+                                .url("http://best-article2.com")
+                                .email("mockemail2@gmail.com")
+                                .explanation("explanation2")
+                                .dateAdded(ldt2)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(articleEdited);
+
+                when(articlesRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(articleEdited))).thenReturn(1);
+                // the row as stored, which is what the response should be
+                Articles stored = mapper.readValue(requestBody, Articles.class);
+                stored.setId(67L);
+                stored.setVersion(4L);
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findById(67L);
+                verify(articleSearchService, times(1)).index(any(Articles.class));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(stored), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_article_at_a_stale_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+
+                Articles articleEdited = Articles.builder()
+                                .title("article title2!")
+                                .url("http://best-article2.com")
+                                .email("mockemail2@gmail.com")
+                                .explanation("explanation2")
+                                .dateAdded(ldt2)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(articleEdited);
+
+                when(articlesRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(articleEdited))).thenReturn(0);
+                when(articlesRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("Articles with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_conditionally_edit_article_that_does_not_exist() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+
+                Articles articleEdited = Articles.builder()
+                                .title("article title2!")
+                                .url("http://best-article2.com")
+                                .email("mockemail2@gmail.com")
+                                .explanation("explanation2")
+                                .dateAdded(ldt2)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(articleEdited);
+
+                when(articlesRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(articleEdited))).thenReturn(0);
+                when(articlesRepository.existsById(eq(67L))).thenReturn(false);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void if_match_star_edits_unconditionally() throws Exception {
+                // arrange
+
+                Articles articleOrig = Articles.builder()
+                                .title("articletitle")
+                                .version(5L)
+                                .build();
+
+                Articles articleEdited = Articles.builder()
+                                .title("article title2!")
+                                .version(5L)
+                                .build();
+
+                Articles articleSaved = Articles.builder()
+                                .title("article title2!")
+                                .version(6L)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(articleEdited);
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articlesRepository.save(eq(articleEdited))).thenReturn(articleSaved);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .header("If-Match", " * ")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, never()).updateIfVersionMatches(anyLong(), anyLong(), any());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(articleSaved), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void if_match_that_is_not_a_version_is_refused() throws Exception {
+                // arrange
+
+                String requestBody = mapper.writeValueAsString(Articles.builder().title("article title2!").build());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .header("If-Match", "\"abc123\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(articlesRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("If-Match \"abc123\" is not an entity version", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void concurrent_edit_without_if_match_is_a_conflict() throws Exception {
+                // arrange
+
+                Articles articleOrig = Articles.builder()
+                                .title("articletitle")
+                                .version(5L)
+                                .build();
+
+                Articles articleEdited = Articles.builder()
+                                .title("article title2!")
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(articleEdited);
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articlesRepository.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Articles.class, 67L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_article_that_does_not_exist() throws Exception {
@@ -283,24 +545,182 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
         }
 
-        // Tests for DELETE /api/articles?id=... 
+        // Tests for PATCH /api/articles?id=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch_article() throws Exception {
+                mockMvc.perform(patch("/api/articles?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"title\": \"article title2!\"}")
+                                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
-        public void admin_can_delete_an_article() throws Exception {
+        public void admin_can_patch_one_field_of_article() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                Articles articleOrig = Articles.builder()
+                                .title("articletitle")
+                                .url("bestarticle1.com")
+                                .email("mockemail1@gmail.com")
+                                .explanation("explanation1")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                Articles articlePatched = Articles.builder()
+                                .title("article title2!")
+                                .url("bestarticle1.com")
+                                .email("mockemail1@gmail.com")
+                                .explanation("explanation1")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articlesRepository.save(eq(articlePatched))).thenReturn(articlePatched);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/articles?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"title\": \"article title2!\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).save(articlePatched);
+                verify(articleSearchService, times(1)).index(articlePatched);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(articlePatched), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patch_leaves_id_and_version_alone_and_null_clears_a_field() throws Exception {
+                // arrange
+
+                Articles articleOrig = Articles.builder()
+                                .id(67L)
+                                .title("articletitle")
+                                .explanation("explanation1")
+                                .version(3L)
+                                .build();
+
+                Articles articlePatched = Articles.builder()
+                                .id(67L)
+                                .title("articletitle")
+                                .explanation(null)
+                                .version(3L)
+                                .build();
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articlesRepository.save(eq(articlePatched))).thenReturn(articlePatched);
+
+                // act
+                mockMvc.perform(
+                                patch("/api/articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"id\": 99, \"version\": 42, \"explanation\": null}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).save(articlePatched);
+                verify(articleSearchService, times(1)).index(articlePatched);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void patch_with_a_bad_value_is_a_bad_request() throws Exception {
+                // arrange
+
+                Articles articleOrig = Articles.builder()
+                                .title("articletitle")
+                                .build();
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/articles?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"dateAdded\": \"yesterday\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(articlesRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidFormatException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_article_at_a_stale_version() throws Exception {
+                // arrange
 
-                Articles article1 = Articles.builder()
+                Articles articleOrig = Articles.builder()
                                 .title("articletitle")
                                 .url("bestarticle1.com")
                                 .email("mockemail1@gmail.com")
                                 .explanation("explanation1")
-                                .dateAdded(ldt1)
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(4L)
                                 .build();
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(article1));
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/articles?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"title\": \"article title2!\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(articlesRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_article_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/articles?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"title\": \"article title2!\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/articles?id=... 
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_an_article() throws Exception {
+                // arrange
+
+                when(articlesRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -309,8 +729,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
-                verify(articlesRepository, times(1)).delete(any());
+                verify(articlesRepository, times(1)).deleteRowById(15L);
+                verify(articleSearchService, times(1)).remove(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 deleted", json.get("message"));
@@ -322,7 +742,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(articlesRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -331,7 +751,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
+                verify(articlesRepository, times(1)).deleteRowById(15L);
+                verify(articleSearchService, never()).remove(anyLong());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.GraphQLRequest;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.GraphQLService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = GraphQLController.class)
+@Import(TestConfig.class)
+public class GraphQLControllerTests extends ControllerTestCase {
+
+        @MockBean
+        GraphQLService graphQLService;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private static final String QUERY = "{\"query\":\"{ allOrganizations { orgCode } }\"}";
+
+        @Test
+        public void logged_out_users_cannot_query() throws Exception {
+                mockMvc.perform(post("/api/graphql")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(QUERY)
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_query() throws Exception {
+                // arrange
+                GraphQLRequest request = GraphQLRequest.builder().query("{ allOrganizations { orgCode } }").build();
+                Map<String, Object> result = Map.of("data", Map.of("allOrganizations", List.of(Map.of("orgCode", "ZPR"))));
+                when(graphQLService.execute(eq(request), any(), eq(false))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/graphql")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(QUERY)
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(graphQLService).execute(eq(request), any(), eq(false));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admins_query_as_admins() throws Exception {
+                // arrange
+                GraphQLRequest request = GraphQLRequest.builder().query("{ allOrganizations { orgCode } }").build();
+                when(graphQLService.execute(eq(request), any(), eq(true))).thenReturn(Map.of("data", Map.of()));
+
+                // act
+                mockMvc.perform(post("/api/graphql")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(QUERY)
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(graphQLService).execute(eq(request), any(), eq(true));
+        }
+}
@@ -4,10 +4,14 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestEventService;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -16,6 +20,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -27,7 +32,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +50,12 @@ public class HelpRequestControllerTests extends ControllerTestCase{
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    HelpRequestEventService helpRequestEventService;
+
+    @MockBean
+    HelpRequestQueueService helpRequestQueueService;
+
     // Tests for GET /api/helprequest/all
         
     @Test
@@ -154,6 +168,7 @@ public class HelpRequestControllerTests extends ControllerTestCase{
 
             // assert
             verify(helpRequestRepository, times(1)).save(request1);
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.CREATED, request1);
             String expectedJson = mapper.writeValueAsString(request1);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
@@ -218,25 +233,188 @@ public class HelpRequestControllerTests extends ControllerTestCase{
     }
 
 
-    // Tests for DELETE /api/helprequest?id=... 
+    // Tests for PATCH /api/helprequest?id=...
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_patch_help_request() throws Exception {
+            mockMvc.perform(patch("/api/helprequest?id=67")
+                                            .contentType("application/merge-patch+json")
+                                            .content("{\"tableOrBreakoutRoom\": \"8\"}")
+                                            .with(csrf()))
+                            .andExpect(status().is(403));
+    }
 
     @WithMockUser(roles = { "ADMIN", "USER" })
     @Test
-    public void admin_can_delete_a_date() throws Exception {
+    public void admin_can_patch_one_field_of_help_request() throws Exception {
             // arrange
 
-            LocalDateTime requestTime1 = LocalDateTime.parse("2022-04-20T17:35");
+            HelpRequest requestOrig = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("s22-5pm-3")
+                            .tableOrBreakoutRoom("7")
+                            .explanation("Need help with Swagger-ui")
+                            .solved(false)
+                            .version(3L)
+                            .build();
 
-            HelpRequest request1 = HelpRequest.builder()
-                            .requestTime(requestTime1)
+            HelpRequest requestPatched = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("s22-5pm-3")
+                            .tableOrBreakoutRoom("8")
+                            .explanation("Need help with Swagger-ui")
+                            .solved(false)
+                            .version(3L)
+                            .build();
+
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+            when(helpRequestRepository.save(eq(requestPatched))).thenReturn(requestPatched);
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/helprequest?id=67")
+                                            .header("If-Match", "\"3\"")
+                                            .contentType("application/merge-patch+json")
+                                            .characterEncoding("utf-8")
+                                            .content("{\"tableOrBreakoutRoom\": \"8\"}")
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).save(requestPatched);
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(mapper.writeValueAsString(requestPatched), responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void patching_solved_publishes_solved() throws Exception {
+            // arrange
+
+            HelpRequest requestOrig = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                            .explanation("Need help with Swagger-ui")
+                            .solved(false)
+                            .build();
+
+            HelpRequest requestPatched = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                            .explanation("Need help with Swagger-ui")
+                            .solved(true)
+                            .build();
+
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+            when(helpRequestRepository.save(eq(requestPatched))).thenReturn(requestPatched);
+
+            // act
+            mockMvc.perform(
+                            patch("/api/helprequest?id=67")
+                                            .contentType("application/merge-patch+json")
+                                            .content("{\"solved\": true}")
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.SOLVED, requestPatched);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void patching_a_solved_request_publishes_an_update() throws Exception {
+            // arrange
+
+            HelpRequest requestOrig = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                            .explanation("Need help with Swagger-ui")
+                            .solved(true)
+                            .build();
+
+            HelpRequest requestPatched = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                            .explanation("Dokku problems")
+                            .solved(true)
+                            .build();
+
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+            when(helpRequestRepository.save(eq(requestPatched))).thenReturn(requestPatched);
+
+            // act
+            mockMvc.perform(
+                            patch("/api/helprequest?id=67")
+                                            .contentType("application/merge-patch+json")
+                                            .content("{\"explanation\": \"Dokku problems\"}")
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.UPDATED, requestPatched);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_help_request_at_a_stale_version() throws Exception {
+            // arrange
+
+            HelpRequest requestOrig = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
                             .requesterEmail("cgaucho@ucsb.edu")
                             .teamId("s22-5pm-3")
                             .tableOrBreakoutRoom("7")
-                            .explanation("Swagger-ui")
+                            .explanation("Need help with Swagger-ui")
                             .solved(false)
+                            .version(4L)
                             .build();
 
-            when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(request1));
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/helprequest?id=67")
+                                            .header("If-Match", "3")
+                                            .contentType("application/merge-patch+json")
+                                            .characterEncoding("utf-8")
+                                            .content("{\"tableOrBreakoutRoom\": \"8\"}")
+                                            .with(csrf()))
+                            .andExpect(status().isPreconditionFailed()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, never()).save(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("HelpRequest with id 67 is not at version 3", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_help_request_that_does_not_exist() throws Exception {
+            // arrange
+
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/helprequest?id=67")
+                                            .contentType("application/merge-patch+json")
+                                            .characterEncoding("utf-8")
+                                            .content("{\"tableOrBreakoutRoom\": \"8\"}")
+                                            .with(csrf()))
+                            .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("HelpRequest with id 67 not found", json.get("message"));
+    }
+
+    // Tests for DELETE /api/helprequest?id=... 
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_delete_a_date() throws Exception {
+            // arrange
+
+            when(helpRequestRepository.deleteRowById(eq(15L))).thenReturn(1);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -245,8 +423,8 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(helpRequestRepository, times(1)).findById(15L);
-            verify(helpRequestRepository, times(1)).delete(any());
+            verify(helpRequestRepository, times(1)).deleteRowById(15L);
+            verify(helpRequestEventService, times(1)).publishDeleted(15L);
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -258,7 +436,7 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                     throws Exception {
             // arrange
 
-            when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+            when(helpRequestRepository.deleteRowById(eq(15L))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -267,7 +445,7 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(helpRequestRepository, times(1)).findById(15L);
+            verify(helpRequestRepository, times(1)).deleteRowById(15L);
             Map<String, Object> json = responseToJson(response);
             assertEquals("HelpRequest with id 15 not found", json.get("message"));
     }
@@ -305,6 +483,7 @@ public class HelpRequestControllerTests extends ControllerTestCase{
             String requestBody = mapper.writeValueAsString(requestEdited);
 
             when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+            when(helpRequestRepository.save(eq(requestEdited))).thenReturn(requestEdited);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -318,11 +497,327 @@ public class HelpRequestControllerTests extends ControllerTestCase{
             // assert
             verify(helpRequestRepository, times(1)).findById(67L);
             verify(helpRequestRepository, times(1)).save(requestEdited); // should be saved with correct user
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.SOLVED, requestEdited);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(requestBody, responseString);
     }
 
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void editing_a_help_request_without_solving_it_publishes_an_update() throws Exception {
+            // arrange
+
+            LocalDateTime requestTime1 = LocalDateTime.parse("2022-04-20T17:35");
+
+            HelpRequest requestOrig = HelpRequest.builder()
+                            .requestTime(requestTime1)
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("s22-5pm-3")
+                            .tableOrBreakoutRoom("7")
+                            .explanation("Need help with Swagger-ui")
+                            .solved(true)
+                            .build();
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(requestTime1)
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("s22-5pm-3")
+                            .tableOrBreakoutRoom("8")
+                            .explanation("Need help with Swagger-ui")
+                            .solved(true)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+            when(helpRequestRepository.save(eq(requestEdited))).thenReturn(requestEdited);
+
+            // act
+            mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.UPDATED, requestEdited);
+    }
+
     
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void editing_an_unsolved_help_request_without_solving_it_publishes_an_update() throws Exception {
+            // arrange
+
+            LocalDateTime requestTime1 = LocalDateTime.parse("2022-04-20T17:35");
+
+            HelpRequest requestOrig = HelpRequest.builder()
+                            .requestTime(requestTime1)
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("s22-5pm-3")
+                            .tableOrBreakoutRoom("7")
+                            .explanation("Need help with Swagger-ui")
+                            .solved(false)
+                            .build();
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(requestTime1)
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("s22-5pm-3")
+                            .tableOrBreakoutRoom("8")
+                            .explanation("Need help with Swagger-ui")
+                            .solved(false)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+            when(helpRequestRepository.save(eq(requestEdited))).thenReturn(requestEdited);
+
+            // act
+            mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.UPDATED, requestEdited);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_edit_help_request_at_the_expected_version() throws Exception {
+            // arrange
+
+            LocalDateTime requestTime2 = LocalDateTime.parse("2022-04-20T18:31");
+
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(requestTime2)
+                            .requesterEmail("ldelplaya@ucsb.edu")
+                            .teamId("s22-6pm-3")
+                            .tableOrBreakoutRoom("11")
+                            .explanation("Dokku problems")
+                            .solved(true)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            // it was already solved, so only the plain versioned UPDATE matches
+            when(helpRequestRepository.updateIfVersionAndSolvedMatch(eq(67L), eq(3L), eq(false), eq(requestEdited))).thenReturn(0);
+            when(helpRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(requestEdited))).thenReturn(1);
+            // the row as stored, which is what the response should be
+            HelpRequest stored = mapper.readValue(requestBody, HelpRequest.class);
+            stored.setId(67L);
+            stored.setVersion(4L);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .header("If-Match", "3")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).findById(67L);
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.UPDATED, stored);
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(mapper.writeValueAsString(stored), responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void solving_a_queued_help_request_at_the_expected_version_publishes_solved() throws Exception {
+            // arrange
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T18:31"))
+                            .requesterEmail("ldelplaya@ucsb.edu")
+                            .teamId("s22-6pm-3")
+                            .tableOrBreakoutRoom("11")
+                            .explanation("Dokku problems")
+                            .solved(true)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            when(helpRequestRepository.updateIfVersionAndSolvedMatch(eq(67L), eq(3L), eq(false), eq(requestEdited))).thenReturn(1);
+            HelpRequest stored = mapper.readValue(requestBody, HelpRequest.class);
+            stored.setId(67L);
+            stored.setVersion(4L);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+            // act
+            mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .header("If-Match", "W/\"3\"")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, never()).updateIfVersionMatches(anyLong(), anyLong(), any());
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.SOLVED, stored);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void editing_a_queued_help_request_at_the_expected_version_publishes_an_update() throws Exception {
+            // arrange
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T18:31"))
+                            .requesterEmail("ldelplaya@ucsb.edu")
+                            .teamId("s22-6pm-3")
+                            .tableOrBreakoutRoom("11")
+                            .explanation("Dokku problems")
+                            .solved(false)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            when(helpRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(requestEdited))).thenReturn(1);
+            HelpRequest stored = mapper.readValue(requestBody, HelpRequest.class);
+            stored.setId(67L);
+            stored.setVersion(4L);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+            // act
+            mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .header("If-Match", "W/\"3\"")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, never()).updateIfVersionAndSolvedMatch(anyLong(), anyLong(), anyBoolean(), any());
+            verify(helpRequestEventService, times(1)).publish(HelpRequestEvent.Type.UPDATED, stored);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void help_request_deleted_right_after_a_conditional_edit_is_not_found() throws Exception {
+            // arrange
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(LocalDateTime.parse("2022-04-20T18:31"))
+                            .requesterEmail("ldelplaya@ucsb.edu")
+                            .teamId("s22-6pm-3")
+                            .tableOrBreakoutRoom("11")
+                            .explanation("Dokku problems")
+                            .solved(false)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            when(helpRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(requestEdited))).thenReturn(1);
+            when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .header("If-Match", "3")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("HelpRequest with id 67 not found", json.get("message"));
+            verify(helpRequestEventService, never()).publish(any(), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_edit_help_request_at_a_stale_version() throws Exception {
+            // arrange
+
+            LocalDateTime requestTime2 = LocalDateTime.parse("2022-04-20T18:31");
+
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(requestTime2)
+                            .requesterEmail("ldelplaya@ucsb.edu")
+                            .teamId("s22-6pm-3")
+                            .tableOrBreakoutRoom("11")
+                            .explanation("Dokku problems")
+                            .solved(true)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            when(helpRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(requestEdited))).thenReturn(0);
+            when(helpRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .header("If-Match", "3")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isPreconditionFailed()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("PreconditionFailedException", json.get("type"));
+            assertEquals("HelpRequest with id 67 is not at version 3", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_conditionally_edit_help_request_that_does_not_exist() throws Exception {
+            // arrange
+
+            LocalDateTime requestTime2 = LocalDateTime.parse("2022-04-20T18:31");
+
+
+            HelpRequest requestEdited = HelpRequest.builder()
+                            .requestTime(requestTime2)
+                            .requesterEmail("ldelplaya@ucsb.edu")
+                            .teamId("s22-6pm-3")
+                            .tableOrBreakoutRoom("11")
+                            .explanation("Dokku problems")
+                            .solved(true)
+                            .build();
+
+            String requestBody = mapper.writeValueAsString(requestEdited);
+
+            when(helpRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(requestEdited))).thenReturn(0);
+            when(helpRequestRepository.existsById(eq(67L))).thenReturn(false);
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            put("/api/helprequest?id=67")
+                                            .header("If-Match", "3")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("HelpRequest with id 67 not found", json.get("message"));
+    }
+
     @WithMockUser(roles = { "ADMIN", "USER" })
     @Test
     public void admin_cannot_edit_help_request_that_does_not_exist() throws Exception {
@@ -359,4 +854,92 @@ public class HelpRequestControllerTests extends ControllerTestCase{
 
     }
 
+
+    // Tests for GET /api/helprequest/queue
+
+    @Test
+    public void logged_out_users_cannot_get_the_queue() throws Exception {
+            mockMvc.perform(get("/api/helprequest/queue"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_the_queue() throws Exception {
+            // arrange
+            HelpRequest oldest = HelpRequest.builder()
+                            .id(3L)
+                            .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("s22-5pm-3")
+                            .tableOrBreakoutRoom("7")
+                            .explanation("Swagger-ui")
+                            .solved(false)
+                            .build();
+
+            HelpRequest newer = HelpRequest.builder()
+                            .id(1L)
+                            .requestTime(LocalDateTime.parse("2022-04-20T18:31"))
+                            .requesterEmail("ldelplaya@ucsb.edu")
+                            .teamId("s22-6pm-3")
+                            .tableOrBreakoutRoom("11")
+                            .explanation("Dokku problems")
+                            .solved(false)
+                            .build();
+
+            when(helpRequestQueueService.top(100)).thenReturn(List.of(oldest, newer));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/helprequest/queue"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestQueueService, times(1)).top(100);
+            String expectedJson = mapper.writeValueAsString(List.of(oldest, newer));
+            assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_limit_the_queue() throws Exception {
+            when(helpRequestQueueService.top(5)).thenReturn(List.of());
+
+            mockMvc.perform(get("/api/helprequest/queue?limit=5"))
+                            .andExpect(status().isOk());
+
+            verify(helpRequestQueueService, times(1)).top(5);
+    }
+
+    // Tests for GET /api/helprequest/events
+
+    @Test
+    public void logged_out_users_cannot_subscribe_to_events() throws Exception {
+            mockMvc.perform(get("/api/helprequest/events"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_users_can_subscribe_to_events() throws Exception {
+            when(helpRequestEventService.subscribe(null)).thenReturn(new SseEmitter());
+
+            mockMvc.perform(get("/api/helprequest/events"))
+                            .andExpect(status().isOk())
+                            .andExpect(request().asyncStarted());
+
+            verify(helpRequestEventService, times(1)).subscribe(null);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void reconnecting_clients_resume_after_their_last_event_id() throws Exception {
+            when(helpRequestEventService.subscribe("kq3v8g1c-42")).thenReturn(new SseEmitter());
+
+            mockMvc.perform(get("/api/helprequest/events").header("Last-Event-ID", "kq3v8g1c-42"))
+                            .andExpect(status().isOk())
+                            .andExpect(request().asyncStarted());
+
+            verify(helpRequestEventService, times(1)).subscribe("kq3v8g1c-42");
+    }
+
 }
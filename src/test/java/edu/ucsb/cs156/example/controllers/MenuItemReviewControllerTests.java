@@ -28,6 +28,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -200,24 +201,121 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 assertEquals("MenuItemReview with id 7 not found", json.get("message"));
         }
 
-        // Tests for DELETE /api/menuitemreview?id=... 
+        // Tests for PATCH /api/menuitemreview?id=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch_review() throws Exception {
+                mockMvc.perform(patch("/api/menuitemreview?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"stars\": 2}")
+                                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
-        public void admin_can_delete_a_review() throws Exception {
+        public void admin_can_patch_one_field_of_review() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                MenuItemReview reviewOrig = MenuItemReview.builder()
+                    .itemId(1)
+                    .reviewerEmail("wesley@ucsb.edu")
+                    .stars(5)
+                    .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .comments("i likey likey")
+                    .version(3L)
+                    .build();
 
-                MenuItemReview review1 = MenuItemReview.builder()
+                MenuItemReview reviewPatched = MenuItemReview.builder()
                     .itemId(1)
-                    .reviewerEmail("sdfa")
+                    .reviewerEmail("wesley@ucsb.edu")
+                    .stars(2)
+                    .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .comments("i likey likey")
+                    .version(3L)
+                    .build();
+
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(reviewOrig));
+                when(menuItemReviewRepository.save(eq(reviewPatched))).thenReturn(reviewPatched);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/menuitemreview?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"stars\": 2}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).save(reviewPatched);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(reviewPatched), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_review_at_a_stale_version() throws Exception {
+                // arrange
+
+                MenuItemReview reviewOrig = MenuItemReview.builder()
+                    .itemId(1)
+                    .reviewerEmail("wesley@ucsb.edu")
                     .stars(5)
-                    .dateReviewed(ldt1)
-                    .comments("dfd")
+                    .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .comments("i likey likey")
+                    .version(4L)
                     .build();
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(review1));
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(reviewOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/menuitemreview?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"stars\": 2}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_review_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/menuitemreview?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"stars\": 2}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/menuitemreview?id=... 
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_review() throws Exception {
+                // arrange
+
+                when(menuItemReviewRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +324,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
-                verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -239,7 +336,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +345,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
@@ -282,6 +379,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(reviewEdited);
 
                 when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(reviewOrig));
+                when(menuItemReviewRepository.save(eq(reviewEdited))).thenReturn(reviewEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -300,6 +398,117 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         }
 
         
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_review_at_the_expected_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+                
+                MenuItemReview reviewEdited = MenuItemReview.builder()
+                    .itemId(6)
+                    .reviewerEmail("wesley@ucsb.edu")
+                    .stars(5)
+                    .dateReviewed(ldt2)
+                    .comments("food was amazing")
+                    .build();
+
+                String requestBody = mapper.writeValueAsString(reviewEdited);
+
+                when(menuItemReviewRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(reviewEdited))).thenReturn(1);
+                // the row as stored, which is what the response should be
+                MenuItemReview stored = mapper.readValue(requestBody, MenuItemReview.class);
+                stored.setId(67L);
+                stored.setVersion(4L);
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findById(67L);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(stored), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_review_at_a_stale_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+                
+                MenuItemReview reviewEdited = MenuItemReview.builder()
+                    .itemId(6)
+                    .reviewerEmail("wesley@ucsb.edu")
+                    .stars(5)
+                    .dateReviewed(ldt2)
+                    .comments("food was amazing")
+                    .build();
+
+                String requestBody = mapper.writeValueAsString(reviewEdited);
+
+                when(menuItemReviewRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(reviewEdited))).thenReturn(0);
+                when(menuItemReviewRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("MenuItemReview with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_conditionally_edit_review_that_does_not_exist() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+                
+                MenuItemReview reviewEdited = MenuItemReview.builder()
+                    .itemId(6)
+                    .reviewerEmail("wesley@ucsb.edu")
+                    .stars(5)
+                    .dateReviewed(ldt2)
+                    .comments("food was amazing")
+                    .build();
+
+                String requestBody = mapper.writeValueAsString(reviewEdited);
+
+                when(menuItemReviewRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(reviewEdited))).thenReturn(0);
+                when(menuItemReviewRepository.existsById(eq(67L))).thenReturn(false);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 not found", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_review_that_does_not_exist() throws Exception {
@@ -30,6 +30,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -179,24 +180,122 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 assertEquals("RecommendationRequest with id 7 not found", json.get("message"));
         }
 
+        // Tests for PATCH /api/RecommendationRequest?id=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch_recommendationrequest() throws Exception {
+                mockMvc.perform(patch("/api/RecommendationRequest?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
-        public void admin_can_delete_a_request() throws Exception {
+        public void admin_can_patch_one_field_of_recommendationrequest() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-                LocalDateTime ldt1b = LocalDateTime.parse("2022-02-03T00:00:00");
+                RecommendationRequest recommendationRequestOrig = RecommendationRequest.builder()
+                                .requesterEmail("student@ucsb.edu")
+                                .professorEmail("professor@ucsb.edu")
+                                .explanation("Letter of Rec")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(false)
+                                .version(3L)
+                                .build();
 
-                RecommendationRequest RecommendationRequest1 = RecommendationRequest.builder()
+                RecommendationRequest recommendationRequestPatched = RecommendationRequest.builder()
                                 .requesterEmail("student@ucsb.edu")
                                 .professorEmail("professor@ucsb.edu")
                                 .explanation("Letter of Rec")
-                                .dateRequested(ldt1)
-                                .dateNeeded(ldt1b)
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(true)
+                                .version(3L)
+                                .build();
+
+                when(RecommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(recommendationRequestOrig));
+                when(RecommendationRequestRepository.save(eq(recommendationRequestPatched))).thenReturn(recommendationRequestPatched);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/RecommendationRequest?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(RecommendationRequestRepository, times(1)).save(recommendationRequestPatched);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(recommendationRequestPatched), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_recommendationrequest_at_a_stale_version() throws Exception {
+                // arrange
+
+                RecommendationRequest recommendationRequestOrig = RecommendationRequest.builder()
+                                .requesterEmail("student@ucsb.edu")
+                                .professorEmail("professor@ucsb.edu")
+                                .explanation("Letter of Rec")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
                                 .done(false)
+                                .version(4L)
                                 .build();
 
-                when(RecommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(RecommendationRequest1));
+                when(RecommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(recommendationRequestOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/RecommendationRequest?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(RecommendationRequestRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_recommendationrequest_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(RecommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/RecommendationRequest?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_request() throws Exception {
+                // arrange
+
+                when(RecommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -205,8 +304,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(RecommendationRequestRepository, times(1)).findById(15L);
-                verify(RecommendationRequestRepository, times(1)).delete(any());
+                verify(RecommendationRequestRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 deleted", json.get("message"));
@@ -216,14 +314,14 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @Test
         public void admin_tries_to_delete_non_existant_recommendationrequest_and_gets_right_error_message()
                         throws Exception {
-                when(RecommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(RecommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(0);
                 MvcResult response = mockMvc.perform(
                                 delete("/api/RecommendationRequest?id=15")
                                                 .with(csrf()))
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(RecommendationRequestRepository, times(1)).findById(15L);
+                verify(RecommendationRequestRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
@@ -259,6 +357,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(RecommendationRequestEdited);
 
                 when(RecommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(RecommendationRequestOrig));
+                when(RecommendationRequestRepository.save(eq(RecommendationRequestEdited))).thenReturn(RecommendationRequestEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -277,6 +376,120 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         }
 
         
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_recommendationrequest_at_the_expected_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T05:03:27");
+
+                RecommendationRequest RecommendationRequestEdited = RecommendationRequest.builder()
+                                .requesterEmail("student1@ucsb.edu")
+                                .professorEmail("professor1@ucsb.edu")
+                                .explanation("Second Letter of Rec")
+                                .dateRequested(ldt2)
+                                .dateNeeded(ldt2)
+                                .done(true)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(RecommendationRequestEdited);
+
+                when(RecommendationRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(RecommendationRequestEdited))).thenReturn(1);
+                // the row as stored, which is what the response should be
+                RecommendationRequest stored = mapper.readValue(requestBody, RecommendationRequest.class);
+                stored.setId(67L);
+                stored.setVersion(4L);
+                when(RecommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/RecommendationRequest?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(RecommendationRequestRepository, times(1)).findById(67L);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(stored), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_recommendationrequest_at_a_stale_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T05:03:27");
+
+                RecommendationRequest RecommendationRequestEdited = RecommendationRequest.builder()
+                                .requesterEmail("student1@ucsb.edu")
+                                .professorEmail("professor1@ucsb.edu")
+                                .explanation("Second Letter of Rec")
+                                .dateRequested(ldt2)
+                                .dateNeeded(ldt2)
+                                .done(true)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(RecommendationRequestEdited);
+
+                when(RecommendationRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(RecommendationRequestEdited))).thenReturn(0);
+                when(RecommendationRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/RecommendationRequest?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("RecommendationRequest with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_conditionally_edit_recommendationrequest_that_does_not_exist() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T05:03:27");
+
+                RecommendationRequest RecommendationRequestEdited = RecommendationRequest.builder()
+                                .requesterEmail("student1@ucsb.edu")
+                                .professorEmail("professor1@ucsb.edu")
+                                .explanation("Second Letter of Rec")
+                                .dateRequested(ldt2)
+                                .dateNeeded(ldt2)
+                                .done(true)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(RecommendationRequestEdited);
+
+                when(RecommendationRequestRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(RecommendationRequestEdited))).thenReturn(0);
+                when(RecommendationRequestRepository.existsById(eq(67L))).thenReturn(false);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/RecommendationRequest?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_recommendationrequest_that_does_not_exist() throws Exception {
@@ -2,13 +2,23 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import edu.ucsb.cs156.example.config.MessageConvertersConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.UCSBDateCalendarService;
+import edu.ucsb.cs156.example.services.UCSBDateFeedService;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -27,13 +37,15 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, MessageConvertersConfig.class })
 public class UCSBDatesControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -42,6 +54,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        UCSBDateCalendarService ucsbDateCalendarService;
+
+        @MockBean
+        UCSBDateFeedService ucsbDateFeedService;
+
         // Tests for GET /api/ucsbdates/all
         
         @Test
@@ -95,6 +113,193 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_ucsbdates_as_cbor() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                when(ucsbDateRepository.findAll()).thenReturn(List.of(ucsbDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all")
+                                .accept(MediaType.APPLICATION_CBOR))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_CBOR)).andReturn();
+
+                // assert
+                JsonNode decoded = new ObjectMapper(new CBORFactory()).readTree(response.getResponse().getContentAsByteArray());
+                assertEquals(mapper.readTree(mapper.writeValueAsString(List.of(ucsbDate1))), decoded);
+                assertEquals("2022-01-03T00:00:00", decoded.get(0).get("localDateTime").asText());
+        }
+
+        // Tests for GET /api/ucsbdates/between, /upcoming and /quarter
+
+        @Test
+        public void logged_out_users_cannot_get_date_ranges() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/between?start=2022-01-01T00:00:00&end=2022-02-01T00:00:00"))
+                                .andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20222"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_dates_between() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                LocalDateTime start = LocalDateTime.parse("2022-01-01T00:00:00");
+                LocalDateTime end = LocalDateTime.parse("2022-02-01T00:00:00");
+                when(ucsbDateCalendarService.between(start, end)).thenReturn(List.of(ucsbDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/between?start=2022-01-01T00:00:00&end=2022-02-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateCalendarService, times(1)).between(start, end);
+                String expectedJson = mapper.writeValueAsString(List.of(ucsbDate1));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_upcoming_dates() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate2 = UCSBDate.builder()
+                                .id(2L)
+                                .name("lastDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                when(ucsbDateCalendarService.upcoming(10)).thenReturn(List.of(ucsbDate2));
+                when(ucsbDateCalendarService.upcoming(3)).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult limited = mockMvc.perform(get("/api/ucsbdates/upcoming?limit=3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateCalendarService, times(1)).upcoming(10);
+                verify(ucsbDateCalendarService, times(1)).upcoming(3);
+                assertEquals(mapper.writeValueAsString(List.of(ucsbDate2)), response.getResponse().getContentAsString());
+                assertEquals("[]", limited.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_dates_in_a_quarter() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateCalendarService.inQuarter("20222")).thenReturn(List.of(ucsbDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20222"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateCalendarService, times(1)).inQuarter("20222");
+                String expectedJson = mapper.writeValueAsString(List.of(ucsbDate1));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdates/quarter.ics?quarterYYYYQ=...
+
+        private final UCSBDateFeedService.Feed feed = new UCSBDateFeedService.Feed(
+                        "BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n".getBytes(StandardCharsets.UTF_8), "W/\"abc123\"");
+
+        @Test
+        public void anyone_can_get_the_calendar_feed() throws Exception {
+                // arrange
+                when(ucsbDateFeedService.feed("20222")).thenReturn(Optional.of(feed));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter.ics?quarterYYYYQ=20222"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc123\""))
+                                .andExpect(header().string("Cache-Control", "no-cache"))
+                                .andExpect(header().string("Content-Disposition", "inline; filename=\"ucsb-dates-20222.ics\""))
+                                .andExpect(content().contentType("text/calendar;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateFeedService, times(1)).feed("20222");
+                assertEquals("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void calendar_feed_is_not_modified_when_the_etag_matches() throws Exception {
+                // arrange
+                when(ucsbDateFeedService.feed("20222")).thenReturn(Optional.of(feed));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter.ics?quarterYYYYQ=20222")
+                                                .header("If-None-Match", "W/\"abc123\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc123\""))
+                                .andReturn();
+
+                // assert
+                assertEquals(0, response.getResponse().getContentLength());
+        }
+
+        @Test
+        public void calendar_feed_is_sent_again_when_the_etag_is_stale() throws Exception {
+                // arrange
+                when(ucsbDateFeedService.feed("20222")).thenReturn(Optional.of(feed));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter.ics?quarterYYYYQ=20222")
+                                                .header("If-None-Match", "\"old\""))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void a_quarter_without_a_feed_is_not_found() throws Exception {
+                // arrange
+                when(ucsbDateFeedService.feed("20224")).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter.ics?quarterYYYYQ=20224"))
+                                .andExpect(status().isNotFound())
+                                .andReturn();
+
+                // assert
+                assertEquals(null, response.getResponse().getHeader("Content-Disposition"));
+        }
+
         // Tests for POST /api/ucsbdates/post...
 
         @Test
@@ -133,6 +338,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(ucsbDateCalendarService, times(1)).put(ucsbDate1);
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -194,22 +400,117 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         }
 
 
-        // Tests for DELETE /api/ucsbdates?id=... 
+        // Tests for PATCH /api/ucsbdates?id=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch_ucsbdate() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdates?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"name\": \"firstDayOfFestivus\"}")
+                                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
-        public void admin_can_delete_a_date() throws Exception {
+        public void admin_can_patch_one_field_of_ucsbdate() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                UCSBDate ucsbDate1 = UCSBDate.builder()
+                UCSBDate ucsbDateOrig = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
                                 .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                UCSBDate ucsbDatePatched = UCSBDate.builder()
                                 .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
+                                .name("firstDayOfFestivus")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(eq(ucsbDatePatched))).thenReturn(ucsbDatePatched);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"name\": \"firstDayOfFestivus\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).save(ucsbDatePatched);
+                verify(ucsbDateCalendarService, times(1)).put(ucsbDatePatched);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(ucsbDatePatched), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_ucsbdate_at_a_stale_version() throws Exception {
+                // arrange
+
+                UCSBDate ucsbDateOrig = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(4L)
                                 .build();
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"name\": \"firstDayOfFestivus\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).save(any());
+                verify(ucsbDateCalendarService, never()).put(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_ucsbdate_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"name\": \"firstDayOfFestivus\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/ucsbdates?id=... 
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_date() throws Exception {
+                // arrange
+
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -218,8 +519,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(ucsbDateCalendarService, times(1)).remove(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -231,7 +532,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -240,11 +541,41 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(ucsbDateCalendarService, never()).remove(anyLong());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
 
+        // Tests for DELETE /api/ucsbdates/quarter?quarterYYYYQ=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_delete_a_quarter() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdates/quarter?quarterYYYYQ=20222").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_every_date_in_a_quarter() throws Exception {
+                // arrange
+
+                when(ucsbDateRepository.deleteAllByQuarter(eq("20222"))).thenReturn(3);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates/quarter?quarterYYYYQ=20222")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).deleteAllByQuarter("20222");
+                verify(ucsbDateCalendarService, times(1)).removeQuarter("20222");
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("3 UCSBDates in quarter 20222 deleted", json.get("message"));
+        }
+
         // Tests for PUT /api/ucsbdates?id=... 
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -270,6 +601,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
                 when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(eq(ucsbDateEdited))).thenReturn(ucsbDateEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -283,11 +615,154 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(67L);
                 verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateCalendarService, times(1)).put(ucsbDateEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
 
         
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_an_existing_ucsbdate_in_smile() throws Exception {
+                // arrange
+                UCSBDate ucsbDateOrig = UCSBDate.builder()
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .name("firstDayOfFestivus")
+                                .quarterYYYYQ("20232")
+                                .localDateTime(LocalDateTime.parse("2023-01-03T00:00:00"))
+                                .build();
+
+                ObjectMapper smile = new ObjectMapper(new SmileFactory());
+                byte[] requestBody = smile.writeValueAsBytes(mapper.readTree(mapper.writeValueAsString(ucsbDateEdited)));
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(eq(ucsbDateEdited))).thenReturn(ucsbDateEdited);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType("application/x-jackson-smile")
+                                                .accept("application/x-jackson-smile")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).save(ucsbDateEdited);
+                assertEquals(smile.readTree(requestBody), smile.readTree(response.getResponse().getContentAsByteArray()));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_ucsbdate_at_the_expected_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+
+                UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .name("firstDayOfFestivus")
+                                .quarterYYYYQ("20232")
+                                .localDateTime(ldt2)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbDateEdited);
+
+                when(ucsbDateRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(ucsbDateEdited))).thenReturn(1);
+                // the row as stored, which is what the response should be
+                UCSBDate stored = mapper.readValue(requestBody, UCSBDate.class);
+                stored.setId(67L);
+                stored.setVersion(4L);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findById(67L);
+                verify(ucsbDateCalendarService, times(1)).put(any(UCSBDate.class));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(stored), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_ucsbdate_at_a_stale_version() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+
+                UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .name("firstDayOfFestivus")
+                                .quarterYYYYQ("20232")
+                                .localDateTime(ldt2)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbDateEdited);
+
+                when(ucsbDateRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(ucsbDateEdited))).thenReturn(0);
+                when(ucsbDateRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("UCSBDate with id 67 is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_conditionally_edit_ucsbdate_that_does_not_exist() throws Exception {
+                // arrange
+
+                LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
+
+                UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .name("firstDayOfFestivus")
+                                .quarterYYYYQ("20232")
+                                .localDateTime(ldt2)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbDateEdited);
+
+                when(ucsbDateRepository.updateIfVersionMatches(eq(67L), eq(3L), eq(ucsbDateEdited))).thenReturn(0);
+                when(ucsbDateRepository.existsById(eq(67L))).thenReturn(false);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 not found", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_ucsbdate_that_does_not_exist() throws Exception {
@@ -3,19 +3,34 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import edu.ucsb.cs156.example.services.ReferenceTableService;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
-
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.models.DiningCommonsMenu;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.models.RatedMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -23,9 +38,11 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +57,20 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+
+        @MockBean
+
+        ReferenceListCache referenceListCache;
+
+        @MockBean
+        ReferenceTableService referenceTables;
+
+        @MockBean
+        DiningCommonsLocationService diningCommonsLocationService;
+
+        @MockBean
+        MenuItemReviewRepository menuItemReviewRepository;
+
         // Tests for GET /api/ucsbdiningcommons/all
 
         @Test
@@ -51,6 +82,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(referenceListCache.get(eq(Listing.DINING_COMMONS), any()))
+                                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_JSON, "[]".getBytes(), new byte[0]));
                 mockMvc.perform(get("/api/ucsbdiningcommons/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -61,7 +94,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(referenceTables.diningCommons(eq("munger-hall"))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=munger-hall"))
@@ -69,7 +102,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("munger-hall"));
+                verify(referenceTables, times(1)).diningCommons(eq("munger-hall"));
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
@@ -104,20 +138,185 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 ArrayList<UCSBDiningCommons> expectedCommons = new ArrayList<>();
                 expectedCommons.addAll(Arrays.asList(carrillo, dlg));
 
-                when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
+                String expectedJson = mapper.writeValueAsString(expectedCommons);
+                when(referenceListCache.get(Listing.DINING_COMMONS, "application/json"))
+                                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_JSON, expectedJson.getBytes(), new byte[0]));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all").accept(MediaType.APPLICATION_JSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING)).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_is_sent_gzipped_to_clients_that_take_gzip() throws Exception {
+                byte[] gzipped = { 31, -117, 8, 0 };
+                when(referenceListCache.get(Listing.DINING_COMMONS, "application/cbor"))
+                                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_CBOR, new byte[] { -128 }, gzipped));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all")
+                                .accept(MediaType.APPLICATION_CBOR)
+                                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip")).andReturn();
+
+                assertArrayEquals(gzipped, response.getResponse().getContentAsByteArray());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_is_not_acceptable_in_other_formats() throws Exception {
+                when(referenceListCache.get(Listing.DINING_COMMONS, "text/html"))
+                                .thenThrow(new HttpMediaTypeNotAcceptableException(List.of(MediaType.APPLICATION_JSON)));
+
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").accept(MediaType.TEXT_HTML))
+                                .andExpect(status().isNotAcceptable());
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/menu?code=...
+
+        @Test
+        public void logged_out_users_cannot_get_menu() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/menu?code=ortega"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_menu_with_ratings() throws Exception {
+                // arrange
+
+                UCSBDiningCommonsMenuItems salad = UCSBDiningCommonsMenuItems.builder()
+                                .id(12L)
+                                .diningCommonsCode("ortega")
+                                .name("Salad")
+                                .station("Greens")
+                                .build();
+
+                UCSBDiningCommonsMenuItems burger = UCSBDiningCommonsMenuItems.builder()
+                                .id(7L)
+                                .diningCommonsCode("ortega")
+                                .name("Burger")
+                                .station("Grill")
+                                .build();
+
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .code("ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .menuItems(List.of(salad, burger))
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findWithMenuItemsByCode(eq("ortega"))).thenReturn(Optional.of(ortega));
+                when(menuItemReviewRepository.findRatingsByDiningCommonsCode(eq("ortega")))
+                                .thenReturn(List.of(new MenuItemRating(7L, 2L, 4.5)));
 
                 // act
-                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/menu?code=ortega"))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findWithMenuItemsByCode("ortega");
+                verify(menuItemReviewRepository, times(1)).findRatingsByDiningCommonsCode("ortega");
+                DiningCommonsMenu expected = DiningCommonsMenu.builder()
+                                .commons(ortega)
+                                .items(List.of(
+                                                RatedMenuItem.builder().item(burger).reviewCount(2).averageStars(4.5).build(),
+                                                RatedMenuItem.builder().item(salad).reviewCount(0).averageStars(null).build()))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
 
-                verify(ucsbDiningCommonsRepository, times(1)).findAll();
-                String expectedJson = mapper.writeValueAsString(expectedCommons);
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void menu_of_commons_that_does_not_exist_is_not_found() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.findWithMenuItemsByCode(eq("munger-hall"))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/menu?code=munger-hall"))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).findRatingsByDiningCommonsCode(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_nearest_commons() throws Exception {
+                // arrange
+
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .code("ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                List<NearbyDiningCommons> nearest = List.of(NearbyDiningCommons.builder()
+                                .commons(ortega)
+                                .distanceMeters(125.5)
+                                .build());
+
+                when(diningCommonsLocationService.nearest(34.41, -119.85, 1, null, null)).thenReturn(nearest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearest(34.41, -119.85, 1, null, null);
+                String expectedJson = mapper.writeValueAsString(nearest);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_passes_k_and_filters_through() throws Exception {
+                // arrange
+
+                when(diningCommonsLocationService.nearest(34.41, -119.85, 3, true, false)).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85&k=3&hasSackMeal=true&hasTakeOutMeal=false"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearest(34.41, -119.85, 3, true, false);
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
         // Tests for POST /api/ucsbdiningcommons...
 
         @Test
@@ -158,11 +357,36 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(diningCommonsLocationService, times(1)).reload();
+                verify(referenceTables, times(1)).reloadDiningCommons();
+                verify(referenceListCache, times(1)).invalidate(Listing.DINING_COMMONS);
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_cannot_post_a_commons_that_already_exists() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate",
+                                new SQLException("Unique index or primary key violation", "23505")));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommons/post?name=Ortega&code=ortega&hasSackMeal=true&hasTakeOutMeal=true&hasDiningCam=true&latitude=34.410987&longitude=-119.84709")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, never()).reload();
+                verify(referenceTables, never()).reloadDiningCommons();
+                verify(referenceListCache, never()).invalidate(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("A row with this key already exists", json.get("message"));
+        }
+
 
         // Tests for GET /api/ucsbdiningcommons?...
 
@@ -188,7 +412,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.85277)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(commons));
+                when(referenceTables.diningCommons(eq("carrillo"))).thenReturn(Optional.of(commons));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo"))
@@ -196,12 +420,132 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("carrillo"));
+                verify(referenceTables, times(1)).diningCommons(eq("carrillo"));
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
                 String expectedJson = mapper.writeValueAsString(commons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for PATCH /api/ucsbdiningcommons?code=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_patch_commons() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"hasSackMeal\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_one_field_of_commons() throws Exception {
+                // arrange
+
+                UCSBDiningCommons carrilloOrig = UCSBDiningCommons.builder()
+                                .code("carrillo")
+                                .name("Carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .version(3L)
+                                .build();
+
+                UCSBDiningCommons carrilloPatched = UCSBDiningCommons.builder()
+                                .code("carrillo")
+                                .name("Carrillo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .version(3L)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.save(eq(carrilloPatched))).thenReturn(carrilloPatched);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"hasSackMeal\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).save(carrilloPatched);
+                verify(diningCommonsLocationService, times(1)).reload();
+                verify(referenceTables, times(1)).reloadDiningCommons();
+                verify(referenceListCache, times(1)).invalidate(Listing.DINING_COMMONS);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(carrilloPatched), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_commons_at_a_stale_version() throws Exception {
+                // arrange
+
+                UCSBDiningCommons carrilloOrig = UCSBDiningCommons.builder()
+                                .code("carrillo")
+                                .name("Carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .version(4L)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .header("If-Match", "3")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"hasSackMeal\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).save(any());
+                verify(diningCommonsLocationService, never()).reload();
+                verify(referenceTables, never()).reloadDiningCommons();
+                verify(referenceListCache, never()).invalidate(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_commons_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"hasSackMeal\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo not found", json.get("message"));
+        }
+
         // Tests for DELETE /api/ucsbdiningcommons?...
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -219,7 +563,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.867427)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("portola"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,8 +572,10 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("portola");
+                verify(diningCommonsLocationService, times(1)).reload();
+                verify(referenceTables, times(1)).reloadDiningCommons();
+                verify(referenceListCache, times(1)).invalidate(Listing.DINING_COMMONS);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -241,7 +587,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("munger-hall"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -250,11 +596,38 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("munger-hall");
+                verify(diningCommonsLocationService, never()).reload();
+                verify(referenceTables, never()).reloadDiningCommons();
+                verify(referenceListCache, never()).invalidate(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_commons_that_still_has_menu_items() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("ortega")))
+                                .thenThrow(new DataIntegrityViolationException("FK violation",
+                                                new SQLException("Referential integrity constraint violation", "23503")));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommons?code=ortega")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, never()).reload();
+                verify(referenceTables, never()).reloadDiningCommons();
+                verify(referenceListCache, never()).invalidate(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("DataIntegrityViolationException", json.get("type"));
+                assertEquals("This change would leave a reference to a row that does not exist", json.get("message"));
+        }
+
         // Tests for PUT /api/ucsbdiningcommons?...
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -285,6 +658,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
                 when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.save(eq(carrilloEdited))).thenReturn(carrilloEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -298,11 +672,128 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
                 verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(diningCommonsLocationService, times(1)).reload();
+                verify(referenceTables, times(1)).reloadDiningCommons();
+                verify(referenceListCache, times(1)).invalidate(Listing.DINING_COMMONS);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
 
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_commons_at_the_expected_version() throws Exception {
+                // arrange
+
+                UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
+                                .name("Carrillo Dining Hall")
+                                .code("carrillo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(false)
+                                .latitude(34.409954)
+                                .longitude(-119.85278)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(carrilloEdited);
+
+                when(ucsbDiningCommonsRepository.updateIfVersionMatches(eq("carrillo"), eq(3L), eq(carrilloEdited))).thenReturn(1);
+                // the row as stored, which is what the response should be
+                UCSBDiningCommons stored = mapper.readValue(requestBody, UCSBDiningCommons.class);
+                stored.setCode("carrillo");
+                stored.setVersion(4L);
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=carrillo")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
+                verify(diningCommonsLocationService, times(1)).reload();
+                verify(referenceTables, times(1)).reloadDiningCommons();
+                verify(referenceListCache, times(1)).invalidate(Listing.DINING_COMMONS);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(stored), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_commons_at_a_stale_version() throws Exception {
+                // arrange
+
+                UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
+                                .name("Carrillo Dining Hall")
+                                .code("carrillo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(false)
+                                .latitude(34.409954)
+                                .longitude(-119.85278)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(carrilloEdited);
+
+                when(ucsbDiningCommonsRepository.updateIfVersionMatches(eq("carrillo"), eq(3L), eq(carrilloEdited))).thenReturn(0);
+                when(ucsbDiningCommonsRepository.existsById(eq("carrillo"))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=carrillo")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("UCSBDiningCommons with id carrillo is not at version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_conditionally_edit_commons_that_does_not_exist() throws Exception {
+                // arrange
+
+                UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
+                                .name("Carrillo Dining Hall")
+                                .code("carrillo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(false)
+                                .latitude(34.409954)
+                                .longitude(-119.85278)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(carrilloEdited);
+
+                when(ucsbDiningCommonsRepository.updateIfVersionMatches(eq("carrillo"), eq(3L), eq(carrilloEdited))).thenReturn(0);
+                when(ucsbDiningCommonsRepository.existsById(eq("carrillo"))).thenReturn(false);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=carrillo")
+                                                .header("If-Match", "3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo not found", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_commons_that_does_not_exist() throws Exception {
@@ -3,19 +3,25 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import edu.ucsb.cs156.example.services.MenuItemSuggestService;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -24,9 +30,13 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -41,6 +51,14 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
     @MockBean
     UserRepository userRepository;
 
+
+    @MockBean
+
+    ReferenceListCache referenceListCache;
+
+    @MockBean
+    MenuItemSuggestService menuItemSuggestService;
+
     // Tests for GET /api/ucsbdiningcommonsmenuitem/all
 
     @Test
@@ -52,6 +70,8 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
+        when(referenceListCache.get(eq(Listing.MENU_ITEMS), any()))
+                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_JSON, "[]".getBytes(), new byte[0]));
         mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all"))
                 .andExpect(status().is(200)); // logged
     }
@@ -71,20 +91,99 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
         ArrayList<UCSBDiningCommonsMenuItems> expectedItems = new ArrayList<>();
         expectedItems.addAll(Arrays.asList(item1, item2));
 
-        when(ucsbDiningCommonsmenuitemrepository.findAll()).thenReturn(expectedItems);
+        String expectedJson = mapper.writeValueAsString(expectedItems);
+        when(referenceListCache.get(Listing.MENU_ITEMS, "application/json"))
+                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_JSON, expectedJson.getBytes(), new byte[0]));
 
         // act
-        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all"))
-                .andExpect(status().isOk()).andReturn();
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING)).andReturn();
 
         // assert
 
-        verify(ucsbDiningCommonsmenuitemrepository, times(1)).findAll();
-        String expectedJson = mapper.writeValueAsString(expectedItems);
+        verify(ucsbDiningCommonsmenuitemrepository, never()).findAll();
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_is_sent_gzipped_to_clients_that_take_gzip() throws Exception {
+        byte[] gzipped = { 31, -117, 8, 0 };
+        when(referenceListCache.get(Listing.MENU_ITEMS, "application/cbor"))
+                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_CBOR, new byte[] { -128 }, gzipped));
+
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip")).andReturn();
+
+        assertArrayEquals(gzipped, response.getResponse().getContentAsByteArray());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_is_not_acceptable_in_other_formats() throws Exception {
+        when(referenceListCache.get(Listing.MENU_ITEMS, "text/html"))
+                .thenThrow(new HttpMediaTypeNotAcceptableException(List.of(MediaType.APPLICATION_JSON)));
+
+        mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all").accept(MediaType.TEXT_HTML))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    // Tests for GET /api/ucsbdiningcommonsmenuitems/suggest
+
+    @Test
+    public void logged_out_users_cannot_get_suggestions() throws Exception {
+        mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/suggest?prefix=bur"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_suggestions() throws Exception {
+        // arrange
+
+        UCSBDiningCommonsMenuItems item1 = UCSBDiningCommonsMenuItems.builder()
+                .id(7L)
+                .diningCommonsCode("DLG1")
+                .name("BURGER")
+                .station("Burger Station").build();
+
+        when(menuItemSuggestService.suggest("bur", 10)).thenReturn(List.of(item1));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/suggest?prefix=bur"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemSuggestService, times(1)).suggest("bur", 10);
+        String expectedJson = mapper.writeValueAsString(List.of(item1));
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
     }
 
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void suggestions_use_the_given_limit() throws Exception {
+        // arrange
+
+        when(menuItemSuggestService.suggest("b", 3)).thenReturn(List.of());
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/suggest?prefix=b&limit=3"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemSuggestService, times(1)).suggest("b", 3);
+        assertEquals("[]", response.getResponse().getContentAsString());
+    }
+
     // Tests for POST /api/ucsbdiningcommons/post...
 
     @Test
@@ -120,6 +219,8 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
 
         // assert
         verify(ucsbDiningCommonsmenuitemrepository, times(1)).save(item1);
+        verify(menuItemSuggestService, times(1)).put(item1);
+        verify(referenceListCache, times(1)).invalidate(Listing.MENU_ITEMS);
         String expectedJson = mapper.writeValueAsString(item1);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
@@ -198,6 +299,7 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
         String requestBody = mapper.writeValueAsString(itemEdited);
 
         when(ucsbDiningCommonsmenuitemrepository.findById(eq(67L))).thenReturn(Optional.of(itemOrig));
+        when(ucsbDiningCommonsmenuitemrepository.save(eq(itemEdited))).thenReturn(itemEdited);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -211,10 +313,110 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
         // assert
         verify(ucsbDiningCommonsmenuitemrepository, times(1)).findById(67L);
         verify(ucsbDiningCommonsmenuitemrepository, times(1)).save(itemEdited); // should be saved with correct user
+        verify(menuItemSuggestService, times(1)).put(itemEdited);
+        verify(referenceListCache, times(1)).invalidate(Listing.MENU_ITEMS);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(requestBody, responseString);
     }
 
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_edit_menuitem_at_the_expected_version() throws Exception {
+        // arrange
+
+        UCSBDiningCommonsMenuItems itemEdited = UCSBDiningCommonsMenuItems.builder()
+                .diningCommonsCode("CAR")
+                .name("RICE")
+                .station("Rice station").build();
+
+        String requestBody = mapper.writeValueAsString(itemEdited);
+
+        when(ucsbDiningCommonsmenuitemrepository.updateIfVersionMatches(eq(67L), eq(3L), eq(itemEdited))).thenReturn(1);
+        // the row as stored, which is what the response should be
+        UCSBDiningCommonsMenuItems stored = mapper.readValue(requestBody, UCSBDiningCommonsMenuItems.class);
+        stored.setId(67L);
+        stored.setVersion(4L);
+        when(ucsbDiningCommonsmenuitemrepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsbdiningcommonsmenuitems?id=67")
+                        .header("If-Match", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsmenuitemrepository, times(1)).findById(67L);
+        verify(menuItemSuggestService, times(1)).put(any(UCSBDiningCommonsMenuItems.class));
+        verify(referenceListCache, times(1)).invalidate(Listing.MENU_ITEMS);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(mapper.writeValueAsString(stored), responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_edit_menuitem_at_a_stale_version() throws Exception {
+        // arrange
+
+        UCSBDiningCommonsMenuItems itemEdited = UCSBDiningCommonsMenuItems.builder()
+                .diningCommonsCode("CAR")
+                .name("RICE")
+                .station("Rice station").build();
+
+        String requestBody = mapper.writeValueAsString(itemEdited);
+
+        when(ucsbDiningCommonsmenuitemrepository.updateIfVersionMatches(eq(67L), eq(3L), eq(itemEdited))).thenReturn(0);
+        when(ucsbDiningCommonsmenuitemrepository.existsById(eq(67L))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsbdiningcommonsmenuitems?id=67")
+                        .header("If-Match", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("PreconditionFailedException", json.get("type"));
+        assertEquals("UCSBDiningCommonsMenuItems with id 67 is not at version 3", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_conditionally_edit_menuitem_that_does_not_exist() throws Exception {
+        // arrange
+
+        UCSBDiningCommonsMenuItems itemEdited = UCSBDiningCommonsMenuItems.builder()
+                .diningCommonsCode("CAR")
+                .name("RICE")
+                .station("Rice station").build();
+
+        String requestBody = mapper.writeValueAsString(itemEdited);
+
+        when(ucsbDiningCommonsmenuitemrepository.updateIfVersionMatches(eq(67L), eq(3L), eq(itemEdited))).thenReturn(0);
+        when(ucsbDiningCommonsmenuitemrepository.existsById(eq(67L))).thenReturn(false);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsbdiningcommonsmenuitems?id=67")
+                        .header("If-Match", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBDiningCommonsMenuItems with id 67 not found", json.get("message"));
+    }
+
     @WithMockUser(roles = { "ADMIN", "USER" })
     @Test
     public void admin_cannot_edit_ucsbdiningcommonsmenuitem_that_does_not_exist() throws Exception {
@@ -244,6 +446,111 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
 
     }
 
+    // Tests for PATCH /api/ucsbdiningcommonsmenuitems?id=...
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_patch_menuitem() throws Exception {
+        mockMvc.perform(patch("/api/ucsbdiningcommonsmenuitems?id=67")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"station\": \"Entrees\"}")
+                        .with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_patch_one_field_of_menuitem() throws Exception {
+        // arrange
+
+        UCSBDiningCommonsMenuItems itemOrig = UCSBDiningCommonsMenuItems.builder()
+                .diningCommonsCode("CAR")
+                .name("RICE")
+                .station("Rice station")
+                .version(3L)
+                .build();
+
+        UCSBDiningCommonsMenuItems itemPatched = UCSBDiningCommonsMenuItems.builder()
+                .diningCommonsCode("CAR")
+                .name("RICE")
+                .station("Entrees")
+                .version(3L)
+                .build();
+
+        when(ucsbDiningCommonsmenuitemrepository.findById(eq(67L))).thenReturn(Optional.of(itemOrig));
+        when(ucsbDiningCommonsmenuitemrepository.save(eq(itemPatched))).thenReturn(itemPatched);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsbdiningcommonsmenuitems?id=67")
+                        .header("If-Match", "\"3\"")
+                        .contentType("application/merge-patch+json")
+                        .characterEncoding("utf-8")
+                        .content("{\"station\": \"Entrees\"}")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsmenuitemrepository, times(1)).save(itemPatched);
+        verify(menuItemSuggestService, times(1)).put(itemPatched);
+        verify(referenceListCache, times(1)).invalidate(Listing.MENU_ITEMS);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(mapper.writeValueAsString(itemPatched), responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_menuitem_at_a_stale_version() throws Exception {
+        // arrange
+
+        UCSBDiningCommonsMenuItems itemOrig = UCSBDiningCommonsMenuItems.builder()
+                .diningCommonsCode("CAR")
+                .name("RICE")
+                .station("Rice station")
+                .version(4L)
+                .build();
+
+        when(ucsbDiningCommonsmenuitemrepository.findById(eq(67L))).thenReturn(Optional.of(itemOrig));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsbdiningcommonsmenuitems?id=67")
+                        .header("If-Match", "3")
+                        .contentType("application/merge-patch+json")
+                        .characterEncoding("utf-8")
+                        .content("{\"station\": \"Entrees\"}")
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsmenuitemrepository, never()).save(any());
+        verify(menuItemSuggestService, never()).put(any());
+        verify(referenceListCache, never()).invalidate(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBDiningCommonsMenuItems with id 67 is not at version 3", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_menuitem_that_does_not_exist() throws Exception {
+        // arrange
+
+        when(ucsbDiningCommonsmenuitemrepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsbdiningcommonsmenuitems?id=67")
+                        .contentType("application/merge-patch+json")
+                        .characterEncoding("utf-8")
+                        .content("{\"station\": \"Entrees\"}")
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBDiningCommonsMenuItems with id 67 not found", json.get("message"));
+    }
+
     // Tests for DELETE /api/ucsbdiningcommonsmenuitem?id=...
 
     @WithMockUser(roles = { "ADMIN", "USER" })
@@ -251,12 +558,7 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
     public void admin_can_delete_a_ucsbdiningcommonsmenuitem() throws Exception {
         // arrange
 
-        UCSBDiningCommonsMenuItems menuItem = UCSBDiningCommonsMenuItems.builder()
-                .diningCommonsCode("DLG1")
-                .name("BURGER")
-                .station("Burger Station").build();
-
-        when(ucsbDiningCommonsmenuitemrepository.findById(eq(15L))).thenReturn(Optional.of(menuItem));
+        when(ucsbDiningCommonsmenuitemrepository.deleteRowById(eq(15L))).thenReturn(1);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -265,8 +567,9 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
                 .andExpect(status().isOk()).andReturn();
 
         // assert
-        verify(ucsbDiningCommonsmenuitemrepository, times(1)).findById(15L);
-        verify(ucsbDiningCommonsmenuitemrepository, times(1)).delete(any());
+        verify(ucsbDiningCommonsmenuitemrepository, times(1)).deleteRowById(15L);
+        verify(menuItemSuggestService, times(1)).remove(15L);
+        verify(referenceListCache, times(1)).invalidate(Listing.MENU_ITEMS);
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -278,7 +581,7 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
             throws Exception {
         // arrange
 
-        when(ucsbDiningCommonsmenuitemrepository.findById(eq(15L))).thenReturn(Optional.empty());
+        when(ucsbDiningCommonsmenuitemrepository.deleteRowById(eq(15L))).thenReturn(0);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -287,7 +590,9 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
                 .andExpect(status().isNotFound()).andReturn();
 
         // assert
-        verify(ucsbDiningCommonsmenuitemrepository, times(1)).findById(15L);
+        verify(ucsbDiningCommonsmenuitemrepository, times(1)).deleteRowById(15L);
+        verify(menuItemSuggestService, never()).remove(anyLong());
+        verify(referenceListCache, never()).invalidate(any());
         Map<String, Object> json = responseToJson(response);
         assertEquals("UCSBDiningCommonsMenuItems with id 15 not found", json.get("message"));
     }
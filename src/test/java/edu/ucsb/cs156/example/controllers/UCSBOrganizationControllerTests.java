@@ -3,19 +3,28 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.ReferenceListCache;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import edu.ucsb.cs156.example.services.ReferenceTableService;
+import edu.ucsb.cs156.example.services.OrganizationSuggestService;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -23,9 +32,13 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +53,17 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+
+    @MockBean
+
+    ReferenceListCache referenceListCache;
+
+    @MockBean
+    ReferenceTableService referenceTables;
+
+    @MockBean
+    OrganizationSuggestService organizationSuggestService;
+
     // Tests for GET /api/ucsborganizations/all
 
     @Test
@@ -51,6 +75,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
+        when(referenceListCache.get(eq(Listing.ORGANIZATIONS), any()))
+                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_JSON, "[]".getBytes(), new byte[0]));
         mockMvc.perform(get("/api/ucsborganizations/all"))
                 .andExpect(status().is(200)); // logged
     }
@@ -61,7 +87,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
         // arrange
 
-        when(ucsbOrganizationRepository.findById(eq("TEST"))).thenReturn(Optional.empty());
+        when(referenceTables.organization(eq("TEST"))).thenReturn(Optional.empty());
 
         // act
         MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgCode=TEST"))
@@ -69,7 +95,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
         // assert
 
-        verify(ucsbOrganizationRepository, times(1)).findById(eq("TEST"));
+        verify(referenceTables, times(1)).organization(eq("TEST"));
+        verify(ucsbOrganizationRepository, never()).findById(any());
         Map<String, Object> json = responseToJson(response);
         assertEquals("EntityNotFoundException", json.get("type"));
         assertEquals("UCSBOrganization with id TEST not found", json.get("message"));
@@ -101,20 +128,112 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         ArrayList<UCSBOrganization> expectedOrganizations = new ArrayList<>();
         expectedOrganizations.addAll(Arrays.asList(zpr, sky));
 
-        when(ucsbOrganizationRepository.findAll()).thenReturn(expectedOrganizations);
+        String expectedJson = mapper.writeValueAsString(expectedOrganizations);
+        when(referenceListCache.get(Listing.ORGANIZATIONS, "application/json"))
+                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_JSON, expectedJson.getBytes(), new byte[0]));
 
         // act
-        MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all"))
-                .andExpect(status().isOk()).andReturn();
+        MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING)).andReturn();
 
         // assert
 
-        verify(ucsbOrganizationRepository, times(1)).findAll();
-        String expectedJson = mapper.writeValueAsString(expectedOrganizations);
+        verify(ucsbOrganizationRepository, never()).findAll();
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
     }
 
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_is_sent_gzipped_to_clients_that_take_gzip() throws Exception {
+        byte[] gzipped = { 31, -117, 8, 0 };
+        when(referenceListCache.get(Listing.ORGANIZATIONS, "application/cbor"))
+                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_CBOR, new byte[] { -128 }, gzipped));
+
+        MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip")).andReturn();
+
+        assertArrayEquals(gzipped, response.getResponse().getContentAsByteArray());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_is_not_gzipped_for_clients_that_refuse_gzip() throws Exception {
+        when(referenceListCache.get(Listing.ORGANIZATIONS, null))
+                .thenReturn(new ReferenceListCache.Encoded(MediaType.APPLICATION_JSON, "[]".getBytes(), new byte[] { 31, -117 }));
+
+        mockMvc.perform(get("/api/ucsborganizations/all").header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("[]"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void all_is_not_acceptable_in_other_formats() throws Exception {
+        when(referenceListCache.get(Listing.ORGANIZATIONS, "text/html"))
+                .thenThrow(new HttpMediaTypeNotAcceptableException(List.of(MediaType.APPLICATION_JSON)));
+
+        mockMvc.perform(get("/api/ucsborganizations/all").accept(MediaType.TEXT_HTML))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    // Tests for GET /api/ucsborganizations/suggest
+
+    @Test
+    public void logged_out_users_cannot_get_suggestions() throws Exception {
+        mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=sk"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_suggestions() throws Exception {
+        // arrange
+
+        UCSBOrganization sky = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(false)
+                .build();
+
+        when(organizationSuggestService.suggest("sk", 10)).thenReturn(List.of(sky));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=sk"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(organizationSuggestService, times(1)).suggest("sk", 10);
+        String expectedJson = mapper.writeValueAsString(List.of(sky));
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void suggestions_use_the_given_limit() throws Exception {
+        // arrange
+
+        when(organizationSuggestService.suggest("s", 3)).thenReturn(List.of());
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=s&limit=3"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(organizationSuggestService, times(1)).suggest("s", 3);
+        assertEquals("[]", response.getResponse().getContentAsString());
+    }
+
     // Tests for POST /api/ucsborganizations...
 
     @Test
@@ -153,11 +272,37 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
         // assert
         verify(ucsbOrganizationRepository, times(1)).save(sky);
+        verify(organizationSuggestService, times(1)).put(sky);
+        verify(referenceTables, times(1)).reloadOrganizations();
+        verify(referenceListCache, times(1)).invalidate(Listing.ORGANIZATIONS);
         String expectedJson = mapper.writeValueAsString(sky);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
     }
 
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_cannot_post_an_organization_that_already_exists() throws Exception {
+        // arrange
+
+        when(ucsbOrganizationRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate",
+                new SQLException("Unique index or primary key violation", "23505")));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/ucsborganizations/post?orgCode=SKY&orgTranslationShort=SKYDIVING CLUB&orgTranslation=SKYDIVING AT UCSB&inactive=true")
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        verify(organizationSuggestService, never()).put(any());
+        verify(referenceTables, never()).reloadOrganizations();
+        verify(referenceListCache, never()).invalidate(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("DataIntegrityViolationException", json.get("type"));
+        assertEquals("A row with this key already exists", json.get("message"));
+    }
+
     @Test
     public void logged_out_users_cannot_get_by_id() throws Exception {
             mockMvc.perform(get("/api/ucsborganizations?orgCode=SKY"))
@@ -177,32 +322,136 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 .inactive(true)
                 .build();
 
-        when(ucsbOrganizationRepository.findById(eq("TEST"))).thenReturn(Optional.of(organization));
+        when(referenceTables.organization(eq("TEST"))).thenReturn(Optional.of(organization));
 
         // act
         MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgCode=TEST"))
                 .andExpect(status().isOk()).andReturn();
 
         // assert
-        verify(ucsbOrganizationRepository, times(1)).findById(eq("TEST"));
+        verify(referenceTables, times(1)).organization(eq("TEST"));
+        verify(ucsbOrganizationRepository, never()).findById(any());
         String expectedJson = mapper.writeValueAsString(organization);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
     }
 
+    // Tests for PATCH /api/ucsborganizations?orgCode=...
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_patch_organization() throws Exception {
+        mockMvc.perform(patch("/api/ucsborganizations?orgCode=SKY")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"inactive\": true}")
+                        .with(csrf()))
+                .andExpect(status().is(403));
+    }
+
     @WithMockUser(roles = { "ADMIN", "USER" })
     @Test
-    public void admin_can_delete_a_date() throws Exception {
+    public void admin_can_patch_one_field_of_organization() throws Exception {
         // arrange
 
-        UCSBOrganization sky = UCSBOrganization.builder()
+        UCSBOrganization skyOrig = UCSBOrganization.builder()
                 .orgCode("SKY")
                 .orgTranslationShort("SKYDIVING CLUB")
-                .orgTranslation("SKYDIVING AT UCSB")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(false)
+                .version(3L)
+                .build();
+
+        UCSBOrganization skyPatched = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
                 .inactive(true)
+                .version(3L)
+                .build();
+
+        when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(skyOrig));
+        when(ucsbOrganizationRepository.save(eq(skyPatched))).thenReturn(skyPatched);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsborganizations?orgCode=SKY")
+                        .header("If-Match", "\"3\"")
+                        .contentType("application/merge-patch+json")
+                        .characterEncoding("utf-8")
+                        .content("{\"inactive\": true}")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).save(skyPatched);
+        verify(organizationSuggestService, times(1)).put(skyPatched);
+        verify(referenceTables, times(1)).reloadOrganizations();
+        verify(referenceListCache, times(1)).invalidate(Listing.ORGANIZATIONS);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(mapper.writeValueAsString(skyPatched), responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_organization_at_a_stale_version() throws Exception {
+        // arrange
+
+        UCSBOrganization skyOrig = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(false)
+                .version(4L)
                 .build();
 
-        when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(sky));
+        when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(skyOrig));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsborganizations?orgCode=SKY")
+                        .header("If-Match", "3")
+                        .contentType("application/merge-patch+json")
+                        .characterEncoding("utf-8")
+                        .content("{\"inactive\": true}")
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, never()).save(any());
+        verify(organizationSuggestService, never()).put(any());
+        verify(referenceTables, never()).reloadOrganizations();
+        verify(referenceListCache, never()).invalidate(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBOrganization with id SKY is not at version 3", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_organization_that_does_not_exist() throws Exception {
+        // arrange
+
+        when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.empty());
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsborganizations?orgCode=SKY")
+                        .contentType("application/merge-patch+json")
+                        .characterEncoding("utf-8")
+                        .content("{\"inactive\": true}")
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBOrganization with id SKY not found", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_delete_a_date() throws Exception {
+        // arrange
+
+        when(ucsbOrganizationRepository.deleteRowById(eq("SKY"))).thenReturn(1);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -211,8 +460,10 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 .andExpect(status().isOk()).andReturn();
 
         // assert
-        verify(ucsbOrganizationRepository, times(1)).findById("SKY");
-        verify(ucsbOrganizationRepository, times(1)).delete(any());
+        verify(ucsbOrganizationRepository, times(1)).deleteRowById("SKY");
+        verify(organizationSuggestService, times(1)).remove("SKY");
+        verify(referenceTables, times(1)).reloadOrganizations();
+        verify(referenceListCache, times(1)).invalidate(Listing.ORGANIZATIONS);
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("UCSBOrganization with id SKY deleted", json.get("message"));
@@ -224,7 +475,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                     throws Exception {
             // arrange
 
-            when(ucsbOrganizationRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+            when(ucsbOrganizationRepository.deleteRowById(eq("munger-hall"))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -233,7 +484,10 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(ucsbOrganizationRepository, times(1)).findById("munger-hall");
+            verify(ucsbOrganizationRepository, times(1)).deleteRowById("munger-hall");
+            verify(organizationSuggestService, never()).remove(anyString());
+            verify(referenceTables, never()).reloadOrganizations();
+            verify(referenceListCache, never()).invalidate(any());
             Map<String, Object> json = responseToJson(response);
             assertEquals("UCSBOrganization with id munger-hall not found", json.get("message"));
     }
@@ -260,6 +514,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         String requestBody = mapper.writeValueAsString(skyEdited);
 
         when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(skyOrig));
+        when(ucsbOrganizationRepository.save(eq(skyEdited))).thenReturn(skyEdited);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -273,11 +528,119 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         // assert
         verify(ucsbOrganizationRepository, times(1)).findById("SKY");
         verify(ucsbOrganizationRepository, times(1)).save(skyEdited); // should be saved with updated info
+        verify(organizationSuggestService, times(1)).put(skyEdited);
+        verify(referenceTables, times(1)).reloadOrganizations();
+        verify(referenceListCache, times(1)).invalidate(Listing.ORGANIZATIONS);
         String responseString = response.getResponse().getContentAsString();
         System.out.println("HERE IS RESPONSE" + responseString);
         assertEquals(requestBody, responseString);
     }
 
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_edit_organization_at_the_expected_version() throws Exception {
+        // arrange
+
+        UCSBOrganization skyEdited = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB YAY")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(false)
+                .build();
+
+        String requestBody = mapper.writeValueAsString(skyEdited);
+
+        when(ucsbOrganizationRepository.updateIfVersionMatches(eq("SKY"), eq(3L), eq(skyEdited))).thenReturn(1);
+        // the row as stored, which is what the response should be
+        UCSBOrganization stored = mapper.readValue(requestBody, UCSBOrganization.class);
+        stored.setOrgCode("SKY");
+        stored.setVersion(4L);
+        when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganizations?orgCode=SKY")
+                        .header("If-Match", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findById("SKY");
+        verify(organizationSuggestService, times(1)).put(any(UCSBOrganization.class));
+        verify(referenceTables, times(1)).reloadOrganizations();
+        verify(referenceListCache, times(1)).invalidate(Listing.ORGANIZATIONS);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(mapper.writeValueAsString(stored), responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_edit_organization_at_a_stale_version() throws Exception {
+        // arrange
+
+        UCSBOrganization skyEdited = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB YAY")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(false)
+                .build();
+
+        String requestBody = mapper.writeValueAsString(skyEdited);
+
+        when(ucsbOrganizationRepository.updateIfVersionMatches(eq("SKY"), eq(3L), eq(skyEdited))).thenReturn(0);
+        when(ucsbOrganizationRepository.existsById(eq("SKY"))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganizations?orgCode=SKY")
+                        .header("If-Match", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("PreconditionFailedException", json.get("type"));
+        assertEquals("UCSBOrganization with id SKY is not at version 3", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_conditionally_edit_organization_that_does_not_exist() throws Exception {
+        // arrange
+
+        UCSBOrganization skyEdited = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB YAY")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(false)
+                .build();
+
+        String requestBody = mapper.writeValueAsString(skyEdited);
+
+        when(ucsbOrganizationRepository.updateIfVersionMatches(eq("SKY"), eq(3L), eq(skyEdited))).thenReturn(0);
+        when(ucsbOrganizationRepository.existsById(eq("SKY"))).thenReturn(false);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganizations?orgCode=SKY")
+                        .header("If-Match", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBOrganization with id SKY not found", json.get("message"));
+    }
+
     @WithMockUser(roles = { "ADMIN", "USER" })
     @Test
     public void admin_cannot_edit_organization_that_does_not_exist() throws Exception {
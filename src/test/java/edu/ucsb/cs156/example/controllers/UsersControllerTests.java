@@ -1,7 +1,7 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
-import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.UserSummary;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
@@ -9,10 +9,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,7 +25,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -42,32 +49,72 @@ public class UsersControllerTests extends ControllerTestCase {
         .andExpect(status().is(403));
   }
 
+  private List<UserSummary> summaries(long first, long last) {
+    return LongStream.rangeClosed(first, last)
+        .mapToObj(id -> UserSummary.builder().id(id).email("user" + id + "@ucsb.edu").givenName("Given")
+            .familyName("Family" + id).admin(id == 1).build())
+        .collect(Collectors.toList());
+  }
+
+  private String streamed(String url) throws Exception {
+    MvcResult started = mockMvc.perform(get(url))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON)).andReturn();
+    return response.getResponse().getContentAsString();
+  }
+
   @WithMockUser(roles = { "ADMIN", "USER" })
   @Test
   public void users__admin_logged_in() throws Exception {
 
     // arrange
 
-    User u1 = User.builder().id(1L).build();
-    User u2 = User.builder().id(2L).build();
-    User u = currentUserService.getCurrentUser().getUser();
-
-    ArrayList<User> expectedUsers = new ArrayList<>();
-    expectedUsers.addAll(Arrays.asList(u1, u2, u));
+    List<UserSummary> firstPage = summaries(1, UsersController.PAGE_SIZE);
+    List<UserSummary> secondPage = summaries(UsersController.PAGE_SIZE + 1, UsersController.PAGE_SIZE + 2);
+    when(userRepository.findSummariesAfter(0, PageRequest.of(0, UsersController.PAGE_SIZE))).thenReturn(firstPage);
+    when(userRepository.findSummariesAfter(UsersController.PAGE_SIZE, PageRequest.of(0, UsersController.PAGE_SIZE)))
+        .thenReturn(secondPage);
 
-    when(userRepository.findAll()).thenReturn(expectedUsers);
+    List<UserSummary> expectedUsers = new ArrayList<>(firstPage);
+    expectedUsers.addAll(secondPage);
     String expectedJson = mapper.writeValueAsString(expectedUsers);
-    
+
     // act
 
-    MvcResult response = mockMvc.perform(get("/api/admin/users"))
-        .andExpect(status().isOk()).andReturn();
+    String responseString = streamed("/api/admin/users");
 
     // assert
 
-    verify(userRepository, times(1)).findAll();
-    String responseString = response.getResponse().getContentAsString();
+    verify(userRepository, times(2)).findSummariesAfter(anyLong(), any());
     assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_can_page_by_id() throws Exception {
+
+    // arrange
+
+    List<UserSummary> page = summaries(11, 13);
+    when(userRepository.findSummariesAfter(10, PageRequest.of(0, 3))).thenReturn(page);
+
+    // act
+
+    String responseString = streamed("/api/admin/users?after=10&limit=3");
 
+    // assert
+
+    verify(userRepository, times(1)).findSummariesAfter(anyLong(), any());
+    assertEquals(mapper.writeValueAsString(page), responseString);
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_asks_for_none() throws Exception {
+    assertEquals("[]", streamed("/api/admin/users?limit=0"));
+    assertEquals("[]", streamed("/api/admin/users?limit=-5"));
+    verify(userRepository, never()).findSummariesAfter(anyLong(), any());
   }
 }
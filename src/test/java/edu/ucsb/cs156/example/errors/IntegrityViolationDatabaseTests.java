@@ -0,0 +1,85 @@
+package edu.ucsb.cs156.example.errors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+/**
+ * Checks the classification against the exceptions the database really
+ * throws for the writes the controllers make, each committed on its own.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=" + IntegrityViolationDatabaseTests.URL,
+    "spring.liquibase.url=" + IntegrityViolationDatabaseTests.URL })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IntegrityViolationDatabaseTests {
+
+  static final String URL = "jdbc:h2:mem:integrityviolations;DB_CLOSE_DELAY=-1";
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @AfterEach
+  public void cleanup() {
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+    ucsbDiningCommonsRepository.deleteAll();
+    ucsbOrganizationRepository.deleteAll();
+  }
+
+  @Test
+  public void posting_an_existing_code_is_a_duplicate_key() {
+    UCSBOrganization sky = UCSBOrganization.builder().orgCode("SKY").orgTranslationShort("SKYDIVING CLUB")
+        .orgTranslation("SKYDIVING CLUB AT UCSB").build();
+    ucsbOrganizationRepository.save(sky);
+
+    DataIntegrityViolationException e = assertThrows(DataIntegrityViolationException.class,
+        () -> ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("SKY")
+            .orgTranslationShort("SKY").orgTranslation("SKY").build()));
+
+    assertEquals(IntegrityViolation.DUPLICATE_KEY, IntegrityViolation.of(e));
+    assertEquals("SKYDIVING CLUB", ucsbOrganizationRepository.findById("SKY").get().getOrgTranslationShort());
+  }
+
+  @Test
+  public void menu_item_for_an_unknown_commons_is_a_missing_reference() {
+    DataIntegrityViolationException e = assertThrows(DataIntegrityViolationException.class,
+        () -> ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItems.builder()
+            .diningCommonsCode("munger-hall").name("Baked Pesto Pasta").station("Entree Specials").build()));
+
+    assertEquals(IntegrityViolation.MISSING_REFERENCE, IntegrityViolation.of(e));
+  }
+
+  @Test
+  public void deleting_a_commons_with_menu_items_is_a_missing_reference() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItems.builder()
+        .diningCommonsCode("ortega").name("Baked Pesto Pasta").station("Entree Specials").build());
+
+    DataIntegrityViolationException e = assertThrows(DataIntegrityViolationException.class,
+        () -> ucsbDiningCommonsRepository.deleteRowById("ortega"));
+
+    assertEquals(IntegrityViolation.MISSING_REFERENCE, IntegrityViolation.of(e));
+  }
+}
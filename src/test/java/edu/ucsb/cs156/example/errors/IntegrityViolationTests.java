@@ -0,0 +1,45 @@
+package edu.ucsb.cs156.example.errors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+public class IntegrityViolationTests {
+
+  private static DataIntegrityViolationException violation(String sqlState) {
+    // wrapped the way Hibernate wraps it
+    return new DataIntegrityViolationException("could not execute statement",
+        new RuntimeException("constraint", new SQLException("violation", sqlState)));
+  }
+
+  @Test
+  public void unique_key_violations_are_duplicate_keys() {
+    assertEquals(IntegrityViolation.DUPLICATE_KEY, IntegrityViolation.of(violation("23505")));
+    assertEquals(IntegrityViolation.DUPLICATE_KEY, IntegrityViolation.of(new DuplicateKeyException("duplicate")));
+  }
+
+  @Test
+  public void foreign_key_violations_are_missing_references() {
+    assertEquals(IntegrityViolation.MISSING_REFERENCE, IntegrityViolation.of(violation("23503")));
+    assertEquals(IntegrityViolation.MISSING_REFERENCE, IntegrityViolation.of(violation("23506")));
+  }
+
+  @Test
+  public void anything_else_is_other() {
+    assertEquals(IntegrityViolation.OTHER, IntegrityViolation.of(violation("23502")));
+    assertEquals(IntegrityViolation.OTHER, IntegrityViolation.of(violation(null)));
+    assertEquals(IntegrityViolation.OTHER, IntegrityViolation.of(new DataIntegrityViolationException("no cause")));
+  }
+
+  @Test
+  public void each_kind_has_a_message() {
+    assertEquals("A row with this key already exists", IntegrityViolation.DUPLICATE_KEY.getMessage());
+    assertEquals("This change would leave a reference to a row that does not exist",
+        IntegrityViolation.MISSING_REFERENCE.getMessage());
+    assertEquals("This change would break a database constraint", IntegrityViolation.OTHER.getMessage());
+  }
+}
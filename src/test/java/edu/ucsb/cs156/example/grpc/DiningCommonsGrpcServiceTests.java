@@ -0,0 +1,194 @@
+package edu.ucsb.cs156.example.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.util.AopTestUtils;
+
+import edu.ucsb.cs156.example.GrpcServiceTestCase;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommons;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommonsServiceGrpc;
+import edu.ucsb.cs156.example.grpc.proto.GetDiningCommonsRequest;
+import edu.ucsb.cs156.example.grpc.proto.ListDiningCommonsRequest;
+import edu.ucsb.cs156.example.grpc.proto.UpsertResult;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+
+public class DiningCommonsGrpcServiceTests extends GrpcServiceTestCase {
+
+  private final UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+      .code("ortega")
+      .name("Ortega")
+      .hasSackMeal(true)
+      .hasTakeOutMeal(true)
+      .hasDiningCam(true)
+      .latitude(34.410987)
+      .longitude(-119.84709)
+      .version(3L)
+      .build();
+
+  private final UCSBDiningCommons portola = UCSBDiningCommons.builder()
+      .code("portola")
+      .build();
+
+  private final DiningCommons ortegaMessage = DiningCommons.newBuilder()
+      .setCode("ortega")
+      .setName("Ortega")
+      .setHasSackMeal(true)
+      .setHasTakeOutMeal(true)
+      .setHasDiningCam(true)
+      .setLatitude(34.410987)
+      .setLongitude(-119.84709)
+      .setVersion(3)
+      .build();
+
+  @AfterEach
+  public void resetBatchSize() {
+    target().maxBatchSize = 1000;
+  }
+
+  private DiningCommonsGrpcService target() {
+    return AopTestUtils.getTargetObject(diningCommonsGrpcService);
+  }
+
+  private UpsertResult upsert(List<DiningCommons> batch) throws Exception {
+    return sendAll(DiningCommonsServiceGrpc.newStub(admin())::batchUpsert, batch);
+  }
+
+  @Test
+  public void users_can_list_all_commons() {
+    when(referenceTables.diningCommons()).thenReturn(List.of(ortega, portola));
+
+    List<DiningCommons> listed = new ArrayList<>();
+    DiningCommonsServiceGrpc.newBlockingStub(user())
+        .list(ListDiningCommonsRequest.getDefaultInstance())
+        .forEachRemaining(listed::add);
+
+    assertEquals(List.of(ortegaMessage, DiningCommons.newBuilder().setCode("portola").build()), listed);
+    assertFalse(listed.get(1).hasLatitude());
+    assertFalse(listed.get(1).hasVersion());
+  }
+
+  @Test
+  public void users_can_get_a_commons_by_code() {
+    when(referenceTables.diningCommons("ortega")).thenReturn(Optional.of(ortega));
+
+    DiningCommons commons = DiningCommonsServiceGrpc.newBlockingStub(user())
+        .get(GetDiningCommonsRequest.newBuilder().setCode("ortega").build());
+
+    assertEquals(ortegaMessage, commons);
+    verify(ucsbDiningCommonsRepository, never()).findById(any());
+  }
+
+  @Test
+  public void getting_a_commons_that_does_not_exist_is_not_found() {
+    when(referenceTables.diningCommons("munger-hall")).thenReturn(Optional.empty());
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> DiningCommonsServiceGrpc
+        .newBlockingStub(user())
+        .get(GetDiningCommonsRequest.newBuilder().setCode("munger-hall").build()));
+
+    assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    assertEquals("UCSBDiningCommons with id munger-hall not found", e.getStatus().getDescription());
+  }
+
+  @Test
+  public void admins_can_create_and_update_commons_in_one_batch() throws Exception {
+    UCSBDiningCommons carrillo = UCSBDiningCommons.builder().code("carrillo").name("Old name").build();
+    when(ucsbDiningCommonsRepository.findById("carrillo")).thenReturn(Optional.of(carrillo));
+    when(ucsbDiningCommonsRepository.findById("portola")).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.updateIfVersionMatches(eq("ortega"), eq(3L), any())).thenReturn(1);
+
+    UpsertResult result = upsert(List.of(
+        DiningCommons.newBuilder().setCode("carrillo").setName("Carrillo").setHasTakeOutMeal(true).build(),
+        DiningCommons.newBuilder().setCode("portola").setName("Portola").setLatitude(34.4).setLongitude(-119.8).build(),
+        ortegaMessage));
+
+    assertEquals(UpsertResult.newBuilder().setCreated(1).setUpdated(2).build(), result);
+    assertEquals(UCSBDiningCommons.builder().code("carrillo").name("Carrillo").hasTakeOutMeal(true).build(), carrillo);
+    verify(ucsbDiningCommonsRepository).save(carrillo);
+    verify(ucsbDiningCommonsRepository).save(UCSBDiningCommons.builder()
+        .code("portola").name("Portola").latitude(34.4).longitude(-119.8).build());
+    verify(ucsbDiningCommonsRepository).updateIfVersionMatches("ortega", 3L, UCSBDiningCommons.builder()
+        .code("ortega").name("Ortega").hasSackMeal(true).hasTakeOutMeal(true).hasDiningCam(true)
+        .latitude(34.410987).longitude(-119.84709).build());
+    verify(transactionManager).commit(any());
+    verify(diningCommonsLocationService).reload();
+    verify(referenceTables).reloadDiningCommons();
+    verify(referenceListCache).invalidate(Listing.DINING_COMMONS);
+  }
+
+  @Test
+  public void a_stale_version_fails_the_whole_batch() throws Exception {
+    when(ucsbDiningCommonsRepository.findById("portola")).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.updateIfVersionMatches(eq("ortega"), eq(3L), any())).thenReturn(0);
+    when(ucsbDiningCommonsRepository.existsById("ortega")).thenReturn(true);
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> upsert(List.of(
+        DiningCommons.newBuilder().setCode("portola").build(), ortegaMessage)));
+
+    assertEquals(Status.Code.FAILED_PRECONDITION, e.getStatus().getCode());
+    assertEquals("UCSBDiningCommons with id ortega is not at version 3", e.getStatus().getDescription());
+    verify(transactionManager).rollback(any());
+    verify(transactionManager, never()).commit(any());
+    verify(diningCommonsLocationService, never()).reload();
+    verify(referenceTables, never()).reloadDiningCommons();
+    verify(referenceListCache, never()).invalidate(any());
+  }
+
+  @Test
+  public void a_version_for_a_commons_that_does_not_exist_is_not_found() throws Exception {
+    when(ucsbDiningCommonsRepository.updateIfVersionMatches(eq("ortega"), eq(3L), any())).thenReturn(0);
+    when(ucsbDiningCommonsRepository.existsById("ortega")).thenReturn(false);
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> upsert(List.of(ortegaMessage)));
+
+    assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+  }
+
+  @Test
+  public void batches_over_the_limit_are_refused() throws Exception {
+    target().maxBatchSize = 2;
+    DiningCommons message = DiningCommons.newBuilder().setCode("portola").build();
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+        () -> upsert(List.of(message, message, message)));
+
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+    assertEquals("at most 2 commons per batch", e.getStatus().getDescription());
+    verifyNoInteractions(ucsbDiningCommonsRepository);
+  }
+
+  @Test
+  @WithMockUser(roles = { "ADMIN" })
+  @SuppressWarnings("unchecked")
+  public void a_batch_the_client_abandons_writes_nothing() {
+    StreamObserver<UpsertResult> responses = mock(StreamObserver.class);
+    StreamObserver<DiningCommons> requests = diningCommonsGrpcService.batchUpsert(responses);
+
+    requests.onNext(ortegaMessage);
+    requests.onError(Status.CANCELLED.asRuntimeException());
+    requests.onCompleted();
+
+    verify(responses).onNext(UpsertResult.getDefaultInstance());
+    verifyNoInteractions(ucsbDiningCommonsRepository);
+  }
+}
@@ -0,0 +1,275 @@
+package edu.ucsb.cs156.example.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.util.AopTestUtils;
+
+import edu.ucsb.cs156.example.GrpcServiceTestCase;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.grpc.proto.GetMenuItemRequest;
+import edu.ucsb.cs156.example.grpc.proto.ListMenuItemsRequest;
+import edu.ucsb.cs156.example.grpc.proto.MenuItem;
+import edu.ucsb.cs156.example.grpc.proto.MenuItemServiceGrpc;
+import edu.ucsb.cs156.example.grpc.proto.UpsertResult;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+public class MenuItemGrpcServiceTests extends GrpcServiceTestCase {
+
+  private final List<UCSBDiningCommonsMenuItems> items = LongStream.rangeClosed(1, 5)
+      .mapToObj(id -> UCSBDiningCommonsMenuItems.builder()
+          .id(id)
+          .diningCommonsCode(id % 2 == 0 ? "ortega" : "portola")
+          .name("Item " + id)
+          .station("Entrees")
+          .version(id)
+          .build())
+      .collect(Collectors.toList());
+
+  private static MenuItem message(UCSBDiningCommonsMenuItems item) {
+    return MenuItem.newBuilder()
+        .setId(item.getId())
+        .setDiningCommonsCode(item.getDiningCommonsCode())
+        .setName(item.getName())
+        .setStation(item.getStation())
+        .setVersion(item.getVersion())
+        .build();
+  }
+
+  private List<UCSBDiningCommonsMenuItems> page(String code, long after, Pageable pageable) {
+    return items.stream()
+        .filter(item -> code == null || item.getDiningCommonsCode().equals(code))
+        .filter(item -> item.getId() > after)
+        .limit(pageable.getPageSize())
+        .collect(Collectors.toList());
+  }
+
+  @BeforeEach
+  public void setup() {
+    target().pageSize = 2;
+    when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any()))
+        .thenAnswer(invocation -> page(null, invocation.getArgument(0), invocation.getArgument(1)));
+    when(ucsbDiningCommonsMenuItemRepository.findByDiningCommonsCodeAndIdGreaterThanOrderByIdAsc(any(), anyLong(), any()))
+        .thenAnswer(invocation -> page(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+  }
+
+  @AfterEach
+  public void resetSizes() {
+    target().pageSize = 500;
+    target().maxBatchSize = 1000;
+  }
+
+  private MenuItemGrpcService target() {
+    return AopTestUtils.getTargetObject(menuItemGrpcService);
+  }
+
+  private List<MenuItem> list(String diningCommonsCode) {
+    List<MenuItem> listed = new ArrayList<>();
+    MenuItemServiceGrpc.newBlockingStub(user())
+        .list(ListMenuItemsRequest.newBuilder().setDiningCommonsCode(diningCommonsCode).build())
+        .forEachRemaining(listed::add);
+    return listed;
+  }
+
+  private UpsertResult upsert(List<MenuItem> batch) throws Exception {
+    return sendAll(MenuItemServiceGrpc.newStub(admin())::batchUpsert, batch);
+  }
+
+  @Test
+  public void users_can_list_every_item_a_page_at_a_time() {
+    List<MenuItem> listed = list("");
+
+    assertEquals(items.stream().map(MenuItemGrpcServiceTests::message).collect(Collectors.toList()), listed);
+    verify(ucsbDiningCommonsMenuItemRepository, times(4)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+    verify(ucsbDiningCommonsMenuItemRepository).findByIdGreaterThanOrderByIdAsc(eq(4L), any());
+  }
+
+  @Test
+  public void users_can_list_the_items_of_one_commons() {
+    List<MenuItem> listed = list("ortega");
+
+    assertEquals(List.of(message(items.get(1)), message(items.get(3))), listed);
+    verify(ucsbDiningCommonsMenuItemRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void nothing_is_sent_while_the_client_is_not_ready_or_once_the_list_is_done() {
+    ServerCallStreamObserver<MenuItem> call = mock(ServerCallStreamObserver.class);
+    MenuItemGrpcService.PageSender sender = target().new PageSender("ortega", call);
+
+    when(call.isReady()).thenReturn(false);
+    sender.run();
+    verify(call, never()).onNext(any());
+
+    when(call.isReady()).thenReturn(true);
+    sender.run();
+    sender.run();
+
+    verify(call, times(2)).onNext(any());
+    verify(call).onCompleted();
+  }
+
+  @Test
+  public void users_can_get_an_item_by_id() {
+    when(ucsbDiningCommonsMenuItemRepository.findById(3L)).thenReturn(Optional.of(items.get(2)));
+
+    MenuItem item = MenuItemServiceGrpc.newBlockingStub(user()).get(GetMenuItemRequest.newBuilder().setId(3).build());
+
+    assertEquals(message(items.get(2)), item);
+  }
+
+  @Test
+  public void missing_fields_are_sent_as_empty() {
+    when(ucsbDiningCommonsMenuItemRepository.findById(7L))
+        .thenReturn(Optional.of(UCSBDiningCommonsMenuItems.builder().id(7).build()));
+
+    MenuItem item = MenuItemServiceGrpc.newBlockingStub(user()).get(GetMenuItemRequest.newBuilder().setId(7).build());
+
+    assertEquals(MenuItem.newBuilder().setId(7).build(), item);
+  }
+
+  @Test
+  public void getting_an_item_that_does_not_exist_is_not_found() {
+    when(ucsbDiningCommonsMenuItemRepository.findById(7L)).thenReturn(Optional.empty());
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+        () -> MenuItemServiceGrpc.newBlockingStub(user()).get(GetMenuItemRequest.newBuilder().setId(7).build()));
+
+    assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    assertEquals("UCSBDiningCommonsMenuItems with id 7 not found", e.getStatus().getDescription());
+  }
+
+  @Test
+  public void admins_can_create_and_update_items_in_one_batch() throws Exception {
+    UCSBDiningCommonsMenuItems created = UCSBDiningCommonsMenuItems.builder()
+        .id(6).diningCommonsCode("ortega").name("Tacos").station("Grill").version(0L).build();
+    UCSBDiningCommonsMenuItems second = items.get(1);
+    when(ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItems.builder()
+        .diningCommonsCode("ortega").name("Tacos").station("Grill").build())).thenReturn(created);
+    when(ucsbDiningCommonsMenuItemRepository.findById(2L)).thenReturn(Optional.of(second));
+    when(ucsbDiningCommonsMenuItemRepository.save(second)).thenReturn(second);
+    when(ucsbDiningCommonsMenuItemRepository.updateIfVersionMatches(eq(3L), eq(3L), any())).thenReturn(1);
+    UCSBDiningCommonsMenuItems third = UCSBDiningCommonsMenuItems.builder()
+        .id(3).diningCommonsCode("ortega").name("Moved").station("Grill").version(4L).build();
+    when(ucsbDiningCommonsMenuItemRepository.findById(3L)).thenReturn(Optional.of(third));
+
+    UpsertResult result = upsert(List.of(
+        MenuItem.newBuilder().setDiningCommonsCode("ortega").setName("Tacos").setStation("Grill").build(),
+        MenuItem.newBuilder().setId(2).setDiningCommonsCode("portola").setName("Renamed").setStation("Deli").build(),
+        MenuItem.newBuilder().setId(3).setDiningCommonsCode("ortega").setName("Moved").setStation("Grill").setVersion(3).build()));
+
+    assertEquals(UpsertResult.newBuilder().setCreated(1).setUpdated(2).build(), result);
+    assertEquals("portola", second.getDiningCommonsCode());
+    assertEquals("Renamed", second.getName());
+    assertEquals("Deli", second.getStation());
+    verify(ucsbDiningCommonsMenuItemRepository).updateIfVersionMatches(3L, 3L, UCSBDiningCommonsMenuItems.builder()
+        .diningCommonsCode("ortega").name("Moved").station("Grill").build());
+    verify(transactionManager).commit(any());
+    verify(menuItemSuggestService).put(created);
+    verify(menuItemSuggestService).put(second);
+    verify(menuItemSuggestService).put(third);
+    verify(referenceListCache).invalidate(Listing.MENU_ITEMS);
+  }
+
+  @Test
+  public void a_stale_version_fails_the_whole_batch() throws Exception {
+    when(ucsbDiningCommonsMenuItemRepository.updateIfVersionMatches(eq(3L), eq(2L), any())).thenReturn(0);
+    when(ucsbDiningCommonsMenuItemRepository.existsById(3L)).thenReturn(true);
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> upsert(List.of(
+        MenuItem.newBuilder().setName("New").build(),
+        MenuItem.newBuilder().setId(3).setVersion(2).build())));
+
+    assertEquals(Status.Code.FAILED_PRECONDITION, e.getStatus().getCode());
+    assertEquals("UCSBDiningCommonsMenuItems with id 3 is not at version 2", e.getStatus().getDescription());
+    verify(transactionManager).rollback(any());
+    verify(menuItemSuggestService, never()).put(any());
+    verify(referenceListCache, never()).invalidate(any());
+  }
+
+  @Test
+  public void a_version_for_an_item_that_does_not_exist_is_not_found() throws Exception {
+    when(ucsbDiningCommonsMenuItemRepository.updateIfVersionMatches(eq(9L), eq(2L), any())).thenReturn(0);
+    when(ucsbDiningCommonsMenuItemRepository.existsById(9L)).thenReturn(false);
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+        () -> upsert(List.of(MenuItem.newBuilder().setId(9).setVersion(2).build())));
+
+    assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+  }
+
+  @Test
+  public void an_item_deleted_right_after_its_update_is_not_found() throws Exception {
+    when(ucsbDiningCommonsMenuItemRepository.updateIfVersionMatches(eq(3L), eq(3L), any())).thenReturn(1);
+    when(ucsbDiningCommonsMenuItemRepository.findById(3L)).thenReturn(Optional.empty());
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+        () -> upsert(List.of(MenuItem.newBuilder().setId(3).setVersion(3).build())));
+
+    assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    verify(transactionManager).rollback(any());
+  }
+
+  @Test
+  public void an_id_that_does_not_exist_is_not_found() throws Exception {
+    when(ucsbDiningCommonsMenuItemRepository.findById(9L)).thenReturn(Optional.empty());
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+        () -> upsert(List.of(MenuItem.newBuilder().setId(9).build())));
+
+    assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    verify(transactionManager).rollback(any());
+  }
+
+  @Test
+  public void batches_over_the_limit_are_refused() throws Exception {
+    target().maxBatchSize = 1;
+    MenuItem message = MenuItem.newBuilder().setName("New").build();
+
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> upsert(List.of(message, message)));
+
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+    assertEquals("at most 1 menu items per batch", e.getStatus().getDescription());
+    verify(ucsbDiningCommonsMenuItemRepository, never()).save(any());
+  }
+
+  @Test
+  @WithMockUser(roles = { "ADMIN" })
+  @SuppressWarnings("unchecked")
+  public void a_batch_the_client_abandons_writes_nothing() {
+    StreamObserver<UpsertResult> responses = mock(StreamObserver.class);
+    StreamObserver<MenuItem> requests = menuItemGrpcService.batchUpsert(responses);
+
+    requests.onNext(MenuItem.newBuilder().setName("New").build());
+    requests.onError(Status.CANCELLED.asRuntimeException());
+    requests.onCompleted();
+
+    verify(responses).onNext(UpsertResult.getDefaultInstance());
+    verifyNoInteractions(menuItemSuggestService);
+  }
+}
@@ -0,0 +1,177 @@
+package edu.ucsb.cs156.example.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.session.MapSession;
+
+import edu.ucsb.cs156.example.GrpcServiceTestCase;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.IntegrityViolation;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommons;
+import edu.ucsb.cs156.example.grpc.proto.DiningCommonsServiceGrpc;
+import edu.ucsb.cs156.example.grpc.proto.GetDiningCommonsRequest;
+import io.grpc.Channel;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+public class SessionAuthenticationInterceptorTests extends GrpcServiceTestCase {
+
+  private static final UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+      .code("ortega")
+      .name("Ortega")
+      .build();
+
+  private Status.Code getOrtega(Channel channel) {
+    when(referenceTables.diningCommons("ortega")).thenReturn(Optional.of(ortega));
+    try {
+      DiningCommonsServiceGrpc.newBlockingStub(channel)
+          .get(GetDiningCommonsRequest.newBuilder().setCode("ortega").build());
+      return Status.Code.OK;
+    } catch (StatusRuntimeException e) {
+      return e.getStatus().getCode();
+    }
+  }
+
+  @Test
+  public void calls_without_a_cookie_are_unauthenticated() {
+    assertEquals(Status.Code.UNAUTHENTICATED, getOrtega(anonymous()));
+    verify(referenceTables, never()).diningCommons(any(String.class));
+  }
+
+  @Test
+  public void calls_without_a_session_cookie_are_unauthenticated() {
+    assertEquals(Status.Code.UNAUTHENTICATED, getOrtega(withHeaders(cookie("theme=dark; flag; =x"))));
+  }
+
+  @Test
+  public void calls_with_a_session_cookie_that_is_not_base64_are_unauthenticated() {
+    assertEquals(Status.Code.UNAUTHENTICATED, getOrtega(withHeaders(cookie("SESSION=not*base64"))));
+  }
+
+  @Test
+  public void calls_with_an_unknown_or_expired_session_are_unauthenticated() {
+    assertEquals(Status.Code.UNAUTHENTICATED, getOrtega(withHeaders(cookie(sessionCookie("expired")))));
+  }
+
+  @Test
+  public void calls_with_a_session_that_is_not_logged_in_are_unauthenticated() {
+    when(sessionRepository.findById("anonymous")).thenReturn(new MapSession("anonymous"));
+
+    assertEquals(Status.Code.UNAUTHENTICATED, getOrtega(withHeaders(cookie(sessionCookie("anonymous")))));
+  }
+
+  @Test
+  public void the_session_cookie_is_found_among_other_cookies() {
+    assertEquals(Status.Code.OK, getOrtega(withHeaders(cookie("theme=dark; " + sessionCookie("user-session")))));
+  }
+
+  @Test
+  public void users_can_read() {
+    assertEquals(Status.Code.OK, getOrtega(user()));
+  }
+
+  @Test
+  public void users_cannot_write() {
+    StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> sendAll(
+        DiningCommonsServiceGrpc.newStub(user())::batchUpsert,
+        List.of(DiningCommons.newBuilder().setCode("ortega").build())));
+
+    assertEquals(Status.Code.PERMISSION_DENIED, e.getStatus().getCode());
+    verify(ucsbDiningCommonsRepository, never()).save(any());
+  }
+
+  @Test
+  public void exceptions_become_statuses() {
+    assertEquals(Status.Code.DATA_LOSS,
+        SessionAuthenticationInterceptor.toStatus(Status.DATA_LOSS.asRuntimeException()).getCode());
+    assertEquals(Status.Code.NOT_FOUND,
+        SessionAuthenticationInterceptor.toStatus(new EntityNotFoundException(UCSBDiningCommons.class, "x")).getCode());
+    assertEquals(Status.Code.FAILED_PRECONDITION,
+        SessionAuthenticationInterceptor.toStatus(new PreconditionFailedException(UCSBDiningCommons.class, "x", 1)).getCode());
+    Status missingReference = SessionAuthenticationInterceptor.toStatus(
+        new DataIntegrityViolationException("fk", new SQLException("Referential integrity", "23506")));
+    assertEquals(Status.Code.FAILED_PRECONDITION, missingReference.getCode());
+    assertEquals(IntegrityViolation.MISSING_REFERENCE.getMessage(), missingReference.getDescription());
+    Status duplicate = SessionAuthenticationInterceptor.toStatus(
+        new DataIntegrityViolationException("pk", new SQLException("Unique index", "23505")));
+    assertEquals(Status.Code.ALREADY_EXISTS, duplicate.getCode());
+    assertEquals(IntegrityViolation.DUPLICATE_KEY.getMessage(), duplicate.getDescription());
+    assertEquals(Status.Code.ABORTED,
+        SessionAuthenticationInterceptor.toStatus(new OptimisticLockingFailureException("stale")).getCode());
+    assertEquals(Status.Code.PERMISSION_DENIED,
+        SessionAuthenticationInterceptor.toStatus(new AccessDeniedException("no")).getCode());
+    Status internal = SessionAuthenticationInterceptor.toStatus(new IllegalStateException("secret details"));
+    assertEquals(Status.Code.INTERNAL, internal.getCode());
+    assertEquals("IllegalStateException", internal.getDescription());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void listener_forwards_every_callback_with_the_security_context_set() {
+    ServerCall<String, String> call = mock(ServerCall.class);
+    ServerCall.Listener<String> delegate = mock(ServerCall.Listener.class);
+    SecurityContext context = session("s", "ROLE_USER")
+        .getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+    AtomicReference<SecurityContext> seen = new AtomicReference<>();
+    SessionAuthenticationInterceptor.AuthenticatedListener<String, String> listener =
+        new SessionAuthenticationInterceptor.AuthenticatedListener<>(call, context);
+    listener.setDelegate(delegate);
+
+    listener.run(() -> seen.set(SecurityContextHolder.getContext()));
+    listener.onMessage("hello");
+    listener.onHalfClose();
+    listener.onReady();
+    listener.onCancel();
+    listener.onComplete();
+
+    assertEquals(context, seen.get());
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+    verify(delegate).onMessage("hello");
+    verify(delegate).onHalfClose();
+    verify(delegate).onReady();
+    verify(delegate).onCancel();
+    verify(delegate).onComplete();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void listener_closes_the_call_once_and_drops_later_callbacks_after_a_failure() {
+    ServerCall<String, String> call = mock(ServerCall.class);
+    ServerCall.Listener<String> delegate = mock(ServerCall.Listener.class);
+    SessionAuthenticationInterceptor.AuthenticatedListener<String, String> listener =
+        new SessionAuthenticationInterceptor.AuthenticatedListener<>(call, mock(SecurityContext.class));
+    listener.setDelegate(delegate);
+
+    listener.run(() -> {
+      throw new EntityNotFoundException(UCSBDiningCommons.class, "x");
+    });
+    listener.onMessage("too late");
+
+    verify(call).close(argThat(status -> status.getCode() == Status.Code.NOT_FOUND), any(Metadata.class));
+    verify(delegate, never()).onMessage(any());
+  }
+}
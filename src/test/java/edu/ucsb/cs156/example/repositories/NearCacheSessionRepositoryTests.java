@@ -0,0 +1,297 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.session.MapSession;
+import org.springframework.session.MapSessionRepository;
+
+import edu.ucsb.cs156.example.repositories.NearCacheSessionRepository.NearCacheSession;
+
+public class NearCacheSessionRepositoryTests {
+
+  private MutableClock clock;
+  private MapSessionRepository store;
+  private NearCacheSessionRepository<MapSession> repository;
+
+  @BeforeEach
+  public void setup() {
+    clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    store = spy(new MapSessionRepository(new ConcurrentHashMap<>()));
+    repository = new NearCacheSessionRepository<>(store, Duration.ofSeconds(5), 2, Duration.ofSeconds(60), clock);
+  }
+
+  private NearCacheSession<MapSession> savedSession() {
+    NearCacheSession<MapSession> session = repository.createSession();
+    session.setAttribute("user", "cgaucho");
+    repository.save(session);
+    return session;
+  }
+
+  @Test
+  public void findById_is_served_from_cache_after_save() {
+    NearCacheSession<MapSession> session = savedSession();
+
+    NearCacheSession<MapSession> found = repository.findById(session.getId());
+
+    assertEquals(session.getId(), found.getId());
+    assertEquals("cgaucho", found.getAttribute("user"));
+    verify(store, times(0)).findById(session.getId());
+  }
+
+  @Test
+  public void findById_reads_through_on_miss_and_then_caches() {
+    MapSession session = store.createSession();
+    store.save(session);
+
+    NearCacheSession<MapSession> first = repository.findById(session.getId());
+    NearCacheSession<MapSession> second = repository.findById(session.getId());
+
+    assertEquals(session.getId(), first.getId());
+    assertEquals(session.getId(), second.getId());
+    verify(store, times(1)).findById(session.getId());
+  }
+
+  @Test
+  public void each_findById_gets_its_own_copy() {
+    NearCacheSession<MapSession> session = savedSession();
+
+    NearCacheSession<MapSession> first = repository.findById(session.getId());
+    NearCacheSession<MapSession> second = repository.findById(session.getId());
+    first.setAttribute("user", "ldelplaya");
+    first.setLastAccessedTime(Instant.parse("2024-01-01T00:30:00Z"));
+
+    assertNotSame(first, second);
+    assertEquals("cgaucho", second.getAttribute("user"));
+    assertEquals(Set.of("user"), second.getAttributeNames());
+    assertEquals(session.getLastAccessedTime(), second.getLastAccessedTime());
+    assertEquals("cgaucho", repository.findById(session.getId()).getAttribute("user"));
+  }
+
+  @Test
+  public void concurrent_requests_changing_different_attributes_keep_both_changes() {
+    NearCacheSession<MapSession> session = savedSession();
+    NearCacheSession<MapSession> tab1 = repository.findById(session.getId());
+    NearCacheSession<MapSession> tab2 = repository.findById(session.getId());
+
+    tab1.setAttribute("theme", "dark");
+    repository.save(tab1);
+    // tab2's copy predates tab1's change; its own change must not undo it
+    tab2.setAttribute("cart", "burrito");
+    repository.save(tab2);
+
+    MapSession stored = store.findById(session.getId());
+    assertEquals("cgaucho", stored.getAttribute("user"));
+    assertEquals("dark", stored.getAttribute("theme"));
+    assertEquals("burrito", stored.getAttribute("cart"));
+    assertEquals("dark", repository.findById(session.getId()).getAttribute("theme"));
+  }
+
+  @Test
+  public void removed_attributes_and_timeout_changes_reach_the_store() {
+    NearCacheSession<MapSession> session = savedSession();
+    NearCacheSession<MapSession> found = repository.findById(session.getId());
+
+    found.removeAttribute("user");
+    found.setMaxInactiveInterval(Duration.ofMinutes(5));
+    repository.save(found);
+
+    MapSession stored = store.findById(session.getId());
+    assertNull(stored.getAttribute("user"));
+    assertEquals(Duration.ofMinutes(5), stored.getMaxInactiveInterval());
+    assertEquals(Duration.ofMinutes(5), found.getMaxInactiveInterval());
+    assertEquals(session.getCreationTime(), found.getCreationTime());
+  }
+
+  @Test
+  public void access_time_is_only_written_once_per_flush_interval() {
+    NearCacheSession<MapSession> session = savedSession();
+    Instant start = session.getLastAccessedTime();
+    clearInvocations(store);
+
+    for (int second = 1; second < 60; second++) {
+      NearCacheSession<MapSession> request = repository.findById(session.getId());
+      request.setLastAccessedTime(start.plusSeconds(second));
+      repository.save(request);
+    }
+    verify(store, never()).save(any());
+    assertEquals(start, store.findById(session.getId()).getLastAccessedTime());
+
+    NearCacheSession<MapSession> request = repository.findById(session.getId());
+    request.setLastAccessedTime(start.plusSeconds(60));
+    repository.save(request);
+
+    verify(store, times(1)).save(any());
+    assertEquals(start.plusSeconds(60), store.findById(session.getId()).getLastAccessedTime());
+  }
+
+  @Test
+  public void access_time_write_does_not_bring_back_a_deleted_session() {
+    NearCacheSession<MapSession> session = savedSession();
+    NearCacheSession<MapSession> request = repository.findById(session.getId());
+    store.deleteById(session.getId());
+
+    request.setLastAccessedTime(request.getLastAccessedTime().plusSeconds(60));
+    repository.save(request);
+
+    assertNull(store.findById(session.getId()));
+    assertEquals(0, repository.size());
+  }
+
+  @Test
+  public void findById_returns_null_for_unknown_session() {
+    assertNull(repository.findById("no-such-session"));
+    assertEquals(0, repository.size());
+  }
+
+  @Test
+  public void entries_expire_after_time_to_live() {
+    NearCacheSession<MapSession> session = savedSession();
+
+    clock.advance(Duration.ofSeconds(6));
+    repository.findById(session.getId());
+
+    verify(store, times(1)).findById(session.getId());
+  }
+
+  @Test
+  public void old_id_does_not_resolve_after_change_session_id() {
+    NearCacheSession<MapSession> session = savedSession();
+    String oldId = session.getId();
+
+    NearCacheSession<MapSession> found = repository.findById(oldId);
+    String newId = found.changeSessionId();
+    repository.save(found);
+
+    assertEquals(newId, found.getId());
+    assertNull(repository.findById(oldId));
+    assertEquals("cgaucho", repository.findById(newId).getAttribute("user"));
+    assertEquals("cgaucho", store.findById(newId).getAttribute("user"));
+  }
+
+  @Test
+  public void change_session_id_of_a_session_deleted_elsewhere_is_not_saved() {
+    NearCacheSession<MapSession> session = savedSession();
+    NearCacheSession<MapSession> found = repository.findById(session.getId());
+    store.deleteById(session.getId());
+
+    String newId = found.changeSessionId();
+    found.setAttribute("user", "ldelplaya");
+    found.removeAttribute("user");
+    found.setMaxInactiveInterval(Duration.ofMinutes(5));
+    repository.save(found);
+
+    assertEquals(newId, found.getId());
+    assertNull(store.findById(newId));
+    assertEquals(0, repository.size());
+  }
+
+  @Test
+  public void expired_sessions_are_not_served_from_cache() {
+    NearCacheSession<MapSession> session = repository.createSession();
+    session.setMaxInactiveInterval(Duration.ofSeconds(1));
+    session.setLastAccessedTime(Instant.parse("2000-01-01T00:00:00Z"));
+    repository.save(session);
+
+    assertTrue(session.isExpired());
+    assertNull(repository.findById(session.getId()));
+    verify(store, times(1)).findById(session.getId());
+  }
+
+  @Test
+  public void deleteById_evicts_and_deletes_from_store() {
+    NearCacheSession<MapSession> session = savedSession();
+
+    repository.deleteById(session.getId());
+
+    assertEquals(0, repository.size());
+    assertNull(repository.findById(session.getId()));
+    verify(store, times(1)).deleteById(session.getId());
+  }
+
+  @Test
+  public void cache_does_not_grow_past_maximum_size() {
+    repository.save(repository.createSession());
+    repository.save(repository.createSession());
+    repository.save(repository.createSession());
+
+    assertEquals(2, repository.size());
+  }
+
+  @Test
+  public void stale_entries_are_evicted_when_cache_is_full() {
+    repository.save(repository.createSession());
+    repository.save(repository.createSession());
+
+    clock.advance(Duration.ofSeconds(6));
+    NearCacheSession<MapSession> third = savedSession();
+
+    assertEquals(1, repository.size());
+    assertEquals("cgaucho", repository.findById(third.getId()).getAttribute("user"));
+    verify(store, times(0)).findById(third.getId());
+  }
+
+  @Test
+  public void zero_time_to_live_disables_caching() {
+    repository = new NearCacheSessionRepository<>(store, Duration.ZERO, 2, Duration.ofSeconds(60));
+    NearCacheSession<MapSession> session = repository.createSession();
+    repository.save(session);
+
+    repository.findById(session.getId());
+
+    assertEquals(0, repository.size());
+    verify(store, times(1)).findById(session.getId());
+  }
+
+  @Test
+  public void negative_time_to_live_disables_caching() {
+    repository = new NearCacheSessionRepository<>(store, Duration.ofSeconds(-1), 2, Duration.ofSeconds(60));
+    repository.save(repository.createSession());
+
+    assertEquals(0, repository.size());
+  }
+
+  private static class MutableClock extends Clock {
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneId.of("UTC");
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
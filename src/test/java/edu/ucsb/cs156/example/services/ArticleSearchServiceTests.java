@@ -0,0 +1,230 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class ArticleSearchServiceTests {
+
+  @Mock
+  ArticlesRepository articlesRepository;
+
+  ArticleSearchService search;
+
+  private static Articles article(long id, String title, String url, String explanation) {
+    return Articles.builder()
+        .id(id)
+        .title(title)
+        .url(url)
+        .explanation(explanation)
+        .email("cgaucho@ucsb.edu")
+        .dateAdded(LocalDateTime.parse("2022-04-20T09:00"))
+        .build();
+  }
+
+  @BeforeEach
+  public void setup() throws Exception {
+    search = new ArticleSearchService();
+    search.articlesRepository = articlesRepository;
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    search.close();
+  }
+
+  private List<Long> ids(ArticleSearchResults results) {
+    return results.getHits().stream().map(ArticleSearchHit::getId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void title_matches_rank_above_explanation_matches() throws Exception {
+    search.index(article(1, "Cooking pasta", "https://food.example.com", "A note on react hooks"));
+    search.index(article(2, "Intro to React", "https://react.example.com", "Components and state"));
+    search.index(article(3, "Gardening", "https://garden.example.com", "Tomatoes"));
+
+    ArticleSearchResults results = search.search("react", 0, 10);
+
+    assertEquals(List.of(2L, 1L), ids(results));
+    assertEquals(2, results.getTotalHits());
+    assertEquals("react", results.getQuery());
+    ArticleSearchHit best = results.getHits().get(0);
+    assertEquals("Intro to <b>React</b>", best.getTitleHighlight());
+    assertEquals("Intro to React", best.getTitle());
+    assertEquals("https://react.example.com", best.getUrl());
+    assertNull(best.getExplanationHighlight());
+    assertEquals("A note on <b>react</b> hooks", results.getHits().get(1).getExplanationHighlight());
+  }
+
+  @Test
+  public void highlights_escape_html_in_the_text() throws Exception {
+    search.index(article(1, "<script> tags & react", "https://example.com", "react"));
+
+    ArticleSearchHit hit = search.search("react", 0, 10).getHits().get(0);
+
+    assertEquals("&lt;script&gt; tags &amp; <b>react</b>", hit.getTitleHighlight());
+  }
+
+  @Test
+  public void missing_fields_are_not_indexed() throws Exception {
+    search.index(article(1, null, null, "only an explanation"));
+
+    ArticleSearchHit hit = search.search("explanation", 0, 10).getHits().get(0);
+
+    assertEquals(1L, hit.getId());
+    assertNull(hit.getTitle());
+    assertNull(hit.getTitleHighlight());
+    assertNull(hit.getUrl());
+    assertEquals("only an <b>explanation</b>", hit.getExplanationHighlight());
+  }
+
+  @Test
+  public void reindexing_an_article_replaces_it() throws Exception {
+    search.index(article(1, "Old title", "https://example.com", "text"));
+    search.index(article(1, "New title", "https://example.com", "text"));
+
+    assertEquals(List.of(), ids(search.search("old", 0, 10)));
+    assertEquals(List.of(1L), ids(search.search("new", 0, 10)));
+    assertEquals(1, search.size());
+  }
+
+  @Test
+  public void removed_articles_are_not_found() throws Exception {
+    search.index(article(1, "Spring boot", "https://example.com", "text"));
+    search.index(article(2, "Spring data", "https://example.com", "text"));
+
+    search.remove(1);
+
+    assertEquals(List.of(2L), ids(search.search("spring", 0, 10)));
+    assertEquals(1, search.size());
+  }
+
+  @Test
+  public void results_are_paged() throws Exception {
+    for (long id = 1; id <= 5; id++) {
+      search.index(article(id, "Article " + id, "https://example.com/" + id, "paging"));
+    }
+
+    ArticleSearchResults second = search.search("paging", 1, 2);
+    ArticleSearchResults last = search.search("paging", 2, 2);
+
+    assertEquals(2, second.getHits().size());
+    assertEquals(1, second.getPage());
+    assertEquals(2, second.getSize());
+    assertEquals(5, second.getTotalHits());
+    assertEquals(1, last.getHits().size());
+  }
+
+  @Test
+  public void page_and_size_are_clamped() throws Exception {
+    search.index(article(1, "Clamp", "https://example.com", "text"));
+
+    ArticleSearchResults tooSmall = search.search("clamp", -3, 0);
+    ArticleSearchResults tooBig = search.search("clamp", 0, 1000);
+    ArticleSearchResults tooDeep = search.search("clamp", Integer.MAX_VALUE, 10);
+
+    assertEquals(0, tooSmall.getPage());
+    assertEquals(1, tooSmall.getSize());
+    assertEquals(List.of(1L), ids(tooSmall));
+    assertEquals(ArticleSearchService.MAX_PAGE_SIZE, tooBig.getSize());
+    assertEquals(List.of(), ids(tooDeep));
+    assertEquals(1, tooDeep.getTotalHits());
+  }
+
+  @Test
+  public void query_syntax_is_supported() throws Exception {
+    search.index(article(1, "Spring boot", "https://example.com", "boot camp"));
+    search.index(article(2, "Boots", "https://example.com", "spring weather"));
+
+    assertEquals(List.of(1L), ids(search.search("title:spring", 0, 10)));
+    assertEquals(List.of(2L), ids(search.search("\"spring weather\"", 0, 10)));
+    assertEquals(List.of(2L, 1L), ids(search.search("boots OR camp", 0, 10)));
+  }
+
+  @Test
+  public void bad_syntax_is_searched_as_plain_words() throws Exception {
+    search.index(article(1, "Title", "https://example.com", "text"));
+
+    assertEquals(List.of(1L), ids(search.search("title:(", 0, 10)));
+  }
+
+  @Test
+  public void expensive_syntax_is_searched_as_plain_words() throws Exception {
+    search.index(article(1, "Spring boot", "https://example.com", "text"));
+
+    assertEquals(List.of(1L), ids(search.search("spr*", 0, 10)));
+    assertEquals(List.of(), ids(search.search("sprang~", 0, 10)));
+    assertEquals(List.of(), ids(search.search("/spr.ng/", 0, 10)));
+    assertEquals(List.of(), ids(search.search("*ring", 0, 10)));
+    assertEquals(List.of(), ids(search.search("spr?ng", 0, 10)));
+    assertEquals(List.of(), ids(search.search("explanation:[a TO z]", 0, 10)));
+    assertEquals(List.of(1L), ids(search.search("boot~", 0, 10)));
+  }
+
+  @Test
+  public void blank_query_matches_nothing() throws Exception {
+    search.index(article(1, "Title", "https://example.com", "text"));
+
+    assertTrue(search.parse("") instanceof MatchNoDocsQuery);
+    assertEquals(List.of(), ids(search.search("  ", 0, 10)));
+  }
+
+  @Test
+  public void rebuild_indexes_every_page_of_the_database() throws Exception {
+    search.rebuildPageSize = 2;
+    search.index(article(99, "Stale", "https://example.com", "gone"));
+    List<Articles> all = LongStream.rangeClosed(1, 5)
+        .mapToObj(id -> article(id, "Rebuilt " + id, "https://example.com/" + id, "text"))
+        .collect(Collectors.toList());
+    when(articlesRepository.count()).thenReturn(5L);
+    when(articlesRepository.findAll(any(Pageable.class))).thenAnswer(invocation -> {
+      PageRequest request = invocation.getArgument(0);
+      int from = (int) request.getOffset();
+      return new PageImpl<>(all.subList(from, Math.min(from + request.getPageSize(), all.size())), request, all.size());
+    });
+
+    search.rebuild();
+
+    verify(articlesRepository, times(3)).findAll(any(Pageable.class));
+    assertEquals(5, search.size());
+    assertEquals(List.of(), ids(search.search("stale", 0, 10)));
+    assertEquals(5, search.search("rebuilt", 0, 10).getTotalHits());
+  }
+
+  @Test
+  public void rebuild_of_an_empty_database_empties_the_index() throws Exception {
+    search.index(article(1, "Stale", "https://example.com", "gone"));
+    when(articlesRepository.count()).thenReturn(0L);
+
+    search.rebuild();
+
+    assertEquals(0, search.size());
+    assertEquals(List.of(), ids(search.search("stale", 0, 10)));
+  }
+}
@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+@ExtendWith(MockitoExtension.class)
+public class DiningCommonsLocationServiceTests {
+
+  @Mock
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Mock
+  TableChangeService tableChanges;
+
+  @InjectMocks
+  DiningCommonsLocationService location;
+
+  private final UCSBDiningCommons ortega = commons("ortega", 34.410987, -119.84709, true, true);
+  private final UCSBDiningCommons carrillo = commons("carrillo", 34.409953, -119.85277, false, true);
+  private final UCSBDiningCommons delaguerra = commons("de-la-guerra", 34.409811, -119.845026, false, false);
+  private final UCSBDiningCommons portola = commons("portola", 34.417723, -119.867427, true, false);
+
+  private static UCSBDiningCommons commons(String code, Double latitude, Double longitude,
+      boolean hasSackMeal, boolean hasTakeOutMeal) {
+    return UCSBDiningCommons.builder()
+        .code(code)
+        .name(code)
+        .hasSackMeal(hasSackMeal)
+        .hasTakeOutMeal(hasTakeOutMeal)
+        .latitude(latitude)
+        .longitude(longitude)
+        .build();
+  }
+
+  private static List<String> codes(List<NearbyDiningCommons> nearby) {
+    return nearby.stream().map(n -> n.getCommons().getCode()).collect(Collectors.toList());
+  }
+
+  private void load(List<UCSBDiningCommons> all) {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(all);
+    location.reload();
+  }
+
+  @Test
+  public void nothing_is_found_before_anything_is_loaded() {
+    assertEquals(List.of(), location.nearest(34.41, -119.85, 3, null, null));
+  }
+
+  @Test
+  public void the_tree_is_built_at_startup_and_again_when_another_instance_changes_the_table() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ortega));
+    location.load();
+    ArgumentCaptor<Runnable> changed = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.DINING_COMMONS), changed.capture());
+    assertEquals(List.of("ortega"), codes(location.nearest(34.41, -119.85, 3, null, null)));
+
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ortega, portola));
+    changed.getValue().run();
+
+    assertEquals(List.of("ortega", "portola"), codes(location.nearest(34.41, -119.85, 3, null, null)));
+  }
+
+  @Test
+  public void commons_are_returned_nearest_first() {
+    load(List.of(ortega, carrillo, delaguerra, portola));
+
+    // the Storke Tower plaza
+    List<NearbyDiningCommons> nearby = location.nearest(34.4126, -119.8484, 4, null, null);
+
+    assertEquals(List.of("ortega", "de-la-guerra", "carrillo", "portola"), codes(nearby));
+  }
+
+  @Test
+  public void k_limits_the_number_of_results() {
+    load(List.of(ortega, carrillo, delaguerra, portola));
+
+    assertEquals(List.of("portola"), codes(location.nearest(34.4177, -119.8674, 1, null, null)));
+    assertEquals(List.of("portola"), codes(location.nearest(34.4177, -119.8674, 0, null, null)));
+    assertEquals(4, location.nearest(34.4177, -119.8674, 1000, null, null).size());
+  }
+
+  @Test
+  public void filters_keep_only_matching_commons() {
+    load(List.of(ortega, carrillo, delaguerra, portola));
+
+    assertEquals(List.of("ortega", "portola"), codes(location.nearest(34.4126, -119.8484, 4, true, null)));
+    assertEquals(List.of("ortega", "carrillo"), codes(location.nearest(34.4126, -119.8484, 4, null, true)));
+    assertEquals(List.of("de-la-guerra"), codes(location.nearest(34.4126, -119.8484, 4, false, false)));
+  }
+
+  @Test
+  public void commons_without_a_location_are_left_out() {
+    load(List.of(ortega, commons("no-latitude", null, -119.85, true, true),
+        commons("no-longitude", 34.41, null, true, true)));
+
+    assertEquals(List.of("ortega"), codes(location.nearest(34.41, -119.85, 5, null, null)));
+  }
+
+  @Test
+  public void distances_are_great_circle_meters() {
+    load(List.of(commons("north-pole", 90.0, 0.0, false, false)));
+
+    NearbyDiningCommons atPole = location.nearest(90.0, 45.0, 1, null, null).get(0);
+    NearbyDiningCommons oneDegreeAway = location.nearest(89.0, 0.0, 1, null, null).get(0);
+    NearbyDiningCommons antipode = location.nearest(-90.0, 0.0, 1, null, null).get(0);
+
+    assertEquals(0.0, atPole.getDistanceMeters(), 1e-3);
+    assertEquals(Math.PI * DiningCommonsLocationService.EARTH_RADIUS_METERS / 180, oneDegreeAway.getDistanceMeters(), 1e-3);
+    assertEquals(Math.PI * DiningCommonsLocationService.EARTH_RADIUS_METERS, antipode.getDistanceMeters(), 1e-3);
+  }
+
+  @Test
+  public void nearest_wraps_across_the_date_line() {
+    load(List.of(commons("east", 0.0, 179.9, false, false), commons("west", 0.0, -170.0, false, false)));
+
+    assertEquals(List.of("east", "west"), codes(location.nearest(0.0, -179.9, 2, null, null)));
+  }
+
+  @Test
+  public void reload_replaces_what_was_there() {
+    load(List.of(ortega, carrillo));
+    load(List.of(portola));
+
+    assertEquals(List.of("portola"), codes(location.nearest(34.41, -119.85, 5, null, null)));
+  }
+
+  @Test
+  public void tree_agrees_with_a_linear_scan() {
+    Random random = new Random(156);
+    List<UCSBDiningCommons> all = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      all.add(commons("c" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180,
+          random.nextBoolean(), random.nextBoolean()));
+    }
+    load(all);
+
+    for (int q = 0; q < 200; q++) {
+      double lat = random.nextDouble() * 180 - 90;
+      double lon = random.nextDouble() * 360 - 180;
+      int k = 1 + random.nextInt(10);
+      Boolean hasSackMeal = q % 3 == 0 ? null : q % 3 == 1;
+
+      double[] target = DiningCommonsLocationService.toPoint(lat, lon);
+      List<String> expected = all.stream()
+          .filter(c -> hasSackMeal == null || hasSackMeal == c.getHasSackMeal())
+          .sorted(Comparator.comparingDouble(c -> squaredDistance(target, c)))
+          .limit(k)
+          .map(UCSBDiningCommons::getCode)
+          .collect(Collectors.toList());
+
+      assertEquals(expected, codes(location.nearest(lat, lon, k, hasSackMeal, null)));
+    }
+  }
+
+  private static double squaredDistance(double[] target, UCSBDiningCommons commons) {
+    double[] point = DiningCommonsLocationService.toPoint(commons.getLatitude(), commons.getLongitude());
+    double sum = 0;
+    for (int i = 0; i < 3; i++) {
+      sum += (point[i] - target[i]) * (point[i] - target[i]);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,323 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.GraphQLRequest;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import graphql.language.IntValue;
+import graphql.language.StringValue;
+import graphql.schema.Coercing;
+import graphql.schema.CoercingParseLiteralException;
+import graphql.schema.CoercingParseValueException;
+import graphql.schema.CoercingSerializeException;
+
+@ExtendWith(MockitoExtension.class)
+public class GraphQLServiceTests {
+
+  @Mock
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Mock
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Mock
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Mock
+  HelpRequestRepository helpRequestRepository;
+
+  @Mock
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Mock
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Mock
+  UCSBDateRepository ucsbDateRepository;
+
+  @Mock
+  ArticlesRepository articlesRepository;
+
+  @Mock
+  UserRepository userRepository;
+
+  @InjectMocks
+  GraphQLService graphQL;
+
+  private static final LocalDateTime NOON = LocalDateTime.parse("2022-01-03T12:00:00");
+
+  private final UCSBDiningCommons ortega = commons("ortega");
+  private final UCSBDiningCommons carrillo = commons("carrillo");
+  private final UCSBDiningCommonsMenuItems tacos = item(1, "ortega", "Tacos");
+  private final UCSBDiningCommonsMenuItems salad = item(2, "ortega", "Salad");
+  private final UCSBDiningCommonsMenuItems soup = item(3, "carrillo", "Soup");
+  private final User cgaucho = User.builder().id(7L).email("cgaucho@ucsb.edu").fullName("Chris Gaucho").admin(false).build();
+
+  private static UCSBDiningCommons commons(String code) {
+    return UCSBDiningCommons.builder().code(code).name(code).build();
+  }
+
+  private static UCSBDiningCommonsMenuItems item(long id, String diningCommonsCode, String name) {
+    return UCSBDiningCommonsMenuItems.builder().id(id).diningCommonsCode(diningCommonsCode).name(name).station("Grill").build();
+  }
+
+  private static MenuItemReview review(long id, long itemId, int stars) {
+    return MenuItemReview.builder().id(id).itemId(itemId).reviewerEmail("cgaucho@ucsb.edu").stars(stars).dateReviewed(NOON).build();
+  }
+
+  private Map<String, Object> run(String query) throws Exception {
+    return run(GraphQLRequest.builder().query(query).build(), false);
+  }
+
+  private Map<String, Object> run(GraphQLRequest request, boolean admin) throws Exception {
+    graphQL.init();
+    return graphQL.execute(request, cgaucho, admin);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object data(Map<String, Object> result, String field) {
+    assertNull(result.get("errors"), () -> "unexpected errors: " + result.get("errors"));
+    return ((Map<String, Object>) result.get("data")).get(field);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String error(Map<String, Object> result) {
+    return ((List<Map<String, Object>>) result.get("errors")).get(0).get("message").toString();
+  }
+
+  private static String sha256(String text) throws Exception {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void nested_fields_take_one_query_per_level() throws Exception {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ortega, carrillo, commons("portola")));
+    when(ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCodeInOrderByIdAsc(Set.of("ortega", "carrillo", "portola")))
+        .thenReturn(List.of(tacos, salad, soup));
+    when(menuItemReviewRepository.findAllByItemIdInOrderByIdAsc(Set.of(1L, 2L, 3L)))
+        .thenReturn(List.of(review(10, 1, 5), review(11, 1, 3), review(12, 3, 4)));
+    when(menuItemReviewRepository.findRatingsByItemIdIn(Set.of(1L, 2L, 3L)))
+        .thenReturn(List.of(new MenuItemRating(1L, 2L, 4.0), new MenuItemRating(3L, 1L, 4.0)));
+
+    Object commons = data(run("{ allDiningCommons { code menuItems { name reviewCount averageStars reviews { stars dateReviewed } } } }"),
+        "allDiningCommons");
+
+    assertEquals("[{code=ortega, menuItems=["
+        + "{name=Tacos, reviewCount=2, averageStars=4.0, reviews=["
+        + "{stars=5, dateReviewed=2022-01-03T12:00:00}, {stars=3, dateReviewed=2022-01-03T12:00:00}]}, "
+        + "{name=Salad, reviewCount=0, averageStars=null, reviews=[]}]}, "
+        + "{code=carrillo, menuItems=["
+        + "{name=Soup, reviewCount=1, averageStars=4.0, reviews=[{stars=4, dateReviewed=2022-01-03T12:00:00}]}]}, "
+        + "{code=portola, menuItems=[]}]", commons.toString());
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAllByDiningCommonsCodeInOrderByIdAsc(any());
+    verify(menuItemReviewRepository, times(1)).findAllByItemIdInOrderByIdAsc(any());
+    verify(menuItemReviewRepository, times(1)).findRatingsByItemIdIn(any());
+  }
+
+  @Test
+  public void each_key_is_loaded_once_per_request() throws Exception {
+    when(menuItemReviewRepository.findAll()).thenReturn(List.of(review(10, 1, 5), review(11, 1, 3), review(12, 2, 4)));
+    when(ucsbDiningCommonsMenuItemRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(tacos, salad));
+    when(ucsbDiningCommonsRepository.findAllById(Set.of("ortega"))).thenReturn(List.of(ortega));
+
+    Object reviews = data(run("{ allMenuItemReviews { id item { name diningCommons { code } } } }"), "allMenuItemReviews");
+
+    assertEquals(List.of(
+        Map.of("id", "10", "item", Map.of("name", "Tacos", "diningCommons", Map.of("code", "ortega"))),
+        Map.of("id", "11", "item", Map.of("name", "Tacos", "diningCommons", Map.of("code", "ortega"))),
+        Map.of("id", "12", "item", Map.of("name", "Salad", "diningCommons", Map.of("code", "ortega")))), reviews);
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAllById(any());
+    verify(ucsbDiningCommonsRepository, times(1)).findAllById(any());
+  }
+
+  @Test
+  public void lookups_by_key_return_null_when_there_is_no_row() throws Exception {
+    when(ucsbDiningCommonsRepository.findAllById(Set.of("ortega", "nowhere"))).thenReturn(List.of(ortega));
+    when(ucsbDiningCommonsMenuItemRepository.findAllById(Set.of(1L, 99L)))
+        .thenReturn(List.of(item(1, null, "Orphan")));
+
+    Map<String, Object> result = run("{ a: diningCommons(code: \"ortega\") { name } b: diningCommons(code: \"nowhere\") { name } "
+        + "c: menuItem(id: 1) { name diningCommons { code } } d: menuItem(id: 99) { name } }");
+
+    assertEquals(Map.of("name", "ortega"), data(result, "a"));
+    assertNull(data(result, "b"));
+    assertEquals("{name=Orphan, diningCommons=null}", data(result, "c").toString());
+    assertNull(data(result, "d"));
+  }
+
+  @Test
+  public void variables_and_operation_name_are_used() throws Exception {
+    when(ucsbDiningCommonsRepository.findAllById(Set.of("carrillo"))).thenReturn(List.of(carrillo));
+
+    Map<String, Object> result = run(GraphQLRequest.builder()
+        .query("query Other { allArticles { id } } query Commons($code: String!) { diningCommons(code: $code) { code } }")
+        .operationName("Commons")
+        .variables(Map.of("code", "carrillo"))
+        .build(), false);
+
+    assertEquals(Map.of("code", "carrillo"), data(result, "diningCommons"));
+    verify(articlesRepository, never()).findAll();
+  }
+
+  @Test
+  public void requesters_are_only_resolved_for_admins() throws Exception {
+    when(helpRequestRepository.findAll()).thenReturn(List.of(
+        HelpRequest.builder().id(1).requesterEmail("cgaucho@ucsb.edu").requestTime(NOON).build(),
+        HelpRequest.builder().id(2).requesterEmail(null).build()));
+    when(recommendationRequestRepository.findAll()).thenReturn(List.of(
+        RecommendationRequest.builder().id(3).requesterEmail("cgaucho@ucsb.edu").build(),
+        RecommendationRequest.builder().id(4).requesterEmail("ldelplaya@ucsb.edu").build()));
+    when(userRepository.findAllByEmailIn(any())).thenAnswer(invocation -> invocation.<Set<String>>getArgument(0)
+        .contains(cgaucho.getEmail()) ? List.of(cgaucho) : List.of());
+    String query = "{ allHelpRequests { id requestTime requester { fullName } } "
+        + "allRecommendationRequests { id requester { fullName } } }";
+
+    Map<String, Object> asAdmin = run(GraphQLRequest.builder().query(query).build(), true);
+    Map<String, Object> asUser = run(GraphQLRequest.builder().query(query).build(), false);
+
+    assertEquals("[{id=1, requestTime=2022-01-03T12:00:00, requester={fullName=Chris Gaucho}}, "
+        + "{id=2, requestTime=null, requester=null}]", data(asAdmin, "allHelpRequests").toString());
+    assertEquals("[{id=3, requester={fullName=Chris Gaucho}}, {id=4, requester=null}]",
+        data(asAdmin, "allRecommendationRequests").toString());
+    assertEquals("[{id=3, requester=null}, {id=4, requester=null}]", data(asUser, "allRecommendationRequests").toString());
+    // cgaucho was loaded for the help requests and is not loaded again
+    verify(userRepository).findAllByEmailIn(Set.of("cgaucho@ucsb.edu"));
+    verify(userRepository).findAllByEmailIn(Set.of("ldelplaya@ucsb.edu"));
+    verify(userRepository, times(2)).findAllByEmailIn(any());
+  }
+
+  @Test
+  public void current_user_is_the_caller() throws Exception {
+    Map<String, Object> result = run("{ currentUser { email admin } }");
+
+    assertEquals(Map.of("email", "cgaucho@ucsb.edu", "admin", false), data(result, "currentUser"));
+    graphQL.init();
+    assertNull(data(graphQL.execute(GraphQLRequest.builder().query("{ currentUser { email } }").build(), null, false),
+        "currentUser"));
+  }
+
+  @Test
+  public void every_entity_can_be_listed() throws Exception {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(UCSBOrganization.builder()
+        .orgCode("ZPR").orgTranslationShort("ZETA PHI RHO").orgTranslation("ZETA PHI RHO").inactive(false).build()));
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(UCSBDate.builder()
+        .id(1).quarterYYYYQ("20222").name("Noon on Monday").localDateTime(NOON).build()));
+    when(articlesRepository.findAll()).thenReturn(List.of(Articles.builder()
+        .id(5).title("Title").url("https://example.com").explanation("Text").email("cgaucho@ucsb.edu").dateAdded(NOON).build()));
+
+    Map<String, Object> result = run("{ allOrganizations { orgCode orgTranslationShort orgTranslation inactive } "
+        + "allUcsbDates { id quarterYYYYQ name localDateTime } "
+        + "allArticles { id title url explanation email dateAdded } }");
+
+    assertEquals(List.of(Map.of("orgCode", "ZPR", "orgTranslationShort", "ZETA PHI RHO", "orgTranslation", "ZETA PHI RHO",
+        "inactive", false)), data(result, "allOrganizations"));
+    assertEquals(List.of(Map.of("id", "1", "quarterYYYYQ", "20222", "name", "Noon on Monday",
+        "localDateTime", "2022-01-03T12:00:00")), data(result, "allUcsbDates"));
+    assertEquals(List.of(Map.of("id", "5", "title", "Title", "url", "https://example.com", "explanation", "Text",
+        "email", "cgaucho@ucsb.edu", "dateAdded", "2022-01-03T12:00:00")), data(result, "allArticles"));
+  }
+
+  @Test
+  public void queries_that_are_too_deep_are_rejected_before_they_run() throws Exception {
+    graphQL.maxDepth = 3;
+
+    Map<String, Object> result = run("{ allDiningCommons { menuItems { reviews { item { name } } } } }");
+
+    assertTrue(error(result).contains("maximum query depth exceeded"), error(result));
+    verify(ucsbDiningCommonsRepository, never()).findAll();
+  }
+
+  @Test
+  public void queries_that_select_too_much_are_rejected_before_they_run() throws Exception {
+    graphQL.maxComplexity = 3;
+
+    Map<String, Object> result = run("{ allOrganizations { orgCode orgTranslationShort orgTranslation inactive } }");
+
+    assertTrue(error(result).contains("maximum query complexity exceeded"), error(result));
+    verify(ucsbOrganizationRepository, never()).findAll();
+  }
+
+  @Test
+  public void persisted_queries_can_be_run_by_hash() throws Exception {
+    String query = "{ allOrganizations { orgCode } }";
+    Map<String, Object> extensions = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", sha256(query)));
+    GraphQLRequest hashOnly = GraphQLRequest.builder().extensions(extensions).build();
+    GraphQLRequest withQuery = GraphQLRequest.builder().query(query).extensions(extensions).build();
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(UCSBOrganization.builder().orgCode("ZPR").build()));
+    graphQL.init();
+
+    Map<String, Object> unknown = graphQL.execute(hashOnly, cgaucho, false);
+    Map<String, Object> registered = graphQL.execute(withQuery, cgaucho, false);
+    Map<String, Object> known = graphQL.execute(hashOnly, cgaucho, false);
+
+    assertEquals("PersistedQueryNotFound", error(unknown));
+    assertEquals(List.of(Map.of("orgCode", "ZPR")), data(registered, "allOrganizations"));
+    assertEquals(List.of(Map.of("orgCode", "ZPR")), data(known, "allOrganizations"));
+  }
+
+  @Test
+  public void persisted_queries_must_match_their_hash() throws Exception {
+    GraphQLRequest request = GraphQLRequest.builder()
+        .query("{ allOrganizations { orgCode } }")
+        .extensions(Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", sha256("{ allArticles { id } }"))))
+        .build();
+
+    Map<String, Object> result = run(request, false);
+
+    assertEquals("PersistedQueryIdInvalid", error(result));
+    verify(ucsbOrganizationRepository, never()).findAll();
+  }
+
+  @Test
+  public void date_times_are_written_and_read_as_iso_8601() {
+    Coercing<?, ?> coercing = GraphQLService.DATE_TIME.getCoercing();
+
+    assertEquals("2022-01-03T12:00:00", coercing.serialize(NOON));
+    assertEquals(NOON, coercing.parseValue("2022-01-03T12:00"));
+    assertEquals(NOON, coercing.parseLiteral(new StringValue("2022-01-03T12:00:00")));
+    assertThrows(CoercingSerializeException.class, () -> coercing.serialize("noon"));
+    assertThrows(CoercingParseValueException.class, () -> coercing.parseValue("noon"));
+    assertThrows(CoercingParseLiteralException.class, () -> coercing.parseLiteral(new StringValue("noon")));
+    assertThrows(CoercingParseLiteralException.class, () -> coercing.parseLiteral(IntValue.of(12)));
+  }
+}
@@ -0,0 +1,286 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+
+public class HelpRequestEventServiceTests {
+
+  private List<RecordingEmitter> emitters;
+  private HelpRequestEventService service;
+
+  @BeforeEach
+  public void setup() {
+    emitters = new ArrayList<>();
+    service = new HelpRequestEventService() {
+      @Override
+      SseEmitter newEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitters.add(emitter);
+        return emitter;
+      }
+    };
+  }
+
+  @AfterEach
+  public void teardown() {
+    service.shutdown();
+  }
+
+  private HelpRequest helpRequest(long id) {
+    return HelpRequest.builder()
+        .id(id)
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .explanation("Swagger-ui")
+        .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+        .build();
+  }
+
+  @Test
+  public void events_get_increasing_ids() {
+    HelpRequestEvent first = service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+    HelpRequestEvent second = service.publishDeleted(1);
+
+    assertEquals(1, first.getEventId());
+    assertEquals(HelpRequestEvent.Type.CREATED, first.getType());
+    assertEquals(1, first.getHelpRequestId());
+    assertEquals(2, second.getEventId());
+    assertEquals(HelpRequestEvent.Type.DELETED, second.getType());
+    assertNull(second.getHelpRequest());
+  }
+
+  @Test
+  public void listeners_see_every_event_in_order() {
+    List<Long> seen = new ArrayList<>();
+    service.addListener(e -> seen.add(e.getEventId()));
+
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+    service.publish(HelpRequestEvent.Type.SOLVED, helpRequest(1));
+
+    assertEquals(List.of(1L, 2L), seen);
+  }
+
+  @Test
+  public void new_subscribers_only_get_events_published_after_they_subscribe() throws Exception {
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+    service.subscribe(null);
+    service.drain();
+
+    service.publish(HelpRequestEvent.Type.UPDATED, helpRequest(1));
+    service.drain();
+
+    assertEquals(List.of(service.sseId(2)), emitters.get(0).ids);
+    assertEquals(List.of("updated"), emitters.get(0).names);
+  }
+
+  @Test
+  public void subscribers_resuming_from_an_event_id_get_the_missed_events_once() throws Exception {
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(2));
+    service.publish(HelpRequestEvent.Type.SOLVED, helpRequest(1));
+
+    service.subscribe(service.sseId(1));
+    service.publish(HelpRequestEvent.Type.DELETED, helpRequest(2));
+    service.drain();
+
+    assertEquals(List.of(service.sseId(2), service.sseId(3), service.sseId(4)), emitters.get(0).ids);
+    assertEquals(List.of("created", "solved", "deleted"), emitters.get(0).names);
+  }
+
+  @Test
+  public void subscribers_too_far_behind_get_a_reset_event() throws Exception {
+    ReflectionTestUtils.setField(service, "bufferSize", 2);
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(2));
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(3));
+
+    assertNull(service.eventsAfter(0));
+    assertEquals(2, service.eventsAfter(1).size());
+
+    service.subscribe(service.sseId(0));
+    service.drain();
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(4));
+    service.drain();
+
+    assertEquals(List.of("reset", "created"), emitters.get(0).names);
+    assertEquals(List.of(service.sseId(4)), emitters.get(0).ids);
+  }
+
+  @Test
+  public void subscribers_resuming_from_before_a_restart_get_a_reset_event() throws Exception {
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(2));
+
+    // ids from the previous boot, which may be below or above this boot's
+    service.subscribe("kq3v8g1c-1");
+    service.subscribe("kq3v8g1c-9");
+    // an id from before ids carried the boot
+    service.subscribe("1");
+    service.drain();
+    service.publish(HelpRequestEvent.Type.SOLVED, helpRequest(1));
+    service.drain();
+
+    for (RecordingEmitter emitter : emitters) {
+      assertEquals(List.of("reset", "solved"), emitter.names);
+      assertEquals(List.of(service.sseId(3)), emitter.ids);
+    }
+  }
+
+  @Test
+  public void subscribers_resuming_from_an_id_not_yet_issued_get_a_reset_event() throws Exception {
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+
+    assertNull(service.eventsAfter(2));
+
+    service.subscribe(service.sseId(2));
+    service.subscribe(service.sseId(1) + "x");
+    service.drain();
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(2));
+    service.drain();
+
+    for (RecordingEmitter emitter : emitters) {
+      assertEquals(List.of("reset", "created"), emitter.names);
+      assertEquals(List.of(service.sseId(2)), emitter.ids);
+    }
+  }
+
+  @Test
+  public void broken_subscribers_are_dropped() throws Exception {
+    service.subscribe(null);
+    service.drain();
+    assertEquals(1, service.subscriberCount());
+
+    emitters.get(0).broken = true;
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+    service.drain();
+
+    assertEquals(0, service.subscriberCount());
+  }
+
+  @Test
+  public void subscribers_that_fail_during_replay_are_not_kept() throws Exception {
+    service.shutdown();
+    service = new HelpRequestEventService() {
+      @Override
+      SseEmitter newEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.broken = true;
+        return emitter;
+      }
+    };
+    service.publish(HelpRequestEvent.Type.CREATED, helpRequest(1));
+
+    service.subscribe(service.sseId(0));
+    service.drain();
+
+    assertEquals(0, service.subscriberCount());
+  }
+
+  @Test
+  public void heartbeats_keep_connections_open_and_find_dead_ones() throws Exception {
+    service.subscribe(null);
+    service.subscribe(null);
+    service.drain();
+
+    emitters.get(1).broken = true;
+    service.sendHeartbeat();
+
+    assertEquals(1, emitters.get(0).comments);
+    assertEquals(1, service.subscriberCount());
+  }
+
+  @Test
+  public void completed_subscribers_are_removed() throws Exception {
+    service.subscribe(null);
+    service.subscribe(null);
+    service.drain();
+
+    service.unsubscribe(emitters.get(0));
+    service.drain();
+
+    assertEquals(1, service.subscriberCount());
+  }
+
+  @Test
+  public void subscribers_are_removed_when_their_emitter_completes() throws Exception {
+    service.subscribe(null);
+    service.drain();
+
+    emitters.get(0).completionCallback.run();
+    service.drain();
+
+    assertEquals(0, service.subscriberCount());
+  }
+
+  @Test
+  public void unsubscribing_after_shutdown_does_nothing() throws Exception {
+    service.subscribe(null);
+    service.drain();
+    service.shutdown();
+
+    service.unsubscribe(emitters.get(0));
+  }
+
+  @Test
+  public void heartbeat_is_scheduled_at_startup() {
+    service.startHeartbeat();
+  }
+
+  @Test
+  public void emitters_use_the_configured_timeout() {
+    HelpRequestEventService plain = new HelpRequestEventService();
+    ReflectionTestUtils.setField(plain, "timeoutMillis", 1234L);
+
+    assertEquals(1234L, plain.newEmitter().getTimeout());
+    plain.shutdown();
+  }
+
+  private static class RecordingEmitter extends SseEmitter {
+    final List<String> ids = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+    int comments = 0;
+    boolean broken = false;
+    Runnable completionCallback;
+
+    @Override
+    public void onCompletion(Runnable callback) {
+      completionCallback = callback;
+      super.onCompletion(callback);
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      if (broken) {
+        throw new IOException("client went away");
+      }
+      for (var part : builder.build()) {
+        if (part.getData() instanceof String text) {
+          for (String line : text.split("\n")) {
+            if (line.startsWith("id:")) {
+              ids.add(line.substring(3));
+            } else if (line.startsWith("event:")) {
+              names.add(line.substring(6));
+            } else if (line.startsWith(":")) {
+              comments++;
+            }
+          }
+        }
+      }
+    }
+  }
+}
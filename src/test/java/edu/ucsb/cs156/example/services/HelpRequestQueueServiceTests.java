@@ -0,0 +1,152 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+@ExtendWith(MockitoExtension.class)
+public class HelpRequestQueueServiceTests {
+
+  @Mock
+  HelpRequestRepository helpRequestRepository;
+
+  @Mock
+  HelpRequestEventService helpRequestEventService;
+
+  @Mock
+  TableChangeService tableChanges;
+
+  @InjectMocks
+  HelpRequestQueueService queue;
+
+  private final HelpRequest nine = request(1, "2022-04-20T09:00", false);
+  private final HelpRequest ten = request(2, "2022-04-20T10:00", false);
+  private final HelpRequest eleven = request(3, "2022-04-20T11:00", false);
+
+  private static HelpRequest request(long id, String time, boolean solved) {
+    return HelpRequest.builder()
+        .id(id)
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-" + id)
+        .tableOrBreakoutRoom("7")
+        .explanation("Swagger-ui")
+        .requestTime(time == null ? null : LocalDateTime.parse(time))
+        .solved(solved)
+        .build();
+  }
+
+  private static HelpRequestEvent event(HelpRequestEvent.Type type, HelpRequest request) {
+    return HelpRequestEvent.builder().type(type).helpRequestId(request.getId()).helpRequest(request).build();
+  }
+
+  @BeforeEach
+  public void setup() {
+    when(helpRequestRepository.findAllBySolvedFalseOrderByRequestTimeAsc()).thenReturn(List.of(ten, nine));
+    queue.load();
+  }
+
+  @Test
+  public void load_reads_unsolved_requests_and_subscribes_to_changes() {
+    verify(helpRequestEventService).addListener(any());
+    assertEquals(List.of(nine, ten), queue.top(10));
+    assertEquals(2, queue.size());
+  }
+
+  @Test
+  public void top_returns_at_most_limit_requests_oldest_first() {
+    queue.apply(event(HelpRequestEvent.Type.CREATED, eleven));
+
+    assertEquals(List.of(nine, ten), queue.top(2));
+    assertEquals(List.of(), queue.top(0));
+    assertEquals(List.of(), queue.top(-1));
+  }
+
+  @Test
+  public void solved_requests_leave_the_queue() {
+    queue.apply(event(HelpRequestEvent.Type.SOLVED, request(1, "2022-04-20T09:00", true)));
+
+    assertEquals(List.of(ten), queue.top(10));
+  }
+
+  @Test
+  public void created_solved_requests_never_join_the_queue() {
+    queue.apply(event(HelpRequestEvent.Type.CREATED, request(4, "2022-04-20T08:00", true)));
+
+    assertEquals(List.of(nine, ten), queue.top(10));
+  }
+
+  @Test
+  public void updates_move_requests_to_their_new_position() {
+    HelpRequest moved = request(1, "2022-04-20T12:00", false);
+    queue.apply(event(HelpRequestEvent.Type.UPDATED, moved));
+
+    assertEquals(List.of(ten, moved), queue.top(10));
+    assertEquals(2, queue.size());
+  }
+
+  @Test
+  public void reopened_requests_rejoin_the_queue() {
+    queue.apply(event(HelpRequestEvent.Type.UPDATED, request(5, "2022-04-20T09:30", false)));
+
+    assertEquals(List.of(1L, 5L, 2L), queue.top(10).stream().map(HelpRequest::getId).toList());
+  }
+
+  @Test
+  public void deleted_requests_leave_the_queue() {
+    queue.apply(HelpRequestEvent.builder().type(HelpRequestEvent.Type.DELETED).helpRequestId(2).build());
+    queue.apply(HelpRequestEvent.builder().type(HelpRequestEvent.Type.DELETED).helpRequestId(99).build());
+
+    assertEquals(List.of(nine), queue.top(10));
+  }
+
+  @Test
+  public void requests_without_a_time_go_last_and_ties_break_by_id() {
+    HelpRequest noTime = request(0, null, false);
+    HelpRequest sameTimeAsNine = request(7, "2022-04-20T09:00", false);
+    queue.apply(event(HelpRequestEvent.Type.CREATED, noTime));
+    queue.apply(event(HelpRequestEvent.Type.CREATED, sameTimeAsNine));
+
+    assertEquals(List.of(nine, sameTimeAsNine, ten, noTime), queue.top(10));
+  }
+
+  @Test
+  public void queue_keeps_its_own_copy_of_each_request() {
+    HelpRequest twelve = request(6, "2022-04-20T12:00", false);
+    queue.apply(event(HelpRequestEvent.Type.CREATED, twelve));
+
+    twelve.setExplanation("changed after publishing");
+
+    assertEquals("Swagger-ui", queue.top(10).get(2).getExplanation());
+  }
+
+  @Test
+  public void changes_from_other_instances_load_the_queue_again() {
+    ArgumentCaptor<Runnable> changed = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.HELP_REQUESTS), changed.capture());
+    // another instance solved nine and added eleven
+    when(helpRequestRepository.findAllBySolvedFalseOrderByRequestTimeAsc()).thenReturn(List.of(ten, eleven));
+
+    changed.getValue().run();
+
+    assertEquals(List.of(ten, eleven), queue.top(10));
+    assertEquals(2, queue.size());
+  }
+}
@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.parser.Parser;
+
+public class LruPersistedQueryCacheTests {
+
+  private final List<String> parsed = new ArrayList<>();
+
+  private final PersistedQueryCacheMiss parse = query -> {
+    parsed.add(query);
+    return new PreparsedDocumentEntry(Parser.parse(query));
+  };
+
+  private static ExecutionInput input(String query) {
+    return ExecutionInput.newExecutionInput().query(query).build();
+  }
+
+  @Test
+  public void queries_are_parsed_once() {
+    LruPersistedQueryCache cache = new LruPersistedQueryCache(10);
+
+    PreparsedDocumentEntry first = cache.getPersistedQueryDocument("a", input("{ a }"), parse);
+    PreparsedDocumentEntry second = cache.getPersistedQueryDocument("a", input(PersistedQuerySupport.PERSISTED_QUERY_MARKER), parse);
+
+    assertSame(first, second);
+    assertEquals(List.of("{ a }"), parsed);
+  }
+
+  @Test
+  public void unknown_hashes_without_a_query_are_not_found() {
+    LruPersistedQueryCache cache = new LruPersistedQueryCache(10);
+
+    assertThrows(PersistedQueryNotFound.class,
+        () -> cache.getPersistedQueryDocument("a", input(PersistedQuerySupport.PERSISTED_QUERY_MARKER), parse));
+    assertThrows(PersistedQueryNotFound.class, () -> cache.getPersistedQueryDocument("a", input(" "), parse));
+    assertEquals(List.of(), parsed);
+  }
+
+  @Test
+  public void the_least_recently_used_query_is_dropped() {
+    LruPersistedQueryCache cache = new LruPersistedQueryCache(2);
+    cache.getPersistedQueryDocument("a", input("{ a }"), parse);
+    cache.getPersistedQueryDocument("b", input("{ b }"), parse);
+    cache.getPersistedQueryDocument("a", input("{ a }"), parse);
+
+    cache.getPersistedQueryDocument("c", input("{ c }"), parse);
+
+    assertEquals(2, cache.size());
+    cache.getPersistedQueryDocument("a", input("{ a }"), parse);
+    assertThrows(PersistedQueryNotFound.class,
+        () -> cache.getPersistedQueryDocument("b", input(PersistedQuerySupport.PERSISTED_QUERY_MARKER), parse));
+    assertEquals(List.of("{ a }", "{ b }", "{ c }"), parsed);
+  }
+
+  @Test
+  public void queries_with_errors_are_not_kept() {
+    LruPersistedQueryCache cache = new LruPersistedQueryCache(10);
+    PersistedQueryCacheMiss invalid = query -> new PreparsedDocumentEntry(GraphqlErrorBuilder.newError().message("invalid").build());
+
+    PreparsedDocumentEntry entry = cache.getPersistedQueryDocument("a", input("{ nope }"), invalid);
+
+    assertEquals("invalid", entry.getErrors().get(0).getMessage());
+    assertEquals(0, cache.size());
+  }
+}
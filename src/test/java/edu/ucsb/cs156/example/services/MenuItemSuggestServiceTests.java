@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+@ExtendWith(MockitoExtension.class)
+public class MenuItemSuggestServiceTests {
+
+  @Mock
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Mock
+  TableChangeService tableChanges;
+
+  @InjectMocks
+  MenuItemSuggestService suggestions;
+
+  private final UCSBDiningCommonsMenuItems burger = UCSBDiningCommonsMenuItems.builder()
+      .id(1L)
+      .diningCommonsCode("ortega")
+      .name("Burger")
+      .station("Grill")
+      .build();
+
+  private final UCSBDiningCommonsMenuItems burrito = UCSBDiningCommonsMenuItems.builder()
+      .id(2L)
+      .diningCommonsCode("carrillo")
+      .name("Burrito Bowl")
+      .station("Mexican")
+      .build();
+
+  @BeforeEach
+  public void setup() {
+    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(List.of(burger));
+    suggestions.load();
+  }
+
+  @Test
+  public void loaded_menu_items_are_suggested() {
+    assertEquals(List.of(burger), suggestions.suggest("BURG", 10));
+  }
+
+  @Test
+  public void put_and_remove_change_the_suggestions() {
+    suggestions.put(burrito);
+    assertEquals(List.of(burger, burrito), suggestions.suggest("bur", 10));
+
+    suggestions.remove(1L);
+    assertEquals(List.of(burrito), suggestions.suggest("bur", 10));
+  }
+
+  @Test
+  public void changes_from_other_instances_rebuild_the_index() {
+    ArgumentCaptor<Runnable> changed = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.MENU_ITEMS), changed.capture());
+    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(List.of(burger, burrito));
+
+    changed.getValue().run();
+
+    assertEquals(List.of(burger, burrito), suggestions.suggest("bur", 10));
+  }
+}
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+@ExtendWith(MockitoExtension.class)
+public class OrganizationSuggestServiceTests {
+
+  @Mock
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Mock
+  TableChangeService tableChanges;
+
+  @InjectMocks
+  OrganizationSuggestService suggestions;
+
+  private final UCSBOrganization sky = UCSBOrganization.builder()
+      .orgCode("SKY")
+      .orgTranslationShort("SKYDIVING CLUB")
+      .orgTranslation("SKYDIVING CLUB AT UCSB")
+      .build();
+
+  private final UCSBOrganization osli = UCSBOrganization.builder()
+      .orgCode("OSLI")
+      .orgTranslationShort("STUDENT LIFE")
+      .orgTranslation("OFFICE OF STUDENT LIFE")
+      .build();
+
+  @BeforeEach
+  public void setup() {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(sky));
+    suggestions.load();
+  }
+
+  @Test
+  public void loaded_organizations_are_suggested() {
+    assertEquals(List.of(sky), suggestions.suggest("skyd", 10));
+  }
+
+  @Test
+  public void put_and_remove_change_the_suggestions() {
+    suggestions.put(osli);
+    assertEquals(List.of(sky, osli), suggestions.suggest("s", 10));
+
+    suggestions.remove("SKY");
+    assertEquals(List.of(osli), suggestions.suggest("s", 10));
+  }
+
+  @Test
+  public void changes_from_other_instances_rebuild_the_index() {
+    ArgumentCaptor<Runnable> changed = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.ORGANIZATIONS), changed.capture());
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(sky, osli));
+
+    changed.getValue().run();
+
+    assertEquals(List.of(sky, osli), suggestions.suggest("s", 10));
+  }
+}
@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+
+public class PrefixIndexTests {
+
+  private static UCSBOrganization org(String code, String shortName, String name) {
+    return UCSBOrganization.builder()
+        .orgCode(code)
+        .orgTranslationShort(shortName)
+        .orgTranslation(name)
+        .build();
+  }
+
+  private final UCSBOrganization sky = org("SKY", "SKYDIVING CLUB", "SKYDIVING CLUB AT UCSB");
+  private final UCSBOrganization osli = org("OSLI", "STUDENT LIFE", "OFFICE OF STUDENT LIFE");
+  private final UCSBOrganization krc = org("KRC", "KOREAN RADIO CL", "KOREAN RADIO CLUB");
+  private final UCSBOrganization zpr = org("ZPR", "ZETA PHI RHO", "ZETA PHI RHO");
+
+  private static PrefixIndex<UCSBOrganization> index(List<UCSBOrganization> orgs) {
+    return PrefixIndex.of(orgs, UCSBOrganization::getOrgCode, List.of(UCSBOrganization::getOrgCode,
+        UCSBOrganization::getOrgTranslationShort, UCSBOrganization::getOrgTranslation));
+  }
+
+  private static List<String> codes(List<UCSBOrganization> orgs) {
+    return orgs.stream().map(UCSBOrganization::getOrgCode).collect(Collectors.toList());
+  }
+
+  @Test
+  public void prefix_matches_any_field_ignoring_case() {
+    PrefixIndex<UCSBOrganization> index = index(List.of(sky, osli, krc, zpr));
+
+    assertEquals(List.of("SKY"), codes(index.find("sky", 10)));
+    assertEquals(List.of("OSLI"), codes(index.find("Student", 10)));
+    assertEquals(List.of("KRC"), codes(index.find("  korean radio c", 10)));
+    assertEquals(List.of("OSLI"), codes(index.find("office of", 10)));
+    assertEquals(List.of(), codes(index.find("radio", 10)));
+    assertEquals(List.of(), codes(index.find("zz", 10)));
+  }
+
+  @Test
+  public void results_are_ordered_by_the_matching_field_without_duplicates() {
+    PrefixIndex<UCSBOrganization> index = index(List.of(zpr, sky, osli, krc));
+
+    // SKY matches "s" three times and comes first, on "sky"; OSLI matches on "student life"
+    assertEquals(List.of("SKY", "OSLI"), codes(index.find("s", 10)));
+    assertEquals(List.of("KRC", "OSLI", "SKY", "ZPR"), codes(index.find("", 10)));
+  }
+
+  @Test
+  public void limit_is_clamped() {
+    List<UCSBOrganization> many = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      many.add(org("C%03d".formatted(i), null, null));
+    }
+    PrefixIndex<UCSBOrganization> index = index(many);
+
+    assertEquals(List.of("C000", "C001"), codes(index.find("c", 2)));
+    assertEquals(List.of("C000"), codes(index.find("c", 0)));
+    assertEquals(PrefixIndex.MAX_LIMIT, index.find("c", 1000).size());
+    assertEquals(List.of("C050"), codes(index.find("c050", 10)));
+    assertEquals(100, index.size());
+  }
+
+  @Test
+  public void null_fields_are_not_indexed() {
+    PrefixIndex<UCSBOrganization> index = index(List.of(org("SKY", null, null)));
+
+    assertEquals(1, index.size());
+    assertEquals(List.of("SKY"), codes(index.find("s", 10)));
+  }
+
+  @Test
+  public void put_adds_or_replaces_without_changing_the_original() {
+    PrefixIndex<UCSBOrganization> before = index(List.of(sky, osli));
+
+    PrefixIndex<UCSBOrganization> added = before.put(krc);
+    PrefixIndex<UCSBOrganization> renamed = added.put(org("SKY", "PARACHUTE CLUB", "PARACHUTE CLUB AT UCSB"));
+
+    assertEquals(List.of(), codes(before.find("k", 10)));
+    assertEquals(List.of("KRC"), codes(added.find("k", 10)));
+    assertEquals(List.of("SKY"), codes(added.find("skydiving", 10)));
+    assertEquals(List.of(), codes(renamed.find("skydiving", 10)));
+    assertEquals(List.of("SKY"), codes(renamed.find("parachute", 10)));
+    assertEquals(added.size(), renamed.size());
+  }
+
+  @Test
+  public void remove_drops_every_entry_for_the_item() {
+    PrefixIndex<UCSBOrganization> before = index(List.of(sky, osli));
+
+    PrefixIndex<UCSBOrganization> after = before.remove("SKY");
+
+    assertEquals(List.of(), codes(after.find("sky", 10)));
+    assertEquals(List.of("OSLI"), codes(after.find("", 10)));
+    assertEquals(3, after.size());
+    assertEquals(List.of("SKY"), codes(before.find("sky", 10)));
+    assertEquals(after.size(), after.remove("NOPE").size());
+  }
+}
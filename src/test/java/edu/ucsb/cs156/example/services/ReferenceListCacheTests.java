@@ -0,0 +1,225 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Encoded;
+import edu.ucsb.cs156.example.services.ReferenceListCache.Listing;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+@ExtendWith(MockitoExtension.class)
+public class ReferenceListCacheTests {
+
+  @Mock
+  ReferenceTableService referenceTables;
+
+  @Mock
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Mock
+  TableChangeService tableChanges;
+
+  @InjectMocks
+  ReferenceListCache cache;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final UCSBOrganization sky = UCSBOrganization.builder()
+      .orgCode("SKY")
+      .orgTranslationShort("SKYDIVING CLUB")
+      .orgTranslation("SKYDIVING CLUB AT UCSB")
+      .build();
+
+  private final UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+      .code("ortega")
+      .name("Ortega")
+      .build();
+
+  private final UCSBDiningCommonsMenuItems burger = UCSBDiningCommonsMenuItems.builder()
+      .id(1)
+      .diningCommonsCode("ortega")
+      .name("Burger")
+      .station("Grill")
+      .build();
+
+  @BeforeEach
+  public void setup() {
+    cache.httpMessageConverters = new HttpMessageConverters(new MappingJackson2HttpMessageConverter(mapper),
+        new MappingJackson2CborHttpMessageConverter(), new MappingJackson2SmileHttpMessageConverter());
+  }
+
+  private static byte[] gunzip(byte[] gzipped) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+      return in.readAllBytes();
+    }
+  }
+
+  @Test
+  public void a_listing_is_read_and_encoded_once() throws Exception {
+    when(referenceTables.organizations()).thenReturn(List.of(sky));
+
+    Encoded first = cache.get(Listing.ORGANIZATIONS, "application/json");
+    Encoded second = cache.get(Listing.ORGANIZATIONS, "application/json, text/plain, */*");
+
+    assertSame(first, second);
+    assertEquals(MediaType.APPLICATION_JSON, first.contentType());
+    assertEquals(mapper.writeValueAsString(List.of(sky)), new String(first.body()));
+    assertArrayEquals(first.body(), gunzip(first.gzipped()));
+    verify(referenceTables, times(1)).organizations();
+  }
+
+  @Test
+  public void each_listing_is_read_from_its_table() throws Exception {
+    when(referenceTables.diningCommons()).thenReturn(List.of(ortega));
+    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(List.of(burger));
+
+    assertEquals(mapper.writeValueAsString(List.of(ortega)),
+        new String(cache.get(Listing.DINING_COMMONS, null).body()));
+    assertEquals(mapper.writeValueAsString(List.of(burger)),
+        new String(cache.get(Listing.MENU_ITEMS, null).body()));
+  }
+
+  @Test
+  public void a_listing_is_encoded_in_the_format_asked_for() throws Exception {
+    when(referenceTables.organizations()).thenReturn(List.of(sky));
+
+    Encoded cbor = cache.get(Listing.ORGANIZATIONS, "application/cbor");
+    Encoded smile = cache.get(Listing.ORGANIZATIONS, "application/x-jackson-smile");
+
+    assertEquals(MediaType.APPLICATION_CBOR, cbor.contentType());
+    assertEquals(mapper.valueToTree(List.of(sky)), new ObjectMapper(new CBORFactory()).readTree(cbor.body()));
+    assertEquals(ReferenceListCache.APPLICATION_SMILE, smile.contentType());
+    assertArrayEquals(smile.body(), gunzip(smile.gzipped()));
+  }
+
+  @Test
+  public void invalidate_drops_every_format_of_the_listing_only() throws Exception {
+    when(referenceTables.organizations()).thenReturn(List.of(sky));
+    when(referenceTables.diningCommons()).thenReturn(List.of(ortega));
+    cache.get(Listing.ORGANIZATIONS, "application/json");
+    cache.get(Listing.ORGANIZATIONS, "application/cbor");
+    Encoded commons = cache.get(Listing.DINING_COMMONS, "application/json");
+
+    cache.invalidate(Listing.ORGANIZATIONS);
+    when(referenceTables.organizations()).thenReturn(List.of());
+
+    assertEquals("[]", new String(cache.get(Listing.ORGANIZATIONS, "application/json").body()));
+    cache.get(Listing.ORGANIZATIONS, "application/cbor");
+    assertSame(commons, cache.get(Listing.DINING_COMMONS, "application/json"));
+    verify(referenceTables, times(4)).organizations();
+  }
+
+  @Test
+  public void changes_from_other_instances_drop_the_listing_of_the_table_that_changed() throws Exception {
+    cache.listenForChanges();
+    ArgumentCaptor<Runnable> organizationsChanged = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.ORGANIZATIONS), organizationsChanged.capture());
+    ArgumentCaptor<Runnable> diningCommonsChanged = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.DINING_COMMONS), diningCommonsChanged.capture());
+    ArgumentCaptor<Runnable> menuItemsChanged = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.MENU_ITEMS), menuItemsChanged.capture());
+    when(referenceTables.organizations()).thenReturn(List.of(sky));
+    when(referenceTables.diningCommons()).thenReturn(List.of(ortega));
+    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(List.of(burger));
+    for (Listing listing : Listing.values()) {
+      cache.get(listing, null);
+    }
+
+    organizationsChanged.getValue().run();
+    diningCommonsChanged.getValue().run();
+    menuItemsChanged.getValue().run();
+    for (Listing listing : Listing.values()) {
+      cache.get(listing, null);
+    }
+
+    verify(referenceTables, times(2)).organizations();
+    verify(referenceTables, times(2)).diningCommons();
+    verify(ucsbDiningCommonsMenuItemRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void a_read_that_a_write_overtakes_is_not_kept() throws Exception {
+    // the write commits and invalidates while the read is encoding
+    when(referenceTables.organizations()).thenAnswer(invocation -> {
+      cache.invalidate(Listing.ORGANIZATIONS);
+      return List.of(sky);
+    }).thenReturn(List.of());
+
+    assertEquals(mapper.writeValueAsString(List.of(sky)),
+        new String(cache.get(Listing.ORGANIZATIONS, "application/json").body()));
+    assertEquals("[]", new String(cache.get(Listing.ORGANIZATIONS, "application/json").body()));
+  }
+
+  @Test
+  public void failures_to_encode_are_thrown() throws Exception {
+    @SuppressWarnings("unchecked")
+    HttpMessageConverter<Object> broken = mock(HttpMessageConverter.class);
+    when(broken.canWrite(any(), any())).thenReturn(true);
+    IOException failure = new IOException("disk full");
+    doThrow(failure).when(broken).write(any(), any(), any());
+    cache.httpMessageConverters = new HttpMessageConverters(false, List.of(broken));
+    when(referenceTables.organizations()).thenReturn(List.of(sky));
+
+    UncheckedIOException thrown = assertThrows(UncheckedIOException.class,
+        () -> cache.get(Listing.ORGANIZATIONS, null));
+    assertSame(failure, thrown.getCause());
+  }
+
+  @Test
+  public void json_is_sent_to_clients_that_take_anything() throws Exception {
+    assertEquals(MediaType.APPLICATION_JSON, ReferenceListCache.negotiate(null));
+    assertEquals(MediaType.APPLICATION_JSON, ReferenceListCache.negotiate(""));
+    assertEquals(MediaType.APPLICATION_JSON, ReferenceListCache.negotiate("*/*"));
+    assertEquals(MediaType.APPLICATION_JSON, ReferenceListCache.negotiate("application/*"));
+  }
+
+  @Test
+  public void the_clients_preference_wins() throws Exception {
+    assertEquals(MediaType.APPLICATION_CBOR, ReferenceListCache.negotiate("text/html, application/cbor"));
+    assertEquals(ReferenceListCache.APPLICATION_SMILE,
+        ReferenceListCache.negotiate("application/json;q=0.5, application/x-jackson-smile"));
+  }
+
+  @Test
+  public void other_formats_are_not_acceptable() {
+    assertThrows(HttpMediaTypeNotAcceptableException.class, () -> ReferenceListCache.negotiate("text/html"));
+    assertThrows(HttpMediaTypeNotAcceptableException.class, () -> ReferenceListCache.negotiate("not a type"));
+  }
+}
@@ -0,0 +1,173 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+/**
+ * Checks the snapshots against the database after each kind of write the
+ * controllers make, with every write committed on its own as in the app.
+ * Liquibase is pointed at the same in-memory database as JPA, since the
+ * development profile gives it a URL of its own.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=" + ReferenceTableServiceDatabaseTests.URL,
+    "spring.liquibase.url=" + ReferenceTableServiceDatabaseTests.URL,
+    "app.table-changes.check-interval=0s" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ ReferenceTableService.class, TableChangeService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReferenceTableServiceDatabaseTests {
+
+  static final String URL = "jdbc:h2:mem:referencetables;DB_CLOSE_DELAY=-1";
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  ReferenceTableService referenceTables;
+
+  @Autowired
+  TableChangeService tableChanges;
+
+  @AfterEach
+  public void cleanup() {
+    ucsbOrganizationRepository.deleteAll();
+    ucsbDiningCommonsRepository.deleteAll();
+  }
+
+  private void assertOrganizationsMatchDatabase() {
+    List<UCSBOrganization> rows = StreamSupport.stream(ucsbOrganizationRepository.findAll().spliterator(), false)
+        .sorted(Comparator.comparing(UCSBOrganization::getOrgCode))
+        .collect(Collectors.toList());
+    assertEquals(rows, referenceTables.organizations());
+    for (UCSBOrganization row : rows) {
+      assertEquals(ucsbOrganizationRepository.findById(row.getOrgCode()), referenceTables.organization(row.getOrgCode()));
+    }
+  }
+
+  private void assertDiningCommonsMatchDatabase() {
+    List<UCSBDiningCommons> rows = StreamSupport.stream(ucsbDiningCommonsRepository.findAll().spliterator(), false)
+        .sorted(Comparator.comparing(UCSBDiningCommons::getCode))
+        .collect(Collectors.toList());
+    assertEquals(rows, referenceTables.diningCommons());
+    for (UCSBDiningCommons row : rows) {
+      assertEquals(ucsbDiningCommonsRepository.findById(row.getCode()), referenceTables.diningCommons(row.getCode()));
+    }
+  }
+
+  private static UCSBOrganization organization(String orgCode) {
+    return UCSBOrganization.builder().orgCode(orgCode).orgTranslationShort(orgCode).orgTranslation(orgCode).build();
+  }
+
+  @Test
+  public void organizations_match_the_table_after_each_kind_of_write() {
+    ucsbOrganizationRepository.save(organization("SKY"));
+    ucsbOrganizationRepository.save(organization("OSLI"));
+    referenceTables.reloadOrganizations();
+    assertOrganizationsMatchDatabase();
+
+    ucsbOrganizationRepository.updateIfVersionMatches("SKY", 0L, UCSBOrganization.builder()
+        .orgTranslationShort("SKYDIVING CLUB").orgTranslation("SKYDIVING CLUB AT UCSB").inactive(true).build());
+    referenceTables.reloadOrganizations();
+    assertOrganizationsMatchDatabase();
+    assertEquals(1L, referenceTables.organization("SKY").get().getVersion());
+
+    UCSBOrganization osli = ucsbOrganizationRepository.findById("OSLI").get();
+    osli.setOrgTranslation("OFFICE OF STUDENT LIFE");
+    ucsbOrganizationRepository.save(osli);
+    referenceTables.reloadOrganizations();
+    assertOrganizationsMatchDatabase();
+    assertEquals("OFFICE OF STUDENT LIFE", referenceTables.organization("OSLI").get().getOrgTranslation());
+
+    ucsbOrganizationRepository.deleteRowById("SKY");
+    referenceTables.reloadOrganizations();
+    assertOrganizationsMatchDatabase();
+    assertEquals(1, referenceTables.organizations().size());
+  }
+
+  @Test
+  public void dining_commons_match_the_table_after_each_kind_of_write() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("portola").name("Portola").build());
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega")
+        .latitude(34.410987).longitude(-119.84709).build());
+    referenceTables.reloadDiningCommons();
+    assertDiningCommonsMatchDatabase();
+
+    ucsbDiningCommonsRepository.updateIfVersionMatches("portola", 0L, UCSBDiningCommons.builder()
+        .name("Portola").hasSackMeal(true).latitude(34.417723).longitude(-119.867427).build());
+    referenceTables.reloadDiningCommons();
+    assertDiningCommonsMatchDatabase();
+    assertEquals(34.417723, referenceTables.diningCommons("portola").get().getLatitude());
+
+    ucsbDiningCommonsRepository.deleteRowById("ortega");
+    referenceTables.reloadDiningCommons();
+    assertDiningCommonsMatchDatabase();
+    assertEquals(List.of("portola"),
+        referenceTables.diningCommons().stream().map(UCSBDiningCommons::getCode).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void writes_through_another_instance_show_up_after_a_check() {
+    referenceTables.reloadOrganizations();
+    referenceTables.reloadDiningCommons();
+    tableChanges.check();
+    // another instance writes and reloads only its own snapshots
+    ucsbOrganizationRepository.save(organization("SKY"));
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    assertEquals(List.of(), referenceTables.organizations());
+
+    tableChanges.check();
+
+    assertOrganizationsMatchDatabase();
+    assertDiningCommonsMatchDatabase();
+  }
+
+  @Test
+  public void concurrent_writers_leave_the_snapshot_matching_the_table() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> writes = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        String orgCode = "ORG" + i;
+        writes.add(executor.submit(() -> {
+          // what the controller does: commit, then reload
+          ucsbOrganizationRepository.save(organization(orgCode));
+          referenceTables.reloadOrganizations();
+        }));
+      }
+      for (Future<?> write : writes) {
+        write.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(40, referenceTables.organizations().size());
+    assertOrganizationsMatchDatabase();
+  }
+}
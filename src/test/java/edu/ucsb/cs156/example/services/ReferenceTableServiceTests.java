@@ -0,0 +1,132 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+@ExtendWith(MockitoExtension.class)
+public class ReferenceTableServiceTests {
+
+  @Mock
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Mock
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Mock
+  TableChangeService tableChanges;
+
+  @InjectMocks
+  ReferenceTableService referenceTables;
+
+  private final UCSBOrganization sky = UCSBOrganization.builder().orgCode("SKY").orgTranslationShort("SKYDIVING CLUB")
+      .build();
+  private final UCSBOrganization osli = UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("STUDENT LIFE")
+      .build();
+
+  private final UCSBDiningCommons portola = UCSBDiningCommons.builder().code("portola").name("Portola").build();
+  private final UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+
+  @BeforeEach
+  public void setup() {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(sky, osli));
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(portola, ortega));
+    referenceTables.load();
+  }
+
+  @Test
+  public void both_tables_are_loaded_in_key_order() {
+    assertEquals(List.of(osli, sky), referenceTables.organizations());
+    assertEquals(List.of(ortega, portola), referenceTables.diningCommons());
+  }
+
+  @Test
+  public void rows_are_found_by_their_key() {
+    assertEquals(Optional.of(sky), referenceTables.organization("SKY"));
+    assertEquals(Optional.empty(), referenceTables.organization("sky"));
+    assertEquals(Optional.of(ortega), referenceTables.diningCommons("ortega"));
+    assertEquals(Optional.empty(), referenceTables.diningCommons("munger-hall"));
+  }
+
+  @Test
+  public void reads_come_from_memory() {
+    referenceTables.organizations();
+    referenceTables.organization("SKY");
+    referenceTables.diningCommons();
+    referenceTables.diningCommons("ortega");
+
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void reload_swaps_in_a_new_snapshot_and_leaves_the_old_one_alone() {
+    List<UCSBOrganization> before = referenceTables.organizations();
+    List<UCSBDiningCommons> commonsBefore = referenceTables.diningCommons();
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(sky));
+
+    referenceTables.reloadOrganizations();
+
+    assertEquals(List.of(osli, sky), before);
+    assertEquals(List.of(sky), referenceTables.organizations());
+    assertEquals(Optional.empty(), referenceTables.organization("OSLI"));
+    assertSame(commonsBefore, referenceTables.diningCommons());
+  }
+
+  @Test
+  public void reload_of_dining_commons_leaves_organizations_alone() {
+    List<UCSBOrganization> organizations = referenceTables.organizations();
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ortega));
+
+    referenceTables.reloadDiningCommons();
+
+    assertEquals(List.of(ortega), referenceTables.diningCommons());
+    assertEquals(Optional.empty(), referenceTables.diningCommons("portola"));
+    assertSame(organizations, referenceTables.organizations());
+  }
+
+  @Test
+  public void changes_from_other_instances_reload_the_table_that_changed() {
+    ArgumentCaptor<Runnable> organizationsChanged = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.ORGANIZATIONS), organizationsChanged.capture());
+    ArgumentCaptor<Runnable> diningCommonsChanged = ArgumentCaptor.forClass(Runnable.class);
+    verify(tableChanges).addListener(eq(Table.DINING_COMMONS), diningCommonsChanged.capture());
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(sky));
+
+    organizationsChanged.getValue().run();
+
+    assertEquals(List.of(sky), referenceTables.organizations());
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+
+    diningCommonsChanged.getValue().run();
+
+    verify(ucsbDiningCommonsRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void snapshots_cannot_be_changed_by_readers() {
+    assertThrows(UnsupportedOperationException.class, () -> referenceTables.organizations().add(sky));
+    assertThrows(UnsupportedOperationException.class, () -> referenceTables.diningCommons().clear());
+  }
+}
@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTests {
+
+  private final SingleFlight<String, String> flights = new SingleFlight<>();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final List<Thread> threads = new ArrayList<>();
+  private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r);
+      threads.add(thread);
+      return thread;
+    }
+  });
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  // a load that counts itself and doesn't finish until release is counted down
+  private <T> Supplier<T> blocked(Supplier<T> result) {
+    return () -> {
+      loads.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return result.get();
+    };
+  }
+
+  // starts the first caller, then the others once it is loading, and waits
+  // until they are all parked before letting the load finish
+  private List<Future<String>> runConcurrently(int callers, Supplier<String> load) throws Exception {
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < callers; i++) {
+      results.add(executor.submit(() -> flights.run("key", load)));
+      if (i == 0) {
+        while (loads.get() == 0) {
+          Thread.onSpinWait();
+        }
+      }
+    }
+    for (Thread thread : threads) {
+      while (thread.getState() != Thread.State.WAITING) {
+        Thread.onSpinWait();
+      }
+    }
+    release.countDown();
+    return results;
+  }
+
+  @Test
+  public void a_caller_on_its_own_runs_the_load() {
+    assertEquals("value", flights.run("key", () -> "value"));
+    assertEquals(0, flights.inFlight());
+  }
+
+  @Test
+  public void concurrent_callers_share_one_load() throws Exception {
+    List<Future<String>> results = runConcurrently(10, blocked(() -> new String("value")));
+
+    String first = results.get(0).get();
+    for (Future<String> result : results) {
+      assertSame(first, result.get());
+    }
+    assertEquals(1, loads.get());
+    assertEquals(0, flights.inFlight());
+  }
+
+  @Test
+  public void different_keys_load_separately() {
+    assertEquals("a+b", flights.run("a", () -> "a+" + flights.run("b", () -> "b")));
+  }
+
+  @Test
+  public void callers_after_the_load_finished_load_again() {
+    flights.run("key", () -> "first");
+
+    assertEquals("second", flights.run("key", () -> "second"));
+  }
+
+  @Test
+  public void waiters_get_the_exception_the_load_threw() throws Exception {
+    IllegalStateException failure = new IllegalStateException("database down");
+
+    List<Future<String>> results = runConcurrently(3, blocked(() -> {
+      throw failure;
+    }));
+
+    for (Future<String> result : results) {
+      Exception thrown = assertThrows(Exception.class, result::get);
+      assertSame(failure, thrown.getCause());
+    }
+    assertEquals(1, loads.get());
+    assertEquals(0, flights.inFlight());
+  }
+
+  @Test
+  public void waiters_get_the_error_the_load_threw() throws Exception {
+    StackOverflowError failure = new StackOverflowError();
+
+    List<Future<String>> results = runConcurrently(3, blocked(() -> {
+      throw failure;
+    }));
+
+    for (Future<String> result : results) {
+      Exception thrown = assertThrows(Exception.class, result::get);
+      assertSame(failure, thrown.getCause());
+    }
+    assertEquals(1, loads.get());
+  }
+}
@@ -0,0 +1,227 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.TableChangeService.Table;
+
+/**
+ * The writes here stand in for another instance: nothing tells the service
+ * about them, so only check can notice them.  Each test has a service of its
+ * own, with the scheduled checks off, and calls check itself.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=" + TableChangeServiceTests.URL,
+    "spring.liquibase.url=" + TableChangeServiceTests.URL })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TableChangeServiceTests {
+
+  static final String URL = "jdbc:h2:mem:tablechanges;DB_CLOSE_DELAY=-1";
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  private final TableChangeService tableChanges = new TableChangeService();
+
+  private final AtomicInteger organizationReloads = new AtomicInteger();
+  private final AtomicInteger diningCommonsReloads = new AtomicInteger();
+
+  @BeforeEach
+  public void setup() {
+    tableChanges.entityManager = entityManager;
+    tableChanges.checkInterval = Duration.ZERO;
+    tableChanges.start();
+  }
+
+  @AfterEach
+  public void cleanup() {
+    tableChanges.shutdown();
+    ucsbOrganizationRepository.deleteAll();
+    helpRequestRepository.deleteAll();
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+    ucsbDiningCommonsRepository.deleteAll();
+  }
+
+  private void listen() {
+    tableChanges.addListener(Table.ORGANIZATIONS, organizationReloads::incrementAndGet);
+    tableChanges.addListener(Table.DINING_COMMONS, diningCommonsReloads::incrementAndGet);
+  }
+
+  private static UCSBOrganization organization(String orgCode, String translation) {
+    return UCSBOrganization.builder().orgCode(orgCode).orgTranslationShort(translation).orgTranslation(translation)
+        .build();
+  }
+
+  @Test
+  public void listeners_are_called_once_for_each_change_to_their_table() {
+    ucsbOrganizationRepository.save(organization("SKY", "SKYDIVING CLUB"));
+    listen();
+
+    tableChanges.check();
+    assertEquals(0, organizationReloads.get());
+
+    ucsbOrganizationRepository.save(organization("OSLI", "STUDENT LIFE"));
+    tableChanges.check();
+    tableChanges.check();
+    assertEquals(1, organizationReloads.get());
+
+    ucsbOrganizationRepository.updateIfVersionMatches("SKY", 0L, organization(null, "SKYDIVING CLUB AT UCSB"));
+    tableChanges.check();
+    assertEquals(2, organizationReloads.get());
+
+    ucsbOrganizationRepository.deleteRowById("OSLI");
+    tableChanges.check();
+    assertEquals(3, organizationReloads.get());
+    assertEquals(0, diningCommonsReloads.get());
+
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    tableChanges.check();
+    assertEquals(3, organizationReloads.get());
+    assertEquals(1, diningCommonsReloads.get());
+  }
+
+  @Test
+  public void a_row_deleted_and_created_again_with_the_same_key_is_a_change() {
+    ucsbOrganizationRepository.save(organization("SKY", "SKYDIVING CLUB"));
+    listen();
+
+    ucsbOrganizationRepository.deleteRowById("SKY");
+    ucsbOrganizationRepository.save(organization("SKY", "SKY WATCHERS"));
+    tableChanges.check();
+
+    assertEquals(1, organizationReloads.get());
+  }
+
+  @Test
+  public void menu_items_are_stamped_with_a_count_the_largest_id_and_the_sum_of_versions() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    UCSBDiningCommonsMenuItems burger = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItems.builder()
+        .diningCommonsCode("ortega").name("Burger").station("Grill").build());
+    UCSBDiningCommonsMenuItems fries = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItems.builder()
+        .diningCommonsCode("ortega").name("Fries").station("Grill").build());
+    AtomicInteger menuItemReloads = new AtomicInteger();
+    tableChanges.addListener(Table.MENU_ITEMS, menuItemReloads::incrementAndGet);
+
+    tableChanges.check();
+    assertEquals(0, menuItemReloads.get());
+
+    burger.setStation("Pizza");
+    ucsbDiningCommonsMenuItemRepository.save(burger);
+    tableChanges.check();
+    assertEquals(1, menuItemReloads.get());
+
+    // same count and versions as before, but a new largest id
+    ucsbDiningCommonsMenuItemRepository.deleteById(fries.getId());
+    ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItems.builder()
+        .diningCommonsCode("ortega").name("Fries").station("Grill").build());
+    tableChanges.check();
+    assertEquals(2, menuItemReloads.get());
+
+    ucsbDiningCommonsMenuItemRepository.deleteById(burger.getId());
+    tableChanges.check();
+    tableChanges.check();
+    assertEquals(3, menuItemReloads.get());
+  }
+
+  @Test
+  public void help_requests_are_stamped_like_menu_items() {
+    AtomicInteger helpRequestReloads = new AtomicInteger();
+    tableChanges.addListener(Table.HELP_REQUESTS, helpRequestReloads::incrementAndGet);
+    HelpRequest request = helpRequestRepository.save(HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-3").tableOrBreakoutRoom("7").explanation("Swagger-ui")
+        .requestTime(LocalDateTime.parse("2022-04-20T17:35")).solved(false).build());
+
+    tableChanges.check();
+    assertEquals(1, helpRequestReloads.get());
+
+    request.setSolved(true);
+    helpRequestRepository.updateIfVersionMatches(request.getId(), request.getVersion(), request);
+    tableChanges.check();
+    tableChanges.check();
+    assertEquals(2, helpRequestReloads.get());
+  }
+
+  @Test
+  public void a_change_made_before_the_first_listener_loads_is_caught() {
+    // the stamp is read when the listener is added, before it loads
+    tableChanges.addListener(Table.ORGANIZATIONS, organizationReloads::incrementAndGet);
+    ucsbOrganizationRepository.save(organization("SKY", "SKYDIVING CLUB"));
+
+    tableChanges.check();
+
+    assertEquals(1, organizationReloads.get());
+  }
+
+  @Test
+  public void a_failed_reload_is_tried_again_at_the_next_check() {
+    AtomicInteger attempts = new AtomicInteger();
+    tableChanges.addListener(Table.DINING_COMMONS, () -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw new IllegalStateException("database went away");
+      }
+    });
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+
+    tableChanges.check();
+    tableChanges.check();
+    tableChanges.check();
+
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void checks_run_on_their_own_every_interval() throws Exception {
+    TableChangeService scheduled = new TableChangeService();
+    scheduled.entityManager = entityManager;
+    scheduled.checkInterval = Duration.ofMillis(10);
+    CountDownLatch reloaded = new CountDownLatch(1);
+    scheduled.addListener(Table.ORGANIZATIONS, reloaded::countDown);
+    scheduled.start();
+    try {
+      ucsbOrganizationRepository.save(organization("SKY", "SKYDIVING CLUB"));
+
+      assertTrue(reloaded.await(10, TimeUnit.SECONDS));
+    } finally {
+      scheduled.shutdown();
+    }
+  }
+}
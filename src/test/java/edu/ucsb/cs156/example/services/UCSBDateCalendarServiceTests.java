@@ -0,0 +1,143 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class UCSBDateCalendarServiceTests {
+
+  @Mock
+  UCSBDateRepository ucsbDateRepository;
+
+  @InjectMocks
+  UCSBDateCalendarService calendar;
+
+  private final UCSBDate firstDay = date(1, "20222", "firstDayOfClasses", "2022-01-03T08:00");
+  private final UCSBDate midterm = date(2, "20222", "midterm", "2022-02-01T09:00");
+  private final UCSBDate lastDay = date(3, "20222", "lastDayOfClasses", "2022-03-11T17:00");
+  private final UCSBDate springStart = date(4, "20223", "firstDayOfClasses", "2022-03-28T08:00");
+
+  private static UCSBDate date(long id, String quarter, String name, String time) {
+    return UCSBDate.builder()
+        .id(id)
+        .quarterYYYYQ(quarter)
+        .name(name)
+        .localDateTime(time == null ? null : LocalDateTime.parse(time))
+        .build();
+  }
+
+  private static List<Long> ids(List<UCSBDate> dates) {
+    return dates.stream().map(UCSBDate::getId).collect(Collectors.toList());
+  }
+
+  // time is Santa Barbara time, as the stored dates are
+  private void setNow(String time) {
+    calendar.clock = Clock.fixed(LocalDateTime.parse(time).atZone(UCSBDateFeedService.ZONE).toInstant(), ZoneOffset.UTC);
+  }
+
+  @BeforeEach
+  public void setup() {
+    when(ucsbDateRepository.findAllByOrderByLocalDateTimeAsc()).thenReturn(List.of(firstDay, midterm, lastDay, springStart));
+    calendar.load();
+  }
+
+  @Test
+  public void between_includes_start_and_excludes_end() {
+    assertEquals(List.of(1L, 2L),
+        ids(calendar.between(LocalDateTime.parse("2022-01-03T08:00"), LocalDateTime.parse("2022-03-11T17:00"))));
+    assertEquals(List.of(1L, 2L, 3L, 4L),
+        ids(calendar.between(LocalDateTime.parse("2021-01-01T00:00"), LocalDateTime.parse("2023-01-01T00:00"))));
+  }
+
+  @Test
+  public void between_an_empty_or_backwards_range_is_empty() {
+    LocalDateTime t = LocalDateTime.parse("2022-01-03T08:00");
+    assertEquals(List.of(), calendar.between(t, t));
+    assertEquals(List.of(), calendar.between(t, t.minusDays(1)));
+  }
+
+  @Test
+  public void upcoming_starts_now_and_is_limited() {
+    setNow("2022-02-01T09:00");
+    assertEquals(List.of(2L, 3L), ids(calendar.upcoming(2)));
+    assertEquals(List.of(2L), ids(calendar.upcoming(0)));
+    assertEquals(List.of(2L, 3L, 4L), ids(calendar.upcoming(1000)));
+
+    setNow("2023-01-01T00:00");
+    assertEquals(List.of(), calendar.upcoming(10));
+  }
+
+  @Test
+  public void upcoming_compares_against_santa_barbara_time_on_a_utc_clock() {
+    // 17:30 UTC is 09:30 in Santa Barbara, so the 09:00 midterm has passed
+    calendar.clock = Clock.fixed(Instant.parse("2022-02-01T17:30:00Z"), ZoneOffset.UTC);
+    assertEquals(List.of(3L, 4L), ids(calendar.upcoming(10)));
+
+    // 16:30 UTC is 08:30 there, so it hasn't
+    calendar.clock = Clock.fixed(Instant.parse("2022-02-01T16:30:00Z"), ZoneOffset.UTC);
+    assertEquals(List.of(2L, 3L, 4L), ids(calendar.upcoming(10)));
+  }
+
+  @Test
+  public void in_quarter_is_ordered_with_untimed_dates_last() {
+    UCSBDate finals = date(5, "20222", "finals", null);
+    calendar.put(finals);
+
+    assertEquals(List.of(1L, 2L, 3L, 5L), ids(calendar.inQuarter("20222")));
+    assertEquals(List.of(4L), ids(calendar.inQuarter("20223")));
+    assertEquals(List.of(), calendar.inQuarter("20224"));
+    assertEquals(List.of(1L, 2L, 3L, 4L),
+        ids(calendar.between(LocalDateTime.parse("2021-01-01T00:00"), LocalDateTime.parse("2023-01-01T00:00"))));
+  }
+
+  @Test
+  public void put_moves_a_date_in_time_and_between_quarters() {
+    calendar.put(date(1, "20223", "firstDayOfClasses", "2022-04-01T08:00"));
+
+    assertEquals(List.of(2L, 3L), ids(calendar.inQuarter("20222")));
+    assertEquals(List.of(4L, 1L), ids(calendar.inQuarter("20223")));
+    assertEquals(List.of(4L, 1L),
+        ids(calendar.between(LocalDateTime.parse("2022-03-20T00:00"), LocalDateTime.parse("2022-05-01T00:00"))));
+    assertEquals(4, calendar.size());
+  }
+
+  @Test
+  public void remove_takes_a_date_out_everywhere() {
+    calendar.remove(4L);
+    calendar.remove(99L);
+
+    assertEquals(List.of(), calendar.inQuarter("20223"));
+    assertEquals(List.of(1L, 2L, 3L),
+        ids(calendar.between(LocalDateTime.parse("2021-01-01T00:00"), LocalDateTime.parse("2023-01-01T00:00"))));
+    assertEquals(3, calendar.size());
+  }
+
+  @Test
+  public void remove_quarter_takes_out_every_date_in_it() {
+    calendar.put(date(6, null, "noQuarter", "2022-01-10T00:00"));
+    calendar.removeQuarter("20222");
+    calendar.removeQuarter("20224");
+
+    assertEquals(List.of(), calendar.inQuarter("20222"));
+    assertEquals(List.of(6L, 4L),
+        ids(calendar.between(LocalDateTime.parse("2021-01-01T00:00"), LocalDateTime.parse("2023-01-01T00:00"))));
+    assertEquals(2, calendar.size());
+  }
+}
@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class UCSBDateFeedServiceTests {
+
+  @Mock
+  UCSBDateRepository ucsbDateRepository;
+
+  UCSBDateCalendarService calendar;
+
+  UCSBDateFeedService feeds;
+
+  private static final Instant RENDERED = Instant.parse("2022-01-05T12:34:56Z");
+
+  private final UCSBDate firstDay = date(1, "20222", "First day of classes", "2022-01-03T08:00");
+  private final UCSBDate lastDay = date(3, "20222", "Last day; finals, next", "2022-03-11T17:00");
+  private final UCSBDate springStart = date(4, "20223", "First day of classes", "2022-03-28T08:00");
+
+  private static UCSBDate date(long id, String quarter, String name, String time) {
+    return UCSBDate.builder()
+        .id(id)
+        .quarterYYYYQ(quarter)
+        .name(name)
+        .localDateTime(time == null ? null : LocalDateTime.parse(time))
+        .build();
+  }
+
+  private UCSBDateFeedService feedsOver(List<UCSBDate> dates) {
+    when(ucsbDateRepository.findAllByOrderByLocalDateTimeAsc()).thenReturn(dates);
+    UCSBDateCalendarService calendar = new UCSBDateCalendarService();
+    calendar.ucsbDateRepository = ucsbDateRepository;
+    calendar.load();
+    UCSBDateFeedService feeds = new UCSBDateFeedService();
+    feeds.ucsbDateCalendarService = calendar;
+    feeds.clock = Clock.fixed(RENDERED, ZoneOffset.UTC);
+    feeds.listen();
+    this.calendar = calendar;
+    return feeds;
+  }
+
+  @BeforeEach
+  public void setup() {
+    feeds = feedsOver(List.of(firstDay, lastDay, springStart));
+  }
+
+  private String text(UCSBDateFeedService.Feed feed) {
+    return new String(feed.body(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void feed_lists_the_quarter_as_icalendar() {
+    String expected = String.join("\r\n",
+        "BEGIN:VCALENDAR",
+        "VERSION:2.0",
+        "PRODID:" + UCSBDateFeedService.PRODID,
+        "CALSCALE:GREGORIAN",
+        "X-WR-CALNAME:UCSB dates 20222",
+        "BEGIN:VEVENT",
+        "UID:ucsbdate-1@ucsb-cs156",
+        "DTSTAMP:20220105T123456Z",
+        "DTSTART:20220103T160000Z",
+        "SUMMARY:First day of classes",
+        "END:VEVENT",
+        "BEGIN:VEVENT",
+        "UID:ucsbdate-3@ucsb-cs156",
+        "DTSTAMP:20220105T123456Z",
+        "DTSTART:20220312T010000Z",
+        "SUMMARY:Last day\\; finals\\, next",
+        "END:VEVENT",
+        "END:VCALENDAR",
+        "");
+
+    assertEquals(expected, text(feeds.feed("20222").orElseThrow()));
+  }
+
+  @Test
+  public void dates_without_a_time_are_left_out() {
+    calendar.put(date(5, "20222", "Sometime", null));
+    calendar.put(date(6, "20222", null, "2022-02-01T09:00"));
+
+    String text = text(feeds.feed("20222").orElseThrow());
+
+    assertTrue(!text.contains("Sometime"));
+    assertTrue(text.contains("UID:ucsbdate-6@ucsb-cs156\r\nDTSTAMP:20220105T123456Z\r\nDTSTART:20220201T170000Z\r\nSUMMARY:\r\n"));
+  }
+
+  @Test
+  public void a_quarter_without_dates_has_no_feed_and_is_not_cached() {
+    assertEquals(Optional.empty(), feeds.feed("20224"));
+    assertEquals(0, feeds.size());
+  }
+
+  @Test
+  public void anything_but_a_quarter_has_no_feed_and_is_not_cached() {
+    for (String notAQuarter : List.of("", "2022", "20225", "2022a", "20222\r\nX-Injected: 1", "../../20222")) {
+      assertEquals(Optional.empty(), feeds.feed(notAQuarter));
+    }
+    assertEquals(0, feeds.size());
+  }
+
+  @Test
+  public void a_quarter_whose_last_date_is_removed_has_no_feed() {
+    feeds.feed("20223").orElseThrow();
+
+    calendar.remove(4L);
+
+    assertEquals(Optional.empty(), feeds.feed("20223"));
+    assertEquals(0, feeds.size());
+  }
+
+  @Test
+  public void feed_is_cached_until_its_quarter_changes() {
+    UCSBDateFeedService.Feed winter = feeds.feed("20222").orElseThrow();
+    UCSBDateFeedService.Feed spring = feeds.feed("20223").orElseThrow();
+
+    assertSame(winter, feeds.feed("20222").orElseThrow());
+
+    calendar.put(date(2, "20222", "Midterm", "2022-02-01T09:00"));
+
+    UCSBDateFeedService.Feed changed = feeds.feed("20222").orElseThrow();
+    assertNotSame(winter, changed);
+    assertNotEquals(winter.etag(), changed.etag());
+    assertTrue(text(changed).contains("SUMMARY:Midterm"));
+    assertSame(spring, feeds.feed("20223").orElseThrow());
+
+    calendar.remove(2L);
+    assertEquals(winter.etag(), feeds.feed("20222").orElseThrow().etag());
+  }
+
+  @Test
+  public void moving_a_date_refreshes_both_quarters() {
+    UCSBDateFeedService.Feed winter = feeds.feed("20222").orElseThrow();
+    UCSBDateFeedService.Feed spring = feeds.feed("20223").orElseThrow();
+
+    calendar.put(date(3, "20223", "Last day; finals, next", "2022-03-11T17:00"));
+
+    assertNotSame(winter, feeds.feed("20222").orElseThrow());
+    assertNotSame(spring, feeds.feed("20223").orElseThrow());
+    assertTrue(text(feeds.feed("20223").orElseThrow()).contains("UID:ucsbdate-3@ucsb-cs156"));
+  }
+
+  @Test
+  public void start_times_are_converted_from_pacific_time_to_utc() {
+    // 08:00 PDT, after the change to daylight time on 2022-03-13
+    assertTrue(text(feeds.feed("20223").orElseThrow()).contains("DTSTART:20220328T150000Z\r\n"));
+  }
+
+  @Test
+  public void every_instance_serves_the_same_etag() {
+    UCSBDateFeedService.Feed one = feeds.feed("20222").orElseThrow();
+    UCSBDateFeedService other = feedsOver(List.of(firstDay, lastDay, springStart));
+    other.clock = Clock.fixed(RENDERED.plusSeconds(3600), ZoneOffset.UTC);
+    UCSBDateFeedService.Feed two = other.feed("20222").orElseThrow();
+
+    assertEquals(text(one).replace("DTSTAMP:20220105T123456Z", "DTSTAMP:20220105T133456Z"), text(two));
+    assertEquals(one.etag(), two.etag());
+    assertTrue(one.etag().matches("W/\"[0-9a-f]{32}\""));
+  }
+
+  @Test
+  public void text_is_escaped() {
+    assertEquals("a\\\\b\\;c\\,d\\ne\\nf\\ng", UCSBDateFeedService.escape("a\\b;c,d\r\ne\nf\rg"));
+    assertEquals("", UCSBDateFeedService.escape(null));
+  }
+
+  @Test
+  public void long_lines_are_folded_at_75_octets_between_characters() {
+    StringBuilder ascii = new StringBuilder();
+    UCSBDateFeedService.line(ascii, "x".repeat(160));
+    assertEquals("x".repeat(75) + "\r\n " + "x".repeat(74) + "\r\n " + "x".repeat(11) + "\r\n", ascii.toString());
+
+    // 2, 3 and 4 byte characters: none may be split across a fold
+    String mixed = "é".repeat(40) + "漢".repeat(30) + "😀".repeat(20);
+    StringBuilder out = new StringBuilder();
+    UCSBDateFeedService.line(out, mixed);
+
+    String folded = out.toString();
+    assertEquals(mixed, folded.replace("\r\n ", "").replace("\r\n", ""));
+    for (String physical : folded.split("\r\n")) {
+      assertTrue(physical.getBytes(StandardCharsets.UTF_8).length <= 75, physical);
+    }
+  }
+}